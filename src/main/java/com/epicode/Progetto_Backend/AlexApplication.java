@@ -3,6 +3,7 @@ package com.epicode.Progetto_Backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * AlexApplication - Classe principale dell'applicazione Spring Boot.
@@ -16,8 +17,12 @@ import org.springframework.scheduling.annotation.EnableAsync;
  *   nel package corrente e nei sottopackage.
  * 
  * - @EnableAsync: Abilita il supporto per l'esecuzione asincrona di metodi
- *   annotati con @Async. Utilizzato principalmente da MailgunService per
- *   l'invio di email in modo asincrono senza bloccare il thread principale.
+ *   annotati con @Async. Le email non lo usano più: MailgunService le accoda nella
+ *   tabella email_outbox e le consegna EmailOutboxDispatcher.
+ * 
+ * - @EnableScheduling: Abilita l'esecuzione dei metodi annotati con @Scheduled
+ *   (sincronizzazione delle revoche dei token, pulizia dei refresh token scaduti,
+ *   consegna delle email accodate nella outbox).
  * 
  * Funzionalità principali dell'applicazione:
  * - API REST per gestione immobili, contratti, locatari, rate, manutenzioni
@@ -38,9 +43,11 @@ import org.springframework.scheduling.annotation.EnableAsync;
  * 
  * @see org.springframework.boot.autoconfigure.SpringBootApplication
  * @see org.springframework.scheduling.annotation.EnableAsync
+ * @see org.springframework.scheduling.annotation.EnableScheduling
  */
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class AlexApplication {
 
 	/**
@@ -0,0 +1,48 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * CircuitBreakerProperties - Parametri del circuit breaker di un'integrazione esterna.
+ *
+ * Non è un bean: è annidata nelle proprietà dell'integrazione, es: mailgun.circuit-breaker.*
+ * in MailgunProperties e cloudinary.circuit-breaker.* in CloudinaryProperties.
+ *
+ * - sliding-window-size: Ultime chiamate considerate per i tassi di errore e di lentezza
+ * - minimum-number-of-calls: Chiamate registrate prima di poter aprire il circuito
+ * - failure-rate-threshold: Percentuale di errori che apre il circuito
+ * - slow-call-duration / slow-call-rate-threshold: Chiamate lente e percentuale che apre il circuito
+ * - wait-duration-in-open-state: Permanenza nello stato OPEN prima delle chiamate di prova
+ * - permitted-calls-in-half-open-state: Chiamate di prova nello stato HALF_OPEN
+ *
+ * @see com.epicode.Progetto_Backend.resilience.CircuitBreaker
+ */
+@Data
+public class CircuitBreakerProperties {
+
+    /** Abilita il circuit breaker (disabilitato, tutte le chiamate sono permesse) */
+    private boolean enabled = true;
+
+    /** Ultime chiamate considerate per calcolare i tassi */
+    private int slidingWindowSize = 20;
+
+    /** Chiamate registrate prima che il circuito possa aprirsi */
+    private int minimumNumberOfCalls = 10;
+
+    /** Percentuale di chiamate fallite (0-100) oltre la quale il circuito si apre */
+    private float failureRateThreshold = 50;
+
+    /** Durata oltre la quale una chiamata riuscita è considerata lenta */
+    private Duration slowCallDuration = Duration.ofSeconds(5);
+
+    /** Percentuale di chiamate lente (0-100) oltre la quale il circuito si apre */
+    private float slowCallRateThreshold = 80;
+
+    /** Permanenza nello stato OPEN prima di lasciar passare le chiamate di prova */
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    /** Chiamate di prova nello stato HALF_OPEN */
+    private int permittedCallsInHalfOpenState = 3;
+}
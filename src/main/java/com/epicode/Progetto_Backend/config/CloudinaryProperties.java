@@ -1,7 +1,10 @@
 package com.epicode.Progetto_Backend.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 import lombok.Data;
 
@@ -15,6 +18,11 @@ import lombok.Data;
  * - cloudinary.cloud-name: Nome del cloud Cloudinary
  * - cloudinary.api-key: API Key per autenticazione Cloudinary
  * - cloudinary.api-secret: API Secret per autenticazione Cloudinary
+ * - cloudinary.upload-prefix: URL base dell'API (vuoto = https://api.cloudinary.com)
+ * - cloudinary.max-file-size: Dimensione massima di un'immagine, verificata durante la copia
+ * - cloudinary.pool-size / queue-capacity: Pool dedicato agli upload (bulkhead)
+ * - cloudinary.timeout: Tempo massimo di un upload, attesa in coda compresa
+ * - cloudinary.circuit-breaker.*: Circuit breaker dell'API Cloudinary
  * 
  * Utilizzata da CloudinaryService per configurare il client Cloudinary.
  */
@@ -31,5 +39,23 @@ public class CloudinaryProperties {
     
     /** API Secret per l'autenticazione con Cloudinary */
     private String apiSecret;
+
+    /** URL base dell'API Cloudinary; se vuoto viene usato quello predefinito dell'SDK */
+    private String uploadPrefix;
+
+    /** Dimensione massima di un'immagine: il file viene rifiutato appena la supera */
+    private DataSize maxFileSize = DataSize.ofMegabytes(10);
+
+    /** Thread del pool dedicato agli upload: upload contemporanei verso Cloudinary */
+    private int poolSize = 4;
+
+    /** Upload in attesa oltre i quali le nuove richieste vengono rifiutate */
+    private int queueCapacity = 16;
+
+    /** Tempo massimo di un upload, attesa in coda compresa */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    /** Circuit breaker dell'API Cloudinary */
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
 }
 
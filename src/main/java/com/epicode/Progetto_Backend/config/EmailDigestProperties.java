@@ -0,0 +1,50 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.epicode.Progetto_Backend.entity.EmailType;
+
+import lombok.Data;
+
+/**
+ * EmailDigestProperties - Classe di configurazione per il riepilogo delle notifiche (modalità digest).
+ *
+ * Questa classe mappa le proprietà di NotificationDigestService, che raccoglie le notifiche
+ * non urgenti per destinatario e le invia come una sola email.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "email.digest":
+ * - email.digest.enabled: Abilita la modalità digest (disabilitata, ogni notifica è un'email)
+ * - email.digest.interval: Attesa massima di una notifica prima del riepilogo
+ * - email.digest.poll-interval: Intervallo tra due controlli dei riepiloghi dovuti
+ * - email.digest.batch-size: Destinatari elaborati per transazione di controllo
+ * - email.digest.urgent-types: Tipi di notifica inviati subito, senza riepilogo
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "email.digest")
+public class EmailDigestProperties {
+
+    /** Abilita la modalità digest */
+    private boolean enabled = false;
+
+    /**
+     * Attesa massima di una notifica: il riepilogo di un destinatario parte quando la sua
+     * notifica più vecchia supera questo intervallo e comprende tutte quelle accodate fino ad allora.
+     */
+    private Duration interval = Duration.ofHours(24);
+
+    /** Intervallo tra due controlli dei riepiloghi dovuti */
+    private Duration pollInterval = Duration.ofMinutes(1);
+
+    /** Destinatari elaborati per ciclo di controllo */
+    private int batchSize = 100;
+
+    /** Tipi di notifica urgenti: accodati subito nella outbox anche con la modalità digest */
+    private Set<EmailType> urgentTypes = EnumSet.of(EmailType.WELCOME, EmailType.CONTRACT_EXPIRING,
+            EmailType.PAYMENT_REMINDER, EmailType.PAYMENT_OVERDUE);
+}
@@ -0,0 +1,60 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * EmailOutboxProperties - Classe di configurazione per la consegna delle email accodate.
+ *
+ * Questa classe mappa le proprietà di EmailOutboxDispatcher, che preleva le email dalla
+ * tabella email_outbox e le consegna a Mailgun.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "email.outbox":
+ * - email.outbox.enabled: Abilita il dispatcher su questo nodo
+ * - email.outbox.poll-interval: Intervallo tra due prelievi
+ * - email.outbox.batch-size: Email prelevate per lotto
+ * - email.outbox.concurrency: Invii contemporanei verso Mailgun
+ * - email.outbox.lease: Tempo dopo il quale un'email prelevata e non completata torna prelevabile
+ * - email.outbox.max-attempts: Tentativi prima di marcare l'email come DEAD
+ * - email.outbox.initial-backoff / max-backoff: Attesa tra i tentativi (raddoppia a ogni errore)
+ * - email.outbox.retention: Conservazione delle email consegnate
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "email.outbox")
+public class EmailOutboxProperties {
+
+    /** Abilita il dispatcher (disabilitandolo le email restano accodate) */
+    private boolean enabled = true;
+
+    /** Intervallo tra due prelievi quando la coda è vuota */
+    private Duration pollInterval = Duration.ofSeconds(5);
+
+    /** Email prelevate e bloccate per lotto */
+    private int batchSize = 50;
+
+    /** Invii contemporanei verso Mailgun per nodo */
+    private int concurrency = 4;
+
+    /**
+     * Lease di un'email prelevata: se il nodo si arresta durante l'invio, l'email torna
+     * prelevabile dopo questo tempo. Deve superare il tempo massimo di un invio.
+     */
+    private Duration lease = Duration.ofMinutes(5);
+
+    /** Tentativi di invio prima di marcare l'email come DEAD */
+    private int maxAttempts = 8;
+
+    /** Attesa dopo il primo errore */
+    private Duration initialBackoff = Duration.ofSeconds(30);
+
+    /** Attesa massima tra due tentativi */
+    private Duration maxBackoff = Duration.ofHours(1);
+
+    /** Conservazione delle email consegnate prima della pulizia */
+    private Duration retention = Duration.ofDays(7);
+}
@@ -0,0 +1,32 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * EmailTemplateProperties - Classe di configurazione per i template delle email di notifica.
+ *
+ * Questa classe mappa le proprietà di EmailTemplateRegistry, che compila all'avvio i template
+ * in classpath:templates/email/.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "email.templates":
+ * - email.templates.default-locale: Lingua dei template senza suffisso (es: welcome.html)
+ * - email.templates.locales: Lingue aggiuntive caricate dai template con suffisso (es: welcome_en.html)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "email.templates")
+public class EmailTemplateProperties {
+
+    /** Lingua dei template senza suffisso, usata quando la lingua richiesta non ha una variante */
+    private Locale defaultLocale = Locale.ITALIAN;
+
+    /** Lingue aggiuntive: per ognuna vengono caricati i template con suffisso _lingua, se presenti */
+    private List<Locale> locales = new ArrayList<>(List.of(Locale.ENGLISH));
+}
@@ -0,0 +1,37 @@
+package com.epicode.Progetto_Backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * GraphQLConcurrencyProperties - Classe di configurazione per l'esecuzione parallela delle query GraphQL.
+ *
+ * Questa classe mappa le proprietà di ParallelBranchExecutor, che risolve in parallelo su
+ * virtual thread i campi radice indipendenti di una query (es: immobili, contratti e
+ * manutenzioni nella stessa richiesta) e i batch dei DataLoader dello stesso livello.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "graphql.concurrency":
+ * - graphql.concurrency.enabled: Abilita l'esecuzione parallela
+ * - graphql.concurrency.max-concurrency-per-request: Rami eseguiti contemporaneamente da una singola richiesta
+ * - graphql.concurrency.parallel-data-loaders: Esegue in parallelo anche i batch dei DataLoader
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "graphql.concurrency")
+public class GraphQLConcurrencyProperties {
+
+    /** Abilita l'esecuzione parallela dei campi radice delle query */
+    private boolean enabled = true;
+
+    /**
+     * Numero massimo di rami in esecuzione contemporanea per richiesta.
+     * Ogni ramo occupa una connessione del pool: il valore va confrontato con
+     * spring.datasource.hikari.maximum-pool-size e con il numero di richieste concorrenti.
+     */
+    private int maxConcurrencyPerRequest = 4;
+
+    /** Esegue in parallelo anche i batch dei DataLoader di RelationResolver */
+    private boolean parallelDataLoaders = true;
+}
@@ -1,10 +1,30 @@
 package com.epicode.Progetto_Backend.config;
 
+import java.io.IOException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.graphql.execution.RuntimeWiringConfigurer;
 import org.springframework.lang.NonNull;
 
+import com.epicode.Progetto_Backend.graphql.CachingPreparsedDocumentProvider;
+import com.epicode.Progetto_Backend.graphql.CostBudgetInterceptor;
+import com.epicode.Progetto_Backend.graphql.EntityDependencies;
+import com.epicode.Progetto_Backend.graphql.EntityDependencyInstrumentation;
+import com.epicode.Progetto_Backend.graphql.FieldMetricsInstrumentation;
+import com.epicode.Progetto_Backend.graphql.GraphQLResponseCache;
+import com.epicode.Progetto_Backend.graphql.ParallelBranchExecutor;
+import com.epicode.Progetto_Backend.graphql.ParallelExecutionInstrumentation;
+import com.epicode.Progetto_Backend.graphql.QueryCostInstrumentation;
+import com.epicode.Progetto_Backend.graphql.ResponseCacheInterceptor;
+import com.epicode.Progetto_Backend.ratelimit.RateLimiter;
+
+import graphql.execution.instrumentation.tracing.TracingInstrumentation;
 import graphql.schema.idl.RuntimeWiring;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * GraphQLConfig - Configurazione per GraphQL.
@@ -16,6 +36,29 @@ import graphql.schema.idl.RuntimeWiring;
  * automaticamente la conversione dei tipi standard (come LocalDate) tramite
  * i resolver definiti nelle classi QueryResolver e MutationResolver.
  * 
+ * Registra inoltre QueryCostInstrumentation, che calcola profondità, complessità e costo
+ * stimato di ogni operazione e rifiuta prima dell'esecuzione le query oltre le soglie
+ * configurate in graphql.limits.*.
+ * 
+ * Sostituisce infine il PreparsedDocumentProvider di graphql-java con
+ * CachingPreparsedDocumentProvider: cache LRU dei documenti già analizzati e validati,
+ * persisted query automatiche (hash SHA-256) e modalità allow-list opzionale
+ * (graphql.document-cache.*).
+ * 
+ * Le metriche per campo e per operazione (graphql.metrics.*) sono raccolte da
+ * FieldMetricsInstrumentation; l'estensione Apollo "tracing" è opzionale.
+ * 
+ * ParallelExecutionInstrumentation e ParallelBranchExecutor risolvono in parallelo su virtual
+ * thread i campi radice delle query e i batch dei DataLoader (graphql.concurrency.*).
+ * 
+ * GraphQLResponseCache memorizza le risposte delle query con le entità da cui dipendono
+ * (graphql.response-cache.*): ResponseCacheInterceptor legge e scrive la cache,
+ * EntityDependencyInstrumentation raccoglie le dipendenze e ResponseCacheInvalidator
+ * rimuove le risposte alla modifica delle entità.
+ * 
+ * CostBudgetInterceptor associa a ogni richiesta il budget di costo dell'utente
+ * (rate-limit.graphql.*), consumato da QueryCostInstrumentation prima dell'esecuzione.
+ * 
  * Questa classe può essere estesa per:
  * - Definire scalari personalizzati (es: Date, DateTime custom)
  * - Configurare resolver per tipi complessi
@@ -43,5 +86,159 @@ public class GraphQLConfig implements RuntimeWiringConfigurer {
         // Spring GraphQL automatically handles LocalDate conversion
         // This configuration can be extended if needed for custom scalars
     }
+
+    /**
+     * Instrumentation per il calcolo del costo delle query GraphQL.
+     * 
+     * Spring GraphQL registra automaticamente tutti i bean di tipo Instrumentation
+     * nel motore di esecuzione.
+     * 
+     * @param limits Soglie di profondità, complessità e costo
+     * @param pagination Dimensioni di pagina usate come stima delle Connection
+     * @return Instrumentation che rifiuta le query oltre le soglie
+     */
+    @Bean
+    public QueryCostInstrumentation queryCostInstrumentation(GraphQLLimitsProperties limits,
+                                                             GraphQLPaginationProperties pagination) {
+        return new QueryCostInstrumentation(limits, pagination);
+    }
+
+    /**
+     * Cache dei documenti GraphQL e supporto alle persisted query.
+     * 
+     * Il bean implementa anche MeterBinder: le metriche graphql.document.cache.*
+     * vengono registrate automaticamente da Spring Boot Actuator.
+     * 
+     * @param properties Configurazione della cache e della allow-list
+     * @param resolver Resolver per caricare i documenti della allow-list
+     * @return Provider dei documenti analizzati e validati
+     * @throws IOException Se i documenti della allow-list non possono essere letti
+     */
+    @Bean
+    public CachingPreparsedDocumentProvider cachingPreparsedDocumentProvider(GraphQLDocumentCacheProperties properties,
+                                                                             ResourcePatternResolver resolver) throws IOException {
+        return new CachingPreparsedDocumentProvider(properties,
+                CachingPreparsedDocumentProvider.loadAllowList(resolver, properties.getAllowListLocation()));
+    }
+
+    /**
+     * Instrumentation per le metriche Micrometer di operazioni e campi GraphQL.
+     * 
+     * @param registry Registry Micrometer di Actuator
+     * @param properties Configurazione delle metriche
+     * @return Instrumentation che registra latenze, invocazioni e statement SQL per campo
+     */
+    @Bean
+    public FieldMetricsInstrumentation fieldMetricsInstrumentation(MeterRegistry registry,
+                                                                   GraphQLMetricsProperties properties) {
+        return new FieldMetricsInstrumentation(registry, properties);
+    }
+
+    /**
+     * Executor su virtual thread per i rami paralleli delle query GraphQL.
+     * 
+     * Il metodo close() viene invocato da Spring allo shutdown del contesto.
+     * 
+     * @param properties Configurazione dell'esecuzione parallela
+     * @return Executor dei rami con limite di concorrenza per richiesta
+     */
+    @Bean
+    public ParallelBranchExecutor parallelBranchExecutor(GraphQLConcurrencyProperties properties) {
+        return new ParallelBranchExecutor(properties);
+    }
+
+    /**
+     * Instrumentation che esegue in parallelo i campi radice delle query.
+     * 
+     * @param branchExecutor Executor dei rami paralleli
+     * @param properties Configurazione dell'esecuzione parallela
+     * @return Instrumentation che avvolge i resolver dei campi radice
+     */
+    @Bean
+    public ParallelExecutionInstrumentation parallelExecutionInstrumentation(ParallelBranchExecutor branchExecutor,
+                                                                             GraphQLConcurrencyProperties properties) {
+        return new ParallelExecutionInstrumentation(branchExecutor, properties);
+    }
+
+    /**
+     * Cache delle risposte delle query GraphQL.
+     * 
+     * Il bean implementa anche MeterBinder: le metriche graphql.response.cache.*
+     * vengono registrate automaticamente da Spring Boot Actuator.
+     * 
+     * @param properties Configurazione della cache delle risposte
+     * @return Cache delle risposte con indice delle dipendenze
+     */
+    @Bean
+    public GraphQLResponseCache graphQLResponseCache(GraphQLResponseCacheProperties properties) {
+        return new GraphQLResponseCache(properties);
+    }
+
+    /**
+     * Interceptor che serve le risposte dalla cache e memorizza quelle nuove.
+     * 
+     * Spring GraphQL registra automaticamente tutti i bean di tipo WebGraphQlInterceptor.
+     * 
+     * @param cache Cache delle risposte
+     * @param properties Configurazione della cache delle risposte
+     * @return Interceptor della cache delle risposte
+     */
+    @Bean
+    public ResponseCacheInterceptor responseCacheInterceptor(GraphQLResponseCache cache,
+                                                             GraphQLResponseCacheProperties properties) {
+        return new ResponseCacheInterceptor(cache, properties);
+    }
+
+    /**
+     * Interceptor che associa a ogni richiesta GraphQL il budget di costo dell'utente.
+     * 
+     * Il costo viene consumato da QueryCostInstrumentation prima dell'esecuzione
+     * (rate-limit.graphql.*).
+     * 
+     * @param rateLimiter Rate limiter con i budget per utente
+     * @return Interceptor del budget di costo
+     */
+    @Bean
+    public CostBudgetInterceptor costBudgetInterceptor(RateLimiter rateLimiter) {
+        return new CostBudgetInterceptor(rateLimiter);
+    }
+
+    /**
+     * Instrumentation che raccoglie le entità da cui dipende ogni risposta.
+     * 
+     * @param entityDependencies Chiavi di dipendenza delle entità
+     * @param properties Configurazione della cache delle risposte
+     * @return Instrumentation delle dipendenze
+     */
+    @Bean
+    public EntityDependencyInstrumentation entityDependencyInstrumentation(EntityDependencies entityDependencies,
+                                                                           GraphQLResponseCacheProperties properties) {
+        return new EntityDependencyInstrumentation(entityDependencies, properties);
+    }
+
+    /**
+     * Estensione Apollo "tracing": aggiunge alla risposta i tempi di parsing, validazione
+     * ed esecuzione di ogni campo. Pensata per la diagnostica, aumenta la dimensione
+     * delle risposte ed è quindi disabilitata di default.
+     * 
+     * @return Instrumentation di tracing di graphql-java
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "graphql.metrics", name = "tracing-enabled", havingValue = "true")
+    public TracingInstrumentation tracingInstrumentation() {
+        return new TracingInstrumentation();
+    }
+
+    /**
+     * Registra il provider dei documenti nell'istanza GraphQL creata da Spring Boot.
+     * 
+     * @param documentProvider Provider dei documenti analizzati e validati
+     * @return Customizer della sorgente GraphQL
+     */
+    @Bean
+    public GraphQlSourceBuilderCustomizer preparsedDocumentProviderCustomizer(
+            CachingPreparsedDocumentProvider documentProvider) {
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(documentProvider));
+    }
 }
 
@@ -0,0 +1,41 @@
+package com.epicode.Progetto_Backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * GraphQLDocumentCacheProperties - Classe di configurazione per la cache dei documenti GraphQL.
+ *
+ * Questa classe mappa le proprietà di CachingPreparsedDocumentProvider, che evita di ripetere
+ * parsing e validazione per documenti già visti e implementa le persisted query automatiche
+ * (protocollo Apollo: hash SHA-256 nelle extensions della richiesta).
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "graphql.document-cache":
+ * - graphql.document-cache.enabled: Abilita la cache dei documenti analizzati e validati
+ * - graphql.document-cache.max-entries: Numero massimo di documenti in cache (LRU)
+ * - graphql.document-cache.persisted-queries-enabled: Abilita la registrazione degli hash via APQ
+ * - graphql.document-cache.allow-list-only: Accetta solo i documenti presenti nella allow-list
+ * - graphql.document-cache.allow-list-location: Pattern dei file .graphql della allow-list
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "graphql.document-cache")
+public class GraphQLDocumentCacheProperties {
+
+    /** Abilita la cache dei documenti analizzati e validati */
+    private boolean enabled = true;
+
+    /** Numero massimo di documenti mantenuti in cache (i meno usati vengono rimossi) */
+    private int maxEntries = 500;
+
+    /** Abilita la registrazione automatica degli hash SHA-256 inviati dai client (APQ) */
+    private boolean persistedQueriesEnabled = true;
+
+    /** Se true, vengono eseguiti solo i documenti presenti nella allow-list */
+    private boolean allowListOnly = false;
+
+    /** Pattern delle risorse che compongono la allow-list (un documento per file) */
+    private String allowListLocation = "classpath*:graphql/persisted/*.graphql";
+}
@@ -0,0 +1,63 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * GraphQLLimitsProperties - Classe di configurazione per i limiti delle query GraphQL.
+ *
+ * Questa classe mappa le soglie applicate da QueryCostInstrumentation prima dell'esecuzione
+ * di ogni operazione GraphQL. Le query che superano anche una sola soglia vengono rifiutate
+ * senza eseguire alcun resolver (e quindi senza alcuna query SQL).
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "graphql.limits":
+ * - graphql.limits.enabled: Abilita il calcolo del costo e il rifiuto delle query
+ * - graphql.limits.max-depth: Profondità massima di annidamento dei campi
+ * - graphql.limits.max-complexity: Numero massimo di campi selezionati nella query
+ * - graphql.limits.max-cost: Costo stimato massimo (pesi dei campi moltiplicati per le liste)
+ * - graphql.limits.default-list-size: Stima degli elementi di una lista senza argomento "first"
+ * - graphql.limits.object-field-weight / scalar-field-weight: Pesi predefiniti dei campi
+ * - graphql.limits.field-weights[Tipo.campo]: Peso specifico di un campo
+ * - graphql.limits.list-sizes[Tipo.campo]: Stima specifica della dimensione di una lista
+ * - graphql.limits.report-cost: Riporta il costo calcolato nelle extensions della risposta
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "graphql.limits")
+public class GraphQLLimitsProperties {
+
+    /** Abilita il calcolo del costo e il rifiuto delle query oltre le soglie */
+    private boolean enabled = true;
+
+    /** Profondità massima di annidamento (il campo radice ha profondità 1) */
+    private int maxDepth = 8;
+
+    /** Numero massimo di campi selezionati, senza moltiplicatori delle liste */
+    private int maxComplexity = 200;
+
+    /** Costo stimato massimo di una singola operazione */
+    private long maxCost = 5000;
+
+    /** Elementi stimati per una lista senza argomento "first" né stima specifica */
+    private int defaultListSize = 10;
+
+    /** Peso predefinito di un campo che restituisce un oggetto o una lista di oggetti */
+    private int objectFieldWeight = 1;
+
+    /** Peso predefinito di un campo scalare o enum */
+    private int scalarFieldWeight = 0;
+
+    /** Pesi specifici per campo, con chiave "Tipo.campo" (es: Query.rate) */
+    private Map<String, Integer> fieldWeights = new HashMap<>();
+
+    /** Stime specifiche della dimensione delle liste, con chiave "Tipo.campo" */
+    private Map<String, Integer> listSizes = new HashMap<>();
+
+    /** Riporta profondità, complessità e costo nelle extensions della risposta */
+    private boolean reportCost = true;
+}
@@ -0,0 +1,40 @@
+package com.epicode.Progetto_Backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * GraphQLMetricsProperties - Classe di configurazione per le metriche dei resolver GraphQL.
+ *
+ * Questa classe mappa le proprietà di FieldMetricsInstrumentation, che misura latenza,
+ * invocazioni e statement SQL di ogni campo GraphQL e le esporta tramite Micrometer/Actuator.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "graphql.metrics":
+ * - graphql.metrics.enabled: Abilita le metriche per campo e per operazione
+ * - graphql.metrics.include-trivial-fields: Misura anche i campi risolti tramite getter
+ * - graphql.metrics.percentile-histogram: Pubblica gli istogrammi di latenza (bucket per percentili)
+ * - graphql.metrics.max-operation-names: Nomi di operazione distinti usati come tag
+ * - graphql.metrics.tracing-enabled: Aggiunge l'estensione "tracing" (formato Apollo) alle risposte
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "graphql.metrics")
+public class GraphQLMetricsProperties {
+
+    /** Abilita le metriche per campo e per operazione */
+    private boolean enabled = true;
+
+    /** Misura anche i campi risolti da PropertyDataFetcher (getter delle entità) */
+    private boolean includeTrivialFields = false;
+
+    /** Pubblica gli istogrammi di latenza, necessari per calcolare i percentili lato Prometheus */
+    private boolean percentileHistogram = true;
+
+    /** Numero massimo di nomi di operazione distinti usati come tag (gli altri diventano "other") */
+    private int maxOperationNames = 100;
+
+    /** Aggiunge l'estensione Apollo "tracing" con i tempi di ogni campo (solo diagnostica) */
+    private boolean tracingEnabled = false;
+}
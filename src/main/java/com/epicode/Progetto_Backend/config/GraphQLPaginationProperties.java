@@ -0,0 +1,30 @@
+package com.epicode.Progetto_Backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * GraphQLPaginationProperties - Classe di configurazione per la paginazione GraphQL.
+ * 
+ * Questa classe mappa le proprietà che regolano le query GraphQL di tipo Connection
+ * (immobiliConnection, contrattiConnection, rateConnection, ...).
+ * 
+ * Le proprietà vengono lette da application.properties con il prefisso "graphql.pagination":
+ * - graphql.pagination.default-page-size: Elementi restituiti se il client non specifica "first"
+ * - graphql.pagination.max-page-size: Limite massimo imposto dal server al valore di "first"
+ * 
+ * Utilizzata da QueryResolver per limitare la dimensione di ogni pagina.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "graphql.pagination")
+public class GraphQLPaginationProperties {
+    
+    /** Numero di elementi per pagina quando il client non specifica "first" */
+    private int defaultPageSize = 20;
+    
+    /** Numero massimo di elementi per pagina (valori di "first" superiori vengono ridotti) */
+    private int maxPageSize = 100;
+}
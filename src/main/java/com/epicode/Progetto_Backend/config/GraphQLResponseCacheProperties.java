@@ -0,0 +1,47 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * GraphQLResponseCacheProperties - Classe di configurazione per la cache delle risposte GraphQL.
+ *
+ * Questa classe mappa le proprietà di GraphQLResponseCache, che memorizza le risposte delle query
+ * (mai delle mutation) per documento normalizzato, variabili e ruoli dell'utente, e le invalida
+ * quando le entità da cui dipendono vengono modificate.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "graphql.response-cache":
+ * - graphql.response-cache.enabled: Abilita la cache delle risposte
+ * - graphql.response-cache.max-entries: Numero massimo di risposte in cache (LRU)
+ * - graphql.response-cache.ttl: Durata massima di una risposta in cache
+ * - graphql.response-cache.max-dependencies: Dipendenze massime per risposta (oltre non viene memorizzata)
+ * - graphql.response-cache.user-scoped-fields: Campi Query il cui risultato dipende dall'utente
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "graphql.response-cache")
+public class GraphQLResponseCacheProperties {
+
+    /** Abilita la cache delle risposte delle query GraphQL */
+    private boolean enabled = true;
+
+    /** Numero massimo di risposte mantenute in cache (le meno usate vengono rimosse) */
+    private int maxEntries = 1000;
+
+    /**
+     * Durata massima di una risposta in cache. Le modifiche effettuate tramite JPA invalidano
+     * subito le risposte; il TTL copre le modifiche fatte direttamente sul database.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /** Numero massimo di dipendenze (entità e liste) registrabili per una risposta */
+    private int maxDependencies = 5000;
+
+    /** Campi Query che dipendono dall'utente autenticato: le risposte vengono separate per utente */
+    private List<String> userScopedFields = List.of("me");
+}
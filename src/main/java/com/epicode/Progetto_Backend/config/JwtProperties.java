@@ -1,5 +1,7 @@
 package com.epicode.Progetto_Backend.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -13,7 +15,10 @@ import lombok.Data;
  * 
  * Le proprietà vengono lette dal file env.properties con il prefisso "jwt":
  * - jwt.secret: Chiave segreta utilizzata per firmare e verificare i token JWT
- * - jwt.expiration: Durata di validità del token in millisecondi (es: 86400000 = 24 ore)
+ * - jwt.expiration: Durata di validità del token di accesso in millisecondi (es: 900000 = 15 minuti)
+ * - jwt.refresh-expiration: Durata di validità del refresh token in millisecondi (es: 604800000 = 7 giorni)
+ * - jwt.version-check-ttl: Durata in cache della versione dei token di un utente
+ * - jwt.version-cache-max-entries: Numero massimo di utenti con versione in cache
  * 
  * Utilizzata da JwtTokenProvider per generare e validare i token.
  */
@@ -25,7 +30,16 @@ public class JwtProperties {
     /** Chiave segreta per firmare e verificare i token JWT (deve essere sicura e non condivisa) */
     private String secret;
     
-    /** Durata di validità del token in millisecondi (es: 86400000 = 24 ore) */
+    /** Durata di validità del token di accesso in millisecondi (es: 900000 = 15 minuti) */
     private long expiration;
+    
+    /** Durata di validità del refresh token in millisecondi (es: 604800000 = 7 giorni) */
+    private long refreshExpiration = 604800000L;
+    
+    /** Durata in cache della versione dei token: ritardo massimo con cui un cambio di ruoli viene rilevato da altri nodi */
+    private Duration versionCheckTtl = Duration.ofSeconds(30);
+    
+    /** Numero massimo di utenti con versione dei token in cache */
+    private int versionCacheMaxEntries = 10000;
 }
 
@@ -1,5 +1,7 @@
 package com.epicode.Progetto_Backend.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -15,6 +17,12 @@ import lombok.Data;
  * - mailgun.api-key: API Key per autenticazione con Mailgun
  * - mailgun.domain: Dominio Mailgun configurato per l'invio email
  * - mailgun.from-email: Indirizzo email mittente per le email inviate
+ * - mailgun.batch-size: Destinatari per chiamata negli invii a lotti (massimo 1000)
+ * - mailgun.base-url: URL base dell'API (es: regione EU o server di test)
+ * - mailgun.connect-timeout / request-timeout: Timeout di connessione e per chiamata
+ * - mailgun.max-concurrent-requests / acquire-timeout: Limite delle richieste contemporanee
+ * - mailgun.io-threads: Thread che completano le risposte di tutte le richieste in corso
+ * - mailgun.circuit-breaker.*: Circuit breaker delle chiamate (vedi CircuitBreakerProperties)
  * 
  * Utilizzata da MailgunService per configurare il client Mailgun e inviare email.
  */
@@ -31,5 +39,29 @@ public class MailgunProperties {
     
     /** Indirizzo email del mittente utilizzato per tutte le email inviate */
     private String fromEmail;
+    
+    /** Destinatari per chiamata negli invii a lotti (recipient-variables); Mailgun ne accetta al massimo 1000 */
+    private int batchSize = 1000;
+    
+    /** URL base dell'API Mailgun (https://api.eu.mailgun.net/v3 per i domini europei) */
+    private String baseUrl = "https://api.mailgun.net/v3";
+    
+    /** Timeout per stabilire una connessione con Mailgun */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    
+    /** Timeout di una singola chiamata, dall'invio della richiesta alla risposta */
+    private Duration requestTimeout = Duration.ofSeconds(10);
+    
+    /** Richieste contemporanee massime verso Mailgun */
+    private int maxConcurrentRequests = 64;
+    
+    /** Attesa massima di un posto libero quando il limite di richieste è raggiunto */
+    private Duration acquireTimeout = Duration.ofSeconds(5);
+    
+    /** Thread del client HTTP: completano le risposte, non restano bloccati durante le chiamate */
+    private int ioThreads = 2;
+    
+    /** Circuit breaker delle chiamate a Mailgun */
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
 }
 
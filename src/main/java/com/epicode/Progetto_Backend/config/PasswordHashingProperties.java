@@ -0,0 +1,52 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * PasswordHashingProperties - Classe di configurazione per l'hashing delle password (BCrypt).
+ *
+ * Questa classe mappa le proprietà di PasswordHashingExecutor, il pool dedicato su cui vengono
+ * eseguiti hashing e verifica delle password, e il costo di BCrypt usato da SecurityConfig.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "security.password-hashing":
+ * - security.password-hashing.pool-size: Thread del pool (0 = numero di core)
+ * - security.password-hashing.queue-capacity: Operazioni in attesa oltre le quali si risponde 503
+ * - security.password-hashing.timeout: Attesa massima di un'operazione (coda + esecuzione)
+ * - security.password-hashing.strength: Costo BCrypt fisso (vuoto = calibrazione all'avvio)
+ * - security.password-hashing.target-latency: Durata obiettivo di un hash per la calibrazione
+ * - security.password-hashing.min-strength / max-strength: Limiti del costo calibrato
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "security.password-hashing")
+public class PasswordHashingProperties {
+
+    /** Thread del pool di hashing (0 = numero di core disponibili) */
+    private int poolSize = 0;
+
+    /** Operazioni in coda oltre le quali le nuove vengono rifiutate con 503 */
+    private int queueCapacity = 200;
+
+    /** Attesa massima di un'operazione, coda compresa, prima di rispondere 503 */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    /**
+     * Costo BCrypt (log2 delle iterazioni). Se non impostato viene calibrato all'avvio
+     * in base a targetLatency.
+     */
+    private Integer strength;
+
+    /** Durata obiettivo di un singolo hash BCrypt, usata dalla calibrazione */
+    private Duration targetLatency = Duration.ofMillis(250);
+
+    /** Costo minimo ammesso dalla calibrazione */
+    private int minStrength = 10;
+
+    /** Costo massimo ammesso dalla calibrazione */
+    private int maxStrength = 14;
+}
@@ -0,0 +1,48 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * ProfileImageProperties - Classe di configurazione per l'elaborazione delle immagini profilo.
+ *
+ * Questa classe mappa le proprietà di ProfileImageService, che ridimensiona in background le
+ * immagini profilo caricate e ne carica le varianti su Cloudinary.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "profile-image":
+ * - profile-image.sizes: Lati in pixel delle varianti quadrate generate
+ * - profile-image.pool-size: Thread del pool di ridimensionamento (0 = numero di core)
+ * - profile-image.queue-capacity: Elaborazioni in attesa oltre le quali si risponde 503
+ * - profile-image.max-pixels: Pixel massimi dell'immagine originale (larghezza x altezza)
+ * - profile-image.jpeg-quality: Qualità delle varianti JPEG (0-1)
+ * - profile-image.job-retention: Conservazione dello stato delle elaborazioni terminate
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "profile-image")
+public class ProfileImageProperties {
+
+    /** Lati in pixel delle varianti; la più grande diventa anche l'immagine profilo dell'utente */
+    private List<Integer> sizes = new ArrayList<>(List.of(64, 256, 1024));
+
+    /** Thread del pool di ridimensionamento (0 = numero di core disponibili) */
+    private int poolSize = 0;
+
+    /** Elaborazioni in coda oltre le quali le nuove vengono rifiutate con 503 */
+    private int queueCapacity = 32;
+
+    /** Pixel massimi dell'immagine originale: oltre, l'elaborazione fallisce senza decodificarla */
+    private long maxPixels = 40_000_000;
+
+    /** Qualità delle varianti JPEG (le immagini con trasparenza vengono salvate in PNG) */
+    private float jpegQuality = 0.85f;
+
+    /** Per quanto tempo lo stato di un'elaborazione terminata resta consultabile */
+    private Duration jobRetention = Duration.ofHours(1);
+}
@@ -0,0 +1,162 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * RateLimitProperties - Classe di configurazione per il rate limiting delle API.
+ *
+ * Questa classe mappa le proprietà di RateLimiter: i limiti sono applicati per utente
+ * autenticato (o per IP se la richiesta è anonima), con un livello (tier) scelto in base
+ * ai ruoli e un costo per richiesta che dipende dalla rotta.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "rate-limit":
+ * - rate-limit.enabled: Abilita il rate limiting
+ * - rate-limit.max-clients: Numero massimo di client (utenti o IP) con un bucket in memoria
+ * - rate-limit.expire-after-access: Inattività dopo la quale il bucket di un client viene rimosso
+ * - rate-limit.tiers.[nome].*: Livelli di limite; "anonymous" per le richieste anonime,
+ *   "authenticated" per gli utenti senza un livello specifico, altrimenti il nome del ruolo
+ *   senza prefisso in minuscolo (es: admin per ROLE_ADMIN)
+ * - rate-limit.default-cost / rate-limit.routes[i].*: Costo delle richieste in token
+ * - rate-limit.reload-file / rate-limit.reload-interval: File di proprietà ricaricato a caldo
+ * - rate-limit.store: Dove risiedono i bucket (local = memoria del nodo, jdbc = database condiviso)
+ * - rate-limit.jdbc.*: Prelievo anticipato e tentativi del backend jdbc
+ * - rate-limit.graphql.*: Budget di costo GraphQL per utente (livelli come rate-limit.tiers)
+ *
+ * I livelli e i costi possono essere modificati senza riavvio tramite reload-file; le dimensioni
+ * del negozio dei bucket (store, jdbc, max-clients, expire-after-access) sono lette solo all'avvio.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    /** Abilita il rate limiting */
+    private boolean enabled = true;
+
+    /** Numero massimo di client con un bucket in memoria (i meno recenti vengono rimossi) */
+    private int maxClients = 100000;
+
+    /** Inattività dopo la quale il bucket di un client viene rimosso */
+    private Duration expireAfterAccess = Duration.ofMinutes(10);
+
+    /** Backend dei bucket: local (un limite per nodo) o jdbc (un limite per l'intero cluster) */
+    private Store store = Store.LOCAL;
+
+    /** Impostazioni del backend jdbc */
+    private Jdbc jdbc = new Jdbc();
+
+    /** Budget di costo delle operazioni GraphQL */
+    private Graphql graphql = new Graphql();
+
+    /** Livelli di limite per nome (anonymous, authenticated o nome del ruolo) */
+    private Map<String, Tier> tiers = new HashMap<>();
+
+    /** Costo in token delle richieste che non corrispondono a nessuna rotta configurata */
+    private long defaultCost = 1;
+
+    /** Costi specifici per rotta: vale la prima rotta corrispondente */
+    private List<Route> routes = new ArrayList<>();
+
+    /**
+     * File di proprietà (prefisso rate-limit) che sovrascrive livelli e costi senza riavvio.
+     * Se vuoto il ricaricamento a caldo è disabilitato.
+     */
+    private String reloadFile;
+
+    /** Intervallo di controllo delle modifiche al file e di rimozione dei bucket inattivi */
+    private Duration reloadInterval = Duration.ofSeconds(30);
+
+    /**
+     * Backend dei bucket di rate limiting.
+     */
+    public enum Store {
+        /** Bucket in memoria, indipendenti per ogni nodo (LocalBucketStore) */
+        LOCAL,
+        /** Bucket nella tabella rate_limit_bucket, condivisi tra i nodi (JdbcBucketStore) */
+        JDBC
+    }
+
+    /**
+     * Impostazioni del backend jdbc.
+     */
+    @Data
+    public static class Jdbc {
+
+        /**
+         * Token prelevati dal database a ogni accesso e consumati poi in memoria
+         * (al massimo un decimo della capacità del livello). Valori alti riducono gli accessi
+         * al database ma lasciano più token fermi sul singolo nodo.
+         */
+        private long prefetchTokens = 5;
+
+        /** Durata dei token prelevati: alla scadenza quelli non usati tornano al bucket condiviso */
+        private Duration prefetchTtl = Duration.ofSeconds(2);
+
+        /** Tentativi di aggiornamento in caso di conflitto con un altro nodo */
+        private int maxRetries = 5;
+    }
+
+    /**
+     * Budget di costo GraphQL per utente.
+     *
+     * Ogni operazione GraphQL consuma dal budget dell'utente il proprio costo stimato
+     * (QueryCostInstrumentation), invece di un token per richiesta HTTP.
+     */
+    @Data
+    public static class Graphql {
+
+        /** Budget dell'utente autenticato se non è configurato un livello "authenticated" */
+        public static final long DEFAULT_BUDGET = 20000;
+
+        /** Abilita il budget di costo (le richieste /graphql consumano comunque i token REST) */
+        private boolean enabled = true;
+
+        /**
+         * Budget per livello: "authenticated" o nome del ruolo, come rate-limit.tiers.
+         * capacity è il costo massimo consumabile nel periodo; conviene che non sia inferiore
+         * a graphql.limits.max-cost, altrimenti un'operazione ammessa consuma l'intero budget.
+         */
+        private Map<String, Tier> tiers = new HashMap<>();
+    }
+
+    /**
+     * Livello di limite (token bucket).
+     */
+    @Data
+    public static class Tier {
+
+        /** Token massimi disponibili (richieste consecutive ammesse) */
+        private long capacity = 100;
+
+        /** Token ricaricati a ogni periodo (0 = capacity) */
+        private long refillTokens = 0;
+
+        /** Periodo di ricarica */
+        private Duration refillPeriod = Duration.ofMinutes(1);
+    }
+
+    /**
+     * Costo di una rotta.
+     */
+    @Data
+    public static class Route {
+
+        /** Pattern del percorso (es: /api/immobili/per-*) */
+        private String pattern;
+
+        /** Metodo HTTP (vuoto = tutti) */
+        private String method;
+
+        /** Costo in token di una richiesta */
+        private long cost = 1;
+    }
+}
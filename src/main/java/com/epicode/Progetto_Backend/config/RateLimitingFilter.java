@@ -0,0 +1,165 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.epicode.Progetto_Backend.ratelimit.RateLimiter;
+import com.epicode.Progetto_Backend.security.JwtAuthenticationFilter;
+import com.epicode.Progetto_Backend.security.JwtPrincipal;
+import com.epicode.Progetto_Backend.security.JwtTokenProvider;
+
+import io.github.bucket4j.ConsumptionProbe;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * RateLimitingFilter - Filtro servlet per limitare il numero di richieste per client.
+ *
+ * Questo filtro applica il rate limiting di RateLimiter (algoritmo Token Bucket
+ * della libreria Bucket4j) per prevenire abusi e attacchi DDoS limitando il numero
+ * di richieste che un singolo client può effettuare in un determinato periodo di tempo.
+ *
+ * Il filtro è registrato in WebConfig prima della catena di Spring Security: una richiesta
+ * rifiutata non passa dall'autenticazione JWT né da controller o GraphQL, quindi il traffico
+ * in eccesso costa solo la verifica del bucket.
+ *
+ * Configurazione (rate-limit.* in application.properties):
+ * - Client: utente del token JWT, oppure IP per le richieste anonime o con token non valido
+ * - Limite: livello scelto in base ai ruoli del token (es: admin, manager, locatario, anonymous)
+ * - Costo: token consumati per richiesta in base alla rotta (i report costano di più)
+ * - Scope: "/api/**" (esclusi gli endpoint di auth) e "/graphql"; le richieste OPTIONS
+ *   (preflight CORS) non consumano token
+ *
+ * Funzionamento:
+ * 1. Verifica firma e scadenza del token (nessun accesso al database) e ne legge email e ruoli;
+ *    i claim vengono lasciati nella richiesta e riusati da JwtAuthenticationFilter
+ * 2. Consuma dal bucket del client i token previsti per la rotta
+ * 3. Se il bucket non ha abbastanza token, restituisce 429 Too Many Requests
+ * 4. I token vengono ricaricati gradualmente nel periodo del livello
+ *
+ * Revoca e versione del token sono verificate solo da JwtAuthenticationFilter: un token revocato
+ * ma ancora firmato consuma i token del proprio utente e viene poi rifiutato con 401.
+ *
+ * Header di risposta:
+ * - X-RateLimit-Remaining: Token residui nel bucket del client
+ * - Retry-After: Secondi prima di poter ripetere la richiesta (solo con 429)
+ *
+ * Risposta quando il limite viene superato (corpo e header precalcolati):
+ * - Status Code: 429 Too Many Requests
+ * - Body: {"error":"Rate limit exceeded. Please try again later."}
+ *
+ * @see com.epicode.Progetto_Backend.ratelimit.RateLimiter
+ * @see com.epicode.Progetto_Backend.config.WebConfig
+ */
+@Component
+public class RateLimitingFilter extends OncePerRequestFilter {
+
+    /** Corpo della risposta 429, serializzato una sola volta */
+    private static final byte[] REJECTED_BODY =
+            "{\"error\":\"Rate limit exceeded. Please try again later.\"}".getBytes(StandardCharsets.UTF_8);
+
+    /** Valori di Retry-After precalcolati (in secondi) per le attese fino a un'ora */
+    private static final String[] RETRY_AFTER = new String[3601];
+
+    static {
+        for (int i = 0; i < RETRY_AFTER.length; i++) {
+            RETRY_AFTER[i] = String.valueOf(i);
+        }
+    }
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    /**
+     * Esclude le richieste non soggette al rate limiting.
+     *
+     * Login e registrazione devono sempre essere disponibili; il preflight CORS non
+     * rappresenta una richiesta applicativa.
+     */
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !rateLimiter.isEnabled()
+                || HttpMethod.OPTIONS.matches(request.getMethod())
+                || request.getRequestURI().startsWith("/api/auth");
+    }
+
+    /**
+     * Consuma i token della richiesta e la blocca con 429 se il bucket del client è vuoto.
+     *
+     * @param request Richiesta HTTP
+     * @param response Risposta HTTP
+     * @param filterChain Catena di filtri da eseguire
+     * @throws ServletException se si verifica un errore del servlet
+     * @throws IOException se si verifica un errore di I/O
+     */
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String username = null;
+        List<String> roles = List.of();
+        Claims claims = parseClaims(request);
+        if (claims != null) {
+            request.setAttribute(JwtAuthenticationFilter.CLAIMS_ATTRIBUTE, claims);
+            username = claims.getSubject();
+            JwtPrincipal principal = tokenProvider.toPrincipal(claims);
+            if (principal != null) {
+                roles = principal.roles();
+            }
+        }
+
+        ConsumptionProbe probe = rateLimiter.tryConsume(request, username, roles);
+        response.setHeader("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()));
+        if (probe.isConsumed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Token insufficienti: limite superato
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()) + 1);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds < RETRY_AFTER.length
+                ? RETRY_AFTER[(int) retryAfterSeconds]
+                : String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTED_BODY.length);
+        response.getOutputStream().write(REJECTED_BODY);
+    }
+
+    /**
+     * Verifica il token JWT dell'header Authorization, se presente.
+     *
+     * @param request Richiesta HTTP
+     * @return Claim del token, null se assente, scaduto o non valido (richiesta anonima)
+     */
+    private Claims parseClaims(HttpServletRequest request) {
+        String bearerToken = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (!StringUtils.hasText(bearerToken) || !bearerToken.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            return tokenProvider.parseToken(bearerToken.substring(7));
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
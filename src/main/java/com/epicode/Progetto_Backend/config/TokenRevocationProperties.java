@@ -0,0 +1,37 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * TokenRevocationProperties - Classe di configurazione per la revoca dei token di accesso.
+ *
+ * Questa classe mappa le proprietà di TokenRevocationList, la copia in memoria (filtro di Bloom
+ * e insieme esatto) della tabella revoked_token consultata da JwtAuthenticationFilter.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "jwt.revocation":
+ * - jwt.revocation.sync-interval: Intervallo di sincronizzazione con le revoche degli altri nodi
+ * - jwt.revocation.expected-entries: Revoche contemporanee previste (dimensionamento del filtro)
+ * - jwt.revocation.false-positive-rate: Probabilità di falso positivo del filtro
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jwt.revocation")
+public class TokenRevocationProperties {
+
+    /** Intervallo di sincronizzazione: ritardo massimo con cui una revoca raggiunge gli altri nodi */
+    private Duration syncInterval = Duration.ofSeconds(30);
+
+    /**
+     * Revoche contemporanee previste (token revocati e non ancora scaduti). Oltre questo
+     * numero la probabilità di falso positivo aumenta, ma la verifica resta esatta.
+     */
+    private int expectedEntries = 100000;
+
+    /** Probabilità di falso positivo del filtro di Bloom (un falso positivo costa una ricerca nell'insieme esatto) */
+    private double falsePositiveRate = 0.01;
+}
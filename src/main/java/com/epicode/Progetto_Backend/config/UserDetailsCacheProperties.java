@@ -0,0 +1,39 @@
+package com.epicode.Progetto_Backend.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * UserDetailsCacheProperties - Classe di configurazione per la cache dei UserDetails.
+ *
+ * Questa classe mappa le proprietà di UserDetailsCache, che memorizza per email i dettagli
+ * degli utenti caricati da CustomUserDetailsService (login e autenticazione tramite token
+ * senza claim) e li invalida quando ruoli, stato o esistenza dell'utente cambiano.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso "security.user-details-cache":
+ * - security.user-details-cache.enabled: Abilita la cache
+ * - security.user-details-cache.max-entries: Numero massimo di utenti in cache (LRU)
+ * - security.user-details-cache.ttl: Durata massima di un utente in cache
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "security.user-details-cache")
+public class UserDetailsCacheProperties {
+
+    /** Abilita la cache dei UserDetails */
+    private boolean enabled = true;
+
+    /** Numero massimo di utenti mantenuti in cache (i meno usati vengono rimossi) */
+    private int maxEntries = 10000;
+
+    /**
+     * Durata massima di un utente in cache. Le modifiche effettuate tramite UserService
+     * invalidano subito la cache; il TTL copre le modifiche fatte direttamente sul database
+     * e i nodi non raggiunti da un UserCacheInvalidationChannel.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+}
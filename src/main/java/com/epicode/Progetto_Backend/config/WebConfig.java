@@ -1,53 +1,47 @@
 package com.epicode.Progetto_Backend.config;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.lang.NonNull;
-import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * WebConfig - Configurazione globale per la gestione delle richieste HTTP.
- * 
- * Questa classe configura gli interceptor che vengono eseguiti per ogni richiesta HTTP
- * ricevuta dall'applicazione, prima che arrivi ai controller.
- * 
- * Interceptor registrati:
- * - RateLimitingInterceptor: Limita il numero di richieste per IP per prevenire abusi
- * 
+ *
+ * Questa classe registra i filtri servlet che vengono eseguiti per ogni richiesta HTTP
+ * ricevuta dall'applicazione, prima che arrivi a Spring Security e ai controller.
+ *
+ * Filtri registrati:
+ * - RateLimitingFilter: Limita il numero di richieste per client (utente o IP) per prevenire abusi
+ *
  * Pattern applicati:
- * - Intercetta tutte le richieste che iniziano con "/api/**"
- * - Esclude gli endpoint di autenticazione ("/api/auth/**") dal rate limiting
- * - Esclude gli endpoint Swagger/OpenAPI ("/swagger-ui/**", "/v3/api-docs/**", "/api-docs/**")
- * 
- * Questa classe può essere estesa per aggiungere altri interceptor come:
+ * - Intercetta tutte le richieste "/api/*" e "/graphql"
+ * - Esclude gli endpoint di autenticazione ("/api/auth/**") dal rate limiting (nel filtro)
+ * - Gli endpoint Swagger/OpenAPI ("/swagger-ui/**", "/v3/api-docs/**") e GraphiQL non sono coperti
+ *
+ * Questa classe può essere estesa per aggiungere interceptor come:
  * - Logging interceptor (registrazione di tutte le richieste)
  * - Request/Response transformation interceptor
  * - Performance monitoring interceptor
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
-    
-    /** Interceptor per limitare il numero di richieste per IP */
-    @Autowired
-    private RateLimitingInterceptor rateLimitingInterceptor;
-    
+
     /**
-     * Registra gli interceptor nella catena di elaborazione delle richieste.
-     * 
-     * L'interceptor viene eseguito:
-     * - Prima che la richiesta arrivi al controller
-     * - Può permettere o bloccare la richiesta
-     * - Può modificare la richiesta/risposta
-     * 
-     * @param registry Registry per registrare gli interceptor
+     * Registra RateLimitingFilter prima della catena di Spring Security.
+     *
+     * La catena di sicurezza ha ordine SecurityProperties.DEFAULT_FILTER_ORDER: il filtro viene
+     * eseguito subito prima, così le richieste rifiutate non arrivano all'autenticazione.
+     *
+     * @param rateLimitingFilter Filtro di rate limiting
+     * @return Registrazione del filtro
      */
-    @Override
-    @SuppressWarnings("null")
-    public void addInterceptors(@NonNull InterceptorRegistry registry) {
-        registry.addInterceptor(rateLimitingInterceptor)
-                .addPathPatterns("/api/**")
-                .excludePathPatterns("/api/auth/**", "/swagger-ui/**", "/v3/api-docs/**", "/api-docs/**");
+    @Bean
+    public FilterRegistrationBean<RateLimitingFilter> rateLimitingFilterRegistration(RateLimitingFilter rateLimitingFilter) {
+        FilterRegistrationBean<RateLimitingFilter> registration = new FilterRegistrationBean<>(rateLimitingFilter);
+        registration.addUrlPatterns("/api/*", "/graphql");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
     }
 }
-
@@ -5,15 +5,18 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.epicode.Progetto_Backend.dto.AuthResponseDTO;
 import com.epicode.Progetto_Backend.dto.LoginRequestDTO;
+import com.epicode.Progetto_Backend.dto.RefreshTokenRequestDTO;
 import com.epicode.Progetto_Backend.dto.RegisterRequestDTO;
 import com.epicode.Progetto_Backend.service.AuthService;
 import com.epicode.Progetto_Backend.util.DebugLogger;
@@ -27,11 +30,14 @@ import lombok.RequiredArgsConstructor;
  * Gestisce gli endpoint pubblici per:
  * - Registrazione nuovi utenti
  * - Login utenti esistenti
+ * - Rinnovo del token tramite refresh token
+ * - Logout (revoca del token di accesso e del refresh token)
  * 
  * Tutti gli endpoint sono pubblici (permitAll in SecurityConfig) e non richiedono autenticazione.
  * 
  * Dopo il login/register, viene restituito un token JWT che deve essere incluso
  * nelle successive richieste nell'header: Authorization: Bearer {token}
+ * Il token ha vita breve: alla scadenza il client ne ottiene uno nuovo con il refresh token.
  * 
  * @see com.epicode.Progetto_Backend.service.AuthService
  */
@@ -97,7 +103,7 @@ public class AuthController {
      * 1. Valida le credenziali (email e password)
      * 2. Verifica che l'utente esista e sia abilitato (enabled = true)
      * 3. Confronta la password hashata con quella fornita (BCrypt)
-     * 4. Genera un nuovo token JWT valido per 24 ore
+     * 4. Genera un nuovo token JWT (15 minuti) e un refresh token
      * 5. Restituisce i dati utente e il token
      * 
      * @param request DTO con email e password
@@ -134,4 +140,37 @@ public class AuthController {
             throw e;
         }
     }
+    
+    /**
+     * Rinnova il token JWT tramite un refresh token.
+     * 
+     * Il refresh token usato viene revocato: la risposta contiene un nuovo refresh token
+     * da utilizzare per il rinnovo successivo.
+     * 
+     * @param request DTO con il refresh token
+     * @return ResponseEntity con nuovo token JWT, nuovo refresh token e dati utente (200 OK)
+     * @throws org.springframework.security.authentication.BadCredentialsException se il refresh token non è valido (401)
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponseDTO> refresh(@Valid @RequestBody RefreshTokenRequestDTO request) {
+        return ResponseEntity.ok(authService.refresh(request.getRefreshToken()));
+    }
+    
+    /**
+     * Effettua il logout revocando il token JWT dell'header Authorization e il refresh token.
+     * 
+     * @param authorization Header Authorization con il token JWT (opzionale)
+     * @param request DTO con il refresh token (opzionale)
+     * @return 204 No Content
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody(required = false) RefreshTokenRequestDTO request) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring(7)
+                : null;
+        authService.logout(accessToken, request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -25,6 +25,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.epicode.Progetto_Backend.dto.ContrattoRequestDTO;
 import com.epicode.Progetto_Backend.entity.Contratto;
+import com.epicode.Progetto_Backend.monitoring.StatementBudget;
 import com.epicode.Progetto_Backend.service.ContrattoService;
 
 import jakarta.validation.Valid;
@@ -45,6 +46,7 @@ import lombok.RequiredArgsConstructor;
  *   in base alla frequenza (MENSILE, TRIMESTRALE, etc.) e durata
  * - I LOCATARIO possono accedere solo ai propri contratti
  * - Controlli di accesso per prevenire Broken Access Control
+ * - Il dettaglio dichiara un budget di statement SQL (@StatementBudget), verificato nei test
  * 
  * Autorizzazioni:
  * - ADMIN, MANAGER: Accesso completo (no DELETE per MANAGER)
@@ -88,6 +90,7 @@ public class ContrattoController {
      */
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'LOCATARIO')")
+    @StatementBudget(8)
     public ResponseEntity<Contratto> getContrattoById(
             @PathVariable Long id,
             Authentication authentication) {
@@ -1,21 +1,26 @@
 package com.epicode.Progetto_Backend.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.epicode.Progetto_Backend.dto.BatchSendReport;
 import com.epicode.Progetto_Backend.entity.Contratto;
 import com.epicode.Progetto_Backend.entity.Rata;
+import com.epicode.Progetto_Backend.monitoring.StatementBudget;
 import com.epicode.Progetto_Backend.service.ContrattoService;
 import com.epicode.Progetto_Backend.service.RataService;
 
@@ -26,12 +31,15 @@ import com.epicode.Progetto_Backend.service.RataService;
  * - Visualizzazione rate (tutte, per ID, per contratto, del locatario corrente)
  * - Aggiornamento stato pagamento delle rate
  * - Query speciali (rate non pagate, rate scadute e non pagate)
+ * - Promemoria di pagamento a lotti per le rate in scadenza (ADMIN)
  * 
  * Caratteristiche:
  * - Le rate vengono generate automaticamente alla creazione di un contratto
  * - I LOCATARIO possono visualizzare solo le proprie rate
  * - Controlli di accesso per prevenire Broken Access Control
  * - Gli ADMIN/MANAGER possono marcare le rate come pagate
+ * - Dettaglio e rate per contratto dichiarano un budget di statement SQL (@StatementBudget),
+ *   verificato nei test
  * 
  * Autorizzazioni:
  * - ADMIN, MANAGER: Accesso completo a tutte le rate
@@ -74,6 +82,7 @@ public class RataController {
      */
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'LOCATARIO')")
+    @StatementBudget(8)
     public ResponseEntity<Rata> getRataById(
             @PathVariable Long id,
             Authentication authentication) {
@@ -107,6 +116,7 @@ public class RataController {
      */
     @GetMapping("/contratto/{contrattoId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'LOCATARIO')")
+    @StatementBudget(8)
     public ResponseEntity<List<Rata>> getRateByContratto(
             @PathVariable Long contrattoId,
             Authentication authentication) {
@@ -165,6 +175,26 @@ public class RataController {
         return ResponseEntity.ok(rataService.getRateScaduteNonPagate());
     }
 
+    /**
+     * Invia il promemoria di pagamento ai locatari con rate non pagate in scadenza.
+     * 
+     * L'invio avviene a lotti (fino a 1000 destinatari per chiamata Mailgun); la risposta
+     * riporta destinatari, throughput ed errori di ogni lotto.
+     * 
+     * @param da Prima data di scadenza (default: oggi)
+     * @param a Ultima data di scadenza (default: tra 7 giorni)
+     * @return Esito dell'invio
+     */
+    @PostMapping("/promemoria")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BatchSendReport> sendPaymentReminders(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate da,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate a) {
+        LocalDate from = da != null ? da : LocalDate.now();
+        LocalDate to = a != null ? a : from.plusDays(7);
+        return ResponseEntity.ok(rataService.sendPaymentReminders(from, to));
+    }
+
     /**
      * Ottiene tutte le rate del locatario corrente autenticato.
      * 
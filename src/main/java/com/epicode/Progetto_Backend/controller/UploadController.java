@@ -1,38 +1,42 @@
 package com.epicode.Progetto_Backend.controller;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URI;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.epicode.Progetto_Backend.service.CloudinaryService;
+import com.epicode.Progetto_Backend.dto.ProfileImageJob;
+import com.epicode.Progetto_Backend.service.ProfileImageService;
 
 /**
  * UploadController - Controller REST per l'upload di file.
  * 
- * Gestisce l'upload di immagini su Cloudinary, principalmente per le immagini profilo utente.
+ * Gestisce l'upload delle immagini profilo utente, elaborate in background da ProfileImageService.
  * 
  * Funzionalità:
- * - Upload immagini profilo su Cloudinary
- * - Validazione del file (formato, dimensione)
- * - Restituzione dell'URL dell'immagine caricata
+ * - Upload immagine profilo: risposta immediata 202 Accepted con l'ID dell'elaborazione
+ * - Validazione del file (formato, dimensione) prima della risposta
+ * - Consultazione dello stato dell'elaborazione
  * 
  * Caratteristiche:
- * - I file vengono caricati nella cartella "profile_images" su Cloudinary
- * - L'URL restituito può essere utilizzato per aggiornare il campo profileImage dell'utente
- * - Richiede autenticazione (qualsiasi utente autenticato può caricare immagini)
+ * - L'immagine viene ridimensionata nelle varianti di profile-image.sizes (es: 64, 256 e 1024 pixel),
+ *   caricate su Cloudinary nella cartella "profile_images"
+ * - A elaborazione completata profileImage e profileImageVariants dell'utente vengono aggiornati
+ * - Richiede autenticazione; ogni utente vede solo le proprie elaborazioni
  * 
- * @see com.epicode.Progetto_Backend.service.CloudinaryService
+ * @see com.epicode.Progetto_Backend.service.ProfileImageService
  */
 @RestController
 @RequestMapping("/api/upload")
@@ -41,38 +45,55 @@ public class UploadController {
     private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
     
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private ProfileImageService profileImageService;
     
     /**
-     * Carica un'immagine profilo su Cloudinary.
+     * Carica l'immagine profilo dell'utente corrente e ne avvia l'elaborazione.
      * 
      * Il metodo:
      * 1. Riceve il file immagine tramite MultipartFile
-     * 2. Valida il file (formato e dimensione)
-     * 3. Carica il file su Cloudinary tramite CloudinaryService
-     * 4. Restituisce l'URL pubblico dell'immagine caricata
+     * 2. Valida il file (formato e dimensione) copiandolo su disco
+     * 3. Avvia in background ridimensionamento, upload delle varianti su Cloudinary
+     *    e aggiornamento dell'utente
+     * 4. Restituisce subito l'elaborazione (PENDING) con header Location
      * 
-     * L'URL restituito può essere utilizzato per aggiornare il campo profileImage
-     * dell'utente tramite PUT /api/users/me/profile-image
+     * Lo stato si consulta con GET /api/upload/profile-image/{jobId}.
      * 
+     * @param authentication Oggetto Spring Security con i dati dell'utente autenticato
      * @param file File immagine da caricare (MultipartFile)
-     * @return Mappa con la chiave "url" contenente l'URL dell'immagine caricata
-     * @throws RuntimeException se l'upload fallisce
+     * @return 202 Accepted con lo stato dell'elaborazione
+     * @throws RuntimeException se la copia del file fallisce
      */
     @PostMapping("/profile-image")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Map<String, String>> uploadProfileImage(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<ProfileImageJob> uploadProfileImage(
+            Authentication authentication,
+            @RequestParam("file") MultipartFile file) {
         logger.info("Richiesta upload immagine profilo. Nome file: {}, Dimensione: {} bytes", 
                 file.getOriginalFilename(), file.getSize());
         try {
-            String imageUrl = cloudinaryService.uploadImage(file);
-            Map<String, String> response = new HashMap<>();
-            response.put("url", imageUrl);
-            logger.info("Upload immagine profilo completato con successo. URL: {}", imageUrl);
-            return ResponseEntity.ok(response);
+            ProfileImageJob job = profileImageService.submit(authentication.getName(), file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/upload/profile-image/" + job.id()))
+                    .body(job);
         } catch (IOException e) {
             logger.error("Errore durante l'upload dell'immagine: {}", e.getMessage(), e);
             throw new RuntimeException("Errore durante l'upload dell'immagine: " + e.getMessage());
         }
     }
+
+    /**
+     * Restituisce lo stato di un'elaborazione dell'immagine profilo dell'utente corrente.
+     * 
+     * @param authentication Oggetto Spring Security con i dati dell'utente autenticato
+     * @param jobId ID dell'elaborazione restituito dall'upload
+     * @return Stato dell'elaborazione (con gli URL delle varianti se COMPLETED)
+     */
+    @GetMapping("/profile-image/{jobId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ProfileImageJob> getProfileImageJob(
+            Authentication authentication,
+            @PathVariable String jobId) {
+        return ResponseEntity.ok(profileImageService.getJob(jobId, authentication.getName()));
+    }
 }
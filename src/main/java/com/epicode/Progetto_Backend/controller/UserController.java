@@ -34,6 +34,7 @@ import jakarta.validation.Valid;
  * - Aggiornamento profilo utente
  * - Aggiornamento immagine profilo (upload su Cloudinary)
  * - Gestione ruoli utente (solo ADMIN)
+ * - Abilitazione/disabilitazione utenti (solo ADMIN)
  * - Eliminazione utenti (solo ADMIN)
  * 
  * Endpoint speciali:
@@ -192,6 +193,23 @@ public class UserController {
         return ResponseEntity.ok(userService.updateUserRoles(id, roles));
     }
 
+    /**
+     * Abilita o disabilita un utente (solo ADMIN).
+     * 
+     * Un utente disabilitato non può effettuare il login e i suoi token vengono rifiutati.
+     * 
+     * @param id ID dell'utente
+     * @param enabled true per abilitare, false per disabilitare
+     * @return Utente aggiornato
+     */
+    @PutMapping("/{id}/enabled")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<User> updateUserEnabled(
+            @PathVariable Long id,
+            @RequestBody Boolean enabled) {
+        return ResponseEntity.ok(userService.updateUserEnabled(id, enabled));
+    }
+
     /**
      * Ottiene tutti i ruoli disponibili nel sistema (solo ADMIN).
      * 
@@ -15,6 +15,7 @@ import lombok.NoArgsConstructor;
  * Questo DTO viene utilizzato negli endpoint:
  * - POST /api/auth/login
  * - POST /api/auth/register
+ * - POST /api/auth/refresh
  * 
  * Il token JWT deve essere incluso nelle successive richieste nell'header:
  * Authorization: Bearer {token}
@@ -26,12 +27,18 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 public class AuthResponseDTO {
-    /** Token JWT generato per l'autenticazione (valido 24 ore) */
+    /** Token JWT generato per l'autenticazione (di breve durata, vedi expiresIn) */
     private String token;
     
+    /** Refresh token per ottenere un nuovo token JWT (POST /api/auth/refresh), utilizzabile una sola volta */
+    private String refreshToken;
+    
     /** Tipo di token (solitamente "Bearer") */
     private String type;
     
+    /** Durata di validità del token JWT in secondi */
+    private Long expiresIn;
+    
     /** ID dell'utente nel database */
     private Long userId;
     
@@ -0,0 +1,59 @@
+package com.epicode.Progetto_Backend.dto;
+
+import java.util.List;
+
+/**
+ * BatchSendReport - Esito di un invio email a lotti tramite Mailgun.
+ *
+ * Riporta i totali dell'invio e, per ogni lotto (una chiamata all'API Mailgun), destinatari,
+ * durata, throughput ed eventuale errore. I destinatari di un lotto fallito non hanno ricevuto
+ * l'email: il report permette di individuarli e ripetere l'invio.
+ *
+ * Esempio di risposta JSON:
+ * {
+ *   "totalRecipients": 2500,
+ *   "sentRecipients": 2000,
+ *   "failedRecipients": 500,
+ *   "batches": 3,
+ *   "failedBatches": 1,
+ *   "durationMillis": 1840,
+ *   "recipientsPerSecond": 1358.7,
+ *   "batchResults": [{"batch": 1, "recipients": 1000, "durationMillis": 610, "recipientsPerSecond": 1639.3, "error": null}, ...]
+ * }
+ *
+ * @param totalRecipients Destinatari letti dallo stream
+ * @param sentRecipients Destinatari dei lotti accettati da Mailgun
+ * @param failedRecipients Destinatari dei lotti falliti
+ * @param batches Lotti inviati
+ * @param failedBatches Lotti falliti
+ * @param durationMillis Durata complessiva, lettura dal database compresa
+ * @param recipientsPerSecond Throughput complessivo
+ * @param batchResults Esito di ogni lotto
+ * @see com.epicode.Progetto_Backend.service.MailgunBatchService
+ */
+public record BatchSendReport(
+        int totalRecipients,
+        int sentRecipients,
+        int failedRecipients,
+        int batches,
+        int failedBatches,
+        long durationMillis,
+        double recipientsPerSecond,
+        List<BatchResult> batchResults) {
+
+    /**
+     * Esito di un singolo lotto.
+     *
+     * @param batch Numero progressivo del lotto (da 1)
+     * @param recipients Destinatari del lotto
+     * @param durationMillis Durata della chiamata a Mailgun
+     * @param recipientsPerSecond Throughput del lotto
+     * @param error Errore restituito da Mailgun, null se il lotto è stato accettato
+     */
+    public record BatchResult(int batch, int recipients, long durationMillis, double recipientsPerSecond, String error) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
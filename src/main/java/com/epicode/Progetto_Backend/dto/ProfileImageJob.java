@@ -0,0 +1,80 @@
+package com.epicode.Progetto_Backend.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * ProfileImageJob - Stato di un'elaborazione dell'immagine profilo.
+ *
+ * Restituito da POST /api/upload/profile-image (202 Accepted) e da
+ * GET /api/upload/profile-image/{id}, che il client interroga fino a COMPLETED, SUPERSEDED o FAILED.
+ *
+ * Esempio di risposta JSON:
+ * {
+ *   "id": "7c9e6679-7425-40de-944b-e07fc1f90ae7",
+ *   "status": "COMPLETED",
+ *   "variants": {"64": "https://res.cloudinary.com/.../12_ab12cd34ef56_64.jpg", "256": "...", "1024": "..."},
+ *   "error": null,
+ *   "createdAt": "2025-03-01T10:15:30Z",
+ *   "completedAt": "2025-03-01T10:15:32Z"
+ * }
+ *
+ * @param id Identificativo dell'elaborazione
+ * @param status Stato dell'elaborazione
+ * @param variants URL delle varianti per lato in pixel (solo se COMPLETED)
+ * @param error Motivo dell'errore (solo se FAILED)
+ * @param createdAt Istante dell'upload
+ * @param completedAt Istante di completamento o errore
+ * @see com.epicode.Progetto_Backend.service.ProfileImageService
+ */
+public record ProfileImageJob(
+        String id,
+        Status status,
+        Map<Integer, String> variants,
+        String error,
+        Instant createdAt,
+        Instant completedAt) {
+
+    /**
+     * Stati di un'elaborazione.
+     */
+    public enum Status {
+        /** In coda sul pool di ridimensionamento */
+        PENDING,
+        /** Ridimensionamento o upload delle varianti in corso */
+        PROCESSING,
+        /** Varianti caricate e immagine profilo aggiornata */
+        COMPLETED,
+        /** Elaborazione fallita: l'immagine profilo non è cambiata */
+        FAILED,
+        /** Varianti caricate ma scartate: nel frattempo è stata elaborata un'immagine caricata dopo */
+        SUPERSEDED
+    }
+
+    public static ProfileImageJob pending(String id) {
+        return new ProfileImageJob(id, Status.PENDING, null, null, Instant.now(), null);
+    }
+
+    public ProfileImageJob processing() {
+        return new ProfileImageJob(id, Status.PROCESSING, null, null, createdAt, null);
+    }
+
+    public ProfileImageJob completed(Map<Integer, String> urls) {
+        return new ProfileImageJob(id, Status.COMPLETED, urls, null, createdAt, Instant.now());
+    }
+
+    public ProfileImageJob failed(String reason) {
+        return new ProfileImageJob(id, Status.FAILED, null, reason, createdAt, Instant.now());
+    }
+
+    public ProfileImageJob superseded() {
+        return new ProfileImageJob(id, Status.SUPERSEDED, null, null, createdAt, Instant.now());
+    }
+
+    /**
+     * @return true se l'elaborazione è terminata (COMPLETED, SUPERSEDED o FAILED)
+     */
+    public boolean isDone() {
+        return status == Status.COMPLETED || status == Status.SUPERSEDED || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,31 @@
+package com.epicode.Progetto_Backend.dto;
+
+import java.time.LocalDate;
+
+/**
+ * RataReminderDTO - Proiezione dei dati necessari al promemoria di pagamento di una rata.
+ *
+ * Letta a blocchi da RataRepository.findReminders con un'unica query (rata, contratto,
+ * locatario, utente e immobile), senza caricare le entità nel contesto di persistenza: anche
+ * decine di migliaia di rate occupano memoria costante.
+ *
+ * @param rataId ID della rata (chiave della paginazione keyset)
+ * @param email Email dell'utente del locatario
+ * @param nome Nome del locatario
+ * @param cognome Cognome del locatario
+ * @param numeroRata Numero progressivo della rata
+ * @param importo Importo della rata
+ * @param dataScadenza Data di scadenza della rata
+ * @param immobileIndirizzo Indirizzo dell'immobile del contratto
+ * @see com.epicode.Progetto_Backend.service.RataService#sendPaymentReminders
+ */
+public record RataReminderDTO(
+        Long rataId,
+        String email,
+        String nome,
+        String cognome,
+        Integer numeroRata,
+        Double importo,
+        LocalDate dataScadenza,
+        String immobileIndirizzo) {
+}
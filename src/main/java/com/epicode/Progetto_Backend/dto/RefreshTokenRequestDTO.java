@@ -0,0 +1,26 @@
+package com.epicode.Progetto_Backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * RefreshTokenRequestDTO - Data Transfer Object per il rinnovo del token e il logout.
+ * 
+ * Utilizzato negli endpoint:
+ * - POST /api/auth/refresh: Rinnova il token JWT (il refresh token viene sostituito)
+ * - POST /api/auth/logout: Revoca il refresh token
+ * 
+ * Validazioni:
+ * - refreshToken: Deve essere obbligatorio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenRequestDTO {
+    
+    /** Refresh token ottenuto al login, alla registrazione o al rinnovo precedente */
+    @NotBlank(message = "Refresh token è obbligatorio")
+    private String refreshToken;
+}
@@ -0,0 +1,65 @@
+package com.epicode.Progetto_Backend.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DigestNotification - Entità per le notifiche in attesa del riepilogo del destinatario (modalità digest).
+ *
+ * Con email.digest.enabled le notifiche non urgenti non vengono accodate subito nella outbox:
+ * MailgunService le salva in questa tabella, nella transazione dell'operazione che le genera,
+ * con tipo, lingua e variabili del template. NotificationDigestService le raccoglie per
+ * destinatario e, trascorso email.digest.interval dalla più vecchia, accoda nella outbox una
+ * sola email di riepilogo.
+ *
+ * Le variabili sono salvate come JSON e il rendering avviene al momento del riepilogo.
+ *
+ * @see com.epicode.Progetto_Backend.service.NotificationDigestService
+ */
+@Entity
+@Table(name = "notification_digest", indexes = @Index(name = "idx_notification_digest_recipient",
+        columnList = "recipient, created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DigestNotification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Indirizzo del destinatario */
+    @Column(nullable = false)
+    private String recipient;
+
+    /** Tipo di notifica (template da usare) */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private EmailType type;
+
+    /** Lingua del template (codice, es: "it") */
+    @Column(nullable = false, length = 16)
+    private String locale;
+
+    /** Variabili del template in formato JSON */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String variables;
+
+    /** Data di accodamento */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,92 @@
+package com.epicode.Progetto_Backend.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * EmailOutbox - Entità per le email in attesa di essere consegnate a Mailgun (transactional outbox).
+ *
+ * I servizi non chiamano Mailgun durante la richiesta: MailgunService salva l'email in questa
+ * tabella nella stessa transazione dell'operazione che la genera. Se la transazione viene
+ * annullata l'email non viene mai inviata; se viene confermata l'email sopravvive anche a un
+ * riavvio dell'applicazione.
+ *
+ * EmailOutboxDispatcher preleva periodicamente le email da inviare (SELECT ... FOR UPDATE
+ * SKIP LOCKED, quindi più nodi possono lavorare in parallelo senza inviare due volte la stessa
+ * email) e le consegna a Mailgun con nuovi tentativi e backoff esponenziale.
+ *
+ * @see com.epicode.Progetto_Backend.service.EmailOutboxService
+ * @see com.epicode.Progetto_Backend.service.EmailOutboxDispatcher
+ */
+@Entity
+@Table(name = "email_outbox", indexes = @Index(name = "idx_email_outbox_status_next_attempt",
+        columnList = "status, next_attempt_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Tipo di email (benvenuto, contratto, rata, manutenzione, ...) */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private EmailType type;
+
+    /** Indirizzo del destinatario */
+    @Column(nullable = false)
+    private String recipient;
+
+    /** Oggetto dell'email */
+    @Column(nullable = false)
+    private String subject;
+
+    /** Corpo dell'email, già composto */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    /** true se il corpo è HTML, false se è testo semplice */
+    @Column(nullable = false)
+    private boolean html;
+
+    /** Stato di consegna */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EmailStatus status;
+
+    /** Tentativi di invio falliti */
+    @Column(nullable = false)
+    private int attempts;
+
+    /** Istante dal quale l'email può essere prelevata (prossimo tentativo o scadenza del lease) */
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    /** Ultimo errore di invio */
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    /** Data di accodamento */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /** Data di consegna a Mailgun */
+    @Column(name = "sent_at")
+    private Instant sentAt;
+}
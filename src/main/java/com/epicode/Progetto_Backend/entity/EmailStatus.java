@@ -0,0 +1,24 @@
+package com.epicode.Progetto_Backend.entity;
+
+/**
+ * EmailStatus - Enum per lo stato di consegna di un'email nella outbox.
+ *
+ * Ciclo di vita: PENDING → SENDING → SENT, oppure SENDING → PENDING (nuovo tentativo
+ * dopo un errore) fino a DEAD quando i tentativi sono esauriti.
+ *
+ * @see com.epicode.Progetto_Backend.entity.EmailOutbox
+ * @see com.epicode.Progetto_Backend.service.EmailOutboxDispatcher
+ */
+public enum EmailStatus {
+    /** In attesa di invio (nuova o in attesa del prossimo tentativo) */
+    PENDING,
+
+    /** Prelevata da un dispatcher; torna prelevabile se il dispatcher non termina entro il lease */
+    SENDING,
+
+    /** Consegnata a Mailgun */
+    SENT,
+
+    /** Tentativi esauriti: richiede un intervento manuale */
+    DEAD
+}
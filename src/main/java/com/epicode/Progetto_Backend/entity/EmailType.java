@@ -0,0 +1,42 @@
+package com.epicode.Progetto_Backend.entity;
+
+/**
+ * EmailType - Enum per i tipi di email inviate dal sistema.
+ *
+ * Ogni email accodata nella tabella email_outbox riporta il proprio tipo, usato per
+ * i log e per distinguere le notifiche nelle metriche e nelle analisi degli errori.
+ *
+ * @see com.epicode.Progetto_Backend.entity.EmailOutbox
+ * @see com.epicode.Progetto_Backend.service.MailgunService
+ */
+public enum EmailType {
+    /** Email generica (testo o HTML) accodata direttamente */
+    GENERIC,
+
+    /** Benvenuto a un nuovo utente registrato */
+    WELCOME,
+
+    /** Registrazione di un nuovo contratto di affitto */
+    CONTRACT_CREATED,
+
+    /** Contratto in scadenza */
+    CONTRACT_EXPIRING,
+
+    /** Promemoria di una rata in scadenza */
+    PAYMENT_REMINDER,
+
+    /** Conferma del pagamento di una rata */
+    PAYMENT_CONFIRMATION,
+
+    /** Sollecito di una rata scaduta e non pagata */
+    PAYMENT_OVERDUE,
+
+    /** Conferma di una richiesta di manutenzione */
+    MAINTENANCE_REQUEST,
+
+    /** Manutenzione completata */
+    MAINTENANCE_COMPLETED,
+
+    /** Riepilogo di più notifiche allo stesso destinatario (modalità digest) */
+    DIGEST
+}
@@ -0,0 +1,50 @@
+package com.epicode.Progetto_Backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * RateLimitBucket - Entità per i bucket di rate limiting condivisi tra i nodi.
+ *
+ * Ogni riga è il token bucket di un client (utente o IP): token disponibili all'istante
+ * dell'ultima ricarica. Con rate-limit.store=jdbc tutti i nodi leggono e aggiornano la stessa
+ * riga, quindi il limite vale per l'intero cluster e non per il singolo nodo.
+ *
+ * La tabella è gestita da JdbcBucketStore tramite SQL diretto: gli aggiornamenti sono
+ * compare-and-swap sulla colonna version (UPDATE ... WHERE version = ?), senza lock.
+ * L'entità definisce lo schema (ddl-auto) e non viene usata tramite repository.
+ *
+ * @see com.epicode.Progetto_Backend.ratelimit.JdbcBucketStore
+ */
+@Entity
+@Table(name = "rate_limit_bucket", indexes = @Index(name = "idx_rate_limit_bucket_refilled_at", columnList = "refilled_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RateLimitBucket {
+
+    /** Chiave del client (es: user:email o ip:indirizzo) */
+    @Id
+    @Column(name = "bucket_key", length = 255)
+    private String bucketKey;
+
+    /** Token disponibili, in millesimi di token (la ricarica è continua) */
+    @Column(nullable = false)
+    private Long tokens;
+
+    /** Istante dell'ultima ricarica (epoch millis), anche ultimo utilizzo del bucket */
+    @Column(name = "refilled_at", nullable = false)
+    private Long refilledAt;
+
+    /** Versione della riga per gli aggiornamenti compare-and-swap */
+    @Column(nullable = false)
+    private Long version;
+}
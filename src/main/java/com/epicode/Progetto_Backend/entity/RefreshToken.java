@@ -0,0 +1,69 @@
+package com.epicode.Progetto_Backend.entity;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * RefreshToken - Entità per i refresh token emessi agli utenti.
+ *
+ * Il refresh token è una stringa casuale opaca, restituita al client al login e usata per
+ * ottenere nuovi token di accesso (di breve durata) senza ripetere il login. Nel database
+ * viene salvato solo l'hash SHA-256: un accesso in lettura alla tabella non permette di
+ * usare i token.
+ *
+ * Ogni refresh token è utilizzabile una sola volta: al rinnovo viene revocato e sostituito
+ * da un nuovo token (rotazione). Il riutilizzo di un token già revocato indica un possibile
+ * furto e revoca tutti i refresh token dell'utente.
+ *
+ * Relazioni:
+ * - Many-to-One con User: un utente può avere più refresh token (uno per dispositivo);
+ *   eliminando l'utente vengono eliminati anche i suoi token
+ *
+ * @see com.epicode.Progetto_Backend.service.RefreshTokenService
+ */
+@Entity
+@Table(name = "refresh_token")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Hash SHA-256 (esadecimale) del token */
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    /** Utente a cui è stato emesso il token */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    /** Data di scadenza del token */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    /** Data di revoca (rotazione o logout), null se il token è ancora utilizzabile */
+    @Column(name = "revoked_at")
+    private Instant revokedAt;
+}
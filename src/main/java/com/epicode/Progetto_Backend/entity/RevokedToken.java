@@ -0,0 +1,47 @@
+package com.epicode.Progetto_Backend.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * RevokedToken - Entità per i token di accesso JWT revocati prima della scadenza (es: logout).
+ *
+ * Ogni token di accesso ha un identificativo univoco (claim "jti"): la revoca ne registra
+ * l'identificativo fino alla scadenza naturale del token, dopo la quale la riga viene eliminata.
+ *
+ * La tabella è la fonte condivisa tra i nodi: ogni nodo ne mantiene una copia in memoria
+ * (TokenRevocationList) e la aggiorna periodicamente leggendo le revoche con revokedAt
+ * successivo all'ultima sincronizzazione.
+ *
+ * @see com.epicode.Progetto_Backend.security.TokenRevocationList
+ */
+@Entity
+@Table(name = "revoked_token", indexes = @Index(name = "idx_revoked_token_revoked_at", columnList = "revoked_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedToken {
+
+    /** Identificativo del token revocato (claim "jti") */
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    /** Scadenza del token: dopo questa data la revoca non serve più */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    /** Data della revoca (utilizzata per la sincronizzazione incrementale tra nodi) */
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
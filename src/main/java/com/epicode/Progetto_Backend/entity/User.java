@@ -1,11 +1,15 @@
 package com.epicode.Progetto_Backend.entity;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -39,6 +43,11 @@ import lombok.NoArgsConstructor;
  * 
  * La password viene hashata con BCrypt e non viene mai serializzata in JSON.
  * Il campo enabled permette di disabilitare un utente senza eliminarlo.
+ * Il campo profileImageVariants contiene gli URL delle varianti ridimensionate dell'immagine
+ * profilo (es: 64, 256 e 1024 pixel), generate da ProfileImageService; profileImageUploadedAt
+ * indica l'upload da cui derivano, così un'elaborazione più vecchia non le sovrascrive.
+ * Il campo tokenVersion viene incrementato quando cambiano i ruoli: i token JWT emessi
+ * con una versione precedente non vengono più accettati.
  * 
  * @see org.springframework.security.core.userdetails.UserDetails
  * @see com.epicode.Progetto_Backend.entity.Role
@@ -69,6 +78,16 @@ public class User implements UserDetails {
     /** URL dell'immagine profilo (solitamente da Cloudinary, aggiornabile) */
     @Column(name = "profile_image")
     private String profileImage; // URL aggiornabile
+
+    /** URL delle varianti ridimensionate dell'immagine profilo, per lato in pixel (JSON) */
+    @Column(name = "profile_image_variants")
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<Integer, String> profileImageVariants;
+
+    /** Istante dell'upload da cui derivano le varianti attuali (scarta le elaborazioni più vecchie) */
+    @Column(name = "profile_image_uploaded_at")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private Instant profileImageUploadedAt;
     
     /** Nome dell'utente */
     @Column(nullable = false)
@@ -88,6 +107,12 @@ public class User implements UserDetails {
     @Builder.Default
     private Boolean enabled = true;
     
+    /** Versione dei token JWT dell'utente (incrementata al cambio dei ruoli, non serializzata in JSON) */
+    @Column(name = "token_version", nullable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private Long tokenVersion = 0L;
+    
     /** Ruoli dell'utente (caricati eager per Spring Security) */
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
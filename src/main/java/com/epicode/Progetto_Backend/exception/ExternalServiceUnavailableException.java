@@ -0,0 +1,36 @@
+package com.epicode.Progetto_Backend.exception;
+
+/**
+ * ExternalServiceUnavailableException - Chiamata a un servizio esterno rifiutata senza eseguirla.
+ *
+ * Lanciata quando il circuit breaker dell'integrazione (Mailgun, Cloudinary) è aperto o
+ * quando il suo bulkhead (richieste contemporanee, pool dedicato) è saturo o non risponde
+ * entro il timeout: la richiesta fallisce subito invece di occupare un thread del server.
+ *
+ * Come ServiceOverloadedException viene restituita come 503 Service Unavailable con header
+ * Retry-After; le email vengono invece lasciate nella outbox e ritentate più tardi.
+ *
+ * @see com.epicode.Progetto_Backend.resilience.CircuitBreaker
+ */
+public class ExternalServiceUnavailableException extends ServiceOverloadedException {
+
+    /** Integrazione che ha rifiutato la chiamata (es: "mailgun") */
+    private final String service;
+
+    /**
+     * @param service Integrazione che ha rifiutato la chiamata
+     * @param message Messaggio descrittivo dell'errore
+     * @param retryAfterSeconds Secondi dopo i quali ripetere la richiesta
+     */
+    public ExternalServiceUnavailableException(String service, String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+        this.service = service;
+    }
+
+    /**
+     * @return Integrazione che ha rifiutato la chiamata
+     */
+    public String getService() {
+        return service;
+    }
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -32,6 +33,7 @@ import jakarta.servlet.http.HttpServletRequest;
  * - EntityNotFoundException: Entità non trovata (404 Not Found)
  * - BusinessException: Errori di business logic (400 Bad Request)
  * - ValidationException: Errori di validazione personalizzati (400 Bad Request)
+ * - ServiceOverloadedException: Risorsa satura (503 Service Unavailable con Retry-After)
  * - RuntimeException: Errori runtime generici (400/500)
  * - Exception: Tutte le altre eccezioni (500 Internal Server Error)
  * 
@@ -246,6 +248,35 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
     
+    /**
+     * Gestisce le richieste rifiutate per sovraccarico.
+     * 
+     * Viene chiamato quando una risorsa a capacità limitata è satura (es: pool di hashing
+     * delle password durante un picco di login). L'header Retry-After indica al client
+     * dopo quanti secondi ripetere la richiesta.
+     * 
+     * @param ex Eccezione di sovraccarico
+     * @param request Richiesta HTTP che ha causato l'errore
+     * @return ResponseEntity con HTTP 503 Service Unavailable
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloaded(
+            ServiceOverloadedException ex,
+            HttpServletRequest request) {
+        
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message(ex.getMessage())
+                .path(request.getRequestURI())
+                .build();
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+    
     /**
      * Gestisce le RuntimeException generiche.
      * 
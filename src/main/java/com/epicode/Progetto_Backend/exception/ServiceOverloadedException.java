@@ -0,0 +1,37 @@
+package com.epicode.Progetto_Backend.exception;
+
+/**
+ * ServiceOverloadedException - Eccezione per richieste rifiutate per sovraccarico.
+ *
+ * Lanciata quando una risorsa a capacità limitata (es: il pool di hashing delle password)
+ * è satura: la richiesta viene rifiutata subito invece di occupare un thread del server
+ * in attesa, così il resto dell'API resta reattivo.
+ *
+ * Viene gestita da GlobalExceptionHandler che restituisce un HTTP 503 Service Unavailable
+ * con header Retry-After.
+ *
+ * @see com.epicode.Progetto_Backend.exception.GlobalExceptionHandler
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    /** Secondi dopo i quali il client può ripetere la richiesta */
+    private final long retryAfterSeconds;
+
+    /**
+     * @param message Messaggio descrittivo dell'errore
+     * @param retryAfterSeconds Secondi dopo i quali ripetere la richiesta
+     */
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Restituisce i secondi dopo i quali il client può ripetere la richiesta.
+     *
+     * @return Secondi per l'header Retry-After
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
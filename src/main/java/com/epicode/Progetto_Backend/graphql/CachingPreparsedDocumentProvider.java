@@ -0,0 +1,243 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.graphql.execution.ErrorType;
+
+import com.epicode.Progetto_Backend.config.GraphQLDocumentCacheProperties;
+
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * CachingPreparsedDocumentProvider - Cache dei documenti GraphQL e persisted query automatiche.
+ *
+ * Parsing e validazione di un documento GraphQL dipendono solo dal testo della query e dallo
+ * schema, non dalle variabili: i documenti già visti vengono quindi mantenuti in una cache LRU
+ * limitata (graphql.document-cache.max-entries) e riutilizzati senza ripetere il lavoro.
+ *
+ * Supporta le persisted query automatiche secondo il protocollo Apollo:
+ * <pre>
+ * { "extensions": { "persistedQuery": { "version": 1, "sha256Hash": "..." } } }
+ * </pre>
+ * - Il client invia solo l'hash SHA-256 del documento
+ * - Se l'hash non è noto viene restituito l'errore PersistedQueryNotFound e il client
+ *   ripete la richiesta con hash e testo; l'hash viene verificato e registrato
+ * - Le richieste successive trasportano solo l'hash
+ *
+ * Modalità allow-list (graphql.document-cache.allow-list-only): vengono eseguiti solo i documenti
+ * caricati all'avvio da graphql.document-cache.allow-list-location, identificati dall'hash SHA-256
+ * del contenuto del file (senza spazi iniziali e finali). Query libere e nuove registrazioni
+ * vengono rifiutate, comprese le query di introspezione di GraphiQL.
+ *
+ * Espone su Micrometer hit, miss, dimensione e hit rate della cache
+ * (graphql.document.cache.*).
+ *
+ * @see com.epicode.Progetto_Backend.config.GraphQLDocumentCacheProperties
+ * @see graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport
+ */
+public class CachingPreparsedDocumentProvider implements PreparsedDocumentProvider, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingPreparsedDocumentProvider.class);
+
+    /** Chiave delle extensions della richiesta usata dal protocollo APQ */
+    static final String PERSISTED_QUERY_EXTENSION = "persistedQuery";
+
+    /** Prefisso delle chiavi di cache dei documenti identificati da hash */
+    private static final String HASH_KEY_PREFIX = "sha256:";
+
+    private final GraphQLDocumentCacheProperties properties;
+
+    /** Allow-list: hash SHA-256 → testo del documento */
+    private final Map<String, String> allowList;
+
+    /** Documenti validati, indicizzati per testo della query o per hash (LRU) */
+    private final Map<String, PreparsedDocumentEntry> documents;
+
+    private final PreparsedDocumentProvider persistedQuerySupport;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public CachingPreparsedDocumentProvider(GraphQLDocumentCacheProperties properties, Map<String, String> allowList) {
+        this.properties = properties;
+        this.allowList = Map.copyOf(allowList);
+        this.documents = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparsedDocumentEntry> eldest) {
+                return size() > properties.getMaxEntries();
+            }
+        });
+        this.persistedQuerySupport = new ApolloPersistedQuerySupport(this::getPersistedDocument);
+        if (properties.isAllowListOnly() && this.allowList.isEmpty()) {
+            logger.warn("Modalità allow-list attiva ma nessun documento trovato in {}: "
+                    + "tutte le query GraphQL verranno rifiutate", properties.getAllowListLocation());
+        }
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+            Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        if (executionInput.getExtensions().containsKey(PERSISTED_QUERY_EXTENSION)) {
+            return persistedQuerySupport.getDocumentAsync(executionInput, parseAndValidateFunction);
+        }
+        if (properties.isAllowListOnly()) {
+            return CompletableFuture.completedFuture(error("Query non presente nella allow-list", ErrorType.FORBIDDEN));
+        }
+        return CompletableFuture.completedFuture(
+                cached(executionInput.getQuery(), () -> parseAndValidateFunction.apply(executionInput)));
+    }
+
+    /**
+     * Risolve un documento identificato da hash (PersistedQueryCache di ApolloPersistedQuerySupport).
+     * La funzione onCacheMiss verifica che l'hash corrisponda al testo prima di analizzarlo.
+     */
+    private CompletableFuture<PreparsedDocumentEntry> getPersistedDocument(Object persistedQueryId,
+            ExecutionInput executionInput, PersistedQueryCacheMiss onCacheMiss) throws PersistedQueryNotFound {
+        String hash = persistedQueryId.toString();
+        String query = allowList.get(hash);
+        if (query == null) {
+            if (properties.isAllowListOnly()) {
+                return CompletableFuture.completedFuture(error("Query non presente nella allow-list", ErrorType.FORBIDDEN));
+            }
+            if (!properties.isPersistedQueriesEnabled()) {
+                return CompletableFuture.completedFuture(error("PersistedQueryNotSupported", ErrorType.BAD_REQUEST));
+            }
+            PreparsedDocumentEntry registered = properties.isEnabled() ? documents.get(HASH_KEY_PREFIX + hash) : null;
+            if (registered != null) {
+                hits.increment();
+                return CompletableFuture.completedFuture(registered);
+            }
+            query = executionInput.getQuery();
+            if (query == null || query.isBlank() || PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query)) {
+                throw new PersistedQueryNotFound(hash);
+            }
+        }
+        String text = query;
+        return CompletableFuture.completedFuture(cached(HASH_KEY_PREFIX + hash, () -> onCacheMiss.apply(text)));
+    }
+
+    /**
+     * Restituisce il documento in cache o lo calcola. Parsing e validazione avvengono fuori dal lock:
+     * due richieste concorrenti per lo stesso documento possono analizzarlo entrambe, senza effetti
+     * sul risultato. I documenti con errori non vengono memorizzati.
+     */
+    private PreparsedDocumentEntry cached(String key, Supplier<PreparsedDocumentEntry> parseAndValidate) {
+        if (!properties.isEnabled()) {
+            return parseAndValidate.get();
+        }
+        PreparsedDocumentEntry entry = documents.get(key);
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        entry = parseAndValidate.get();
+        if (!entry.hasErrors()) {
+            documents.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return Frazione delle richieste servite dalla cache (0.0 se nessuna richiesta)
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return Numero di documenti attualmente in cache
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("graphql.document.cache.hits", hits, LongAdder::sum)
+                .description("Documenti GraphQL serviti dalla cache")
+                .register(registry);
+        FunctionCounter.builder("graphql.document.cache.misses", misses, LongAdder::sum)
+                .description("Documenti GraphQL analizzati e validati")
+                .register(registry);
+        Gauge.builder("graphql.document.cache.size", this, CachingPreparsedDocumentProvider::size)
+                .description("Documenti GraphQL in cache")
+                .register(registry);
+        Gauge.builder("graphql.document.cache.hit.rate", this, CachingPreparsedDocumentProvider::getHitRate)
+                .description("Frazione dei documenti GraphQL serviti dalla cache")
+                .register(registry);
+    }
+
+    private static PreparsedDocumentEntry error(String message, ErrorType errorType) {
+        return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError()
+                .message(message)
+                .errorType(errorType)
+                .build());
+    }
+
+    // ==================== Allow-list ====================
+
+    /**
+     * Carica la allow-list: ogni risorsa contiene un documento GraphQL, identificato
+     * dall'hash SHA-256 del suo contenuto senza spazi iniziali e finali.
+     *
+     * @param resolver Resolver delle risorse (classpath o file system)
+     * @param location Pattern delle risorse (es: classpath*:graphql/persisted/*.graphql)
+     * @return Mappa hash → testo del documento
+     * @throws IOException Se una risorsa non può essere letta
+     */
+    public static Map<String, String> loadAllowList(ResourcePatternResolver resolver, String location) throws IOException {
+        Map<String, String> allowList = new HashMap<>();
+        for (Resource resource : resolver.getResources(location)) {
+            try (InputStream in = resource.getInputStream()) {
+                String query = new String(in.readAllBytes(), StandardCharsets.UTF_8).strip();
+                allowList.put(sha256(query), query);
+            }
+        }
+        logger.info("Caricati {} documenti GraphQL nella allow-list da {}", allowList.size(), location);
+        return allowList;
+    }
+
+    /**
+     * @return Hash SHA-256 esadecimale (minuscolo) del testo, come calcolato dai client APQ
+     */
+    static String sha256(String query) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(query.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+}
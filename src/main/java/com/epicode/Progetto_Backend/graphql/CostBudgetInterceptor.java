@@ -0,0 +1,132 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.epicode.Progetto_Backend.ratelimit.RateLimitPolicy;
+import com.epicode.Progetto_Backend.ratelimit.RateLimiter;
+
+import io.github.bucket4j.ConsumptionProbe;
+import reactor.core.publisher.Mono;
+
+/**
+ * CostBudgetInterceptor - Budget di costo GraphQL per utente.
+ *
+ * Una singola operazione GraphQL può costare quanto centinaia di chiamate REST: oltre ai token
+ * per richiesta HTTP (RateLimitingFilter), ogni operazione consuma dal budget dell'utente il
+ * proprio costo stimato (pesi dei campi moltiplicati per le dimensioni stimate delle liste).
+ *
+ * Funzionamento:
+ * 1. L'interceptor identifica l'utente autenticato e lascia un CostBudget nel GraphQLContext
+ * 2. QueryCostInstrumentation, dopo aver calcolato il costo e prima di invocare i resolver,
+ *    lo consuma dal budget (RateLimiter.tryConsumeGraphQL); se il budget non basta
+ *    l'operazione viene interrotta senza eseguire alcun resolver
+ * 3. L'interceptor riporta il budget residuo negli header della risposta
+ *
+ * Header di risposta:
+ * - X-GraphQL-Budget-Remaining: Budget residuo dell'utente
+ * - X-GraphQL-Budget-Cost: Costo consumato dall'operazione
+ * - Retry-After: Secondi prima che il budget basti per l'operazione (solo se rifiutata)
+ *
+ * Le risposte servite dalla cache (ResponseCacheInterceptor) non eseguono l'operazione
+ * e non consumano il budget.
+ *
+ * @see com.epicode.Progetto_Backend.graphql.QueryCostInstrumentation
+ * @see com.epicode.Progetto_Backend.ratelimit.RateLimiter
+ */
+public class CostBudgetInterceptor implements WebGraphQlInterceptor {
+
+    static final String REMAINING_HEADER = "X-GraphQL-Budget-Remaining";
+
+    static final String COST_HEADER = "X-GraphQL-Budget-Cost";
+
+    private final RateLimiter rateLimiter;
+
+    public CostBudgetInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!rateLimiter.isGraphQLBudgetEnabled() || !RateLimitPolicy.isAuthenticated(authentication)) {
+            return chain.next(request);
+        }
+        CostBudget budget = new CostBudget(rateLimiter, authentication);
+        request.configureExecutionInput((input, builder) ->
+                builder.graphQLContext(Map.of(CostBudget.CONTEXT_KEY, budget)).build());
+        return chain.next(request).doOnNext(response -> budget.writeHeaders(response.getResponseHeaders()));
+    }
+
+    /**
+     * CostBudget - Budget dell'utente per una singola richiesta GraphQL.
+     */
+    static final class CostBudget {
+
+        /** Chiave del GraphQLContext con il budget della richiesta */
+        static final String CONTEXT_KEY = CostBudget.class.getName();
+
+        private final RateLimiter rateLimiter;
+
+        private final Authentication authentication;
+
+        private volatile ConsumptionProbe probe;
+
+        private volatile long cost;
+
+        CostBudget(RateLimiter rateLimiter, Authentication authentication) {
+            this.rateLimiter = rateLimiter;
+            this.authentication = authentication;
+        }
+
+        /**
+         * Consuma il costo di un'operazione dal budget dell'utente.
+         *
+         * @param cost Costo stimato dell'operazione
+         * @return true se il budget era sufficiente
+         */
+        boolean tryConsume(long cost) {
+            this.cost = cost;
+            this.probe = rateLimiter.tryConsumeGraphQL(authentication, cost);
+            return probe.isConsumed();
+        }
+
+        /**
+         * @return Budget residuo dopo l'operazione, -1 se non è stato consumato
+         */
+        long remaining() {
+            ConsumptionProbe current = probe;
+            return current != null ? current.getRemainingTokens() : -1;
+        }
+
+        /**
+         * @return Secondi prima che il budget basti per l'operazione rifiutata
+         */
+        long retryAfterSeconds() {
+            ConsumptionProbe current = probe;
+            if (current == null || current.isConsumed()) {
+                return 0;
+            }
+            return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(current.getNanosToWaitForRefill()) + 1);
+        }
+
+        private void writeHeaders(HttpHeaders headers) {
+            ConsumptionProbe current = probe;
+            if (current == null) {
+                return;
+            }
+            headers.set(REMAINING_HEADER, String.valueOf(current.getRemainingTokens()));
+            headers.set(COST_HEADER, String.valueOf(current.isConsumed() ? cost : 0));
+            if (!current.isConsumed()) {
+                headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds()));
+            }
+        }
+    }
+}
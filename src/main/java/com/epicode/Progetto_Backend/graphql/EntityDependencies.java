@@ -0,0 +1,152 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.IdentifiableType;
+
+/**
+ * EntityDependencies - Chiavi di dipendenza tra risposte GraphQL in cache ed entità JPA.
+ *
+ * Una risposta in cache registra le entità da cui dipende con tre tipi di chiave:
+ * <pre>
+ * Contratto#12            → l'entità Contratto con ID 12
+ * Rata@Contratto#12       → la collezione di Rata del Contratto 12 (es: contratto { rate { ... } })
+ * Immobile                → una lista di Immobile non legata a un padre (es: immobili, immobiliConnection)
+ * </pre>
+ * La modifica di un'entità produce le chiavi che la riguardano: l'inserimento, l'aggiornamento
+ * o l'eliminazione della Rata 7 del Contratto 12 invalida "Rata#7", "Rata@Contratto#12" e "Rata",
+ * ma non le risposte che mostrano soltanto altri contratti.
+ *
+ * I nomi dei tipi sono quelli dell'entità radice della gerarchia: Appartamento, Ufficio e Negozio
+ * vengono registrati come Immobile, così che una modifica a un Appartamento invalidi anche
+ * le liste di immobili.
+ *
+ * @see com.epicode.Progetto_Backend.graphql.GraphQLResponseCache
+ * @see com.epicode.Progetto_Backend.graphql.ResponseCacheInvalidator
+ */
+@Component
+public class EntityDependencies {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private PersistenceUnitUtil persistenceUnitUtil;
+
+    /** Classe dell'entità → nome dell'entità radice */
+    private final Map<Class<?>, String> rootTypesByClass = new HashMap<>();
+
+    /** Nome dell'entità (coincide con il tipo GraphQL) → nome dell'entità radice */
+    private final Map<String, String> rootTypesByName = new HashMap<>();
+
+    @PostConstruct
+    void init() {
+        persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            EntityType<?> root = entity;
+            IdentifiableType<?> supertype = root.getSupertype();
+            while (supertype instanceof EntityType<?> parent) {
+                root = parent;
+                supertype = root.getSupertype();
+            }
+            rootTypesByClass.put(entity.getJavaType(), root.getName());
+            rootTypesByName.put(entity.getName(), root.getName());
+        }
+    }
+
+    /**
+     * @param typeName Nome di un tipo GraphQL o di un'entità
+     * @return Nome dell'entità radice, null se il tipo non corrisponde a un'entità
+     */
+    public String typeOf(String typeName) {
+        return rootTypesByName.get(typeName);
+    }
+
+    /**
+     * Restituisce il tipo di un'entità senza inizializzare gli eventuali proxy Hibernate.
+     *
+     * @param value Oggetto qualsiasi
+     * @return Nome dell'entità radice, null se l'oggetto non è un'entità
+     */
+    public String typeOf(Object value) {
+        return value == null ? null : rootTypesByClass.get(Hibernate.getClassLazy(value));
+    }
+
+    /**
+     * @param entity Entità (anche proxy non inizializzato)
+     * @return Chiave dell'istanza (es: "Contratto#12"), null se l'oggetto non è un'entità
+     */
+    public String instanceKey(Object entity) {
+        String type = typeOf(entity);
+        return type == null ? null : instanceKey(type, persistenceUnitUtil.getIdentifier(entity));
+    }
+
+    /**
+     * Calcola le chiavi invalidate dalla modifica di un'entità: l'istanza, le liste del suo tipo
+     * e le collezioni dei padri a cui appartiene (relazioni a uno nello stato nuovo e precedente).
+     *
+     * @param entity Entità inserita, aggiornata o eliminata
+     * @param id ID dell'entità
+     * @param persister Persister Hibernate dell'entità
+     * @param states Stati dell'entità (nuovo e/o precedente, anche null)
+     * @return Chiavi da invalidare, vuoto se l'entità non è mappata
+     */
+    public Set<String> changeKeys(Object entity, Object id, EntityPersister persister, Object[]... states) {
+        String type = typeOf(entity);
+        if (type == null) {
+            return Set.of();
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(type);
+        keys.add(instanceKey(type, id));
+        Type[] propertyTypes = persister.getPropertyTypes();
+        for (Object[] state : states) {
+            if (state == null) {
+                continue;
+            }
+            for (int i = 0; i < propertyTypes.length; i++) {
+                if (propertyTypes[i].isEntityType() && state[i] != null) {
+                    String owner = instanceKey(state[i]);
+                    if (owner != null) {
+                        keys.add(ownedKey(type, owner));
+                    }
+                }
+            }
+        }
+        return keys;
+    }
+
+    static String instanceKey(String type, Object id) {
+        return type + "#" + id;
+    }
+
+    static String ownedKey(String type, String ownerKey) {
+        return type + "@" + ownerKey;
+    }
+
+    /**
+     * @param key Chiave di dipendenza
+     * @return Tipo dell'entità a cui si riferisce la chiave
+     */
+    static String typeOfKey(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '#' || c == '@') {
+                return key.substring(0, i);
+            }
+        }
+        return key;
+    }
+}
@@ -0,0 +1,139 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.epicode.Progetto_Backend.config.GraphQLResponseCacheProperties;
+
+import graphql.ExecutionResult;
+import graphql.execution.DataFetcherResult;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.FieldFetchingInstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.language.AstPrinter;
+import graphql.language.OperationDefinition;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLNamedType;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+
+/**
+ * EntityDependencyInstrumentation - Raccolta delle entità da cui dipende una risposta GraphQL.
+ *
+ * Attiva solo per le richieste senza risposta in cache (ResponseCacheInterceptor registra le
+ * Dependencies nel GraphQLContext). Per ogni campo che restituisce entità registra:
+ * - Campo a singola entità (contratto, Rata.contratto, ...): la chiave dell'istanza ("Contratto#12");
+ *   se il risultato è null, il tipo ("Contratto"), perché un inserimento potrebbe cambiarlo
+ * - Lista sotto un'entità (Contratto.rate, Immobile.contratti, ...): la collezione del padre
+ *   ("Rata@Contratto#12") e le istanze contenute
+ * - Lista o Connection radice (immobili, immobiliConnection, rateByContratto, ...): il tipo
+ *   ("Immobile"), perché inserimenti e modifiche possono cambiare gli elementi che soddisfano i filtri
+ *
+ * Il tipo di entità di un campo è ricavato dal tipo GraphQL (i nomi coincidono con le entità);
+ * i tipi *Connection seguono la convenzione Relay di Spring GraphQL (ImmobileConnection → Immobile).
+ *
+ * Registra infine la forma normalizzata del documento, l'uso di campi legati all'utente
+ * (graphql.response-cache.user-scoped-fields) e marca come non memorizzabili le mutation.
+ *
+ * @see com.epicode.Progetto_Backend.graphql.GraphQLResponseCache
+ * @see com.epicode.Progetto_Backend.graphql.EntityDependencies
+ */
+public class EntityDependencyInstrumentation extends SimplePerformantInstrumentation {
+
+    private static final String CONNECTION_SUFFIX = "Connection";
+
+    private final EntityDependencies entityDependencies;
+
+    private final GraphQLResponseCacheProperties properties;
+
+    /** Campo dello schema → entità restituita (lo schema è immutabile) */
+    private final Map<GraphQLFieldDefinition, FieldEntity> fieldEntities = new ConcurrentHashMap<>();
+
+    public EntityDependencyInstrumentation(EntityDependencies entityDependencies,
+                                           GraphQLResponseCacheProperties properties) {
+        this.entityDependencies = entityDependencies;
+        this.properties = properties;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+        ExecutionContext executionContext = parameters.getExecutionContext();
+        GraphQLResponseCache.Dependencies dependencies =
+                executionContext.getGraphQLContext().get(GraphQLResponseCache.DEPENDENCIES_KEY);
+        if (dependencies != null) {
+            if (executionContext.getOperationDefinition().getOperation() != OperationDefinition.Operation.QUERY) {
+                dependencies.notCacheable();
+            } else {
+                dependencies.normalizedDocument(AstPrinter.printAstCompact(executionContext.getDocument()));
+            }
+        }
+        return super.beginExecuteOperation(parameters, state);
+    }
+
+    @Override
+    public FieldFetchingInstrumentationContext beginFieldFetching(InstrumentationFieldFetchParameters parameters,
+                                                                  InstrumentationState state) {
+        GraphQLResponseCache.Dependencies dependencies =
+                parameters.getExecutionContext().getGraphQLContext().get(GraphQLResponseCache.DEPENDENCIES_KEY);
+        if (dependencies == null) {
+            return super.beginFieldFetching(parameters, state);
+        }
+        DataFetchingEnvironment environment = parameters.getEnvironment();
+        if (parameters.getExecutionStepInfo().getPath().getLevel() == 1
+                && properties.getUserScopedFields().contains(environment.getFieldDefinition().getName())) {
+            dependencies.userScoped();
+        }
+        FieldEntity fieldEntity = fieldEntities.computeIfAbsent(environment.getFieldDefinition(), this::fieldEntity);
+        if (fieldEntity.type() == null) {
+            return super.beginFieldFetching(parameters, state);
+        }
+        String ownerKey = fieldEntity.list() ? entityDependencies.instanceKey(environment.getSource()) : null;
+        return new FieldFetchingInstrumentationContext() {
+            @Override
+            public void onDispatched() {
+            }
+
+            @Override
+            public void onCompleted(Object result, Throwable throwable) {
+                record(dependencies, fieldEntity, ownerKey, result);
+            }
+        };
+    }
+
+    private void record(GraphQLResponseCache.Dependencies dependencies, FieldEntity fieldEntity,
+                        String ownerKey, Object result) {
+        Object value = result instanceof DataFetcherResult<?> fetcherResult ? fetcherResult.getData() : result;
+        if (!fieldEntity.list()) {
+            dependencies.add(value == null ? fieldEntity.type() : entityDependencies.instanceKey(value));
+            return;
+        }
+        dependencies.add(ownerKey != null ? EntityDependencies.ownedKey(fieldEntity.type(), ownerKey) : fieldEntity.type());
+        if (value instanceof Iterable<?> elements) {
+            for (Object element : elements) {
+                dependencies.add(entityDependencies.instanceKey(element));
+            }
+        }
+    }
+
+    private FieldEntity fieldEntity(GraphQLFieldDefinition field) {
+        GraphQLType type = GraphQLTypeUtil.unwrapNonNull(field.getType());
+        boolean list = GraphQLTypeUtil.isList(type);
+        String name = ((GraphQLNamedType) GraphQLTypeUtil.unwrapAll(type)).getName();
+        if (!list && name.endsWith(CONNECTION_SUFFIX)) {
+            return new FieldEntity(entityDependencies.typeOf(name.substring(0, name.length() - CONNECTION_SUFFIX.length())), true);
+        }
+        return new FieldEntity(entityDependencies.typeOf(name), list);
+    }
+
+    /**
+     * FieldEntity - Entità restituita da un campo dello schema (type null se il campo non restituisce entità).
+     */
+    private record FieldEntity(String type, boolean list) {
+    }
+}
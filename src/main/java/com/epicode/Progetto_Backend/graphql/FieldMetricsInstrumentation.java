@@ -0,0 +1,168 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.epicode.Progetto_Backend.config.GraphQLMetricsProperties;
+import com.epicode.Progetto_Backend.monitoring.StatementCounter;
+
+import graphql.ExecutionResult;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.FieldFetchingInstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLNamedType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * FieldMetricsInstrumentation - Metriche Micrometer per operazioni e campi GraphQL.
+ *
+ * Registra per ogni esecuzione:
+ * - graphql.operation.duration (Timer): durata dell'esecuzione dell'operazione,
+ *   con tag type (query/mutation), operation (nome dell'operazione) e outcome
+ * - graphql.field.duration (Timer): durata di ogni resolver, con tag parent (tipo GraphQL),
+ *   field e outcome; il conteggio del Timer è il numero di invocazioni del resolver
+ * - graphql.field.statements (DistributionSummary): statement SQL eseguiti dal resolver,
+ *   con tag parent e field
+ *
+ * La durata di un campo asincrono (DataLoader) comprende l'attesa del batch; gli statement SQL
+ * del batch vengono eseguiti al dispatch del DataLoader e non sono attribuiti al singolo campo.
+ * Gli statement di un campo radice eseguito in un ramo parallelo (ParallelBranchExecutor)
+ * restano invece attribuiti al campo, perché il ramo riceve lo scope del chiamante.
+ *
+ * Per limitare l'overhead i campi risolti tramite getter (PropertyDataFetcher) non vengono misurati,
+ * salvo graphql.metrics.include-trivial-fields=true. I nomi di operazione sono scelti dal client:
+ * oltre graphql.metrics.max-operation-names vengono aggregati sotto il tag "other".
+ *
+ * Le metriche sono consultabili su /actuator/metrics/graphql.field.duration?tag=field:contratti
+ *
+ * @see com.epicode.Progetto_Backend.config.GraphQLMetricsProperties
+ * @see com.epicode.Progetto_Backend.monitoring.StatementCounter
+ */
+public class FieldMetricsInstrumentation extends SimplePerformantInstrumentation {
+
+    static final String OPERATION_TIMER = "graphql.operation.duration";
+    static final String FIELD_TIMER = "graphql.field.duration";
+    static final String FIELD_STATEMENTS = "graphql.field.statements";
+
+    private static final String OTHER_OPERATION = "other";
+    private static final String ANONYMOUS_OPERATION = "anonymous";
+
+    private final MeterRegistry registry;
+
+    private final GraphQLMetricsProperties properties;
+
+    /** Nomi di operazione già usati come tag (limitati a max-operation-names) */
+    private final Set<String> operationNames = ConcurrentHashMap.newKeySet();
+
+    public FieldMetricsInstrumentation(MeterRegistry registry, GraphQLMetricsProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+        if (!properties.isEnabled()) {
+            return super.beginExecuteOperation(parameters, state);
+        }
+        ExecutionContext executionContext = parameters.getExecutionContext();
+        String type = executionContext.getOperationDefinition().getOperation().name().toLowerCase();
+        String operation = operationTag(executionContext.getOperationDefinition().getName());
+        long start = System.nanoTime();
+        return SimpleInstrumentationContext.whenCompleted((result, throwable) -> {
+            boolean success = throwable == null && result != null && result.getErrors().isEmpty();
+            Timer.builder(OPERATION_TIMER)
+                    .description("Durata dell'esecuzione delle operazioni GraphQL")
+                    .tag("type", type)
+                    .tag("operation", operation)
+                    .tag("outcome", success ? "success" : "error")
+                    .publishPercentileHistogram(properties.isPercentileHistogram())
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    @Override
+    public FieldFetchingInstrumentationContext beginFieldFetching(InstrumentationFieldFetchParameters parameters,
+                                                                  InstrumentationState state) {
+        if (!properties.isEnabled() || (parameters.isTrivialDataFetcher() && !properties.isIncludeTrivialFields())) {
+            return super.beginFieldFetching(parameters, state);
+        }
+        DataFetchingEnvironment environment = parameters.getEnvironment();
+        String parent = ((GraphQLNamedType) environment.getParentType()).getName();
+        String field = environment.getFieldDefinition().getName();
+        return new FieldMetricsContext(parent, field);
+    }
+
+    private String operationTag(String name) {
+        if (name == null) {
+            return ANONYMOUS_OPERATION;
+        }
+        if (operationNames.contains(name)) {
+            return name;
+        }
+        if (operationNames.size() < properties.getMaxOperationNames()) {
+            operationNames.add(name);
+            return name;
+        }
+        return OTHER_OPERATION;
+    }
+
+    /**
+     * FieldMetricsContext - Misura di un singolo resolver.
+     *
+     * Lo scope di StatementCounter viene aperto prima dell'invocazione del resolver e chiuso
+     * in onDispatched, che graphql-java chiama sullo stesso thread subito dopo il ritorno
+     * del resolver: vengono quindi contati gli statement eseguiti in modo sincrono e quelli
+     * dei rami paralleli avviati dal resolver, a cui lo scope viene propagato. Il conteggio
+     * viene letto al completamento del campo.
+     */
+    private final class FieldMetricsContext implements FieldFetchingInstrumentationContext {
+
+        private final String parent;
+
+        private final String field;
+
+        private final long start = System.nanoTime();
+
+        private final StatementCounter.Scope scope;
+
+        private FieldMetricsContext(String parent, String field) {
+            this.parent = parent;
+            this.field = field;
+            this.scope = StatementCounter.open(parent + "." + field);
+        }
+
+        @Override
+        public void onDispatched() {
+            scope.close();
+        }
+
+        @Override
+        public void onCompleted(Object result, Throwable throwable) {
+            Timer.builder(FIELD_TIMER)
+                    .description("Durata dei resolver dei campi GraphQL")
+                    .tag("parent", parent)
+                    .tag("field", field)
+                    .tag("outcome", throwable == null ? "success" : "error")
+                    .publishPercentileHistogram(properties.isPercentileHistogram())
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            DistributionSummary.builder(FIELD_STATEMENTS)
+                    .description("Statement SQL eseguiti dai resolver dei campi GraphQL")
+                    .tag("parent", parent)
+                    .tag("field", field)
+                    .register(registry)
+                    .record(scope.getCount());
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.epicode.Progetto_Backend.config.GraphQLResponseCacheProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * GraphQLResponseCache - Cache delle risposte delle query GraphQL con invalidazione per entità.
+ *
+ * Ogni risposta è memorizzata con l'insieme delle dipendenze raccolte durante l'esecuzione
+ * (vedi EntityDependencies per il formato delle chiavi). Un indice inverso dipendenza → risposte
+ * consente di rimuovere esattamente le risposte che contengono un'entità modificata, senza
+ * svuotare l'intera cache:
+ * <pre>
+ * contratto(id: 12) { canoneAnnuo rate { importo } }  → [Contratto#12, Rata@Contratto#12, Rata#7, ...]
+ * updateRata(id: 7)                                   → invalida Contratto 12, non Contratto 13
+ * </pre>
+ *
+ * Una query in esecuzione mentre un'entità da cui dipende viene modificata potrebbe produrre
+ * una risposta già superata: per ogni tipo di entità viene mantenuto un contatore di generazione
+ * e la risposta viene scartata se una sua dipendenza è stata invalidata dopo l'inizio della query.
+ *
+ * La cache mantiene inoltre, per ogni documento ricevuto (testo o hash APQ), la forma normalizzata
+ * del documento e se questo seleziona campi legati all'utente (es: me), informazioni apprese
+ * alla prima esecuzione.
+ *
+ * Espone su Micrometer hit, miss, invalidazioni e dimensione (graphql.response.cache.*).
+ *
+ * @see com.epicode.Progetto_Backend.graphql.ResponseCacheInterceptor
+ * @see com.epicode.Progetto_Backend.graphql.EntityDependencyInstrumentation
+ * @see com.epicode.Progetto_Backend.graphql.ResponseCacheInvalidator
+ */
+public class GraphQLResponseCache implements MeterBinder {
+
+    /** Chiave del GraphQLContext con le dipendenze raccolte durante l'esecuzione */
+    static final String DEPENDENCIES_KEY = GraphQLResponseCache.class.getName() + ".dependencies";
+
+    private final GraphQLResponseCacheProperties properties;
+
+    /** Risposte in cache (LRU), protette dal lock dell'istanza */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /** Indice inverso: chiave di dipendenza → chiavi delle risposte */
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    /** Contatori di generazione per tipo di entità, incrementati a ogni invalidazione */
+    private final Map<String, Long> generations = new HashMap<>();
+
+    /** Documento ricevuto (testo o hash) → documento normalizzato */
+    private final Map<String, DocumentKey> documentKeys = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    public GraphQLResponseCache(GraphQLResponseCacheProperties properties) {
+        this.properties = properties;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > properties.getMaxEntries()) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Restituisce una risposta in cache non scaduta.
+     *
+     * @param key Chiave della risposta
+     * @return Risposta in cache, null se assente o scaduta
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            unindex(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Crea il raccoglitore delle dipendenze di una query, con la fotografia delle generazioni
+     * attuali per il controllo delle invalidazioni concorrenti.
+     *
+     * @return Dipendenze vuote da registrare nel GraphQLContext
+     */
+    public synchronized Dependencies newDependencies() {
+        return new Dependencies(new HashMap<>(generations), properties.getMaxDependencies());
+    }
+
+    /**
+     * Memorizza una risposta, a meno che una delle sue dipendenze sia stata invalidata
+     * durante l'esecuzione della query.
+     *
+     * @param key Chiave della risposta
+     * @param data Campo "data" della risposta
+     * @param extensions Campo "extensions" della risposta
+     * @param dependencies Dipendenze raccolte durante l'esecuzione
+     * @return true se la risposta è stata memorizzata
+     */
+    public synchronized boolean put(String key, Object data, Map<Object, Object> extensions,
+                                    Dependencies dependencies) {
+        Set<String> keys = Set.copyOf(dependencies.keys);
+        for (String dependency : keys) {
+            String type = EntityDependencies.typeOfKey(dependency);
+            if (generations.getOrDefault(type, 0L) > dependencies.generations.getOrDefault(type, 0L)) {
+                return false;
+            }
+        }
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            unindex(key, previous);
+        }
+        Entry entry = new Entry(data, extensions, keys, System.currentTimeMillis() + properties.getTtl().toMillis());
+        entries.put(key, entry);
+        for (String dependency : keys) {
+            dependents.computeIfAbsent(dependency, k -> new HashSet<>()).add(key);
+        }
+        return true;
+    }
+
+    /**
+     * Rimuove le risposte che dipendono dalle chiavi indicate.
+     *
+     * @param changedKeys Chiavi prodotte dalla modifica di una o più entità
+     */
+    public synchronized void invalidate(Collection<String> changedKeys) {
+        for (String changed : changedKeys) {
+            generations.merge(EntityDependencies.typeOfKey(changed), 1L, Long::sum);
+            Set<String> keys = dependents.remove(changed);
+            if (keys == null) {
+                continue;
+            }
+            for (String key : keys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    unindex(key, entry);
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Svuota la cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        dependents.clear();
+    }
+
+    private void unindex(String key, Entry entry) {
+        for (String dependency : entry.dependencies()) {
+            Set<String> keys = dependents.get(dependency);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    dependents.remove(dependency);
+                }
+            }
+        }
+    }
+
+    // ==================== Documenti ====================
+
+    /**
+     * @param document Testo del documento o "sha256:" seguito dall'hash APQ
+     * @return Documento normalizzato, null se il documento non è ancora stato eseguito
+     */
+    public DocumentKey documentKey(String document) {
+        return documentKeys.get(document);
+    }
+
+    /**
+     * Registra la forma normalizzata di un documento eseguito.
+     *
+     * @param document Testo del documento o "sha256:" seguito dall'hash APQ
+     * @param documentKey Documento normalizzato
+     */
+    public void registerDocument(String document, DocumentKey documentKey) {
+        if (documentKeys.size() >= properties.getMaxEntries()) {
+            Iterator<String> iterator = documentKeys.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        documentKeys.put(document, documentKey);
+    }
+
+    // ==================== Metriche ====================
+
+    /**
+     * @return Numero di risposte attualmente in cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Frazione delle richieste servite dalla cache (0.0 se nessuna richiesta)
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("graphql.response.cache.hits", hits, LongAdder::sum)
+                .description("Risposte GraphQL servite dalla cache")
+                .register(registry);
+        FunctionCounter.builder("graphql.response.cache.misses", misses, LongAdder::sum)
+                .description("Query GraphQL eseguite senza risposta in cache")
+                .register(registry);
+        FunctionCounter.builder("graphql.response.cache.invalidations", invalidations, LongAdder::sum)
+                .description("Risposte GraphQL rimosse per modifica delle entità")
+                .register(registry);
+        Gauge.builder("graphql.response.cache.size", this, GraphQLResponseCache::size)
+                .description("Risposte GraphQL in cache")
+                .register(registry);
+        Gauge.builder("graphql.response.cache.hit.rate", this, GraphQLResponseCache::getHitRate)
+                .description("Frazione delle query GraphQL servite dalla cache")
+                .register(registry);
+    }
+
+    // ==================== Tipi di supporto ====================
+
+    /**
+     * Entry - Risposta in cache con le sue dipendenze e la scadenza (epoch millis).
+     */
+    public record Entry(Object data, Map<Object, Object> extensions, Set<String> dependencies, long expiresAt) {
+    }
+
+    /**
+     * DocumentKey - Documento normalizzato (AST compatto, senza spazi e commenti) e indicazione
+     * dei campi legati all'utente.
+     */
+    public record DocumentKey(String normalized, boolean userScoped) {
+    }
+
+    /**
+     * Dependencies - Dipendenze raccolte durante l'esecuzione di una query.
+     *
+     * Thread-safe: i campi di una query possono essere risolti in parallelo (ParallelBranchExecutor).
+     * Una query diventa non memorizzabile se non è un'operazione query o se supera
+     * graphql.response-cache.max-dependencies.
+     */
+    public static final class Dependencies {
+
+        private final Map<String, Long> generations;
+
+        private final int maxDependencies;
+
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean cacheable = true;
+
+        private volatile boolean userScoped;
+
+        private volatile String normalizedDocument;
+
+        private Dependencies(Map<String, Long> generations, int maxDependencies) {
+            this.generations = generations;
+            this.maxDependencies = maxDependencies;
+        }
+
+        void add(String key) {
+            if (key != null && keys.add(key) && keys.size() > maxDependencies) {
+                cacheable = false;
+            }
+        }
+
+        void notCacheable() {
+            cacheable = false;
+        }
+
+        void userScoped() {
+            userScoped = true;
+        }
+
+        void normalizedDocument(String document) {
+            normalizedDocument = document;
+        }
+
+        boolean isCacheable() {
+            return cacheable && normalizedDocument != null;
+        }
+
+        boolean isUserScoped() {
+            return userScoped;
+        }
+
+        String getNormalizedDocument() {
+            return normalizedDocument;
+        }
+    }
+}
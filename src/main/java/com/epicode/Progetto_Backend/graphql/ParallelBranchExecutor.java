@@ -0,0 +1,131 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.epicode.Progetto_Backend.config.GraphQLConcurrencyProperties;
+import com.epicode.Progetto_Backend.monitoring.StatementCounter;
+
+import graphql.GraphQLContext;
+
+/**
+ * ParallelBranchExecutor - Esecuzione su virtual thread dei rami indipendenti di una query GraphQL.
+ *
+ * Un "ramo" è un'unità di lavoro bloccante (un resolver radice o un batch di DataLoader)
+ * che può essere eseguita in parallelo alle altre della stessa richiesta. Ogni ramo:
+ * - Viene eseguito su un virtual thread dedicato (il thread della richiesta non resta bloccato)
+ * - Riceve il SecurityContext del chiamante (DelegatingSecurityContextCallable), necessario
+ *   a @PreAuthorize: i virtual thread non ereditano il contesto del thread che li crea
+ * - Riceve lo scope di StatementCounter del chiamante, così gli statement SQL restano
+ *   attribuiti alla richiesta e al campo GraphQL che li ha generati
+ * - Completa il proprio future con contesto e scope ancora applicati: graphql-java prosegue
+ *   sul virtual thread (campi figli, batch dei DataLoader) con gli stessi contesti del ramo
+ * - Usa un proprio persistence context: il virtual thread non ha EntityManager né transazioni
+ *   associati, quindi ogni metodo @Transactional dei service ne apre uno dedicato
+ *
+ * La concorrenza è limitata per richiesta con un Semaphore salvato nel GraphQLContext
+ * (graphql.concurrency.max-concurrency-per-request): una query con molti campi radice non può
+ * occupare più connessioni del pool di quelle consentite.
+ *
+ * Se il chiamante ha già un persistence context o una transazione associati al thread
+ * (ad esempio un test @Transactional) il ramo viene eseguito sul thread corrente: i dati
+ * non ancora committati non sarebbero visibili da un'altra connessione.
+ *
+ * @see com.epicode.Progetto_Backend.graphql.ParallelExecutionInstrumentation
+ * @see com.epicode.Progetto_Backend.graphql.RelationResolver
+ */
+public class ParallelBranchExecutor implements AutoCloseable {
+
+    /** Chiave del GraphQLContext con il Semaphore della richiesta */
+    static final String PERMITS_KEY = ParallelBranchExecutor.class.getName() + ".permits";
+
+    private final GraphQLConcurrencyProperties properties;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("graphql-branch-", 0).factory());
+
+    public ParallelBranchExecutor(GraphQLConcurrencyProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Verifica se un ramo può essere eseguito su un altro thread.
+     *
+     * @return true se l'esecuzione parallela è abilitata e il thread corrente non ha
+     *         transazioni o risorse (EntityManager, connessioni) associate
+     */
+    public boolean canFork() {
+        return properties.isEnabled()
+                && !TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.getResourceMap().isEmpty();
+    }
+
+    /**
+     * Esegue un ramo su un virtual thread, nel limite di concorrenza della richiesta.
+     *
+     * @param context GraphQLContext della richiesta (contiene il Semaphore dei rami)
+     * @param task Lavoro bloccante del ramo
+     * @return Future completato con il risultato del ramo
+     */
+    public <T> CompletableFuture<T> fork(GraphQLContext context, Callable<T> task) {
+        if (!canFork()) {
+            try {
+                return CompletableFuture.completedFuture(task.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        Semaphore permits = context.computeIfAbsent(PERMITS_KEY,
+                key -> new Semaphore(properties.getMaxConcurrencyPerRequest()));
+        CompletableFuture<T> future = new CompletableFuture<>();
+        // Il future viene completato dentro il ramo, con SecurityContext e scope di
+        // StatementCounter ancora applicati: il completamento prosegue l'esecuzione della query
+        // su questo thread (campi figli, dispatch dei DataLoader) e i rami avviati da lì
+        // devono ereditare il contesto della richiesta. Il permesso viene invece rilasciato
+        // prima, perché il completamento può a sua volta attendere altri rami.
+        Callable<Void> branch = new DelegatingSecurityContextCallable<>(StatementCounter.wrap(() -> {
+            T result;
+            try {
+                try {
+                    result = task.call();
+                } finally {
+                    permits.release();
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+                return null;
+            }
+            future.complete(result);
+            return null;
+        }));
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return;
+            }
+            try {
+                branch.call();
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Chiude l'executor allo shutdown del contesto Spring, attendendo i rami in corso.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,101 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import com.epicode.Progetto_Backend.config.GraphQLConcurrencyProperties;
+
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionStrategyParameters;
+import graphql.execution.instrumentation.ExecutionStrategyInstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionStrategyParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.language.OperationDefinition;
+import graphql.schema.DataFetcher;
+
+/**
+ * ParallelExecutionInstrumentation - Esecuzione parallela dei campi radice delle query GraphQL.
+ *
+ * AsyncExecutionStrategy di graphql-java invoca i resolver dei campi radice uno dopo l'altro
+ * sul thread della richiesta e attende insieme i CompletableFuture restituiti: se i resolver
+ * sono bloccanti (chiamate JPA) i campi vengono quindi risolti in sequenza. Questa
+ * instrumentation avvolge i resolver dei campi radice in un ramo di ParallelBranchExecutor,
+ * così che una query come:
+ * <pre>
+ * { immobili { indirizzo } contratti { canoneAnnuo } manutenzioni { descrizione } }
+ * </pre>
+ * esegua le tre letture in parallelo, con tempo di risposta pari al campo più lento.
+ *
+ * Il parallelismo si applica solo:
+ * - Alle operazioni query (le mutation restano seriali come previsto dalla specifica GraphQL)
+ * - Ai campi radice, quando la query ne seleziona più di uno (anche tramite fragment)
+ * - Ai resolver non banali (i PropertyDataFetcher non eseguono I/O)
+ *
+ * @see com.epicode.Progetto_Backend.graphql.ParallelBranchExecutor
+ * @see com.epicode.Progetto_Backend.config.GraphQLConcurrencyProperties
+ */
+public class ParallelExecutionInstrumentation extends SimplePerformantInstrumentation {
+
+    /** Chiave del GraphQLContext con il numero di campi radice dell'operazione */
+    static final String ROOT_FIELDS_KEY = ParallelExecutionInstrumentation.class.getName() + ".rootFields";
+
+    private final ParallelBranchExecutor branchExecutor;
+
+    private final GraphQLConcurrencyProperties properties;
+
+    public ParallelExecutionInstrumentation(ParallelBranchExecutor branchExecutor,
+                                            GraphQLConcurrencyProperties properties) {
+        this.branchExecutor = branchExecutor;
+        this.properties = properties;
+    }
+
+    /**
+     * Registra il numero di campi radice dell'operazione, calcolato da graphql-java dopo
+     * l'espansione di fragment e inline fragment e l'unione dei campi duplicati: una query
+     * scritta come { ...Dashboard } seleziona più campi radice anche se l'AST ne contiene uno.
+     */
+    @Override
+    public ExecutionStrategyInstrumentationContext beginExecutionStrategy(
+            InstrumentationExecutionStrategyParameters parameters, InstrumentationState state) {
+        ExecutionStrategyParameters strategyParameters = parameters.getExecutionStrategyParameters();
+        if (strategyParameters.getPath().isRootPath()) {
+            parameters.getExecutionContext().getGraphQLContext()
+                    .put(ROOT_FIELDS_KEY, strategyParameters.getFields().size());
+        }
+        return super.beginExecutionStrategy(parameters, state);
+    }
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher,
+                                                InstrumentationFieldFetchParameters parameters,
+                                                InstrumentationState state) {
+        if (!properties.isEnabled() || parameters.isTrivialDataFetcher()
+                || !isParallelRootField(parameters)) {
+            return dataFetcher;
+        }
+        return environment -> branchExecutor
+                .fork(environment.getGraphQlContext(), () -> dataFetcher.get(environment))
+                .thenCompose(ParallelExecutionInstrumentation::flatten);
+    }
+
+    private static boolean isParallelRootField(InstrumentationFieldFetchParameters parameters) {
+        ExecutionContext executionContext = parameters.getExecutionContext();
+        int rootFields = executionContext.getGraphQLContext().getOrDefault(ROOT_FIELDS_KEY, 0);
+        return executionContext.getOperationDefinition().getOperation() == OperationDefinition.Operation.QUERY
+                && rootFields > 1
+                && parameters.getExecutionStepInfo().getPath().getLevel() == 1;
+    }
+
+    /**
+     * I resolver possono restituire a loro volta un CompletableFuture (resolver asincroni o
+     * Mono adattati da Spring GraphQL): il risultato del ramo viene quindi "appiattito".
+     */
+    private static CompletionStage<Object> flatten(Object value) {
+        if (value instanceof CompletionStage<?> stage) {
+            return stage.thenApply(result -> result);
+        }
+        return CompletableFuture.completedFuture(value);
+    }
+}
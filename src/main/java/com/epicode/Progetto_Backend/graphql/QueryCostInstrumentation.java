@@ -0,0 +1,263 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epicode.Progetto_Backend.config.GraphQLLimitsProperties;
+import com.epicode.Progetto_Backend.config.GraphQLPaginationProperties;
+
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.schema.GraphQLCompositeType;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLTypeUtil;
+
+/**
+ * QueryCostInstrumentation - Analisi statica del costo delle query GraphQL.
+ *
+ * Prima dell'esecuzione di ogni operazione (dopo parsing e validazione) attraversa il documento
+ * e calcola tre misure:
+ * - Profondità: livello di annidamento massimo dei campi (il campo radice ha profondità 1)
+ * - Complessità: numero di campi selezionati, frammenti inclusi
+ * - Costo: somma dei pesi dei campi, ciascuno moltiplicato per la dimensione stimata
+ *   di tutte le liste che lo contengono
+ *
+ * La dimensione stimata di una lista è:
+ * - Il valore dell'argomento "first" (per i campi edges delle Connection, quello della Connection),
+ *   limitato a graphql.pagination.max-page-size
+ * - graphql.pagination.default-page-size per una Connection senza "first"
+ * - La stima configurata in graphql.limits.list-sizes[Tipo.campo], se presente
+ * - Altrimenti graphql.limits.default-list-size
+ *
+ * Se una misura supera la soglia configurata l'operazione viene interrotta con
+ * AbortExecutionException: nessun resolver viene invocato e la risposta contiene solo l'errore.
+ * Il costo calcolato viene riportato nelle extensions della risposta (chiave "cost"), anche per
+ * le operazioni rifiutate, così che i client possano adattare le proprie query.
+ *
+ * Se la richiesta ha un budget di costo (CostBudgetInterceptor), il costo di un'operazione entro
+ * le soglie viene poi consumato dal budget dell'utente; con budget insufficiente l'operazione
+ * viene interrotta allo stesso modo e le extensions riportano anche il budget residuo.
+ *
+ * I campi di introspezione (__schema, __type, __typename) non vengono conteggiati: GraphiQL
+ * e gli strumenti di generazione del codice eseguono query di introspezione molto profonde.
+ *
+ * @see com.epicode.Progetto_Backend.config.GraphQLLimitsProperties
+ * @see com.epicode.Progetto_Backend.config.GraphQLConfig
+ */
+public class QueryCostInstrumentation extends SimplePerformantInstrumentation {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCostInstrumentation.class);
+
+    /** Chiave delle extensions della risposta che contiene il costo calcolato */
+    static final String EXTENSION_KEY = "cost";
+
+    /** Voce del report con il budget residuo dell'utente */
+    static final String BUDGET_REMAINING_KEY = "budgetRemaining";
+
+    /** Limite di saturazione del costo, per evitare overflow con liste molto annidate */
+    private static final long COST_CAP = 1_000_000_000_000L;
+
+    private final GraphQLLimitsProperties limits;
+
+    private final GraphQLPaginationProperties pagination;
+
+    public QueryCostInstrumentation(GraphQLLimitsProperties limits, GraphQLPaginationProperties pagination) {
+        this.limits = limits;
+        this.pagination = pagination;
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        return new QueryCost();
+    }
+
+    /**
+     * Calcola il costo dell'operazione e la rifiuta se supera le soglie configurate.
+     */
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+        if (limits.isEnabled() && state instanceof QueryCost cost) {
+            ExecutionContext executionContext = parameters.getExecutionContext();
+            QueryTraverser.newQueryTraverser()
+                    .schema(executionContext.getGraphQLSchema())
+                    .document(executionContext.getDocument())
+                    .operationName(executionContext.getOperationDefinition().getName())
+                    .coercedVariables(executionContext.getCoercedVariables())
+                    .build()
+                    .visitPreOrder(new QueryVisitorStub() {
+                        @Override
+                        public void visitField(QueryVisitorFieldEnvironment env) {
+                            accumulate(env, cost);
+                        }
+                    });
+            cost.computed = true;
+            checkLimits(cost);
+            consumeBudget(executionContext.getGraphQLContext().get(CostBudgetInterceptor.CostBudget.CONTEXT_KEY), cost);
+        }
+        return super.beginExecuteOperation(parameters, state);
+    }
+
+    /**
+     * Aggiunge profondità, complessità e costo alle extensions della risposta.
+     */
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult,
+            InstrumentationExecutionParameters parameters, InstrumentationState state) {
+        if (!limits.isReportCost() || !(state instanceof QueryCost cost) || !cost.computed) {
+            return super.instrumentExecutionResult(executionResult, parameters, state);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("depth", cost.depth);
+        report.put("complexity", cost.complexity);
+        report.put("cost", cost.cost);
+        report.put("maxCost", limits.getMaxCost());
+        if (cost.budget != null && cost.budget.remaining() >= 0) {
+            report.put(BUDGET_REMAINING_KEY, cost.budget.remaining());
+        }
+        return CompletableFuture.completedFuture(ExecutionResult.newExecutionResult()
+                .from(executionResult)
+                .addExtension(EXTENSION_KEY, report)
+                .build());
+    }
+
+    // ==================== Calcolo del costo ====================
+
+    /**
+     * Aggiorna le misure con un campo: la profondità e il moltiplicatore derivano
+     * dalla catena dei campi padre.
+     */
+    private void accumulate(QueryVisitorFieldEnvironment env, QueryCost cost) {
+        if (env.isTypeNameIntrospectionField() || isIntrospection(env)) {
+            return;
+        }
+        int depth = 1;
+        long multiplier = 1;
+        for (QueryVisitorFieldEnvironment parent = env.getParentEnvironment(); parent != null;
+                parent = parent.getParentEnvironment()) {
+            if (isIntrospection(parent)) {
+                return;
+            }
+            depth++;
+            multiplier = Math.min(multiplier * listSize(parent), COST_CAP);
+        }
+        cost.depth = Math.max(cost.depth, depth);
+        cost.complexity++;
+        cost.cost = Math.min(cost.cost + multiplier * weight(env), COST_CAP);
+    }
+
+    /**
+     * Peso di un campo: valore specifico da configurazione oppure peso predefinito
+     * per campi oggetto o scalari.
+     */
+    private long weight(QueryVisitorFieldEnvironment env) {
+        Integer weight = limits.getFieldWeights().get(key(env));
+        if (weight != null) {
+            return weight;
+        }
+        return GraphQLTypeUtil.unwrapAll(env.getFieldDefinition().getType()) instanceof GraphQLCompositeType
+                ? limits.getObjectFieldWeight()
+                : limits.getScalarFieldWeight();
+    }
+
+    /**
+     * Numero stimato di elementi restituiti da un campo (1 se il campo non è una lista).
+     */
+    private long listSize(QueryVisitorFieldEnvironment env) {
+        GraphQLFieldDefinition definition = env.getFieldDefinition();
+        if (!GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(definition.getType()))) {
+            return 1;
+        }
+        Integer first = first(env);
+        if (first == null && env.getFieldsContainer().getName().endsWith("Connection")) {
+            // edges di una Connection: la dimensione è determinata dal "first" della Connection
+            QueryVisitorFieldEnvironment connection = env.getParentEnvironment();
+            first = connection != null ? first(connection) : null;
+            if (first == null) {
+                first = pagination.getDefaultPageSize();
+            }
+        }
+        if (first != null) {
+            return Math.max(1, Math.min(first, pagination.getMaxPageSize()));
+        }
+        return limits.getListSizes().getOrDefault(key(env), limits.getDefaultListSize());
+    }
+
+    private void checkLimits(QueryCost cost) {
+        if (cost.depth > limits.getMaxDepth()) {
+            reject("Query troppo annidata: profondità " + cost.depth
+                    + ", massimo consentito " + limits.getMaxDepth(), cost);
+        }
+        if (cost.complexity > limits.getMaxComplexity()) {
+            reject("Query troppo complessa: " + cost.complexity
+                    + " campi selezionati, massimo consentito " + limits.getMaxComplexity(), cost);
+        }
+        if (cost.cost > limits.getMaxCost()) {
+            reject("Query troppo costosa: costo stimato " + cost.cost
+                    + ", massimo consentito " + limits.getMaxCost(), cost);
+        }
+    }
+
+    /**
+     * Consuma il costo dell'operazione dal budget dell'utente, se la richiesta ne ha uno.
+     */
+    private static void consumeBudget(CostBudgetInterceptor.CostBudget budget, QueryCost cost) {
+        if (budget == null) {
+            return;
+        }
+        cost.budget = budget;
+        if (!budget.tryConsume(cost.cost)) {
+            reject("Budget di costo GraphQL esaurito: costo stimato " + cost.cost
+                    + ", budget residuo " + budget.remaining()
+                    + ", riprova tra " + budget.retryAfterSeconds() + " secondi", cost);
+        }
+    }
+
+    private static void reject(String message, QueryCost cost) {
+        logger.warn("Query GraphQL rifiutata. {} (profondità: {}, complessità: {}, costo: {})",
+                message, cost.depth, cost.complexity, cost.cost);
+        throw new AbortExecutionException(message);
+    }
+
+    private static Integer first(QueryVisitorFieldEnvironment env) {
+        return env.getArguments().get("first") instanceof Number first ? first.intValue() : null;
+    }
+
+    private static boolean isIntrospection(QueryVisitorFieldEnvironment env) {
+        return env.getFieldDefinition().getName().startsWith("__");
+    }
+
+    private static String key(QueryVisitorFieldEnvironment env) {
+        return env.getFieldsContainer().getName() + "." + env.getFieldDefinition().getName();
+    }
+
+    /**
+     * QueryCost - Misure calcolate per una singola esecuzione.
+     */
+    static final class QueryCost implements InstrumentationState {
+
+        private boolean computed;
+
+        private int depth;
+
+        private int complexity;
+
+        private long cost;
+
+        private CostBudgetInterceptor.CostBudget budget;
+    }
+}
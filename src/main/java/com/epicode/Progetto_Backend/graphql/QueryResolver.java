@@ -4,19 +4,25 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.query.ScrollSubrange;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
+import com.epicode.Progetto_Backend.config.GraphQLPaginationProperties;
 import com.epicode.Progetto_Backend.entity.Contratto;
 import com.epicode.Progetto_Backend.entity.Immobile;
 import com.epicode.Progetto_Backend.entity.Locatario;
 import com.epicode.Progetto_Backend.entity.Manutenzione;
 import com.epicode.Progetto_Backend.entity.Rata;
 import com.epicode.Progetto_Backend.entity.Role;
+import com.epicode.Progetto_Backend.entity.TipoImmobile;
 import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.monitoring.StatementBudget;
 import com.epicode.Progetto_Backend.service.ContrattoService;
 import com.epicode.Progetto_Backend.service.ImmobileService;
 import com.epicode.Progetto_Backend.service.LocatarioService;
@@ -24,6 +30,8 @@ import com.epicode.Progetto_Backend.service.ManutenzioneService;
 import com.epicode.Progetto_Backend.service.RataService;
 import com.epicode.Progetto_Backend.service.UserService;
 
+import graphql.schema.DataFetchingFieldSelectionSet;
+
 /**
  * QueryResolver - Risolutore GraphQL per tutte le query (operazioni di lettura).
  * 
@@ -36,8 +44,17 @@ import com.epicode.Progetto_Backend.service.UserService;
  * - LOCATARIO: Accesso limitato (generalmente solo ai propri dati tramite query specifiche)
  * - isAuthenticated(): Qualsiasi utente autenticato
  * 
- * Le query di lista utilizzano PageRequest per ottenere tutti gli elementi
- * (senza paginazione, restituiscono l'intera lista).
+ * Le query di lista (immobili, contratti, ...) restituiscono l'intera tabella e sono deprecate
+ * nello schema: i client devono usare le query *Connection (immobiliConnection, contrattiConnection, ...)
+ * che implementano la paginazione a cursore stile Relay (first/after) con query keyset.
+ * La dimensione massima di pagina è imposta dal server (graphql.pagination.max-page-size).
+ * 
+ * Le query annotate con @StatementBudget dichiarano il numero massimo di statement SQL
+ * consentiti: nei test il superamento fa fallire la query (vedi StatementBudgetAspect).
+ * 
+ * Le query per ID (contratto, immobile, locatario, rata, manutenzione) caricano solo le relazioni
+ * presenti nel selection set (SelectionSetFetchPlanner): una query con soli campi scalari esegue
+ * una SELECT senza JOIN, una query con relazioni una sola SELECT con le JOIN pianificate.
  * 
  * Endpoint GraphQL: POST /graphql
  * 
@@ -64,6 +81,12 @@ public class QueryResolver {
     @Autowired
     private ManutenzioneService manutenzioneService;
 
+    @Autowired
+    private GraphQLPaginationProperties paginationProperties;
+
+    @Autowired
+    private SelectionSetFetchPlanner fetchPlanner;
+
     // ==================== User Queries ====================
     
     /**
@@ -85,6 +108,7 @@ public class QueryResolver {
      */
     @QueryMapping
     @PreAuthorize("hasRole('ADMIN')")
+    @StatementBudget(4)
     public User user(@Argument Long id) {
         return userService.getUserById(id);
     }
@@ -100,11 +124,25 @@ public class QueryResolver {
      */
     @QueryMapping
     @PreAuthorize("isAuthenticated()")
+    @StatementBudget(4)
     public User me(Authentication authentication) {
         String email = authentication.getName();
         return userService.getUserByEmail(email);
     }
 
+    /**
+     * Query GraphQL: usersConnection - Pagina di utenti con cursore (Relay).
+     * 
+     * @param subrange Cursore e dimensione della pagina (argomenti first/after)
+     * @param email Filtro opzionale per email (contenuto)
+     * @return Finestra di utenti convertita in UserConnection
+     */
+    @QueryMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public Window<User> usersConnection(ScrollSubrange subrange, @Argument String email) {
+        return userService.scrollUsers(email, position(subrange), limit(subrange));
+    }
+
     // ==================== Immobile Queries ====================
     
     /**
@@ -122,12 +160,29 @@ public class QueryResolver {
      * Query GraphQL: immobile(id) - Ottiene un immobile specifico per ID.
      * 
      * @param id ID dell'immobile da recuperare
-     * @return Immobile completo con tutti i dettagli specifici del tipo
+     * @param selectionSet Campi richiesti dal client, usati per pianificare le JOIN
+     * @return Immobile con le sole relazioni richieste dalla query
      */
     @QueryMapping
     @PreAuthorize("isAuthenticated()")
-    public Immobile immobile(@Argument Long id) {
-        return immobileService.getImmobileById(id);
+    @StatementBudget(3)
+    public Immobile immobile(@Argument Long id, DataFetchingFieldSelectionSet selectionSet) {
+        return immobileService.getImmobileById(id, fetchPlanner.plan(Immobile.class, selectionSet));
+    }
+
+    /**
+     * Query GraphQL: immobiliConnection - Pagina di immobili con cursore (Relay).
+     * 
+     * @param subrange Cursore e dimensione della pagina (argomenti first/after)
+     * @param citta Filtro opzionale per città
+     * @param tipo Filtro opzionale per tipo di immobile
+     * @return Finestra di immobili convertita in ImmobileConnection
+     */
+    @QueryMapping
+    @PreAuthorize("isAuthenticated()")
+    public Window<Immobile> immobiliConnection(ScrollSubrange subrange, @Argument String citta,
+                                               @Argument TipoImmobile tipo) {
+        return immobileService.scrollImmobili(citta, tipo, position(subrange), limit(subrange));
     }
 
     // ==================== Contratto Queries ====================
@@ -147,12 +202,29 @@ public class QueryResolver {
      * Query GraphQL: contratto(id) - Ottiene un contratto specifico per ID.
      * 
      * @param id ID del contratto da recuperare
-     * @return Contratto completo con locatario, immobile e rate
+     * @param selectionSet Campi richiesti dal client, usati per pianificare le JOIN
+     * @return Contratto con le sole relazioni richieste dalla query
+     */
+    @QueryMapping
+    @PreAuthorize("isAuthenticated()")
+    @StatementBudget(3)
+    public Contratto contratto(@Argument Long id, DataFetchingFieldSelectionSet selectionSet) {
+        return contrattoService.getContrattoById(id, fetchPlanner.plan(Contratto.class, selectionSet));
+    }
+
+    /**
+     * Query GraphQL: contrattiConnection - Pagina di contratti con cursore (Relay).
+     * 
+     * @param subrange Cursore e dimensione della pagina (argomenti first/after)
+     * @param locatarioId Filtro opzionale per locatario
+     * @param immobileId Filtro opzionale per immobile
+     * @return Finestra di contratti convertita in ContrattoConnection
      */
     @QueryMapping
     @PreAuthorize("isAuthenticated()")
-    public Contratto contratto(@Argument Long id) {
-        return contrattoService.getContrattoById(id);
+    public Window<Contratto> contrattiConnection(ScrollSubrange subrange, @Argument Long locatarioId,
+                                                 @Argument Long immobileId) {
+        return contrattoService.scrollContratti(locatarioId, immobileId, position(subrange), limit(subrange));
     }
 
     // ==================== Locatario Queries ====================
@@ -172,12 +244,27 @@ public class QueryResolver {
      * Query GraphQL: locatario(id) - Ottiene un locatario specifico per ID.
      * 
      * @param id ID del locatario da recuperare
-     * @return Locatario completo con dati anagrafici e riferimenti
+     * @param selectionSet Campi richiesti dal client, usati per pianificare le JOIN
+     * @return Locatario con le sole relazioni richieste dalla query
+     */
+    @QueryMapping
+    @PreAuthorize("isAuthenticated()")
+    @StatementBudget(3)
+    public Locatario locatario(@Argument Long id, DataFetchingFieldSelectionSet selectionSet) {
+        return locatarioService.getLocatarioById(id, fetchPlanner.plan(Locatario.class, selectionSet));
+    }
+
+    /**
+     * Query GraphQL: locatariConnection - Pagina di locatari con cursore (Relay).
+     * 
+     * @param subrange Cursore e dimensione della pagina (argomenti first/after)
+     * @param cognome Filtro opzionale per cognome (prefisso)
+     * @return Finestra di locatari convertita in LocatarioConnection
      */
     @QueryMapping
     @PreAuthorize("isAuthenticated()")
-    public Locatario locatario(@Argument Long id) {
-        return locatarioService.getLocatarioById(id);
+    public Window<Locatario> locatariConnection(ScrollSubrange subrange, @Argument String cognome) {
+        return locatarioService.scrollLocatari(cognome, position(subrange), limit(subrange));
     }
 
     // ==================== Rata Queries ====================
@@ -197,12 +284,14 @@ public class QueryResolver {
      * Query GraphQL: rata(id) - Ottiene una rata specifica per ID.
      * 
      * @param id ID della rata da recuperare
-     * @return Rata completa con riferimento al contratto
+     * @param selectionSet Campi richiesti dal client, usati per pianificare le JOIN
+     * @return Rata con le sole relazioni richieste dalla query
      */
     @QueryMapping
     @PreAuthorize("isAuthenticated()")
-    public Rata rata(@Argument Long id) {
-        return rataService.getRataById(id);
+    @StatementBudget(3)
+    public Rata rata(@Argument Long id, DataFetchingFieldSelectionSet selectionSet) {
+        return rataService.getRataById(id, fetchPlanner.plan(Rata.class, selectionSet));
     }
 
     /**
@@ -217,6 +306,21 @@ public class QueryResolver {
         return rataService.getRateByContrattoId(contrattoId);
     }
 
+    /**
+     * Query GraphQL: rateConnection - Pagina di rate con cursore (Relay).
+     * 
+     * @param subrange Cursore e dimensione della pagina (argomenti first/after)
+     * @param contrattoId Filtro opzionale per contratto
+     * @param pagata Filtro opzionale per stato di pagamento
+     * @return Finestra di rate convertita in RataConnection
+     */
+    @QueryMapping
+    @PreAuthorize("isAuthenticated()")
+    public Window<Rata> rateConnection(ScrollSubrange subrange, @Argument Long contrattoId,
+                                       @Argument Boolean pagata) {
+        return rataService.scrollRate(contrattoId, pagata, position(subrange), limit(subrange));
+    }
+
     // ==================== Manutenzione Queries ====================
     
     /**
@@ -234,12 +338,29 @@ public class QueryResolver {
      * Query GraphQL: manutenzione(id) - Ottiene una manutenzione specifica per ID.
      * 
      * @param id ID della manutenzione da recuperare
-     * @return Manutenzione completa con riferimento a immobile e locatario
+     * @param selectionSet Campi richiesti dal client, usati per pianificare le JOIN
+     * @return Manutenzione con le sole relazioni richieste dalla query
      */
     @QueryMapping
     @PreAuthorize("isAuthenticated()")
-    public Manutenzione manutenzione(@Argument Long id) {
-        return manutenzioneService.getManutenzioneById(id);
+    @StatementBudget(3)
+    public Manutenzione manutenzione(@Argument Long id, DataFetchingFieldSelectionSet selectionSet) {
+        return manutenzioneService.getManutenzioneById(id, fetchPlanner.plan(Manutenzione.class, selectionSet));
+    }
+
+    /**
+     * Query GraphQL: manutenzioniConnection - Pagina di manutenzioni con cursore (Relay).
+     * 
+     * @param subrange Cursore e dimensione della pagina (argomenti first/after)
+     * @param immobileId Filtro opzionale per immobile
+     * @param locatarioId Filtro opzionale per locatario
+     * @return Finestra di manutenzioni convertita in ManutenzioneConnection
+     */
+    @QueryMapping
+    @PreAuthorize("isAuthenticated()")
+    public Window<Manutenzione> manutenzioniConnection(ScrollSubrange subrange, @Argument Long immobileId,
+                                                       @Argument Long locatarioId) {
+        return manutenzioneService.scrollManutenzioni(immobileId, locatarioId, position(subrange), limit(subrange));
     }
 
     // ==================== Role Queries ====================
@@ -251,7 +372,27 @@ public class QueryResolver {
      */
     @QueryMapping
     @PreAuthorize("hasRole('ADMIN')")
+    @StatementBudget(1)
     public List<Role> roles() {
         return userService.getAllRoles();
     }
+
+    // ==================== Paginazione ====================
+
+    /**
+     * Posizione keyset da cui iniziare: quella decodificata dal cursore "after"
+     * oppure l'inizio della tabella se il cursore non è presente.
+     */
+    private ScrollPosition position(ScrollSubrange subrange) {
+        return subrange.position().orElse(ScrollPosition.keyset());
+    }
+
+    /**
+     * Dimensione della pagina: "first" se indicato, altrimenti il default,
+     * sempre compresa tra 1 e graphql.pagination.max-page-size.
+     */
+    private int limit(ScrollSubrange subrange) {
+        int requested = subrange.count().orElse(paginationProperties.getDefaultPageSize());
+        return Math.max(1, Math.min(requested, paginationProperties.getMaxPageSize()));
+    }
 }
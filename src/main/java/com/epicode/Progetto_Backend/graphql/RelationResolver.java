@@ -0,0 +1,251 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.dataloader.BatchLoaderEnvironment;
+import org.hibernate.Hibernate;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.stereotype.Controller;
+
+import com.epicode.Progetto_Backend.config.GraphQLConcurrencyProperties;
+import com.epicode.Progetto_Backend.entity.Contratto;
+import com.epicode.Progetto_Backend.entity.Immobile;
+import com.epicode.Progetto_Backend.entity.Locatario;
+import com.epicode.Progetto_Backend.entity.Manutenzione;
+import com.epicode.Progetto_Backend.entity.Rata;
+import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.service.ContrattoService;
+import com.epicode.Progetto_Backend.service.ImmobileService;
+import com.epicode.Progetto_Backend.service.LocatarioService;
+import com.epicode.Progetto_Backend.service.ManutenzioneService;
+import com.epicode.Progetto_Backend.service.RataService;
+import com.epicode.Progetto_Backend.service.UserService;
+
+import graphql.GraphQLContext;
+import graphql.schema.DataFetchingEnvironment;
+import reactor.core.publisher.Mono;
+
+/**
+ * RelationResolver - Risolutore GraphQL per i campi di relazione tra entità.
+ *
+ * Risolve tutti i campi che attraversano una relazione JPA (Contratto.rate, Locatario.contratti,
+ * Immobile.manutenzioni, User.locatario, ...) tramite DataLoader: durante l'esecuzione di una query
+ * le chiavi richieste da tutti gli oggetti padre dello stesso livello vengono raccolte e caricate
+ * con una sola query IN (...). Una query annidata come
+ * <pre>
+ * locatari { contratti { rate { importo } } }
+ * </pre>
+ * esegue quindi un numero costante di statement SQL, indipendente dal numero di locatari e contratti.
+ *
+ * Le entità restituite dai service sono detached (open-in-view disabilitato), quindi:
+ * - Se la relazione è già stata caricata (EntityGraph, JOIN FETCH o relazione EAGER)
+ *   viene restituita direttamente senza ulteriori query
+ * - Altrimenti la chiave viene accodata al DataLoader corrispondente
+ *
+ * Le chiavi dei DataLoader sono gli ID (Long) e non le entità: le entità usano equals/hashCode
+ * generati da Lombok su tutti i campi, non adatti come chiavi di una cache.
+ *
+ * I batch dei DataLoader dello stesso livello vengono eseguiti in parallelo su virtual thread
+ * tramite ParallelBranchExecutor (graphql.concurrency.parallel-data-loaders): Contratto.rate,
+ * Contratto.locatario e Contratto.immobile di una pagina di contratti vengono caricati
+ * contemporaneamente invece che in sequenza.
+ *
+ * @see org.springframework.graphql.execution.BatchLoaderRegistry
+ * @see org.dataloader.DataLoader
+ */
+@Controller
+public class RelationResolver {
+
+    // ==================== Nomi dei DataLoader ====================
+
+    static final String RATE_BY_CONTRATTO = "rateByContratto";
+    static final String CONTRATTI_BY_LOCATARIO = "contrattiByLocatario";
+    static final String CONTRATTI_BY_IMMOBILE = "contrattiByImmobile";
+    static final String MANUTENZIONI_BY_LOCATARIO = "manutenzioniByLocatario";
+    static final String MANUTENZIONI_BY_IMMOBILE = "manutenzioniByImmobile";
+    static final String LOCATARIO_BY_USER = "locatarioByUser";
+    static final String CONTRATTO_BY_ID = "contrattoById";
+    static final String LOCATARIO_BY_ID = "locatarioById";
+    static final String IMMOBILE_BY_ID = "immobileById";
+    static final String USER_BY_ID = "userById";
+
+    private final ParallelBranchExecutor branchExecutor;
+
+    private final boolean parallelDataLoaders;
+
+    /**
+     * Registra i DataLoader di tutte le relazioni.
+     *
+     * Ogni DataLoader riceve l'insieme di ID richiesti in un livello della query
+     * e delega a un metodo di service che esegue una singola query IN (...).
+     */
+    public RelationResolver(BatchLoaderRegistry registry,
+                            ContrattoService contrattoService,
+                            RataService rataService,
+                            ManutenzioneService manutenzioneService,
+                            LocatarioService locatarioService,
+                            ImmobileService immobileService,
+                            UserService userService,
+                            ParallelBranchExecutor branchExecutor,
+                            GraphQLConcurrencyProperties concurrencyProperties) {
+        this.branchExecutor = branchExecutor;
+        this.parallelDataLoaders = concurrencyProperties.isParallelDataLoaders();
+        registerToMany(registry, RATE_BY_CONTRATTO, rataService::getRateByContrattoIds);
+        registerToMany(registry, CONTRATTI_BY_LOCATARIO, contrattoService::getContrattiByLocatarioIds);
+        registerToMany(registry, CONTRATTI_BY_IMMOBILE, contrattoService::getContrattiByImmobileIds);
+        registerToMany(registry, MANUTENZIONI_BY_LOCATARIO, manutenzioneService::getManutenzioniByLocatarioIds);
+        registerToMany(registry, MANUTENZIONI_BY_IMMOBILE, manutenzioneService::getManutenzioniByImmobileIds);
+        registerToOne(registry, LOCATARIO_BY_USER, locatarioService::getLocatariByUserIds);
+        registerToOne(registry, CONTRATTO_BY_ID, contrattoService::getContrattiByIds);
+        registerToOne(registry, LOCATARIO_BY_ID, locatarioService::getLocatariByIds);
+        registerToOne(registry, IMMOBILE_BY_ID, immobileService::getImmobiliByIds);
+        registerToOne(registry, USER_BY_ID, userService::getUsersByIds);
+    }
+
+    // ==================== Contratto ====================
+
+    @SchemaMapping(typeName = "Contratto", field = "rate")
+    public CompletableFuture<List<Rata>> contrattoRate(Contratto contratto, DataFetchingEnvironment env) {
+        return toMany(contratto.getRate(), contratto.getId(), env, RATE_BY_CONTRATTO);
+    }
+
+    @SchemaMapping(typeName = "Contratto", field = "locatario")
+    public CompletableFuture<Locatario> contrattoLocatario(Contratto contratto, DataFetchingEnvironment env) {
+        return toOne(contratto.getLocatario(), Locatario::getId, env, LOCATARIO_BY_ID);
+    }
+
+    @SchemaMapping(typeName = "Contratto", field = "immobile")
+    public CompletableFuture<Immobile> contrattoImmobile(Contratto contratto, DataFetchingEnvironment env) {
+        return toOne(contratto.getImmobile(), Immobile::getId, env, IMMOBILE_BY_ID);
+    }
+
+    // ==================== Locatario ====================
+
+    @SchemaMapping(typeName = "Locatario", field = "contratti")
+    public CompletableFuture<List<Contratto>> locatarioContratti(Locatario locatario, DataFetchingEnvironment env) {
+        return toMany(locatario.getContratti(), locatario.getId(), env, CONTRATTI_BY_LOCATARIO);
+    }
+
+    @SchemaMapping(typeName = "Locatario", field = "manutenzioni")
+    public CompletableFuture<List<Manutenzione>> locatarioManutenzioni(Locatario locatario, DataFetchingEnvironment env) {
+        return toMany(locatario.getManutenzioni(), locatario.getId(), env, MANUTENZIONI_BY_LOCATARIO);
+    }
+
+    @SchemaMapping(typeName = "Locatario", field = "user")
+    public CompletableFuture<User> locatarioUser(Locatario locatario, DataFetchingEnvironment env) {
+        return toOne(locatario.getUser(), User::getId, env, USER_BY_ID);
+    }
+
+    // ==================== Immobile ====================
+
+    @SchemaMapping(typeName = "Immobile", field = "contratti")
+    public CompletableFuture<List<Contratto>> immobileContratti(Immobile immobile, DataFetchingEnvironment env) {
+        return toMany(immobile.getContratti(), immobile.getId(), env, CONTRATTI_BY_IMMOBILE);
+    }
+
+    @SchemaMapping(typeName = "Immobile", field = "manutenzioni")
+    public CompletableFuture<List<Manutenzione>> immobileManutenzioni(Immobile immobile, DataFetchingEnvironment env) {
+        return toMany(immobile.getManutenzioni(), immobile.getId(), env, MANUTENZIONI_BY_IMMOBILE);
+    }
+
+    // ==================== User ====================
+
+    /**
+     * User.locatario è il lato inverso (mappedBy) della relazione: se non è stato caricato
+     * il locatario viene cercato per ID utente.
+     */
+    @SchemaMapping(typeName = "User", field = "locatario")
+    public CompletableFuture<Locatario> userLocatario(User user, DataFetchingEnvironment env) {
+        Locatario locatario = user.getLocatario();
+        if (locatario != null && Hibernate.isInitialized(locatario)) {
+            return CompletableFuture.completedFuture(locatario);
+        }
+        return env.<Long, Locatario>getDataLoader(LOCATARIO_BY_USER).load(user.getId());
+    }
+
+    // ==================== Rata / Manutenzione ====================
+
+    @SchemaMapping(typeName = "Rata", field = "contratto")
+    public CompletableFuture<Contratto> rataContratto(Rata rata, DataFetchingEnvironment env) {
+        return toOne(rata.getContratto(), Contratto::getId, env, CONTRATTO_BY_ID);
+    }
+
+    @SchemaMapping(typeName = "Manutenzione", field = "immobile")
+    public CompletableFuture<Immobile> manutenzioneImmobile(Manutenzione manutenzione, DataFetchingEnvironment env) {
+        return toOne(manutenzione.getImmobile(), Immobile::getId, env, IMMOBILE_BY_ID);
+    }
+
+    @SchemaMapping(typeName = "Manutenzione", field = "locatario")
+    public CompletableFuture<Locatario> manutenzioneLocatario(Manutenzione manutenzione, DataFetchingEnvironment env) {
+        return toOne(manutenzione.getLocatario(), Locatario::getId, env, LOCATARIO_BY_ID);
+    }
+
+    // ==================== Metodi di supporto ====================
+
+    /**
+     * Risolve una relazione a molti: usa la collezione se già inizializzata,
+     * altrimenti accoda l'ID del padre al DataLoader.
+     */
+    private static <T> CompletableFuture<List<T>> toMany(List<T> collection, Long parentId,
+                                                         DataFetchingEnvironment env, String loaderName) {
+        if (collection != null && Hibernate.isInitialized(collection)) {
+            return CompletableFuture.completedFuture(collection);
+        }
+        return env.<Long, List<T>>getDataLoader(loaderName).load(parentId);
+    }
+
+    /**
+     * Risolve una relazione a uno: usa l'entità se già caricata, altrimenti accoda
+     * l'ID del proxy (disponibile senza inizializzarlo) al DataLoader.
+     */
+    private static <T> CompletableFuture<T> toOne(T association, Function<T, Long> idGetter,
+                                                  DataFetchingEnvironment env, String loaderName) {
+        if (association == null || Hibernate.isInitialized(association)) {
+            return CompletableFuture.completedFuture(association);
+        }
+        return env.<Long, T>getDataLoader(loaderName).load(idGetter.apply(association));
+    }
+
+    /**
+     * Registra un DataLoader per una relazione a molti. Gli ID senza figli ricevono
+     * una lista vuota (i campi lista dello schema sono non-null).
+     */
+    private <V> void registerToMany(BatchLoaderRegistry registry, String name,
+                                           Function<Collection<Long>, Map<Long, List<V>>> loader) {
+        registry.<Long, List<V>>forName(name)
+                .registerMappedBatchLoader((ids, env) ->
+                        loadBatch(env, () -> {
+                            Map<Long, List<V>> result = loader.apply(ids);
+                            ids.forEach(id -> result.putIfAbsent(id, new ArrayList<>()));
+                            return result;
+                        }));
+    }
+
+    /**
+     * Registra un DataLoader per una relazione a uno.
+     */
+    private <V> void registerToOne(BatchLoaderRegistry registry, String name,
+                                          Function<Collection<Long>, Map<Long, V>> loader) {
+        registry.<Long, V>forName(name)
+                .registerMappedBatchLoader((ids, env) -> loadBatch(env, () -> loader.apply(ids)));
+    }
+
+    /**
+     * Esegue un batch: in un ramo parallelo se abilitato, altrimenti alla sottoscrizione
+     * sul thread che effettua il dispatch dei DataLoader.
+     */
+    private <R> Mono<R> loadBatch(BatchLoaderEnvironment env, Callable<R> batch) {
+        if (!parallelDataLoaders) {
+            return Mono.fromCallable(batch);
+        }
+        GraphQLContext context = env.getContext();
+        return Mono.fromCompletionStage(() -> branchExecutor.fork(context, batch));
+    }
+}
@@ -0,0 +1,172 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.epicode.Progetto_Backend.config.GraphQLResponseCacheProperties;
+
+import graphql.ExecutionResult;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import reactor.core.publisher.Mono;
+
+/**
+ * ResponseCacheInterceptor - Lettura e scrittura della cache delle risposte GraphQL.
+ *
+ * La chiave di una risposta è composta da:
+ * - Documento normalizzato (AST compatto: spazi, virgole e commenti non contano) e nome dell'operazione
+ * - Variabili, in forma canonica (chiavi ordinate)
+ * - Ruoli dell'utente autenticato: utenti con gli stessi ruoli condividono le risposte
+ * - Email dell'utente, solo per i documenti che selezionano campi legati all'utente (es: me)
+ *
+ * La forma normalizzata del documento è nota solo dopo la prima esecuzione: un documento mai visto
+ * (testo o hash APQ) viene eseguito, e la sua chiave normalizzata registrata insieme alla risposta.
+ *
+ * Le richieste eseguite all'interno di una transazione già attiva (es: test @Transactional)
+ * non usano la cache: potrebbero leggere o produrre dati non ancora committati.
+ *
+ * Le risposte sono condivise tra utenti con gli stessi ruoli: il budget residuo dell'utente
+ * (cost.budgetRemaining) non viene memorizzato e resta solo negli header X-GraphQL-Budget-*.
+ *
+ * Vengono memorizzate solo le risposte di operazioni query valide e senza errori. L'header
+ * X-GraphQL-Cache indica se la risposta proviene dalla cache (HIT) o dall'esecuzione (MISS).
+ *
+ * @see com.epicode.Progetto_Backend.graphql.GraphQLResponseCache
+ */
+public class ResponseCacheInterceptor implements WebGraphQlInterceptor {
+
+    static final String CACHE_HEADER = "X-GraphQL-Cache";
+
+    private static final String HASH_PREFIX = "sha256:";
+
+    private final GraphQLResponseCache cache;
+
+    private final GraphQLResponseCacheProperties properties;
+
+    public ResponseCacheInterceptor(GraphQLResponseCache cache, GraphQLResponseCacheProperties properties) {
+        this.cache = cache;
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        String document = documentId(request);
+        if (!properties.isEnabled() || document == null
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return chain.next(request);
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        GraphQLResponseCache.DocumentKey documentKey = cache.documentKey(document);
+        if (documentKey != null) {
+            String key = cacheKey(documentKey, request, authentication);
+            GraphQLResponseCache.Entry entry = cache.get(key);
+            if (entry != null) {
+                return Mono.just(cachedResponse(request, entry));
+            }
+        }
+        GraphQLResponseCache.Dependencies dependencies = cache.newDependencies();
+        request.configureExecutionInput((input, builder) ->
+                builder.graphQLContext(Map.of(GraphQLResponseCache.DEPENDENCIES_KEY, dependencies)).build());
+        return chain.next(request).doOnNext(response -> {
+            response.getResponseHeaders().set(CACHE_HEADER, "MISS");
+            if (response.isValid() && response.getErrors().isEmpty() && dependencies.isCacheable()) {
+                GraphQLResponseCache.DocumentKey executed = new GraphQLResponseCache.DocumentKey(
+                        dependencies.getNormalizedDocument(), dependencies.isUserScoped());
+                cache.registerDocument(document, executed);
+                cache.put(cacheKey(executed, request, authentication), response.getData(),
+                        shared(response.getExecutionResult().getExtensions()), dependencies);
+            }
+        });
+    }
+
+    /**
+     * @return Testo del documento, "sha256:" + hash per le persisted query senza testo,
+     *         null se la richiesta non ha un documento utilizzabile
+     */
+    private static String documentId(WebGraphQlRequest request) {
+        String document = request.getDocument();
+        if (document != null && !document.isBlank() && !PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(document)) {
+            return document;
+        }
+        if (request.getExtensions().get(CachingPreparsedDocumentProvider.PERSISTED_QUERY_EXTENSION)
+                instanceof Map<?, ?> persistedQuery && persistedQuery.get("sha256Hash") instanceof String hash) {
+            return HASH_PREFIX + hash;
+        }
+        return null;
+    }
+
+    private static String cacheKey(GraphQLResponseCache.DocumentKey documentKey, WebGraphQlRequest request,
+                                   Authentication authentication) {
+        StringBuilder key = new StringBuilder(documentKey.normalized())
+                .append('|').append(request.getOperationName())
+                .append('|').append(canonical(request.getVariables()))
+                .append('|').append(roles(authentication));
+        if (documentKey.userScoped()) {
+            key.append('|').append(authentication == null ? "" : authentication.getName());
+        }
+        return key.toString();
+    }
+
+    private static String roles(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return "";
+        }
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Rappresentazione canonica delle variabili: le mappe vengono ordinate per chiave,
+     * così che {"a":1,"b":2} e {"b":2,"a":1} producano la stessa chiave.
+     */
+    private static String canonical(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, String> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), canonical(v)));
+            return sorted.toString();
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.stream().map(ResponseCacheInterceptor::canonical).toList().toString();
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * @return Extensions senza i dati del singolo utente (budget residuo)
+     */
+    private static Map<Object, Object> shared(Map<Object, Object> extensions) {
+        if (extensions == null || !(extensions.get(QueryCostInstrumentation.EXTENSION_KEY) instanceof Map<?, ?> cost)
+                || !cost.containsKey(QueryCostInstrumentation.BUDGET_REMAINING_KEY)) {
+            return extensions;
+        }
+        Map<Object, Object> report = new LinkedHashMap<>(cost);
+        report.remove(QueryCostInstrumentation.BUDGET_REMAINING_KEY);
+        Map<Object, Object> copy = new LinkedHashMap<>(extensions);
+        copy.put(QueryCostInstrumentation.EXTENSION_KEY, report);
+        return copy;
+    }
+
+    private static WebGraphQlResponse cachedResponse(WebGraphQlRequest request, GraphQLResponseCache.Entry entry) {
+        ExecutionResult result = ExecutionResult.newExecutionResult()
+                .data(entry.data())
+                .extensions(entry.extensions())
+                .build();
+        WebGraphQlResponse response = new WebGraphQlResponse(
+                new DefaultExecutionGraphQlResponse(request.toExecutionInput(), result));
+        response.getResponseHeaders().set(CACHE_HEADER, "HIT");
+        return response;
+    }
+}
@@ -0,0 +1,168 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * ResponseCacheInvalidator - Invalidazione della cache delle risposte GraphQL alla modifica delle entità.
+ *
+ * Si registra come listener degli eventi Hibernate di inserimento, aggiornamento ed eliminazione
+ * (e delle modifiche alle collezioni, es: ruoli di un utente): ogni scrittura JPA invalida le
+ * risposte che dipendono dalle entità modificate, indipendentemente dal punto di ingresso
+ * (mutation di MutationResolver, endpoint REST, DataSeeder, ...).
+ *
+ * Gli eventi vengono generati al flush, prima del commit: le chiavi modificate vengono raccolte
+ * per transazione e la cache viene invalidata solo dopo il commit. Un rollback non invalida nulla,
+ * e una query eseguita tra flush e commit non può rimettere in cache i dati precedenti (vedi il
+ * controllo di generazione di GraphQLResponseCache). Senza transazione attiva l'invalidazione
+ * è immediata.
+ *
+ * @see com.epicode.Progetto_Backend.graphql.GraphQLResponseCache
+ * @see com.epicode.Progetto_Backend.graphql.EntityDependencies
+ */
+@Component
+public class ResponseCacheInvalidator implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+        PostCollectionRemoveEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCacheInvalidator.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityDependencies entityDependencies;
+
+    @Autowired
+    private GraphQLResponseCache cache;
+
+    /**
+     * Registra il listener nel registry degli eventi della SessionFactory.
+     */
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(entityDependencies.changeKeys(event.getEntity(), event.getId(), event.getPersister(), event.getState()));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(entityDependencies.changeKeys(event.getEntity(), event.getId(), event.getPersister(),
+                event.getState(), event.getOldState()));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(entityDependencies.changeKeys(event.getEntity(), event.getId(), event.getPersister(),
+                event.getDeletedState()));
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        collectionChanged(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        collectionChanged(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        collectionChanged(event);
+    }
+
+    /**
+     * La modifica di una collezione posseduta (es: User.roles) equivale a una modifica del proprietario.
+     */
+    private void collectionChanged(AbstractCollectionEvent event) {
+        Object owner = event.getAffectedOwnerOrNull();
+        String type = entityDependencies.typeOf(owner);
+        if (type != null && event.getAffectedOwnerIdOrNull() != null) {
+            changed(Set.of(type, EntityDependencies.instanceKey(type, event.getAffectedOwnerIdOrNull())));
+        }
+    }
+
+    /**
+     * Invalida le chiavi dopo il commit della transazione corrente, o subito senza transazione.
+     */
+    private void changed(Set<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(keys);
+            return;
+        }
+        PendingInvalidation pending = (PendingInvalidation) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingInvalidation();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.keys.addAll(keys);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * PendingInvalidation - Chiavi modificate nella transazione corrente, invalidate al commit.
+     */
+    private final class PendingInvalidation implements TransactionSynchronization {
+
+        private final Set<String> keys = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            logger.debug("Invalidazione cache risposte GraphQL: {}", keys);
+            cache.invalidate(keys);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ResponseCacheInvalidator.this);
+        }
+    }
+}
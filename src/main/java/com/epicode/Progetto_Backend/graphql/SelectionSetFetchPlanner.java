@@ -0,0 +1,108 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
+
+/**
+ * SelectionSetFetchPlanner - Pianificazione del caricamento JPA a partire dai campi GraphQL richiesti.
+ *
+ * Confronta il selection set di un campo GraphQL con il metamodello JPA dell'entità restituita
+ * e produce l'elenco delle relazioni da caricare (percorsi con notazione puntata) per
+ * FetchPlanRepository. Ad esempio:
+ * <pre>
+ * contratto(id: 1) { canoneAnnuo }                              → []
+ * contratto(id: 1) { rate { importo } locatario { user { email } } } → [rate, locatario, locatario.user]
+ * </pre>
+ *
+ * Regole di pianificazione:
+ * - Vengono considerati solo i campi che corrispondono a relazioni JPA (i campi scalari sono
+ *   sempre presenti nella SELECT; i campi calcolati vengono ignorati)
+ * - Le relazioni annidate vengono seguite fino a {@value #MAX_DEPTH} livelli: quelle più profonde
+ *   vengono risolte in batch dai DataLoader di RelationResolver
+ * - Al massimo una collezione per piano: più collezioni (List) nella stessa JOIN producono un
+ *   prodotto cartesiano e MultipleBagFetchException; le altre vengono risolte dai DataLoader
+ *
+ * @see com.epicode.Progetto_Backend.repository.FetchPlanRepository
+ * @see com.epicode.Progetto_Backend.graphql.RelationResolver
+ */
+@Component
+public class SelectionSetFetchPlanner {
+
+    /** Livelli di relazioni annidate inclusi nel piano */
+    static final int MAX_DEPTH = 2;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Calcola le relazioni da caricare per un'entità in base ai campi richiesti.
+     *
+     * @param entityType Classe dell'entità restituita dal resolver
+     * @param selectionSet Campi richiesti dal client sotto al campo risolto
+     * @return Percorsi delle relazioni da caricare, in ordine di visita
+     */
+    public List<String> plan(Class<?> entityType, DataFetchingFieldSelectionSet selectionSet) {
+        FetchPlan plan = new FetchPlan();
+        collect(entityManagerFactory.getMetamodel().managedType(entityType), selectionSet.getImmediateFields(),
+                "", 1, plan);
+        return plan.paths;
+    }
+
+    private void collect(ManagedType<?> type, List<SelectedField> fields, String prefix, int depth, FetchPlan plan) {
+        for (SelectedField field : fields) {
+            Attribute<?, ?> attribute = findAttribute(type, field.getName());
+            String path = prefix + field.getName();
+            if (attribute == null || !attribute.isAssociation() || plan.paths.contains(path)) {
+                continue;
+            }
+            if (attribute.isCollection()) {
+                if (plan.collectionFetched) {
+                    continue;
+                }
+                plan.collectionFetched = true;
+            }
+            plan.paths.add(path);
+            if (depth < MAX_DEPTH && targetType(attribute) instanceof ManagedType<?> target) {
+                collect(target, field.getSelectionSet().getImmediateFields(), path + ".", depth + 1, plan);
+            }
+        }
+    }
+
+    private static Attribute<?, ?> findAttribute(ManagedType<?> type, String name) {
+        for (Attribute<?, ?> attribute : type.getAttributes()) {
+            if (attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    private static Type<?> targetType(Attribute<?, ?> attribute) {
+        if (attribute instanceof PluralAttribute<?, ?, ?> plural) {
+            return plural.getElementType();
+        }
+        return ((SingularAttribute<?, ?>) attribute).getType();
+    }
+
+    /**
+     * FetchPlan - Stato della pianificazione: percorsi raccolti e presenza di una collezione.
+     */
+    private static final class FetchPlan {
+
+        private final List<String> paths = new ArrayList<>();
+
+        private boolean collectionFetched;
+    }
+}
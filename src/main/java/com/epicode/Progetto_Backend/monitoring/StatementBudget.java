@@ -0,0 +1,41 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * StatementBudget - Budget dichiarativo di statement SQL per un metodo.
+ *
+ * Applicata a metodi di controller REST o resolver GraphQL, dichiara il numero massimo
+ * di statement SQL che il metodo può eseguire (incluse le chiamate a service e repository).
+ *
+ * Comportamento quando il budget viene superato (vedi StatementGuardProperties):
+ * - Test (fail-on-budget-exceeded=true): viene lanciata StatementBudgetExceededException
+ * - Produzione: viene registrato un warning campionato con il pattern SQL più ripetuto
+ *
+ * Esempio:
+ * <pre>
+ * &#64;QueryMapping
+ * &#64;StatementBudget(3)
+ * public Contratto contratto(&#64;Argument Long id) { ... }
+ *
+ * &#64;GetMapping("/{id}")
+ * &#64;StatementBudget(8)
+ * public ResponseEntity&lt;Contratto&gt; getContrattoById(&#64;PathVariable Long id, ...) { ... }
+ * </pre>
+ *
+ * @see com.epicode.Progetto_Backend.monitoring.StatementBudgetAspect
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+
+    /**
+     * @return Numero massimo di statement SQL consentiti per una singola invocazione
+     */
+    int value();
+}
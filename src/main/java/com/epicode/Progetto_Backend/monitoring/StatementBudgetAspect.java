@@ -0,0 +1,85 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * StatementBudgetAspect - Applicazione dei budget SQL e attribuzione per componente.
+ *
+ * Due advice:
+ * - Metodi annotati con {@link StatementBudget}: apre uno scope dedicato, esegue il metodo
+ *   e confronta gli statement eseguiti con il budget dichiarato
+ * - Metodi di service e repository: misura la differenza di statement prima/dopo la
+ *   chiamata e la attribuisce al componente nello scope radice, senza strumentazione manuale
+ *
+ * Se il controllo è disabilitato (performance.statement-guard.enabled=false) entrambi
+ * gli advice si limitano a proseguire l'esecuzione.
+ */
+@Aspect
+@Component
+public class StatementBudgetAspect {
+
+    @Autowired
+    private StatementGuardProperties properties;
+
+    @Autowired
+    private StatementGuardReporter reporter;
+
+    /**
+     * Applica il budget dichiarato con {@link StatementBudget}.
+     *
+     * Il controllo avviene solo se il metodo termina normalmente: un'eccezione applicativa
+     * ha la precedenza sulla segnalazione del budget.
+     *
+     * @param joinPoint Invocazione intercettata
+     * @param budget Annotazione con il numero massimo di statement
+     * @return Risultato del metodo
+     * @throws Throwable Eccezione del metodo o StatementBudgetExceededException
+     */
+    @Around("@annotation(budget)")
+    public Object enforceBudget(ProceedingJoinPoint joinPoint, StatementBudget budget) throws Throwable {
+        if (!properties.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        String target = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName();
+        Object result;
+        StatementCounter.Scope scope = StatementCounter.open(target);
+        try {
+            result = joinPoint.proceed();
+        } finally {
+            scope.close();
+        }
+        if (scope.getCount() > budget.value()) {
+            reporter.budgetExceeded(target, scope, budget.value());
+        }
+        return result;
+    }
+
+    /**
+     * Attribuisce gli statement eseguiti a service e repository.
+     *
+     * @param joinPoint Invocazione intercettata
+     * @return Risultato del metodo
+     * @throws Throwable Eccezione del metodo
+     */
+    @Around("within(com.epicode.Progetto_Backend.service..*) "
+            + "|| execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object attribute(ProceedingJoinPoint joinPoint) throws Throwable {
+        StatementCounter.Scope root = properties.isEnabled() ? StatementCounter.root().orElse(null) : null;
+        if (root == null) {
+            return joinPoint.proceed();
+        }
+        int before = root.getCount();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            String component = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                    + "." + joinPoint.getSignature().getName();
+            root.attribute(component, root.getCount() - before);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+/**
+ * StatementBudgetExceededException - Budget di statement SQL superato.
+ *
+ * Lanciata da StatementBudgetAspect quando un metodo annotato con {@link StatementBudget}
+ * esegue più statement del consentito e la modalità fail-on-budget-exceeded è attiva
+ * (profilo di test). Il messaggio contiene il pattern SQL più ripetuto per individuare
+ * rapidamente la relazione che causa il problema N+1.
+ */
+public class StatementBudgetExceededException extends RuntimeException {
+
+    /** Numero di statement effettivamente eseguiti */
+    private final int actual;
+
+    /** Budget dichiarato sul metodo */
+    private final int budget;
+
+    /**
+     * @param message Messaggio descrittivo con metodo e pattern SQL
+     * @param actual Statement eseguiti
+     * @param budget Budget dichiarato
+     */
+    public StatementBudgetExceededException(String message, int actual, int budget) {
+        super(message);
+        this.actual = actual;
+        this.budget = budget;
+    }
+
+    public int getActual() {
+        return actual;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,253 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+/**
+ * StatementCounter - Contatore degli statement SQL legato al thread corrente.
+ *
+ * Mantiene uno stack di {@link Scope} per thread: ogni statement intercettato da
+ * {@link StatementCountingInspector} viene registrato nello scope corrente e in tutti
+ * gli scope padre. In questo modo lo stesso statement viene contato sia dalla richiesta
+ * HTTP (scope radice aperto da {@link StatementCountingFilter}) sia dal metodo annotato
+ * con {@link StatementBudget} in esecuzione.
+ *
+ * Ogni scope tiene traccia di:
+ * - Numero totale di statement eseguiti
+ * - Numero di esecuzioni per "pattern" SQL normalizzato (literal e liste IN sostituiti)
+ * - Statement attribuiti ai singoli metodi di service e repository (solo scope radice)
+ *
+ * Utilizzo nei test:
+ * <pre>
+ * try (StatementCounter.Scope scope = StatementCounter.open("test")) {
+ *     contrattoService.getContrattoById(id);
+ *     assertTrue(scope.getCount() &lt;= 3);
+ * }
+ * </pre>
+ *
+ * @see com.epicode.Progetto_Backend.monitoring.StatementCountingInspector
+ * @see com.epicode.Progetto_Backend.monitoring.StatementBudget
+ */
+public final class StatementCounter {
+
+    /** Scope attivo per il thread corrente (null se nessuno scope è aperto) */
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\((?:\\s*\\?\\s*,)*\\s*\\?\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Lunghezza massima di un pattern SQL riportato nei log */
+    private static final int MAX_PATTERN_LENGTH = 300;
+
+    private StatementCounter() {
+    }
+
+    /**
+     * Apre un nuovo scope figlio dello scope corrente e lo rende attivo.
+     *
+     * Lo scope va sempre chiuso (try-with-resources) per ripristinare il padre.
+     *
+     * @param name Nome descrittivo dello scope (es: "GET /api/contratti" o "QueryResolver.contratti")
+     * @return Scope appena aperto
+     */
+    public static Scope open(String name) {
+        Scope scope = new Scope(name, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Restituisce lo scope attivo sul thread corrente.
+     *
+     * @return Optional con lo scope attivo, empty se nessuno scope è aperto
+     */
+    public static Optional<Scope> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Propaga lo scope corrente a un task eseguito su un altro thread.
+     *
+     * Lo scope attivo viene catturato alla chiamata di questo metodo e reso attivo sul thread
+     * che esegue il task, ripristinando al termine lo scope precedente di quel thread. Gli
+     * statement eseguiti dal task vengono così contati nello scope del chiamante e nei suoi
+     * padri (gli scope sono sincronizzati e possono essere condivisi tra thread).
+     *
+     * @param task Task da eseguire su un altro thread
+     * @return Task che esegue con lo scope del chiamante
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Scope captured = CURRENT.get();
+        return () -> {
+            Scope previous = CURRENT.get();
+            CURRENT.set(captured);
+            try {
+                return task.call();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Restituisce lo scope radice (tipicamente quello della richiesta HTTP).
+     *
+     * @return Optional con lo scope radice, empty se nessuno scope è aperto
+     */
+    public static Optional<Scope> root() {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return Optional.empty();
+        }
+        while (scope.parent != null) {
+            scope = scope.parent;
+        }
+        return Optional.of(scope);
+    }
+
+    /**
+     * Registra uno statement SQL nello scope corrente e in tutti i suoi padri.
+     *
+     * Se nessuno scope è aperto la chiamata non ha effetti (costo: una lettura ThreadLocal).
+     *
+     * @param sql Statement SQL preparato da Hibernate
+     */
+    static void record(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        String pattern = normalize(sql);
+        while (scope != null) {
+            scope.add(pattern);
+            scope = scope.parent;
+        }
+    }
+
+    /**
+     * Normalizza uno statement SQL in un pattern confrontabile.
+     *
+     * Sostituisce i literal stringa e numerici con "?", comprime le liste IN (?, ?, ...)
+     * e gli spazi multipli, così che lo stesso statement eseguito N volte con parametri
+     * diversi produca sempre lo stesso pattern (firma tipica del problema N+1).
+     *
+     * @param sql Statement SQL originale
+     * @return Pattern SQL normalizzato
+     */
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("in (...)");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        if (normalized.length() > MAX_PATTERN_LENGTH) {
+            return normalized.substring(0, MAX_PATTERN_LENGTH) + "...";
+        }
+        return normalized;
+    }
+
+    /**
+     * Scope - Finestra di conteggio degli statement SQL.
+     *
+     * I metodi sono sincronizzati perché uno scope può essere condiviso da più thread
+     * che lavorano per la stessa richiesta.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final String name;
+        private final Scope parent;
+        private int count;
+        private final Map<String, Integer> patternCounts = new HashMap<>();
+        private final Map<String, Integer> componentCounts = new LinkedHashMap<>();
+
+        private Scope(String name, Scope parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        private synchronized void add(String pattern) {
+            count++;
+            patternCounts.merge(pattern, 1, Integer::sum);
+        }
+
+        /**
+         * Attribuisce un numero di statement a un componente (metodo di service o repository).
+         *
+         * @param component Nome del componente (es: "ContrattoService.getContrattoById")
+         * @param statements Statement eseguiti durante la chiamata (inclusi quelli annidati)
+         */
+        public synchronized void attribute(String component, int statements) {
+            if (statements > 0) {
+                componentCounts.merge(component, statements, Integer::sum);
+            }
+        }
+
+        /**
+         * @return Nome dello scope
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Numero totale di statement eseguiti nello scope
+         */
+        public synchronized int getCount() {
+            return count;
+        }
+
+        /**
+         * @return Copia non modificabile dei conteggi per pattern SQL
+         */
+        public synchronized Map<String, Integer> getPatternCounts() {
+            return Collections.unmodifiableMap(new HashMap<>(patternCounts));
+        }
+
+        /**
+         * @return Copia non modificabile dei conteggi per service/repository
+         */
+        public synchronized Map<String, Integer> getComponentCounts() {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(componentCounts));
+        }
+
+        /**
+         * Restituisce il pattern SQL eseguito più volte nello scope.
+         *
+         * Un pattern ripetuto molte volte è il sintomo classico di un problema N+1.
+         *
+         * @return Optional con la coppia pattern/esecuzioni, empty se nessuno statement
+         */
+        public synchronized Optional<Map.Entry<String, Integer>> getMostFrequentPattern() {
+            return patternCounts.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(e -> Map.entry(e.getKey(), e.getValue()));
+        }
+
+        /**
+         * Chiude lo scope e ripristina lo scope padre come scope attivo.
+         */
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                if (parent != null) {
+                    CURRENT.set(parent);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        }
+    }
+}
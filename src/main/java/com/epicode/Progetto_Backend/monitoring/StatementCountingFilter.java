@@ -0,0 +1,55 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * StatementCountingFilter - Conteggio degli statement SQL per ogni richiesta HTTP.
+ *
+ * Apre lo scope radice di {@link StatementCounter} all'inizio della richiesta (prima della
+ * catena di Spring Security, così da includere anche il caricamento dell'utente dal JWT)
+ * e lo chiude al termine. Se la richiesta supera la soglia configurata
+ * (performance.statement-guard.request-warn-threshold) viene registrato un warning
+ * campionato con il pattern SQL più ripetuto.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class StatementCountingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private StatementGuardProperties properties;
+
+    @Autowired
+    private StatementGuardReporter reporter;
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        StatementCounter.Scope scope = StatementCounter.open(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.close();
+            if (scope.getCount() > properties.getRequestWarnThreshold()) {
+                reporter.requestThresholdExceeded(scope);
+            }
+        }
+    }
+}
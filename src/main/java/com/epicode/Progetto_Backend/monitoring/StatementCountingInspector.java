@@ -0,0 +1,31 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * StatementCountingInspector - StatementInspector Hibernate che conta gli statement SQL.
+ *
+ * Viene registrato a livello di SessionFactory da StatementGuardConfig, quindi
+ * intercetta automaticamente ogni statement preparato da qualsiasi repository o service,
+ * senza dover strumentare i singoli metodi.
+ *
+ * Non modifica lo statement: si limita a registrarlo nello scope attivo di
+ * {@link StatementCounter} (se presente).
+ *
+ * @see org.hibernate.resource.jdbc.spi.StatementInspector
+ * @see com.epicode.Progetto_Backend.monitoring.StatementCounter
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    /**
+     * Registra lo statement e lo restituisce invariato.
+     *
+     * @param sql Statement SQL preparato da Hibernate
+     * @return Lo stesso statement, non modificato
+     */
+    @Override
+    public String inspect(String sql) {
+        StatementCounter.record(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,30 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * StatementGuardConfig - Registrazione dello StatementInspector su Hibernate.
+ *
+ * Aggiunge {@link StatementCountingInspector} alle proprietà della SessionFactory,
+ * in modo che ogni statement SQL eseguito dall'applicazione venga contato nello scope
+ * attivo di {@link StatementCounter}.
+ *
+ * L'inspector è sempre registrato: quando il controllo è disabilitato nessuno scope
+ * viene aperto e il costo per statement si riduce a una lettura ThreadLocal.
+ */
+@Configuration
+public class StatementGuardConfig {
+
+    /**
+     * Customizer delle proprietà Hibernate che registra lo StatementInspector.
+     *
+     * @return HibernatePropertiesCustomizer applicato dall'autoconfigurazione JPA
+     */
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+}
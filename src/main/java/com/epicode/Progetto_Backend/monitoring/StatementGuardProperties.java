@@ -0,0 +1,34 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * StatementGuardProperties - Configurazione del controllo sul numero di statement SQL.
+ *
+ * Le proprietà vengono lette da application.properties con il prefisso
+ * "performance.statement-guard":
+ * - enabled: abilita il conteggio per richiesta e i budget dichiarativi
+ * - fail-on-budget-exceeded: lancia un'eccezione quando un budget viene superato (test)
+ * - request-warn-threshold: soglia di statement per richiesta oltre la quale si logga un warning
+ * - sample-rate: frazione (0.0 - 1.0) dei superamenti effettivamente loggati in produzione
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "performance.statement-guard")
+public class StatementGuardProperties {
+
+    /** Abilita il conteggio degli statement per richiesta e l'applicazione dei budget */
+    private boolean enabled = true;
+
+    /** Se true, il superamento di un @StatementBudget lancia StatementBudgetExceededException */
+    private boolean failOnBudgetExceeded = false;
+
+    /** Numero di statement per richiesta HTTP oltre il quale viene registrato un warning */
+    private int requestWarnThreshold = 25;
+
+    /** Frazione dei superamenti loggati (1.0 = tutti, 0.1 = uno su dieci) */
+    private double sampleRate = 0.1;
+}
@@ -0,0 +1,85 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * StatementGuardReporter - Segnalazione dei superamenti di budget SQL.
+ *
+ * Centralizza la decisione su come reagire quando una richiesta o un metodo annotato
+ * con {@link StatementBudget} esegue troppi statement:
+ * - fail-on-budget-exceeded=true: lancia {@link StatementBudgetExceededException}
+ * - altrimenti: registra un warning campionato (sample-rate) per non intasare i log
+ *
+ * Ogni segnalazione riporta il pattern SQL più ripetuto e gli statement attribuiti
+ * ai singoli service/repository, così da individuare subito la relazione responsabile.
+ */
+@Component
+public class StatementGuardReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementGuardReporter.class);
+
+    /** Numero massimo di componenti riportati nel messaggio */
+    private static final int MAX_COMPONENTS = 5;
+
+    @Autowired
+    private StatementGuardProperties properties;
+
+    /**
+     * Gestisce il superamento del budget dichiarato su un metodo.
+     *
+     * @param target Metodo annotato (es: "QueryResolver.contratto")
+     * @param scope Scope del metodo
+     * @param budget Budget dichiarato
+     * @throws StatementBudgetExceededException se fail-on-budget-exceeded è attivo
+     */
+    public void budgetExceeded(String target, StatementCounter.Scope scope, int budget) {
+        String message = String.format("%s ha eseguito %d statement SQL (budget %d). %s",
+                target, scope.getCount(), budget, describe(scope));
+        if (properties.isFailOnBudgetExceeded()) {
+            throw new StatementBudgetExceededException(message, scope.getCount(), budget);
+        }
+        if (sampled()) {
+            logger.warn(message);
+        }
+    }
+
+    /**
+     * Segnala una richiesta HTTP che ha superato la soglia globale di statement.
+     *
+     * @param scope Scope radice della richiesta
+     */
+    public void requestThresholdExceeded(StatementCounter.Scope scope) {
+        if (sampled()) {
+            logger.warn("Richiesta {} ha eseguito {} statement SQL (soglia {}). {}",
+                    scope.getName(), scope.getCount(), properties.getRequestWarnThreshold(), describe(scope));
+        }
+    }
+
+    private boolean sampled() {
+        double rate = properties.getSampleRate();
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private String describe(StatementCounter.Scope scope) {
+        String pattern = scope.getMostFrequentPattern()
+                .map(e -> e.getValue() + "x [" + e.getKey() + "]")
+                .orElse("nessuno");
+        Map<String, Integer> components = StatementCounter.root()
+                .map(StatementCounter.Scope::getComponentCounts)
+                .orElse(scope.getComponentCounts());
+        String attribution = components.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(MAX_COMPONENTS)
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining(", "));
+        return "Pattern più ripetuto: " + pattern
+                + (attribution.isEmpty() ? "" : ". Componenti: " + attribution);
+    }
+}
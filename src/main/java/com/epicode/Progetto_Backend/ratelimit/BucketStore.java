@@ -0,0 +1,43 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * BucketStore - Negozio dei bucket di rate limiting usato da RateLimiter.
+ *
+ * Implementazioni (rate-limit.store):
+ * - LocalBucketStore (local): bucket in memoria, limiti applicati dal singolo nodo
+ * - JdbcBucketStore (jdbc): bucket condivisi tra i nodi in una tabella del database,
+ *   con aggiornamenti compare-and-swap e token prelevati in anticipo da ogni nodo
+ *
+ * @see com.epicode.Progetto_Backend.ratelimit.RateLimiter
+ */
+public interface BucketStore {
+
+    /**
+     * Consuma token dal bucket di un client, creandolo se necessario.
+     *
+     * @param key Chiave del client (es: user:email o ip:indirizzo)
+     * @param tier Livello di limite del client
+     * @param tokens Token da consumare
+     * @return Esito con token residui e attesa prima della ricarica
+     */
+    ConsumptionProbe tryConsume(String key, RateLimitTier tier, long tokens);
+
+    /**
+     * Rimuove i bucket inattivi da più di rate-limit.expire-after-access.
+     *
+     * @return Numero di bucket rimossi
+     */
+    int evictExpired();
+
+    /**
+     * @return Numero di client con un bucket (o token prelevati) su questo nodo
+     */
+    int size();
+
+    /**
+     * @return Bucket rimossi (limite di dimensione o inattività) dall'avvio
+     */
+    long evictions();
+}
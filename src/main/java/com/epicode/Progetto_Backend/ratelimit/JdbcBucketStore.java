@@ -0,0 +1,312 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * JdbcBucketStore - Bucket di rate limiting condivisi tra i nodi tramite database.
+ *
+ * Lo stato di ogni bucket (token disponibili all'ultima ricarica) è una riga di
+ * rate_limit_bucket: tutti i nodi applicano lo stesso limite al client, invece di un limite
+ * per nodo (che con N nodi dietro il load balancer diventerebbe N volte quello configurato).
+ *
+ * Aggiornamenti compare-and-swap (semantica dei proxy manager di Bucket4j):
+ * 1. Legge token, istante di ricarica e versione della riga
+ * 2. Calcola la ricarica continua fino all'istante corrente e i token da prelevare
+ * 3. UPDATE ... WHERE bucket_key = ? AND version = ?: se un altro nodo ha aggiornato
+ *    la riga nel frattempo, riprova dal passo 1 (fino a rate-limit.jdbc.max-retries volte)
+ * Nessun lock sul database: SQL standard, compatibile con PostgreSQL, MySQL e H2.
+ *
+ * Prelievo anticipato: ogni nodo preleva dal database un piccolo lotto di token per client
+ * (rate-limit.jdbc.prefetch-tokens, al massimo un decimo della capacità) e consuma i successivi
+ * in memoria, così la maggior parte delle richieste non accede al database. Il limite del
+ * cluster non viene mai superato (i token sono sottratti dal database prima dell'uso); i token
+ * prelevati e non usati entro rate-limit.jdbc.prefetch-ttl vengono restituiti al bucket al
+ * successivo accesso del client, così non restano bloccati su un nodo.
+ *
+ * Se il database non è raggiungibile o i conflitti superano i tentativi, la richiesta viene
+ * ammessa: il rate limiting non deve rendere indisponibile l'API.
+ *
+ * @see com.epicode.Progetto_Backend.entity.RateLimitBucket
+ * @see com.epicode.Progetto_Backend.ratelimit.RateLimiter
+ */
+public class JdbcBucketStore implements BucketStore, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcBucketStore.class);
+
+    /** I token sono salvati in millesimi per non perdere la ricarica continua tra due accessi */
+    static final long SCALE = 1000;
+
+    private static final String SELECT_SQL =
+            "SELECT tokens, refilled_at, version FROM rate_limit_bucket WHERE bucket_key = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO rate_limit_bucket (bucket_key, tokens, refilled_at, version) VALUES (?, ?, ?, 0)";
+
+    private static final String UPDATE_SQL =
+            "UPDATE rate_limit_bucket SET tokens = ?, refilled_at = ?, version = version + 1 "
+            + "WHERE bucket_key = ? AND version = ?";
+
+    private static final String DELETE_EXPIRED_SQL =
+            "DELETE FROM rate_limit_bucket WHERE refilled_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int maxEntries;
+
+    private final long expireAfterAccessMillis;
+
+    private final long prefetchTokens;
+
+    private final long prefetchTtlMillis;
+
+    private final int maxRetries;
+
+    /** Token prelevati per client su questo nodo (LRU), protetti dal lock dell'istanza */
+    private final LinkedHashMap<String, Lease> leases;
+
+    private final LongAdder localHits = new LongAdder();
+
+    private final LongAdder databaseCalls = new LongAdder();
+
+    private final LongAdder conflicts = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param jdbcTemplate Accesso al database condiviso
+     * @param maxEntries Numero massimo di client con token prelevati su questo nodo
+     * @param expireAfterAccessMillis Inattività dopo la quale un bucket viene rimosso
+     * @param prefetchTokens Token prelevati per accesso al database
+     * @param prefetchTtlMillis Durata dei token prelevati prima della restituzione
+     * @param maxRetries Tentativi in caso di conflitto
+     */
+    public JdbcBucketStore(JdbcTemplate jdbcTemplate, int maxEntries, long expireAfterAccessMillis,
+                           long prefetchTokens, long prefetchTtlMillis, int maxRetries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.expireAfterAccessMillis = expireAfterAccessMillis;
+        this.prefetchTokens = Math.max(1, prefetchTokens);
+        this.prefetchTtlMillis = prefetchTtlMillis;
+        this.maxRetries = Math.max(1, maxRetries);
+        this.leases = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Lease> eldest) {
+                if (size() > JdbcBucketStore.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, RateLimitTier tier, long tokens) {
+        Bandwidth bandwidth = tier.configuration().getBandwidths()[0];
+        Lease lease;
+        synchronized (this) {
+            lease = leases.computeIfAbsent(key, k -> new Lease());
+        }
+        synchronized (lease) {
+            long now = System.currentTimeMillis();
+            lease.lastAccess = now;
+            long refund = 0;
+            if (lease.expiresAt <= now) {
+                refund = lease.tokens;
+                lease.tokens = 0;
+            }
+            if (lease.tokens >= tokens) {
+                lease.tokens -= tokens;
+                localHits.increment();
+                return ConsumptionProbe.consumed(lease.tokens + lease.remoteRemaining, 0);
+            }
+
+            long need = tokens - lease.tokens;
+            long batch = Math.max(need, Math.min(prefetchTokens, Math.max(1, bandwidth.getCapacity() / 10)));
+            Acquisition acquisition = acquire(key, bandwidth, need, batch, refund);
+            lease.remoteRemaining = acquisition.remaining();
+            if (acquisition.granted() == 0) {
+                return ConsumptionProbe.rejected(lease.tokens + acquisition.remaining(),
+                        acquisition.nanosToWait(), acquisition.nanosToWait());
+            }
+            lease.tokens += acquisition.granted() - tokens;
+            lease.expiresAt = now + prefetchTtlMillis;
+            return ConsumptionProbe.consumed(lease.tokens + acquisition.remaining(), 0);
+        }
+    }
+
+    @Override
+    public int evictExpired() {
+        long threshold = System.currentTimeMillis() - expireAfterAccessMillis;
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Lease> iterator = leases.values().iterator();
+            while (iterator.hasNext() && iterator.next().lastAccess < threshold) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        evictions.add(removed);
+        try {
+            return removed + jdbcTemplate.update(DELETE_EXPIRED_SQL, threshold);
+        } catch (DataAccessException e) {
+            logger.warn("Pulizia dei bucket di rate limiting non riuscita: {}", e.getMessage());
+            return removed;
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return leases.size();
+    }
+
+    @Override
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("ratelimit.backend.local.hits", localHits, LongAdder::sum)
+                .description("Richieste servite dai token prelevati in anticipo, senza accesso al database")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.backend.calls", databaseCalls, LongAdder::sum)
+                .description("Accessi al database per prelevare token")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.backend.conflicts", conflicts, LongAdder::sum)
+                .description("Aggiornamenti compare-and-swap ripetuti per conflitto con un altro nodo")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.backend.failures", failures, LongAdder::sum)
+                .description("Richieste ammesse senza verifica per errore del database")
+                .register(registry);
+    }
+
+    /**
+     * Preleva token dal bucket condiviso con aggiornamento compare-and-swap.
+     *
+     * @param need Token indispensabili (sotto questa soglia la richiesta è rifiutata)
+     * @param batch Token da prelevare se disponibili (need più il prelievo anticipato)
+     * @param refund Token prelevati in precedenza e non usati, da restituire
+     */
+    private Acquisition acquire(String key, Bandwidth bandwidth, long need, long batch, long refund) {
+        databaseCalls.increment();
+        try {
+            for (int attempt = 0; attempt < maxRetries; attempt++) {
+                long now = System.currentTimeMillis();
+                List<long[]> rows = jdbcTemplate.query(SELECT_SQL,
+                        (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2), rs.getLong(3)}, key);
+                long[] row = rows.isEmpty() ? null : rows.get(0);
+
+                long available = row == null
+                        ? bandwidth.getCapacity() * SCALE
+                        : refill(row[0], now - row[1], bandwidth);
+                available = Math.min(bandwidth.getCapacity() * SCALE, available + refund * SCALE);
+                long granted = available >= need * SCALE ? Math.min(batch, available / SCALE) : 0;
+                long tokens = available - granted * SCALE;
+                long nanosToWait = granted == 0 ? nanosToRefill(need * SCALE - available, bandwidth) : 0;
+                Acquisition acquisition = new Acquisition(granted, tokens / SCALE, nanosToWait);
+
+                if (row == null) {
+                    try {
+                        jdbcTemplate.update(INSERT_SQL, key, tokens, now);
+                        return acquisition;
+                    } catch (DuplicateKeyException e) {
+                        // Riga creata da un altro nodo nel frattempo
+                        conflicts.increment();
+                        continue;
+                    }
+                }
+                if (granted == 0 && refund == 0) {
+                    // Rifiuto senza modifiche: nulla da scrivere
+                    return acquisition;
+                }
+                if (jdbcTemplate.update(UPDATE_SQL, tokens, Math.max(now, row[1]), key, row[2]) == 1) {
+                    return acquisition;
+                }
+                conflicts.increment();
+            }
+            logger.warn("Bucket di rate limiting {} conteso oltre {} tentativi: richiesta ammessa", key, maxRetries);
+        } catch (DataAccessException e) {
+            logger.warn("Backend del rate limiting non disponibile, richiesta ammessa: {}", e.getMessage());
+        }
+        failures.increment();
+        return new Acquisition(need, 0, 0);
+    }
+
+    /**
+     * Token disponibili (in millesimi) dopo la ricarica continua del periodo trascorso.
+     *
+     * @param storedTokens Token salvati all'ultima ricarica, in millesimi
+     * @param elapsedMillis Tempo trascorso dall'ultima ricarica (negativo con orologi sfasati)
+     * @param bandwidth Limite del livello
+     * @return Token disponibili in millesimi, al massimo la capacità
+     */
+    static long refill(long storedTokens, long elapsedMillis, Bandwidth bandwidth) {
+        long capacity = bandwidth.getCapacity() * SCALE;
+        if (elapsedMillis <= 0) {
+            return Math.min(capacity, storedTokens);
+        }
+        long periodMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(bandwidth.getRefillPeriodNanos()));
+        // Oltre il tempo necessario a riempire il bucket la moltiplicazione potrebbe traboccare
+        if (elapsedMillis >= periodMillis * (bandwidth.getCapacity() / bandwidth.getRefillTokens() + 1)) {
+            return capacity;
+        }
+        long added = elapsedMillis * bandwidth.getRefillTokens() * SCALE / periodMillis;
+        return Math.min(capacity, storedTokens + added);
+    }
+
+    /**
+     * Attesa prima che la ricarica renda disponibili i token mancanti.
+     *
+     * @param missingTokens Token mancanti, in millesimi
+     * @param bandwidth Limite del livello
+     * @return Attesa in nanosecondi
+     */
+    static long nanosToRefill(long missingTokens, Bandwidth bandwidth) {
+        double nanosPerToken = (double) bandwidth.getRefillPeriodNanos() / (bandwidth.getRefillTokens() * SCALE);
+        return (long) Math.ceil(missingTokens * nanosPerToken);
+    }
+
+    /**
+     * Esito di un prelievo dal database.
+     *
+     * @param granted Token prelevati (0 = richiesta rifiutata)
+     * @param remaining Token rimasti nel bucket condiviso
+     * @param nanosToWait Attesa prima della ricarica dei token mancanti (solo se rifiutata)
+     */
+    private record Acquisition(long granted, long remaining, long nanosToWait) {
+    }
+
+    /**
+     * Token prelevati da questo nodo per un client.
+     */
+    private static final class Lease {
+
+        private long tokens;
+
+        private long expiresAt;
+
+        private long remoteRemaining;
+
+        private long lastAccess;
+    }
+}
@@ -0,0 +1,135 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.local.LocalBucketBuilder;
+
+/**
+ * LocalBucketStore - Bucket di rate limiting in memoria, limitati in numero e rimossi se inattivi.
+ *
+ * Un bucket per client (utente o IP) in una mappa LRU protetta dal lock dell'istanza: il lock
+ * copre solo la ricerca del bucket, il consumo dei token avviene fuori dal lock. La memoria
+ * resta limitata anche con traffico da moltissimi IP diversi (es: scansioni):
+ * - Oltre maxEntries il client usato meno di recente viene rimosso
+ * - Un bucket non usato da più di expireAfterAccess viene rimosso da evictExpired o,
+ *   se il client ritorna prima, sostituito da uno nuovo (che sarebbe comunque pieno)
+ *
+ * Se il livello di un client cambia (ruoli diversi o configurazione ricaricata), il bucket
+ * esistente adotta i nuovi limiti mantenendo in proporzione i token residui.
+ *
+ * @see com.epicode.Progetto_Backend.ratelimit.RateLimiter
+ */
+public class LocalBucketStore implements BucketStore {
+
+    private final int maxEntries;
+
+    private final long expireAfterAccessMillis;
+
+    /** Bucket per client (LRU), protetti dal lock dell'istanza */
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries Numero massimo di client
+     * @param expireAfterAccessMillis Inattività dopo la quale il bucket viene rimosso
+     */
+    public LocalBucketStore(int maxEntries, long expireAfterAccessMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.expireAfterAccessMillis = expireAfterAccessMillis;
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > LocalBucketStore.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, RateLimitTier tier, long tokens) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        boolean reconfigure = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null || entry.lastAccess + expireAfterAccessMillis < now) {
+                entry = new Entry(newBucket(tier), tier);
+                entries.put(key, entry);
+            } else if (entry.tier != tier) {
+                entry.tier = tier;
+                reconfigure = true;
+            }
+            entry.lastAccess = now;
+        }
+        if (reconfigure) {
+            entry.bucket.replaceConfiguration(tier.configuration(), TokensInheritanceStrategy.PROPORTIONALLY);
+        }
+        return entry.bucket.tryConsumeAndReturnRemaining(tokens);
+    }
+
+    /**
+     * Rimuove i bucket inattivi da più di expireAfterAccess.
+     *
+     * La mappa è in ordine di accesso: la scansione si ferma al primo bucket ancora attivo.
+     *
+     * @return Numero di bucket rimossi
+     */
+    @Override
+    public synchronized int evictExpired() {
+        long threshold = System.currentTimeMillis() - expireAfterAccessMillis;
+        int removed = 0;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && iterator.next().lastAccess < threshold) {
+            iterator.remove();
+            removed++;
+        }
+        evictions.add(removed);
+        return removed;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private static Bucket newBucket(RateLimitTier tier) {
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : tier.configuration().getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Bucket di un client con il livello applicato e l'ultimo accesso.
+     */
+    private static final class Entry {
+
+        private final Bucket bucket;
+
+        private RateLimitTier tier;
+
+        private long lastAccess;
+
+        private Entry(Bucket bucket, RateLimitTier tier) {
+            this.bucket = bucket;
+            this.tier = tier;
+        }
+    }
+}
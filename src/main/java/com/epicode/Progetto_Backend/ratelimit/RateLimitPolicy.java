@@ -0,0 +1,206 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.AntPathMatcher;
+
+import com.epicode.Progetto_Backend.config.RateLimitProperties;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+
+/**
+ * RateLimitPolicy - Istantanea immutabile dei livelli e dei costi del rate limiting.
+ *
+ * Costruita da RateLimitProperties all'avvio e a ogni ricaricamento del file di configurazione;
+ * RateLimiter sostituisce l'istanza in blocco, così ogni richiesta vede una configurazione coerente.
+ *
+ * Scelta del livello:
+ * - Richiesta anonima: livello "anonymous"
+ * - Utente autenticato: tra i livelli dei suoi ruoli (ROLE_ADMIN → "admin") quello con la
+ *   capacità maggiore; se nessun ruolo ha un livello, "authenticated"
+ *
+ * Costo: la prima rotta configurata il cui pattern (e metodo, se indicato) corrisponde alla
+ * richiesta; altrimenti rate-limit.default-cost.
+ *
+ * Budget GraphQL: livelli separati (rate-limit.graphql.tiers, nomi con prefisso "graphql:"),
+ * scelti con la stessa regola tra quelli dei ruoli dell'utente.
+ */
+public final class RateLimitPolicy {
+
+    /** Livello delle richieste anonime */
+    public static final String ANONYMOUS = "anonymous";
+
+    /** Livello degli utenti autenticati senza un livello specifico per ruolo */
+    public static final String AUTHENTICATED = "authenticated";
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private static final String GRAPHQL_PREFIX = "graphql:";
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final Map<String, RateLimitTier> tiers = new HashMap<>();
+
+    private final Map<String, RateLimitTier> graphqlTiers = new HashMap<>();
+
+    private final boolean graphqlEnabled;
+
+    private final List<RateLimitProperties.Route> routes;
+
+    private final long defaultCost;
+
+    private RateLimitPolicy(RateLimitProperties properties) {
+        properties.getTiers().forEach((name, tier) -> {
+            String key = name.toLowerCase(Locale.ROOT);
+            tiers.put(key, new RateLimitTier(key, configuration(tier)));
+        });
+        tiers.computeIfAbsent(ANONYMOUS, name -> new RateLimitTier(name, configuration(new RateLimitProperties.Tier())));
+        tiers.computeIfAbsent(AUTHENTICATED, name -> new RateLimitTier(name, configuration(new RateLimitProperties.Tier())));
+        properties.getGraphql().getTiers().forEach((name, tier) -> {
+            String key = name.toLowerCase(Locale.ROOT);
+            graphqlTiers.put(key, new RateLimitTier(GRAPHQL_PREFIX + key, configuration(tier)));
+        });
+        graphqlTiers.computeIfAbsent(AUTHENTICATED, name -> {
+            RateLimitProperties.Tier tier = new RateLimitProperties.Tier();
+            tier.setCapacity(RateLimitProperties.Graphql.DEFAULT_BUDGET);
+            return new RateLimitTier(GRAPHQL_PREFIX + name, configuration(tier));
+        });
+        this.graphqlEnabled = properties.getGraphql().isEnabled();
+        this.routes = List.copyOf(properties.getRoutes());
+        this.defaultCost = Math.max(1, properties.getDefaultCost());
+    }
+
+    /**
+     * Costruisce la policy dalla configurazione.
+     *
+     * @param properties Configurazione del rate limiting
+     * @return Nuova policy
+     */
+    public static RateLimitPolicy from(RateLimitProperties properties) {
+        return new RateLimitPolicy(properties);
+    }
+
+    /**
+     * Restituisce il livello di limite di un client.
+     *
+     * @param authentication Autenticazione corrente (null o anonima per le richieste anonime)
+     * @return Livello da applicare
+     */
+    public RateLimitTier tierFor(Authentication authentication) {
+        if (!isAuthenticated(authentication)) {
+            return tiers.get(ANONYMOUS);
+        }
+        return tierForRoles(authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+    }
+
+    /**
+     * Restituisce il livello di limite di un utente autenticato a partire dai suoi ruoli.
+     *
+     * Usato da RateLimitingFilter, che legge i ruoli dai claim del token prima che
+     * Spring Security crei l'Authentication.
+     *
+     * @param roles Ruoli dell'utente (es: ROLE_ADMIN)
+     * @return Livello da applicare
+     */
+    public RateLimitTier tierForRoles(Collection<String> roles) {
+        return select(tiers, roles);
+    }
+
+    /**
+     * Restituisce il livello del budget di costo GraphQL di un utente autenticato.
+     *
+     * @param authentication Autenticazione corrente (utente autenticato)
+     * @return Livello del budget GraphQL
+     */
+    public RateLimitTier graphqlTierFor(Authentication authentication) {
+        return select(graphqlTiers, authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+    }
+
+    /**
+     * @return true se le operazioni GraphQL consumano il budget di costo dell'utente
+     */
+    public boolean isGraphqlEnabled() {
+        return graphqlEnabled;
+    }
+
+    private static RateLimitTier select(Map<String, RateLimitTier> tiers, Collection<String> roles) {
+        RateLimitTier selected = null;
+        for (String role : roles) {
+            if (role == null || !role.startsWith(ROLE_PREFIX)) {
+                continue;
+            }
+            RateLimitTier tier = tiers.get(role.substring(ROLE_PREFIX.length()).toLowerCase(Locale.ROOT));
+            if (tier != null && (selected == null || capacity(tier) > capacity(selected))) {
+                selected = tier;
+            }
+        }
+        return selected != null ? selected : tiers.get(AUTHENTICATED);
+    }
+
+    /**
+     * Restituisce il livello con il nome indicato.
+     *
+     * @param name Nome del livello
+     * @return Livello, null se non configurato
+     */
+    public RateLimitTier tier(String name) {
+        return tiers.get(name);
+    }
+
+    /**
+     * Restituisce il costo in token di una richiesta.
+     *
+     * @param method Metodo HTTP
+     * @param path Percorso della richiesta
+     * @return Costo in token (almeno 1)
+     */
+    public long costOf(String method, String path) {
+        for (RateLimitProperties.Route route : routes) {
+            if (route.getPattern() == null) {
+                continue;
+            }
+            boolean methodMatches = route.getMethod() == null || route.getMethod().isBlank()
+                    || route.getMethod().equalsIgnoreCase(method);
+            if (methodMatches && PATH_MATCHER.match(route.getPattern(), path)) {
+                return Math.max(1, route.getCost());
+            }
+        }
+        return defaultCost;
+    }
+
+    /**
+     * @param authentication Autenticazione corrente
+     * @return true se la richiesta appartiene a un utente autenticato
+     */
+    public static boolean isAuthenticated(Authentication authentication) {
+        return authentication != null
+                && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken);
+    }
+
+    private static long capacity(RateLimitTier tier) {
+        return tier.configuration().getBandwidths()[0].getCapacity();
+    }
+
+    private static BucketConfiguration configuration(RateLimitProperties.Tier tier) {
+        long capacity = Math.max(1, tier.getCapacity());
+        long refillTokens = tier.getRefillTokens() > 0 ? tier.getRefillTokens() : capacity;
+        Bandwidth bandwidth = Bandwidth.builder()
+                .capacity(capacity)
+                .refillGreedy(refillTokens, tier.getRefillPeriod())
+                .build();
+        return BucketConfiguration.builder().addLimit(bandwidth).build();
+    }
+}
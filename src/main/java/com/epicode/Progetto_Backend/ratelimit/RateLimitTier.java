@@ -0,0 +1,16 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import io.github.bucket4j.BucketConfiguration;
+
+/**
+ * RateLimitTier - Livello di limite risolto da RateLimitPolicy.
+ *
+ * Le istanze sono immutabili e vengono ricreate a ogni ricaricamento della configurazione:
+ * LocalBucketStore confronta l'istanza associata al bucket con quella corrente per applicare
+ * i nuovi limiti ai bucket esistenti.
+ *
+ * @param name Nome del livello (anonymous, authenticated o nome del ruolo)
+ * @param configuration Configurazione del token bucket
+ */
+public record RateLimitTier(String name, BucketConfiguration configuration) {
+}
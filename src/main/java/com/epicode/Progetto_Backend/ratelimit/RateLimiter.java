@@ -0,0 +1,267 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import com.epicode.Progetto_Backend.config.RateLimitProperties;
+
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * RateLimiter - Rate limiting per client con livelli per ruolo e costi per rotta.
+ *
+ * Per ogni richiesta (da RateLimitingFilter, prima di Spring Security):
+ * 1. Identifica il client: l'utente del token JWT (user:email) oppure, per le richieste anonime
+ *    o con token non valido, l'indirizzo IP (ip:indirizzo, considerando X-Forwarded-For e X-Real-IP)
+ * 2. Sceglie il livello di limite dai ruoli del token (RateLimitPolicy)
+ * 3. Consuma dal bucket del client un numero di token pari al costo della rotta:
+ *    i report e gli upload costano più delle letture semplici
+ *
+ * Le operazioni GraphQL consumano inoltre un budget di costo per utente (tryConsumeGraphQL):
+ * il costo stimato da QueryCostInstrumentation, prima dell'esecuzione.
+ *
+ * I bucket sono in un BucketStore scelto da rate-limit.store: LocalBucketStore (memoria del
+ * nodo, numero limitato, rimossi dopo un periodo di inattività) oppure JdbcBucketStore
+ * (tabella condivisa, un solo limite per client su tutti i nodi).
+ *
+ * Ricaricamento a caldo: se rate-limit.reload-file è impostato, ogni rate-limit.reload-interval
+ * il file viene riletto quando cambia; le sue proprietà (prefisso rate-limit) sovrascrivono
+ * quelle dell'applicazione e una nuova RateLimitPolicy sostituisce la precedente. I bucket
+ * esistenti adottano i nuovi limiti al primo utilizzo. Un file non valido viene ignorato e
+ * resta in vigore la configurazione precedente.
+ *
+ * Espone su Micrometer le richieste ammesse e rifiutate per livello (ratelimit.requests),
+ * il numero di client in memoria (ratelimit.clients) e le rimozioni (ratelimit.evictions).
+ *
+ * @see com.epicode.Progetto_Backend.config.RateLimitingFilter
+ * @see com.epicode.Progetto_Backend.config.RateLimitProperties
+ */
+@Component
+public class RateLimiter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private ConfigurableEnvironment environment;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile RateLimitPolicy policy;
+
+    private volatile boolean enabled;
+
+    private BucketStore store;
+
+    private volatile FileTime reloadFileModified;
+
+    private MeterRegistry registry;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        policy = RateLimitPolicy.from(properties);
+        enabled = properties.isEnabled();
+        store = createStore();
+        reloadIfChanged();
+    }
+
+    /**
+     * @return true se il rate limiting è abilitato
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Consuma i token di una richiesta dal bucket del client.
+     *
+     * @param request Richiesta HTTP
+     * @param username Email dell'utente del token verificato, null per le richieste anonime
+     * @param roles Ruoli dell'utente del token (ignorati per le richieste anonime)
+     * @return Esito con token residui e attesa prima della ricarica
+     */
+    public ConsumptionProbe tryConsume(HttpServletRequest request, String username, Collection<String> roles) {
+        RateLimitPolicy current = policy;
+        RateLimitTier tier = username != null ? current.tierForRoles(roles) : current.tier(RateLimitPolicy.ANONYMOUS);
+        long cost = current.costOf(request.getMethod(), request.getRequestURI());
+        String key = username != null ? "user:" + username : "ip:" + getClientIpAddress(request);
+
+        ConsumptionProbe probe = store.tryConsume(key, tier, cost);
+        count(tier, probe.isConsumed());
+        if (!probe.isConsumed()) {
+            logger.debug("Rate limit superato per {} (livello {}, costo {})", key, tier.name(), cost);
+        }
+        return probe;
+    }
+
+    /**
+     * @return true se le operazioni GraphQL consumano il budget di costo dell'utente
+     */
+    public boolean isGraphQLBudgetEnabled() {
+        return enabled && policy.isGraphqlEnabled();
+    }
+
+    /**
+     * Consuma il costo stimato di un'operazione GraphQL dal budget dell'utente.
+     *
+     * Un costo superiore alla capacità del budget consuma l'intero budget: l'operazione resta
+     * eseguibile con il budget pieno, invece di essere rifiutata per sempre.
+     *
+     * @param authentication Utente autenticato
+     * @param cost Costo stimato dell'operazione
+     * @return Esito con budget residuo e attesa prima della ricarica
+     */
+    public ConsumptionProbe tryConsumeGraphQL(Authentication authentication, long cost) {
+        RateLimitTier tier = policy.graphqlTierFor(authentication);
+        long capacity = tier.configuration().getBandwidths()[0].getCapacity();
+        String key = "graphql:user:" + authentication.getName();
+
+        ConsumptionProbe probe = store.tryConsume(key, tier, Math.max(1, Math.min(cost, capacity)));
+        count(tier, probe.isConsumed());
+        if (!probe.isConsumed()) {
+            logger.debug("Budget GraphQL esaurito per {} (livello {}, costo {})", key, tier.name(), cost);
+        }
+        return probe;
+    }
+
+    /**
+     * Rimuove i bucket inattivi e ricarica la configurazione se il file è cambiato.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.reload-interval:30s}",
+               initialDelayString = "${rate-limit.reload-interval:30s}")
+    public void maintain() {
+        int evicted = store.evictExpired();
+        if (evicted > 0) {
+            logger.debug("Rimossi {} bucket di rate limiting inattivi", evicted);
+        }
+        reloadIfChanged();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("ratelimit.clients", this, limiter -> limiter.store.size())
+                .description("Client con un bucket di rate limiting in memoria")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.evictions", this, limiter -> limiter.store.evictions())
+                .description("Bucket rimossi per limite di dimensione o inattività")
+                .register(registry);
+        if (store instanceof MeterBinder binder) {
+            binder.bindTo(registry);
+        }
+    }
+
+    private BucketStore createStore() {
+        long expireAfterAccess = properties.getExpireAfterAccess().toMillis();
+        if (properties.getStore() == RateLimitProperties.Store.JDBC) {
+            RateLimitProperties.Jdbc jdbc = properties.getJdbc();
+            logger.info("Rate limiting condiviso tramite database (prefetch {} token, ttl {})",
+                    jdbc.getPrefetchTokens(), jdbc.getPrefetchTtl());
+            return new JdbcBucketStore(jdbcTemplate, properties.getMaxClients(), expireAfterAccess,
+                    jdbc.getPrefetchTokens(), jdbc.getPrefetchTtl().toMillis(), jdbc.getMaxRetries());
+        }
+        return new LocalBucketStore(properties.getMaxClients(), expireAfterAccess);
+    }
+
+    /**
+     * Estrae l'indirizzo IP del client dalla richiesta HTTP.
+     *
+     * Considera anche gli header impostati da proxy/load balancer:
+     * 1. X-Forwarded-For: Header standard per IP originale quando dietro un proxy
+     * 2. X-Real-IP: Header alternativo per IP originale
+     * 3. request.getRemoteAddr(): IP diretto del client (fallback)
+     */
+    private static String getClientIpAddress(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            // Il primo IP è quello del client originale
+            return xForwardedFor.split(",")[0].trim();
+        }
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty()) {
+            return xRealIp;
+        }
+        return request.getRemoteAddr();
+    }
+
+    private void count(RateLimitTier tier, boolean allowed) {
+        if (registry == null) {
+            return;
+        }
+        String outcome = allowed ? "allowed" : "rejected";
+        counters.computeIfAbsent(tier.name() + ":" + outcome, key -> Counter.builder("ratelimit.requests")
+                .description("Richieste sottoposte al rate limiting")
+                .tag("tier", tier.name())
+                .tag("outcome", outcome)
+                .register(registry))
+                .increment();
+    }
+
+    private void reloadIfChanged() {
+        String reloadFile = properties.getReloadFile();
+        if (reloadFile == null || reloadFile.isBlank()) {
+            return;
+        }
+        Path path = Path.of(reloadFile);
+        try {
+            if (!Files.exists(path)) {
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(reloadFileModified)) {
+                return;
+            }
+            reloadFileModified = modified;
+            Properties fileProperties = new Properties();
+            try (InputStream input = Files.newInputStream(path)) {
+                fileProperties.load(input);
+            }
+            List<ConfigurationPropertySource> sources = new ArrayList<>();
+            sources.add(ConfigurationPropertySource.from(new PropertiesPropertySource(reloadFile, fileProperties)));
+            ConfigurationPropertySources.get(environment).forEach(sources::add);
+            RateLimitProperties reloaded = new Binder(sources).bindOrCreate("rate-limit", RateLimitProperties.class);
+
+            policy = RateLimitPolicy.from(reloaded);
+            enabled = reloaded.isEnabled();
+            logger.info("Configurazione del rate limiting ricaricata da {} (livelli: {})",
+                    reloadFile, reloaded.getTiers().keySet());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Configurazione del rate limiting in {} non valida, mantenuta la precedente: {}",
+                    reloadFile, e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.epicode.Progetto_Backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -7,6 +8,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
@@ -17,6 +19,7 @@ import com.epicode.Progetto_Backend.entity.Contratto;
  * ContrattoRepository - Repository JPA per l'entità Contratto.
  * 
  * Estende JpaRepository fornendo operazioni CRUD standard e metodi di query personalizzati.
+ * Estende JpaSpecificationExecutor per la paginazione keyset con filtri (Connection GraphQL).
  * 
  * Ottimizzazioni:
  * - Utilizza @EntityGraph per evitare problemi N+1 quando si accede alle relazioni
@@ -34,7 +37,7 @@ import com.epicode.Progetto_Backend.entity.Contratto;
  * @see org.springframework.data.jpa.repository.EntityGraph
  */
 @Repository
-public interface ContrattoRepository extends JpaRepository<Contratto, Long> {
+public interface ContrattoRepository extends JpaRepository<Contratto, Long>, JpaSpecificationExecutor<Contratto> {
     
     /**
      * Ottimizzato con @EntityGraph per evitare N+1 quando si accede a rate, immobile e locatario
@@ -98,4 +101,33 @@ public interface ContrattoRepository extends JpaRepository<Contratto, Long> {
            "LEFT JOIN FETCH c.locatario " +
            "WHERE (SELECT COUNT(r) FROM Rata r WHERE r.contratto.id = c.id AND r.pagata = 'N') >= 3")
     List<Contratto> findContrattiConAlmenoTreRateNonPagate();
+
+    /**
+     * Trova i contratti di un insieme di locatari con una sola query IN (...).
+     * 
+     * Utilizzato dai DataLoader GraphQL per risolvere Locatario.contratti. Le rate non vengono
+     * caricate qui: sono risolte a loro volta in batch da RataRepository.findByContrattoIdIn.
+     * 
+     * @param locatarioIds ID dei locatari
+     * @return Lista di contratti dei locatari con immobile e locatario
+     */
+    @Query("SELECT c FROM Contratto c " +
+           "LEFT JOIN FETCH c.immobile " +
+           "LEFT JOIN FETCH c.locatario " +
+           "WHERE c.locatario.id IN :locatarioIds")
+    List<Contratto> findByLocatarioIdIn(Collection<Long> locatarioIds);
+
+    /**
+     * Trova i contratti di un insieme di immobili con una sola query IN (...).
+     * 
+     * Utilizzato dai DataLoader GraphQL per risolvere Immobile.contratti.
+     * 
+     * @param immobileIds ID degli immobili
+     * @return Lista di contratti degli immobili con immobile e locatario
+     */
+    @Query("SELECT c FROM Contratto c " +
+           "LEFT JOIN FETCH c.immobile " +
+           "LEFT JOIN FETCH c.locatario " +
+           "WHERE c.immobile.id IN :immobileIds")
+    List<Contratto> findByImmobileIdIn(Collection<Long> immobileIds);
 }
@@ -0,0 +1,51 @@
+package com.epicode.Progetto_Backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.epicode.Progetto_Backend.entity.DigestNotification;
+
+/**
+ * DigestNotificationRepository - Repository JPA per l'entità DigestNotification.
+ *
+ * Metodi disponibili:
+ * - findDueRecipients: Destinatari la cui notifica più vecchia ha superato l'intervallo del riepilogo
+ * - lockByRecipient: Blocca le notifiche di un destinatario, saltando quelle già bloccate da altri nodi
+ *
+ * @see com.epicode.Progetto_Backend.entity.DigestNotification
+ * @see com.epicode.Progetto_Backend.service.NotificationDigestService
+ */
+@Repository
+public interface DigestNotificationRepository extends JpaRepository<DigestNotification, Long> {
+
+    /**
+     * Destinatari con notifiche accodate prima di una certa data, dalla più vecchia.
+     *
+     * @param before Data limite (ora meno email.digest.interval)
+     * @param limit Numero massimo di destinatari
+     * @return Indirizzi dei destinatari
+     */
+    @Query(value = "SELECT recipient FROM notification_digest GROUP BY recipient "
+            + "HAVING MIN(created_at) <= :before ORDER BY MIN(created_at) LIMIT :limit",
+            nativeQuery = true)
+    List<String> findDueRecipients(@Param("before") Instant before, @Param("limit") int limit);
+
+    /**
+     * Blocca le notifiche di un destinatario, in ordine di accodamento.
+     *
+     * FOR UPDATE SKIP LOCKED salta le righe bloccate da un altro nodo che sta già componendo
+     * il riepilogo dello stesso destinatario. Deve essere eseguito in una transazione.
+     *
+     * @param recipient Indirizzo del destinatario
+     * @return Notifiche bloccate
+     */
+    @Query(value = "SELECT * FROM notification_digest WHERE recipient = :recipient "
+            + "ORDER BY id FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<DigestNotification> lockByRecipient(@Param("recipient") String recipient);
+}
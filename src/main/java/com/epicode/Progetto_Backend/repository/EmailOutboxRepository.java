@@ -0,0 +1,64 @@
+package com.epicode.Progetto_Backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.epicode.Progetto_Backend.entity.EmailOutbox;
+import com.epicode.Progetto_Backend.entity.EmailStatus;
+
+/**
+ * EmailOutboxRepository - Repository JPA per l'entità EmailOutbox.
+ *
+ * Metodi disponibili:
+ * - lockDue: Blocca un lotto di email da inviare, saltando quelle già bloccate da altri nodi
+ * - countByStatus: Conta le email in un certo stato (metriche)
+ * - deleteSentBefore: Elimina le email consegnate più vecchie della retention
+ *
+ * @see com.epicode.Progetto_Backend.entity.EmailOutbox
+ * @see com.epicode.Progetto_Backend.service.EmailOutboxDispatcher
+ */
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * Blocca le email da inviare: in attesa (o con lease scaduto) e con tentativo dovuto.
+     *
+     * FOR UPDATE SKIP LOCKED salta le righe bloccate da un'altra transazione: più dispatcher
+     * prelevano lotti disgiunti senza attendersi. Deve essere eseguito in una transazione.
+     *
+     * @param now Data corrente
+     * @param limit Dimensione massima del lotto
+     * @return Email bloccate, in ordine di accodamento
+     */
+    @Query(value = "SELECT * FROM email_outbox WHERE status IN ('PENDING', 'SENDING') "
+            + "AND next_attempt_at <= :now ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<EmailOutbox> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Conta le email in un certo stato.
+     *
+     * @param status Stato di consegna
+     * @return Numero di email
+     */
+    long countByStatus(EmailStatus status);
+
+    /**
+     * Elimina le email consegnate prima di una certa data.
+     *
+     * @param status Stato delle email da eliminare (SENT)
+     * @param before Data limite
+     * @return Numero di email eliminate
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailOutbox e WHERE e.status = :status AND e.sentAt < :before")
+    int deleteByStatusAndSentAtBefore(@Param("status") EmailStatus status, @Param("before") Instant before);
+}
@@ -0,0 +1,66 @@
+package com.epicode.Progetto_Backend.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Subgraph;
+
+/**
+ * FetchPlanRepository - Caricamento di entità con un EntityGraph costruito a runtime.
+ *
+ * I repository Spring Data dichiarano gli EntityGraph staticamente (@EntityGraph), quindi
+ * caricano sempre le stesse relazioni indipendentemente da ciò che serve al chiamante.
+ * Questo repository riceve invece l'elenco delle relazioni da caricare (percorsi con
+ * notazione puntata, es: "rate", "locatario.user") e costruisce un fetch graph dedicato:
+ * - Le relazioni indicate vengono caricate con JOIN nella stessa SELECT
+ * - Le relazioni non indicate (anche quelle @ManyToOne EAGER) restano proxy non inizializzati
+ *
+ * Utilizzato dai service per le query GraphQL per ID, con i percorsi calcolati da
+ * SelectionSetFetchPlanner a partire dai campi richiesti dal client.
+ *
+ * @see com.epicode.Progetto_Backend.graphql.SelectionSetFetchPlanner
+ */
+@Repository
+public class FetchPlanRepository {
+
+    /** Hint JPA per un fetch graph: gli attributi non presenti nel grafo sono trattati come LAZY */
+    private static final String FETCH_GRAPH_HINT = "jakarta.persistence.fetchgraph";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Carica un'entità per ID con le sole relazioni indicate.
+     *
+     * @param entityType Classe dell'entità
+     * @param id ID dell'entità
+     * @param attributePaths Relazioni da caricare, con notazione puntata per quelle annidate
+     * @return Entità trovata, oppure Optional vuoto
+     */
+    public <T> Optional<T> findById(Class<T> entityType, Object id, Collection<String> attributePaths) {
+        EntityGraph<T> graph = entityManager.createEntityGraph(entityType);
+        Map<String, Subgraph<?>> subgraphs = new HashMap<>();
+        for (String path : attributePaths) {
+            Subgraph<?> parent = null;
+            String prefix = "";
+            for (String attribute : path.split("\\.")) {
+                String current = prefix + attribute;
+                Subgraph<?> subgraph = subgraphs.get(current);
+                if (subgraph == null) {
+                    subgraph = parent == null ? graph.addSubgraph(attribute) : parent.addSubgraph(attribute);
+                    subgraphs.put(current, subgraph);
+                }
+                parent = subgraph;
+                prefix = current + ".";
+            }
+        }
+        return Optional.ofNullable(entityManager.find(entityType, id, Map.of(FETCH_GRAPH_HINT, graph)));
+    }
+}
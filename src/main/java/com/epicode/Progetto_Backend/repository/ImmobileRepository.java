@@ -7,6 +7,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
@@ -18,6 +19,7 @@ import com.epicode.Progetto_Backend.entity.TipoImmobile;
  * ImmobileRepository - Repository JPA per l'entità Immobile.
  * 
  * Estende JpaRepository fornendo operazioni CRUD standard e metodi di query personalizzati.
+ * Estende JpaSpecificationExecutor per la paginazione keyset con filtri (Connection GraphQL).
  * 
  * Ottimizzazioni:
  * - Utilizza @EntityGraph per evitare problemi N+1 quando si accede alle relazioni
@@ -37,7 +39,7 @@ import com.epicode.Progetto_Backend.entity.TipoImmobile;
  * @see org.springframework.data.jpa.repository.EntityGraph
  */
 @Repository
-public interface ImmobileRepository extends JpaRepository<Immobile, Long> {
+public interface ImmobileRepository extends JpaRepository<Immobile, Long>, JpaSpecificationExecutor<Immobile> {
     
     /**
      * Ottimizzato con @EntityGraph per evitare N+1 quando si accede a contratti.
@@ -1,5 +1,6 @@
 package com.epicode.Progetto_Backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -7,6 +8,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
@@ -17,6 +19,7 @@ import com.epicode.Progetto_Backend.entity.Locatario;
  * LocatarioRepository - Repository JPA per l'entità Locatario.
  * 
  * Estende JpaRepository fornendo operazioni CRUD standard e metodi di query personalizzati.
+ * Estende JpaSpecificationExecutor per la paginazione keyset con filtri (Connection GraphQL).
  * 
  * Ottimizzazioni:
  * - Utilizza @EntityGraph per evitare problemi N+1 quando si accede alle relazioni
@@ -31,13 +34,14 @@ import com.epicode.Progetto_Backend.entity.Locatario;
  * - findByCf: Trova un locatario per codice fiscale (univoco)
  * - findByUserId: Trova un locatario per ID utente (relazione one-to-one)
  * - findLocatariConContrattiLunghiDurata: Query personalizzata per locatari con contratti > 2 anni
+ * - findByUserIdIn: Trova i locatari di più utenti in una sola query (DataLoader GraphQL)
  * 
  * @see com.epicode.Progetto_Backend.entity.Locatario
  * @see org.springframework.data.jpa.repository.JpaRepository
  * @see org.springframework.data.jpa.repository.EntityGraph
  */
 @Repository
-public interface LocatarioRepository extends JpaRepository<Locatario, Long> {
+public interface LocatarioRepository extends JpaRepository<Locatario, Long>, JpaSpecificationExecutor<Locatario> {
     
     /**
      * Ottimizzato con @EntityGraph per evitare N+1 quando si accede a contratti e user.
@@ -88,4 +92,17 @@ public interface LocatarioRepository extends JpaRepository<Locatario, Long> {
            "LEFT JOIN FETCH l.user " +
            "JOIN l.contratti c WHERE c.durataAnni > 2")
     List<Locatario> findLocatariConContrattiLunghiDurata();
+
+    /**
+     * Trova i locatari associati a un insieme di utenti con una sola query IN (...).
+     * 
+     * Utilizzato dai DataLoader GraphQL per risolvere User.locatario.
+     * 
+     * @param userIds ID degli utenti
+     * @return Lista di locatari con user caricato
+     */
+    @Query("SELECT l FROM Locatario l " +
+           "LEFT JOIN FETCH l.user " +
+           "WHERE l.user.id IN :userIds")
+    List<Locatario> findByUserIdIn(Collection<Long> userIds);
 }
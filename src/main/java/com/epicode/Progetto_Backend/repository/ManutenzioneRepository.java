@@ -1,9 +1,11 @@
 package com.epicode.Progetto_Backend.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,6 +16,7 @@ import com.epicode.Progetto_Backend.entity.Manutenzione;
  * ManutenzioneRepository - Repository JPA per l'entità Manutenzione.
  * 
  * Estende JpaRepository fornendo operazioni CRUD standard e metodi di query personalizzati.
+ * Estende JpaSpecificationExecutor per la paginazione keyset con filtri (Connection GraphQL).
  * 
  * Ottimizzazioni:
  * - Le query personalizzate utilizzano JOIN FETCH per caricare le relazioni in modo efficiente
@@ -36,7 +39,7 @@ import com.epicode.Progetto_Backend.entity.Manutenzione;
  * @see org.springframework.data.jpa.repository.JpaRepository
  */
 @Repository
-public interface ManutenzioneRepository extends JpaRepository<Manutenzione, Long> {
+public interface ManutenzioneRepository extends JpaRepository<Manutenzione, Long>, JpaSpecificationExecutor<Manutenzione> {
     
     /**
      * Trova manutenzioni per ID immobile.
@@ -132,4 +135,34 @@ public interface ManutenzioneRepository extends JpaRepository<Manutenzione, Long
            "LEFT JOIN FETCH l.user " +
            "WHERE m.locatario.user.email = :email")
     List<Manutenzione> findByLocatarioUserEmail(String email);
+
+    /**
+     * Trova le manutenzioni di un insieme di immobili con una sola query IN (...).
+     * 
+     * Utilizzato dai DataLoader GraphQL per risolvere Immobile.manutenzioni.
+     * 
+     * @param immobileIds ID degli immobili
+     * @return Lista di manutenzioni degli immobili
+     */
+    @Query("SELECT m FROM Manutenzione m " +
+           "LEFT JOIN FETCH m.immobile " +
+           "LEFT JOIN FETCH m.locatario l " +
+           "LEFT JOIN FETCH l.user " +
+           "WHERE m.immobile.id IN :immobileIds")
+    List<Manutenzione> findByImmobileIdIn(Collection<Long> immobileIds);
+
+    /**
+     * Trova le manutenzioni di un insieme di locatari con una sola query IN (...).
+     * 
+     * Utilizzato dai DataLoader GraphQL per risolvere Locatario.manutenzioni.
+     * 
+     * @param locatarioIds ID dei locatari
+     * @return Lista di manutenzioni dei locatari
+     */
+    @Query("SELECT m FROM Manutenzione m " +
+           "LEFT JOIN FETCH m.immobile " +
+           "LEFT JOIN FETCH m.locatario l " +
+           "LEFT JOIN FETCH l.user " +
+           "WHERE m.locatario.id IN :locatarioIds")
+    List<Manutenzione> findByLocatarioIdIn(Collection<Long> locatarioIds);
 }
@@ -1,18 +1,23 @@
 package com.epicode.Progetto_Backend.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.epicode.Progetto_Backend.dto.RataReminderDTO;
 import com.epicode.Progetto_Backend.entity.Rata;
 
 /**
  * RataRepository - Repository JPA per l'entità Rata.
  * 
  * Estende JpaRepository fornendo operazioni CRUD standard e metodi di query personalizzati.
+ * Estende JpaSpecificationExecutor per la paginazione keyset con filtri (Connection GraphQL).
  * 
  * Ottimizzazioni:
  * - Le query personalizzate utilizzano JOIN FETCH per caricare le relazioni in modo efficiente
@@ -25,12 +30,14 @@ import com.epicode.Progetto_Backend.entity.Rata;
  * - findRateScaduteNonPagate: Trova rate scadute e non pagate
  * - findByLocatarioId: Trova rate per ID locatario (tramite contratto)
  * - findByLocatarioUserEmail: Trova rate per email utente (tramite contratto -> locatario -> user)
+ * - findByContrattoIdIn: Trova le rate di più contratti in una sola query (DataLoader GraphQL)
+ * - findReminders: Legge a blocchi (keyset) i dati dei promemoria per le rate in scadenza
  * 
  * @see com.epicode.Progetto_Backend.entity.Rata
  * @see org.springframework.data.jpa.repository.JpaRepository
  */
 @Repository
-public interface RataRepository extends JpaRepository<Rata, Long> {
+public interface RataRepository extends JpaRepository<Rata, Long>, JpaSpecificationExecutor<Rata> {
     
     /**
      * Ottimizzato con JOIN FETCH per evitare N+1 quando si accede a contratto e relazioni correlate
@@ -114,4 +121,46 @@ public interface RataRepository extends JpaRepository<Rata, Long> {
            "LEFT JOIN FETCH c.immobile " +
            "WHERE r.contratto.locatario.user.email = :email")
     List<Rata> findByLocatarioUserEmail(String email);
+
+    /**
+     * Trova le rate di un insieme di contratti con una sola query IN (...).
+     * 
+     * Utilizzato dai DataLoader GraphQL per risolvere Contratto.rate per tutti i contratti
+     * della risposta con un unico statement, invece di una query per contratto.
+     * 
+     * @param contrattoIds ID dei contratti
+     * @return Lista di rate dei contratti, ordinate per numero rata
+     */
+    @Query("SELECT r FROM Rata r " +
+           "LEFT JOIN FETCH r.contratto c " +
+           "LEFT JOIN FETCH c.locatario " +
+           "LEFT JOIN FETCH c.immobile " +
+           "WHERE r.contratto.id IN :contrattoIds " +
+           "ORDER BY r.numeroRata")
+    List<Rata> findByContrattoIdIn(Collection<Long> contrattoIds);
+
+    /**
+     * Legge un blocco dei dati dei promemoria per le rate non pagate in scadenza in un intervallo.
+     * 
+     * Paginazione keyset: il blocco successivo parte dall'ID dell'ultima rata letta, quindi ogni
+     * blocco è una query breve (nessun cursore aperto tra un blocco e l'altro) e il costo non
+     * cresce con la posizione come con OFFSET. Proiezione su RataReminderDTO con un'unica query:
+     * nessuna entità viene caricata nel contesto di persistenza.
+     * 
+     * @param from Prima data di scadenza (inclusa)
+     * @param to Ultima data di scadenza (inclusa)
+     * @param afterId ID dell'ultima rata del blocco precedente (0 per il primo blocco)
+     * @param limit Dimensione massima del blocco
+     * @return Dati dei promemoria, in ordine di ID rata
+     */
+    @Query("SELECT new com.epicode.Progetto_Backend.dto.RataReminderDTO(" +
+           "r.id, u.email, l.nome, l.cognome, r.numeroRata, r.importo, r.dataScadenza, i.indirizzo) " +
+           "FROM Rata r " +
+           "JOIN r.contratto c " +
+           "JOIN c.locatario l " +
+           "JOIN l.user u " +
+           "JOIN c.immobile i " +
+           "WHERE r.pagata = 'N' AND r.dataScadenza BETWEEN :from AND :to AND r.id > :afterId " +
+           "ORDER BY r.id")
+    List<RataReminderDTO> findReminders(LocalDate from, LocalDate to, Long afterId, Limit limit);
 }
@@ -0,0 +1,77 @@
+package com.epicode.Progetto_Backend.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.epicode.Progetto_Backend.entity.RefreshToken;
+
+/**
+ * RefreshTokenRepository - Repository JPA per l'entità RefreshToken.
+ * 
+ * Metodi disponibili:
+ * - findByTokenHash: Trova un refresh token per hash, con l'utente (rinnovo e logout)
+ * - consume: Revoca un refresh token solo se ancora attivo (rinnovo atomico)
+ * - revokeAllByUserId: Revoca tutti i refresh token attivi di un utente (riutilizzo di un token revocato)
+ * - deleteExpired: Elimina i refresh token scaduti
+ * 
+ * @see com.epicode.Progetto_Backend.entity.RefreshToken
+ * @see com.epicode.Progetto_Backend.service.RefreshTokenService
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+    
+    /**
+     * Trova un refresh token per hash, caricando l'utente con una sola query.
+     * 
+     * @param tokenHash Hash SHA-256 del token
+     * @return Optional contenente il token se trovato, empty altrimenti
+     */
+    @EntityGraph(attributePaths = "user")
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+    
+    /**
+     * Revoca un refresh token solo se non è già stato revocato.
+     * 
+     * L'UPDATE condizionale è atomico: con due rinnovi contemporanei dello stesso token
+     * il secondo attende il commit del primo e non aggiorna alcuna riga.
+     * 
+     * @param tokenHash Hash SHA-256 del token
+     * @param now Data di revoca
+     * @return 1 se il token è stato consumato, 0 se era già revocato
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.tokenHash = :tokenHash AND t.revokedAt IS NULL")
+    int consume(@Param("tokenHash") String tokenHash, @Param("now") Instant now);
+    
+    /**
+     * Revoca tutti i refresh token attivi di un utente.
+     * 
+     * @param userId ID dell'utente
+     * @param now Data di revoca
+     * @return Numero di token revocati
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.user.id = :userId AND t.revokedAt IS NULL")
+    int revokeAllByUserId(@Param("userId") Long userId, @Param("now") Instant now);
+    
+    /**
+     * Elimina i refresh token scaduti.
+     * 
+     * @param now Data corrente
+     * @return Numero di token eliminati
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
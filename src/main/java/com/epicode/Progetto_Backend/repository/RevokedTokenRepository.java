@@ -0,0 +1,55 @@
+package com.epicode.Progetto_Backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.epicode.Progetto_Backend.entity.RevokedToken;
+
+/**
+ * RevokedTokenRepository - Repository JPA per l'entità RevokedToken.
+ * 
+ * Metodi disponibili:
+ * - findByExpiresAtAfter: Revoche ancora in vigore (caricamento iniziale di TokenRevocationList)
+ * - findByRevokedAtAfter: Revoche successive a una data (sincronizzazione incrementale tra nodi)
+ * - deleteExpired: Elimina le revoche di token ormai scaduti
+ * 
+ * @see com.epicode.Progetto_Backend.entity.RevokedToken
+ * @see com.epicode.Progetto_Backend.security.TokenRevocationList
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    
+    /**
+     * Trova le revoche di token non ancora scaduti.
+     * 
+     * @param now Data corrente
+     * @return Revoche ancora in vigore
+     */
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+    
+    /**
+     * Trova le revoche registrate dopo una data.
+     * 
+     * @param since Data dell'ultima sincronizzazione
+     * @return Revoche registrate dopo la data indicata
+     */
+    List<RevokedToken> findByRevokedAtAfter(Instant since);
+    
+    /**
+     * Elimina le revoche di token scaduti (un token scaduto viene già rifiutato dalla verifica JWT).
+     * 
+     * @param now Data corrente
+     * @return Numero di revoche eliminate
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -1,8 +1,13 @@
 package com.epicode.Progetto_Backend.repository;
 
+import java.time.Instant;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.epicode.Progetto_Backend.entity.User;
@@ -11,10 +16,13 @@ import com.epicode.Progetto_Backend.entity.User;
  * UserRepository - Repository JPA per l'entità User.
  * 
  * Estende JpaRepository fornendo operazioni CRUD standard e metodi di query personalizzati.
+ * Estende JpaSpecificationExecutor per la paginazione keyset con filtri (Connection GraphQL).
  * 
  * Metodi disponibili:
  * - findByEmail: Trova un utente per email (utilizzato per login e autenticazione)
  * - existsByEmail: Verifica se esiste un utente con una determinata email (validazione univocità)
+ * - findTokenVersionById: Versione dei token di un utente abilitato (verifica dei token JWT)
+ * - claimProfileImageUpdate: Registra un upload dell'immagine profilo solo se più recente dell'attuale
  * 
  * L'email è univoca nel sistema e viene utilizzata come username per l'autenticazione.
  * 
@@ -22,7 +30,7 @@ import com.epicode.Progetto_Backend.entity.User;
  * @see org.springframework.data.jpa.repository.JpaRepository
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
     /**
      * Trova un utente per email.
      * 
@@ -46,4 +54,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return true se esiste un utente con questa email, false altrimenti
      */
     Boolean existsByEmail(String email);
+    
+    /**
+     * Recupera la versione dei token JWT di un utente abilitato.
+     * 
+     * Query su una singola colonna, senza caricare l'utente né i suoi ruoli:
+     * utilizzata da TokenVersionChecker per verificare che un token non sia stato revocato.
+     * 
+     * @param id ID dell'utente
+     * @return Versione dei token, empty se l'utente non esiste o è disabilitato
+     */
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id AND u.enabled = true")
+    Optional<Long> findTokenVersionById(@Param("id") Long id);
+    
+    /**
+     * Registra l'istante dell'upload da cui derivano le nuove varianti dell'immagine profilo,
+     * solo se è più recente di quello delle varianti attuali.
+     * 
+     * L'UPDATE condizionale è atomico e blocca la riga fino al commit: se due elaborazioni
+     * terminano insieme quella dell'upload più vecchio non aggiorna alcuna riga, anche se
+     * termina per ultima.
+     * 
+     * @param id ID dell'utente
+     * @param uploadedAt Istante dell'upload elaborato
+     * @return 1 se le varianti possono essere salvate, 0 se ne esistono di più recenti
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.profileImageUploadedAt = :uploadedAt WHERE u.id = :id"
+            + " AND (u.profileImageUploadedAt IS NULL OR u.profileImageUploadedAt < :uploadedAt)")
+    int claimProfileImageUpdate(@Param("id") Long id, @Param("uploadedAt") Instant uploadedAt);
 }
@@ -0,0 +1,240 @@
+package com.epicode.Progetto_Backend.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epicode.Progetto_Backend.config.CircuitBreakerProperties;
+
+/**
+ * CircuitBreaker - Circuit breaker a finestra di conteggio per una integrazione esterna.
+ *
+ * Stati:
+ * - CLOSED: le chiamate passano e il loro esito (errore, lenta) viene registrato in una
+ *   finestra circolare delle ultime sliding-window-size chiamate. Raggiunte
+ *   minimum-number-of-calls chiamate, se il tasso di errori o di chiamate lente supera la
+ *   soglia il circuito si apre
+ * - OPEN: le chiamate vengono rifiutate subito (tryAcquirePermission restituisce false) per
+ *   wait-duration-in-open-state, senza occupare thread né connessioni verso un servizio che
+ *   non risponde
+ * - HALF_OPEN: passano solo permitted-calls-in-half-open-state chiamate di prova; se i loro
+ *   tassi restano sotto le soglie il circuito si chiude, altrimenti si riapre
+ *
+ * Uso: tryAcquirePermission prima della chiamata, poi onSuccess o onError con la durata;
+ * releasePermission se la chiamata permessa non viene eseguita (es: bulkhead saturo).
+ * Gli errori che non dipendono dal servizio (es: richiesta non valida) vanno registrati con
+ * onSuccess. I metodi sono sincronizzati: sono chiamati una volta per chiamata remota, il
+ * cui costo è di ordini di grandezza superiore.
+ *
+ * @see com.epicode.Progetto_Backend.resilience.CircuitBreakerRegistry
+ * @see com.epicode.Progetto_Backend.config.CircuitBreakerProperties
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * Stato del circuito.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+
+    private final CircuitBreakerProperties properties;
+
+    private final LongSupplier nanoTime;
+
+    /** Finestra circolare: esito delle ultime chiamate */
+    private final boolean[] failed;
+
+    private final boolean[] slow;
+
+    private int recorded;
+
+    private int next;
+
+    private int failures;
+
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+
+    private long openUntilNanos;
+
+    /** Chiamate di prova ancora permesse nello stato HALF_OPEN */
+    private int halfOpenPermits;
+
+    private long notPermittedCalls;
+
+    public CircuitBreaker(String name, CircuitBreakerProperties properties) {
+        this(name, properties, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, CircuitBreakerProperties properties, LongSupplier nanoTime) {
+        this.name = name;
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+        int size = Math.max(1, properties.getSlidingWindowSize());
+        this.failed = new boolean[size];
+        this.slow = new boolean[size];
+    }
+
+    /**
+     * Verifica se una chiamata può essere eseguita.
+     *
+     * @return true se la chiamata è permessa; in tal caso va seguita da onSuccess, onError o
+     *         releasePermission
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (nanoTime.getAsLong() - openUntilNanos < 0) {
+                notPermittedCalls++;
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits <= 0) {
+                notPermittedCalls++;
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * Restituisce il permesso di una chiamata non eseguita.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    /**
+     * Registra una chiamata riuscita.
+     *
+     * @param durationNanos Durata della chiamata
+     */
+    public void onSuccess(long durationNanos) {
+        record(false, durationNanos);
+    }
+
+    /**
+     * Registra una chiamata fallita per un problema del servizio (errore 5xx, timeout, connessione).
+     *
+     * @param durationNanos Durata della chiamata
+     */
+    public void onError(long durationNanos) {
+        record(true, durationNanos);
+    }
+
+    private synchronized void record(boolean error, long durationNanos) {
+        if (!properties.isEnabled() || state == State.OPEN) {
+            // Chiamate permesse prima dell'apertura e terminate dopo: non cambiano lo stato
+            return;
+        }
+        boolean isSlow = durationNanos >= properties.getSlowCallDuration().toNanos();
+        if (recorded == failed.length) {
+            failures -= failed[next] ? 1 : 0;
+            slowCalls -= slow[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[next] = error;
+        slow[next] = isSlow;
+        failures += error ? 1 : 0;
+        slowCalls += isSlow ? 1 : 0;
+        next = (next + 1) % failed.length;
+
+        if (state == State.HALF_OPEN) {
+            if (recorded >= Math.max(1, properties.getPermittedCallsInHalfOpenState())) {
+                transitionTo(exceedsThresholds() ? State.OPEN : State.CLOSED);
+            }
+        } else if (recorded >= Math.max(1, properties.getMinimumNumberOfCalls()) && exceedsThresholds()) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private boolean exceedsThresholds() {
+        return failureRate() >= properties.getFailureRateThreshold()
+                || slowCallRate() >= properties.getSlowCallRateThreshold();
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        state = target;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+        if (target == State.OPEN) {
+            openUntilNanos = nanoTime.getAsLong() + properties.getWaitDurationInOpenState().toNanos();
+            logger.warn("Circuit breaker {}: {} -> OPEN, chiamate rifiutate per {}",
+                    name, previous, properties.getWaitDurationInOpenState());
+        } else if (target == State.HALF_OPEN) {
+            halfOpenPermits = Math.max(1, properties.getPermittedCallsInHalfOpenState());
+            logger.info("Circuit breaker {}: {} -> HALF_OPEN, {} chiamate di prova", name, previous, halfOpenPermits);
+        } else {
+            logger.info("Circuit breaker {}: {} -> CLOSED", name, previous);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openUntilNanos >= 0) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return Secondi prima delle chiamate di prova (per l'header Retry-After), almeno 1
+     */
+    public synchronized long getRetryAfterSeconds() {
+        if (state != State.OPEN) {
+            return 1;
+        }
+        long remaining = TimeUnit.NANOSECONDS.toSeconds(openUntilNanos - nanoTime.getAsLong());
+        return Math.max(1, remaining + 1);
+    }
+
+    /**
+     * @return Percentuale di chiamate fallite nella finestra corrente
+     */
+    public synchronized float failureRate() {
+        return recorded == 0 ? 0 : failures * 100f / recorded;
+    }
+
+    /**
+     * @return Percentuale di chiamate lente nella finestra corrente
+     */
+    public synchronized float slowCallRate() {
+        return recorded == 0 ? 0 : slowCalls * 100f / recorded;
+    }
+
+    /**
+     * @return Chiamate registrate nella finestra corrente
+     */
+    public synchronized int bufferedCalls() {
+        return recorded;
+    }
+
+    /**
+     * @return Chiamate rifiutate dall'avvio
+     */
+    public synchronized long notPermittedCalls() {
+        return notPermittedCalls;
+    }
+}
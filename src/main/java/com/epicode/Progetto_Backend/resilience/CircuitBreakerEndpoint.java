@@ -0,0 +1,49 @@
+package com.epicode.Progetto_Backend.resilience;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * CircuitBreakerEndpoint - Endpoint Actuator con lo stato dei circuit breaker (/actuator/circuitbreakers).
+ *
+ * Per ogni integrazione riporta stato, tassi di errori e di chiamate lente nella finestra
+ * corrente, chiamate registrate e chiamate rifiutate. Riservato al ruolo ADMIN (SecurityConfig).
+ *
+ * @see com.epicode.Progetto_Backend.resilience.CircuitBreakerRegistry
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    /**
+     * Stato di un circuit breaker.
+     *
+     * @param state CLOSED, OPEN o HALF_OPEN
+     * @param failureRate Percentuale di chiamate fallite
+     * @param slowCallRate Percentuale di chiamate lente
+     * @param bufferedCalls Chiamate registrate nella finestra corrente
+     * @param notPermittedCalls Chiamate rifiutate dall'avvio
+     */
+    public record CircuitBreakerStatus(CircuitBreaker.State state, float failureRate, float slowCallRate,
+                                       int bufferedCalls, long notPermittedCalls) {
+    }
+
+    @ReadOperation
+    public Map<String, CircuitBreakerStatus> circuitBreakers() {
+        Map<String, CircuitBreakerStatus> statuses = new TreeMap<>();
+        for (CircuitBreaker circuitBreaker : circuitBreakerRegistry.getAll()) {
+            statuses.put(circuitBreaker.getName(), new CircuitBreakerStatus(circuitBreaker.getState(),
+                    circuitBreaker.failureRate(), circuitBreaker.slowCallRate(),
+                    circuitBreaker.bufferedCalls(), circuitBreaker.notPermittedCalls()));
+        }
+        return statuses;
+    }
+}
@@ -0,0 +1,85 @@
+package com.epicode.Progetto_Backend.resilience;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.epicode.Progetto_Backend.config.CircuitBreakerProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * CircuitBreakerRegistry - Circuit breaker delle integrazioni esterne, per nome.
+ *
+ * Ogni integrazione (es: "mailgun", "cloudinary") crea il proprio circuit breaker all'avvio;
+ * il registro li rende disponibili a CircuitBreakerEndpoint (/actuator/circuitbreakers) e
+ * li espone su Micrometer:
+ * - resilience.circuitbreaker.state{name}: 0 = CLOSED, 1 = OPEN, 2 = HALF_OPEN
+ * - resilience.circuitbreaker.failure.rate / slow.rate{name}: Tassi nella finestra corrente
+ * - resilience.circuitbreaker.not.permitted{name}: Chiamate rifiutate a circuito aperto
+ *
+ * @see com.epicode.Progetto_Backend.resilience.CircuitBreaker
+ */
+@Component
+public class CircuitBreakerRegistry implements MeterBinder {
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry meterRegistry;
+
+    /**
+     * Crea (o restituisce, se già creato) il circuit breaker di un'integrazione.
+     *
+     * @param name Nome dell'integrazione
+     * @param properties Parametri del circuit breaker
+     * @return Circuit breaker registrato
+     */
+    public CircuitBreaker create(String name, CircuitBreakerProperties properties) {
+        return circuitBreakers.computeIfAbsent(name, key -> {
+            CircuitBreaker circuitBreaker = new CircuitBreaker(key, properties);
+            MeterRegistry registry = meterRegistry;
+            if (registry != null) {
+                bind(circuitBreaker, registry);
+            }
+            return circuitBreaker;
+        });
+    }
+
+    /**
+     * @return Circuit breaker registrati
+     */
+    public Collection<CircuitBreaker> getAll() {
+        return circuitBreakers.values();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        circuitBreakers.values().forEach(circuitBreaker -> bind(circuitBreaker, registry));
+    }
+
+    private static void bind(CircuitBreaker circuitBreaker, MeterRegistry registry) {
+        Gauge.builder("resilience.circuitbreaker.state", circuitBreaker, c -> c.getState().ordinal())
+                .description("Stato del circuit breaker (0 = CLOSED, 1 = OPEN, 2 = HALF_OPEN)")
+                .tag("name", circuitBreaker.getName())
+                .register(registry);
+        Gauge.builder("resilience.circuitbreaker.failure.rate", circuitBreaker, CircuitBreaker::failureRate)
+                .description("Percentuale di chiamate fallite nella finestra corrente")
+                .tag("name", circuitBreaker.getName())
+                .register(registry);
+        Gauge.builder("resilience.circuitbreaker.slow.rate", circuitBreaker, CircuitBreaker::slowCallRate)
+                .description("Percentuale di chiamate lente nella finestra corrente")
+                .tag("name", circuitBreaker.getName())
+                .register(registry);
+        FunctionCounter.builder("resilience.circuitbreaker.not.permitted", circuitBreaker,
+                        CircuitBreaker::notPermittedCalls)
+                .description("Chiamate rifiutate a circuito aperto")
+                .tag("name", circuitBreaker.getName())
+                .register(registry);
+    }
+}
@@ -0,0 +1,83 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import com.epicode.Progetto_Backend.entity.User;
+
+/**
+ * AuthenticatedUser - UserDetails con i dati necessari per emettere i token di un utente.
+ *
+ * Restituito da CustomUserDetailsService e memorizzato da UserDetailsCache al posto dell'entità
+ * JPA: oltre ai dati di sicurezza (email, hash della password, ruoli, stato) contiene ID, nome,
+ * cognome, ID del locatario e versione dei token. AuthService.login costruisce token e risposta
+ * dal principal autenticato, senza ricaricare l'utente dal database.
+ *
+ * @see com.epicode.Progetto_Backend.security.UserDetailsCache
+ * @see com.epicode.Progetto_Backend.security.JwtTokenProvider
+ */
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long userId;
+
+    private final String nome;
+
+    private final String cognome;
+
+    private final Long locatarioId;
+
+    private final long tokenVersion;
+
+    /**
+     * Copia i dati di un utente caricato dal database.
+     *
+     * @param user Entità User
+     */
+    public AuthenticatedUser(User user) {
+        this(user.getEmail(), user.getPassword(), user.isEnabled(), user.getAuthorities(), user.getId(),
+                user.getNome(), user.getCognome(), user.getLocatario() != null ? user.getLocatario().getId() : null,
+                user.getTokenVersion() != null ? user.getTokenVersion() : 0L);
+    }
+
+    private AuthenticatedUser(String email, String password, boolean enabled,
+                              Collection<? extends GrantedAuthority> authorities, Long userId, String nome,
+                              String cognome, Long locatarioId, long tokenVersion) {
+        super(email, password, enabled, true, true, true, authorities);
+        this.userId = userId;
+        this.nome = nome;
+        this.cognome = cognome;
+        this.locatarioId = locatarioId;
+        this.tokenVersion = tokenVersion;
+    }
+
+    /**
+     * @return Copia indipendente, con le credenziali (non cancellate) di questa istanza
+     */
+    public AuthenticatedUser copy() {
+        return new AuthenticatedUser(getUsername(), getPassword(), isEnabled(), getAuthorities(), userId,
+                nome, cognome, locatarioId, tokenVersion);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public String getCognome() {
+        return cognome;
+    }
+
+    public Long getLocatarioId() {
+        return locatarioId;
+    }
+
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+}
@@ -0,0 +1,71 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCryptStrengthCalibrator - Calibrazione all'avvio del costo BCrypt sull'hardware corrente.
+ *
+ * Misura la durata di un hash al costo minimo e sceglie il costo più alto la cui durata stimata
+ * non supera la latenza obiettivo: ogni incremento del costo raddoppia le iterazioni, quindi
+ * costo = minimo + floor(log2(obiettivo / durata misurata)), limitato a [minimo, massimo].
+ *
+ * Le password già salvate con un costo diverso restano valide: vengono riscritte con il nuovo
+ * costo al primo login riuscito (DelegatingPasswordEncoder.upgradeEncoding).
+ *
+ * @see com.epicode.Progetto_Backend.security.SecurityConfig
+ */
+public final class BCryptStrengthCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+    /** Misure al costo minimo: si usa la più breve, meno influenzata da JIT e carico */
+    private static final int SAMPLES = 3;
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    /**
+     * Calcola il costo BCrypt per la latenza obiettivo.
+     *
+     * @param targetLatency Durata obiettivo di un hash
+     * @param minStrength Costo minimo
+     * @param maxStrength Costo massimo
+     * @return Costo BCrypt da usare
+     */
+    public static int calibrate(Duration targetLatency, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        String hash = encoder.encode("calibration");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches("calibration", hash);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return strengthFor(targetLatency.toNanos(), best, minStrength, maxStrength);
+    }
+
+    /**
+     * Costo più alto la cui durata stimata non supera l'obiettivo.
+     *
+     * @param targetNanos Durata obiettivo
+     * @param measuredNanos Durata misurata al costo minimo
+     * @param minStrength Costo minimo
+     * @param maxStrength Costo massimo
+     * @return Costo BCrypt limitato a [minStrength, maxStrength]
+     */
+    static int strengthFor(long targetNanos, long measuredNanos, int minStrength, int maxStrength) {
+        int strength = minStrength;
+        long estimated = Math.max(1, measuredNanos);
+        while (strength < maxStrength && estimated * 2 <= targetNanos) {
+            estimated *= 2;
+            strength++;
+        }
+        logger.info("Costo BCrypt calibrato: {} (hash stimato {} ms, obiettivo {} ms)",
+                strength, estimated / 1_000_000, targetNanos / 1_000_000);
+        return strength;
+    }
+}
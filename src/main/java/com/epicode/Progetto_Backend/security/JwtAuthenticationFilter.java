@@ -1,10 +1,12 @@
 package com.epicode.Progetto_Backend.security;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -13,6 +15,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,9 +29,15 @@ import jakarta.servlet.http.HttpServletResponse;
  * 
  * Funzionamento:
  * 1. Estrae il token JWT dall'header Authorization
- * 2. Valida il token e estrae lo username
- * 3. Carica i dettagli dell'utente tramite UserDetailsService
- * 4. Crea un'Authentication e la imposta nel SecurityContext
+ * 2. Verifica firma e scadenza del token e ne legge i claim (un solo parsing: se RateLimitingFilter
+ *    ha già verificato il token, i claim vengono letti dall'attributo CLAIMS_ATTRIBUTE)
+ * 3. Verifica che il token non sia stato revocato (TokenRevocationList: filtro di Bloom in memoria)
+ * 4. Verifica che la versione del token sia quella corrente dell'utente (TokenVersionChecker,
+ *    in cache: nessuna query per la maggior parte delle richieste)
+ * 5. Crea un'Authentication con JwtPrincipal e i ruoli del token e la imposta nel SecurityContext
+ * 
+ * I token emessi prima dell'introduzione dei claim (senza uid, roles e ver) vengono ancora
+ * accettati fino alla scadenza, caricando i dettagli dell'utente tramite UserDetailsService.
  * 
  * Se il token è valido, l'utente viene autenticato automaticamente per la richiesta corrente.
  * Se il token è assente o non valido, la richiesta procede senza autenticazione
@@ -43,12 +52,21 @@ import jakarta.servlet.http.HttpServletResponse;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
+    /** Attributo della richiesta con i claim del token già verificato da RateLimitingFilter */
+    public static final String CLAIMS_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".claims";
+    
     @Autowired
     private JwtTokenProvider tokenProvider;
     
     @Autowired
     private UserDetailsService userDetailsService;
     
+    @Autowired
+    private TokenVersionChecker tokenVersionChecker;
+    
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    
     /**
      * Metodo principale del filtro che viene eseguito per ogni richiesta HTTP.
      * 
@@ -71,30 +89,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
             
-            // Debug: verifica se il token viene ricevuto
-            if (request.getRequestURI().contains("/manutenzioni/locatario")) {
-                System.out.println("JWT Filter - URI: " + request.getRequestURI());
-                System.out.println("JWT Filter - Token presente: " + StringUtils.hasText(jwt));
-            }
-            
             if (StringUtils.hasText(jwt)) {
                 try {
-                    // Estrae lo username dal token
-                    String username = tokenProvider.extractUsername(jwt);
-                    // Carica i dettagli dell'utente dal database
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    // Verifica firma e scadenza e legge i claim (se non già fatto dal rate limiting)
+                    Claims claims = request.getAttribute(CLAIMS_ATTRIBUTE) instanceof Claims verified
+                            ? verified
+                            : tokenProvider.parseToken(jwt);
+                    UsernamePasswordAuthenticationToken authentication = authenticate(claims);
                     
-                    // Valida il token e imposta l'autenticazione
-                    if (tokenProvider.validateToken(jwt, userDetails)) {
-                        UsernamePasswordAuthenticationToken authentication =
-                                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    // Imposta l'autenticazione se il token non è stato revocato
+                    if (authentication != null) {
                         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                         SecurityContextHolder.getContext().setAuthentication(authentication);
-                        // Debug: verifica autenticazione e ruoli
-                        if (request.getRequestURI().contains("/manutenzioni/locatario")) {
-                            System.out.println("JWT Filter - User: " + userDetails.getUsername());
-                            System.out.println("JWT Filter - Authorities: " + userDetails.getAuthorities());
-                        }
                     }
                 } catch (IllegalArgumentException | io.jsonwebtoken.JwtException | org.springframework.security.core.userdetails.UsernameNotFoundException ex) {
                     logger.error("Could not set user authentication in security context for URI: " + request.getRequestURI(), ex);
@@ -111,6 +117,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    /**
+     * Crea l'Authentication a partire dai claim di un token verificato.
+     * 
+     * Con i claim uid, roles e ver l'utente viene ricostruito dal token, dopo aver verificato
+     * la versione; per i token meno recenti i dettagli vengono caricati dal database.
+     * 
+     * @param claims Claim del token
+     * @return Authentication, null se il token è stato revocato (logout, ruoli modificati,
+     *         utente disabilitato o eliminato)
+     */
+    private UsernamePasswordAuthenticationToken authenticate(Claims claims) {
+        if (claims.getId() != null && tokenRevocationList.isRevoked(claims.getId())) {
+            return null;
+        }
+        JwtPrincipal principal = tokenProvider.toPrincipal(claims);
+        if (principal == null) {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        }
+        if (!tokenVersionChecker.isCurrent(principal.userId(), tokenProvider.extractVersion(claims))) {
+            return null;
+        }
+        List<SimpleGrantedAuthority> authorities = principal.roles().stream()
+                .map(SimpleGrantedAuthority::new)
+                .toList();
+        return new UsernamePasswordAuthenticationToken(principal, null, authorities);
+    }
+    
     /**
      * Estrae il token JWT dall'header Authorization della richiesta.
      * 
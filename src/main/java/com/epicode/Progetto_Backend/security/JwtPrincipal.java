@@ -0,0 +1,27 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.util.List;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * JwtPrincipal - Utente autenticato ricostruito dai claim di un token JWT.
+ *
+ * Impostato come principal dell'Authentication da JwtAuthenticationFilter al posto
+ * dell'entità User: contiene solo i dati presenti nel token e non richiede accessi al database.
+ * authentication.getName() restituisce l'email, come per l'autenticazione tramite UserDetails.
+ *
+ * @param email Email dell'utente (subject del token)
+ * @param userId ID dell'utente
+ * @param locatarioId ID del locatario associato all'utente, null se assente
+ * @param roles Ruoli dell'utente al momento dell'emissione del token (es: ROLE_ADMIN)
+ * @see com.epicode.Progetto_Backend.security.JwtTokenProvider
+ */
+public record JwtPrincipal(String email, Long userId, Long locatarioId, List<String> roles)
+        implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,32 +1,49 @@
 package com.epicode.Progetto_Backend.security;
 
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 import javax.crypto.SecretKey;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import com.epicode.Progetto_Backend.config.JwtProperties;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 
 /**
  * JwtTokenProvider - Componente per la generazione e validazione di token JWT.
  * 
  * Gestisce l'intero ciclo di vita dei token JWT:
- * - Generazione di token con username, data emissione e scadenza
+ * - Generazione di token con username, ruoli, ID utente/locatario, data emissione e scadenza
+ * - Verifica della firma e lettura dei claim con un solo parsing
  * - Estrazione dello username da un token
  * - Validazione di token (verifica scadenza e corrispondenza con UserDetails)
  * 
+ * Claim dei token:
+ * - jti: identificativo univoco del token (revoca al logout, vedi TokenRevocationList)
+ * - sub: email dell'utente
+ * - uid: ID dell'utente
+ * - lid: ID del locatario associato (assente se l'utente non è un locatario)
+ * - roles: ruoli dell'utente (es: ["ROLE_ADMIN"])
+ * - ver: versione dei token dell'utente (vedi TokenVersionChecker)
+ * 
  * Utilizza la libreria JJWT (io.jsonwebtoken) per la gestione dei token.
  * Il secret key viene recuperato da JwtProperties e utilizzato per firmare
- * e verificare i token con algoritmo HMAC-SHA.
+ * e verificare i token con algoritmo HMAC-SHA. Chiave e parser vengono creati
+ * una sola volta all'avvio.
  * 
  * La durata del token è configurabile tramite JwtProperties.expiration
- * (default: 24 ore = 86400000 millisecondi).
+ * (default: 15 minuti = 900000 millisecondi): i token di accesso hanno vita breve
+ * e vengono rinnovati tramite refresh token (RefreshTokenService).
  * 
  * @see com.epicode.Progetto_Backend.config.JwtProperties
  * @see com.epicode.Progetto_Backend.security.JwtAuthenticationFilter
@@ -34,45 +51,112 @@ import io.jsonwebtoken.security.Keys;
 @Component
 public class JwtTokenProvider {
 
+    /** Claim con l'ID dell'utente */
+    public static final String USER_ID_CLAIM = "uid";
+
+    /** Claim con l'ID del locatario associato all'utente */
+    public static final String LOCATARIO_ID_CLAIM = "lid";
+
+    /** Claim con i ruoli dell'utente */
+    public static final String ROLES_CLAIM = "roles";
+
+    /** Claim con la versione dei token dell'utente */
+    public static final String VERSION_CLAIM = "ver";
+
     @Autowired
     private JwtProperties jwtProperties;
-    
+
+    private SecretKey signingKey;
+
+    private JwtParser parser;
+
     /**
-     * Genera la chiave di firma per i token JWT.
+     * Genera la chiave di firma e il parser dei token JWT.
      * 
      * Utilizza l'algoritmo HMAC-SHA con il secret recuperato da JwtProperties.
-     * 
-     * @return SecretKey per firmare e verificare i token
+     * Chiave e parser sono immutabili e thread-safe: vengono riutilizzati per ogni token.
      */
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes());
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes());
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
 
     /**
      * Genera un nuovo token JWT per un utente.
      * 
-     * Il token contiene:
-     * - subject: username (email) dell'utente
-     * - issuedAt: data di emissione (ora corrente)
-     * - expiration: data di scadenza (ora corrente + expiration da JwtProperties)
+     * Il token contiene, oltre a subject, issuedAt ed expiration, i ruoli, l'ID utente,
+     * l'ID del locatario e la versione dei token: JwtAuthenticationFilter autentica
+     * le richieste senza ricaricare l'utente dal database.
      * 
      * Il token viene firmato con la chiave segreta per garantirne l'integrità.
      * 
-     * @param username Email dell'utente (utilizzata come subject del token)
+     * @param user Utente autenticato
      * @return Token JWT firmato come stringa
      */
-    public String generateToken(String username) {
+    public String generateToken(AuthenticatedUser user) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtProperties.getExpiration());
-        
+        List<String> roles = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+
         return Jwts.builder()
-                .subject(username)
+                .id(UUID.randomUUID().toString())
+                .subject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getUserId())
+                .claim(LOCATARIO_ID_CLAIM, user.getLocatarioId())
+                .claim(ROLES_CLAIM, roles)
+                .claim(VERSION_CLAIM, user.getTokenVersion())
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
-    
+
+    /**
+     * Verifica firma e scadenza di un token JWT e ne restituisce i claim.
+     * 
+     * @param token Token JWT
+     * @return Claim del token
+     * @throws io.jsonwebtoken.JwtException se il token non è valido o è scaduto
+     */
+    public Claims parseToken(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * Ricostruisce l'utente autenticato dai claim di un token.
+     * 
+     * @param claims Claim di un token verificato
+     * @return Principal con email, ID e ruoli, null se il token non contiene i claim
+     *         necessari (token emessi prima dell'introduzione dei claim)
+     */
+    public JwtPrincipal toPrincipal(Claims claims) {
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        if (userId == null || roles == null || claims.get(VERSION_CLAIM) == null) {
+            return null;
+        }
+        return new JwtPrincipal(
+                claims.getSubject(),
+                userId,
+                claims.get(LOCATARIO_ID_CLAIM, Long.class),
+                roles.stream().map(String::valueOf).toList());
+    }
+
+    /**
+     * Estrae la versione dei token da un token verificato.
+     * 
+     * @param claims Claim di un token verificato
+     * @return Versione dei token dell'utente al momento dell'emissione
+     */
+    public long extractVersion(Claims claims) {
+        return claims.get(VERSION_CLAIM, Long.class);
+    }
+
     /**
      * Estrae lo username (email) da un token JWT.
      * 
@@ -83,14 +167,9 @@ public class JwtTokenProvider {
      * @throws io.jsonwebtoken.JwtException se il token non è valido o è scaduto
      */
     public String extractUsername(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return parseToken(token).getSubject();
     }
-    
+
     /**
      * Valida un token JWT confrontandolo con i dati dell'utente.
      * 
@@ -103,32 +182,7 @@ public class JwtTokenProvider {
      * @return true se il token è valido, false altrimenti
      */
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
-    }
-    
-    /**
-     * Verifica se un token è scaduto.
-     * 
-     * @param token Token JWT da verificare
-     * @return true se il token è scaduto, false altrimenti
-     */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-    
-    /**
-     * Estrae la data di scadenza da un token JWT.
-     * 
-     * @param token Token JWT da cui estrarre la scadenza
-     * @return Data di scadenza del token
-     */
-    private Date extractExpiration(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getExpiration();
+        Claims claims = parseToken(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
 }
@@ -0,0 +1,47 @@
+package com.epicode.Progetto_Backend.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * OffloadingPasswordEncoder - PasswordEncoder che esegue hashing e verifica su PasswordHashingExecutor.
+ *
+ * Delega all'encoder configurato (DelegatingPasswordEncoder con BCrypt) spostando le operazioni
+ * costose, encode e matches, sul pool dedicato; upgradeEncoding legge solo il prefisso e il costo
+ * dell'hash e resta sul thread chiamante.
+ *
+ * Utilizzato ovunque venga iniettato il PasswordEncoder: login (DaoAuthenticationProvider),
+ * registrazione e aggiornamento della password.
+ *
+ * @see com.epicode.Progetto_Backend.security.PasswordHashingExecutor
+ * @see com.epicode.Progetto_Backend.security.SecurityConfig
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final PasswordHashingExecutor executor;
+
+    /**
+     * @param delegate Encoder che esegue effettivamente l'hashing
+     * @param executor Pool su cui eseguire le operazioni
+     */
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
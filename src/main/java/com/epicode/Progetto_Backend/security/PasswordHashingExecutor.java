@@ -0,0 +1,163 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.epicode.Progetto_Backend.config.PasswordHashingProperties;
+import com.epicode.Progetto_Backend.exception.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * PasswordHashingExecutor - Pool dedicato e limitato per hashing e verifica delle password.
+ *
+ * BCrypt è volutamente costoso in CPU: eseguito direttamente sui thread di Tomcat, un picco
+ * di login occupa tutti i worker e blocca anche le richieste che non c'entrano. Le operazioni
+ * vengono quindi eseguite su un pool a dimensione fissa (di default un thread per core), così
+ * BCrypt non usa mai più CPU di quella disponibile:
+ * - Coda limitata (security.password-hashing.queue-capacity): a coda piena l'operazione
+ *   viene rifiutata subito
+ * - Timeout (security.password-hashing.timeout): un'operazione che non termina in tempo,
+ *   coda compresa, viene annullata (se non ancora iniziata non consuma CPU)
+ * In entrambi i casi viene lanciata ServiceOverloadedException (503 con Retry-After): il
+ * client riprova più tardi invece di tenere occupato un thread del server.
+ *
+ * Espone su Micrometer thread attivi, operazioni in coda, rifiuti, timeout e la durata
+ * complessiva delle operazioni (security.password.hashing.*).
+ *
+ * @see com.epicode.Progetto_Backend.security.OffloadingPasswordEncoder
+ * @see com.epicode.Progetto_Backend.config.PasswordHashingProperties
+ */
+@Component
+public class PasswordHashingExecutor implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    private final PasswordHashingProperties properties;
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private Timer duration;
+
+    public PasswordHashingExecutor(PasswordHashingProperties properties) {
+        this.properties = properties;
+        int poolSize = properties.getPoolSize() > 0
+                ? properties.getPoolSize()
+                : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Pool di hashing delle password: {} thread, coda di {} operazioni",
+                poolSize, properties.getQueueCapacity());
+    }
+
+    /**
+     * Esegue un'operazione sul pool e ne attende il risultato entro il timeout configurato.
+     *
+     * @param task Operazione di hashing o verifica
+     * @return Risultato dell'operazione
+     * @throws ServiceOverloadedException se la coda è piena o il timeout è scaduto
+     */
+    public <T> T execute(Callable<T> task) {
+        long start = System.nanoTime();
+        FutureTask<T> future = new FutureTask<>(task);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Pool di hashing delle password saturo: operazione rifiutata");
+            throw overloaded();
+        }
+        try {
+            return future.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(future);
+            timeouts.increment();
+            logger.warn("Hashing della password non completato entro {}", properties.getTimeout());
+            throw overloaded();
+        } catch (InterruptedException e) {
+            cancel(future);
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (duration != null) {
+                duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("security.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Operazioni di hashing in esecuzione")
+                .register(registry);
+        Gauge.builder("security.password.hashing.queued", executor, e -> e.getQueue().size())
+                .description("Operazioni di hashing in coda")
+                .register(registry);
+        FunctionCounter.builder("security.password.hashing.rejected", rejected, LongAdder::sum)
+                .description("Operazioni rifiutate per coda piena")
+                .register(registry);
+        FunctionCounter.builder("security.password.hashing.timeouts", timeouts, LongAdder::sum)
+                .description("Operazioni non completate entro il timeout")
+                .register(registry);
+        duration = Timer.builder("security.password.hashing.duration")
+                .description("Durata delle operazioni di hashing, attesa in coda compresa")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Annulla un'operazione: se è ancora in coda viene rimossa e libera subito il posto,
+     * se è già in esecuzione termina comunque (BCrypt non è interrompibile).
+     */
+    private void cancel(FutureTask<?> future) {
+        future.cancel(false);
+        executor.remove(future);
+    }
+
+    private ServiceOverloadedException overloaded() {
+        return new ServiceOverloadedException(
+                "Servizio di autenticazione temporaneamente sovraccarico. Riprovare tra qualche secondo.",
+                Math.max(1, properties.getTimeout().toSeconds()));
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
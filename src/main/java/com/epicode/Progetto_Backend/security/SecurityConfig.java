@@ -2,6 +2,7 @@ package com.epicode.Progetto_Backend.security;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -15,12 +16,15 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.epicode.Progetto_Backend.config.PasswordHashingProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
@@ -43,6 +47,12 @@ import jakarta.servlet.http.HttpServletResponse;
  * - Tutti gli altri endpoint richiedono autenticazione
  * - JwtAuthenticationFilter eseguito prima di UsernamePasswordAuthenticationFilter
  * 
+ * Password:
+ * - BCrypt con costo fisso o calibrato all'avvio (BCryptStrengthCalibrator), in formato
+ *   DelegatingPasswordEncoder ({bcrypt}hash); gli hash senza prefisso restano validi
+ * - Hashing e verifica su un pool dedicato e limitato (PasswordHashingExecutor)
+ * - Al login gli hash con formato o costo superato vengono riscritti (rehash trasparente)
+ * 
  * Gestione errori:
  * - AuthenticationEntryPoint: Gestisce errori 401 (autenticazione mancante)
  * - AccessDeniedHandler: Gestisce errori 403 (accesso negato)
@@ -58,6 +68,9 @@ public class SecurityConfig {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
     @Autowired
     private JwtAuthenticationFilter jwtAuthFilter;
 
@@ -67,25 +80,43 @@ public class SecurityConfig {
      * Utilizzato per hashare le password prima del salvataggio nel database
      * e per verificare le password durante il login.
      * 
-     * @return BCryptPasswordEncoder per l'hashing delle password
+     * Il costo BCrypt è security.password-hashing.strength oppure, se non impostato, quello
+     * calibrato all'avvio su security.password-hashing.target-latency. Gli hash vengono salvati
+     * con prefisso {bcrypt}; quelli senza prefisso (creati prima) vengono verificati con BCrypt.
+     * Hashing e verifica vengono eseguiti su PasswordHashingExecutor.
+     * 
+     * @param properties Configurazione dell'hashing delle password
+     * @param hashingExecutor Pool dedicato all'hashing
+     * @return PasswordEncoder per l'hashing delle password
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties,
+                                           PasswordHashingExecutor hashingExecutor) {
+        int strength = properties.getStrength() != null
+                ? properties.getStrength()
+                : BCryptStrengthCalibrator.calibrate(properties.getTargetLatency(),
+                        properties.getMinStrength(), properties.getMaxStrength());
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new OffloadingPasswordEncoder(delegating, hashingExecutor);
     }
 
     /**
      * Bean per il provider di autenticazione.
      * 
      * Configura DaoAuthenticationProvider con UserDetailsService e PasswordEncoder
-     * per l'autenticazione basata su database.
+     * per l'autenticazione basata su database. Con UserDetailsPasswordService, dopo un login
+     * riuscito gli hash con costo o formato superato vengono riscritti con quelli correnti.
      * 
+     * @param passwordEncoder Encoder delle password
      * @return DaoAuthenticationProvider configurato
      */
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -114,11 +145,13 @@ public class SecurityConfig {
      * - JwtAuthenticationFilter prima di UsernamePasswordAuthenticationFilter
      * 
      * @param http HttpSecurity da configurare
+     * @param authenticationProvider Provider di autenticazione su database
      * @return SecurityFilterChain configurata
      * @throws Exception se la configurazione fallisce
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   DaoAuthenticationProvider authenticationProvider) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -127,6 +160,8 @@ public class SecurityConfig {
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/api-docs/**").permitAll()
                         .requestMatchers("/graphiql").permitAll() // GraphiQL UI only
                         .requestMatchers("/graphql").authenticated() // GraphQL endpoint requires auth
+                        .requestMatchers("/actuator/metrics/**").hasRole("ADMIN") // Metriche Micrometer
+                        .requestMatchers("/actuator/circuitbreakers/**").hasRole("ADMIN") // Stato dei circuit breaker
                         .anyRequest().authenticated()
                 )
                 .exceptionHandling(ex -> ex
@@ -137,7 +172,7 @@ public class SecurityConfig {
                             writeErrorResponse(request, response, HttpStatus.FORBIDDEN,
                                 "Non hai i permessi per accedere a questa risorsa."))
                 )
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
@@ -0,0 +1,143 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.epicode.Progetto_Backend.config.TokenRevocationProperties;
+import com.epicode.Progetto_Backend.entity.RevokedToken;
+import com.epicode.Progetto_Backend.repository.RevokedTokenRepository;
+import com.epicode.Progetto_Backend.util.BloomFilter;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * TokenRevocationList - Elenco dei token di accesso revocati, consultato a ogni richiesta.
+ *
+ * La tabella revoked_token è la fonte condivisa tra i nodi; ogni nodo ne mantiene in memoria:
+ * - Un filtro di Bloom: per la quasi totalità dei token (non revocati) la verifica termina qui,
+ *   in pochi nanosecondi e senza accessi al database
+ * - Un insieme esatto (jti → scadenza): consultato solo quando il filtro risponde "forse",
+ *   elimina i falsi positivi
+ *
+ * Sincronizzazione (ogni jwt.revocation.sync-interval):
+ * - Le revoche registrate da altri nodi dopo l'ultima sincronizzazione vengono aggiunte
+ *   (con un margine per le differenze di orologio; l'inserimento è idempotente)
+ * - Le revoche di token scaduti vengono rimosse dalla memoria e dal database; il filtro,
+ *   che non supporta la rimozione, viene ricostruito
+ *
+ * Una revoca effettuata su questo nodo ha effetto immediato; sugli altri nodi entro l'intervallo
+ * di sincronizzazione.
+ *
+ * @see com.epicode.Progetto_Backend.security.JwtAuthenticationFilter
+ * @see com.epicode.Progetto_Backend.entity.RevokedToken
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    /** Margine per le differenze di orologio tra i nodi e per le transazioni in corso */
+    private static final long SYNC_OVERLAP_MILLIS = 5000;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private TokenRevocationProperties properties;
+
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter;
+
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    /**
+     * Carica le revoche ancora in vigore.
+     */
+    @PostConstruct
+    void load() {
+        Instant now = Instant.now();
+        bloomFilter = newBloomFilter();
+        add(revokedTokenRepository.findByExpiresAtAfter(now));
+        lastSync = now;
+        logger.info("Caricate {} revoche di token", revoked.size());
+    }
+
+    /**
+     * Verifica se un token di accesso è stato revocato.
+     *
+     * @param jti Identificativo del token (claim "jti")
+     * @return true se il token è stato revocato
+     */
+    public boolean isRevoked(String jti) {
+        return bloomFilter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    /**
+     * Revoca un token di accesso fino alla sua scadenza.
+     *
+     * @param jti Identificativo del token (claim "jti")
+     * @param expiresAt Scadenza del token
+     */
+    public void revoke(String jti, Instant expiresAt) {
+        revokedTokenRepository.save(RevokedToken.builder()
+                .jti(jti)
+                .expiresAt(expiresAt)
+                .revokedAt(Instant.now())
+                .build());
+        add(jti, expiresAt);
+    }
+
+    /**
+     * Acquisisce le revoche degli altri nodi e rimuove quelle di token scaduti.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:30s}",
+               initialDelayString = "${jwt.revocation.sync-interval:30s}")
+    public void sync() {
+        Instant now = Instant.now();
+        add(revokedTokenRepository.findByRevokedAtAfter(lastSync.minusMillis(SYNC_OVERLAP_MILLIS)));
+        lastSync = now;
+
+        if (revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now))) {
+            BloomFilter rebuilt = newBloomFilter();
+            revoked.keySet().forEach(rebuilt::put);
+            bloomFilter = rebuilt;
+            // Revoche aggiunte durante la ricostruzione
+            revoked.keySet().forEach(rebuilt::put);
+        }
+        int deleted = revokedTokenRepository.deleteExpired(now);
+        if (deleted > 0) {
+            logger.debug("Eliminate {} revoche di token scaduti", deleted);
+        }
+    }
+
+    /**
+     * @return Numero di revoche in vigore note a questo nodo
+     */
+    public int size() {
+        return revoked.size();
+    }
+
+    private void add(List<RevokedToken> tokens) {
+        for (RevokedToken token : tokens) {
+            add(token.getJti(), token.getExpiresAt());
+        }
+    }
+
+    private void add(String jti, Instant expiresAt) {
+        revoked.put(jti, expiresAt);
+        bloomFilter.put(jti);
+    }
+
+    private BloomFilter newBloomFilter() {
+        return new BloomFilter(properties.getExpectedEntries(), properties.getFalsePositiveRate());
+    }
+}
@@ -0,0 +1,120 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.epicode.Progetto_Backend.config.JwtProperties;
+import com.epicode.Progetto_Backend.repository.UserRepository;
+
+/**
+ * TokenVersionChecker - Verifica che un token JWT non sia stato revocato.
+ *
+ * Ogni token contiene la versione dei token dell'utente al momento dell'emissione (claim "ver").
+ * Quando i ruoli cambiano UserService incrementa la versione: i token precedenti, che
+ * riportano i vecchi ruoli, non vengono più accettati. Un utente disabilitato o eliminato
+ * non ha una versione valida.
+ *
+ * La versione corrente viene letta con una query su una singola colonna e mantenuta in cache
+ * per jwt.version-check-ttl: la maggior parte delle richieste viene autenticata senza SQL.
+ * Oltre jwt.version-cache-max-entries viene rimosso l'utente usato meno di recente (LRU).
+ * Sul nodo che modifica l'utente la cache viene invalidata dopo il commit della transazione
+ * (UserSecurityChangedEvent): un'invalidazione precedente al commit lascerebbe rileggere e
+ * mettere in cache la versione vecchia. Sugli altri nodi il cambio viene rilevato entro il TTL.
+ *
+ * Una richiesta può leggere la versione prima del commit e completare la lettura dopo
+ * l'invalidazione: ogni invalidazione lascia in cache un segnaposto scaduto con una nuova
+ * generazione, e la versione letta viene messa in cache solo se la generazione dell'utente
+ * non è cambiata durante la query.
+ *
+ * @see com.epicode.Progetto_Backend.security.JwtAuthenticationFilter
+ * @see com.epicode.Progetto_Backend.repository.UserRepository#findTokenVersionById(Long)
+ */
+@Component
+public class TokenVersionChecker {
+
+    /** Versione che nessun token può avere: utente inesistente o disabilitato */
+    private static final long REVOKED = -1L;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtProperties jwtProperties;
+
+    /** Versioni in cache (LRU), protette dal lock dell'istanza */
+    /** Generazioni assegnate alle invalidazioni (uniche, anche dopo la rimozione LRU di un segnaposto) */
+    private final AtomicLong generations = new AtomicLong();
+
+    private final LinkedHashMap<Long, CachedVersion> versions = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedVersion> eldest) {
+            return size() > jwtProperties.getVersionCacheMaxEntries();
+        }
+    };
+
+    /**
+     * Verifica che la versione di un token corrisponda a quella corrente dell'utente.
+     *
+     * @param userId ID dell'utente (claim "uid")
+     * @param tokenVersion Versione riportata nel token (claim "ver")
+     * @return true se il token è ancora valido
+     */
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        long now = System.currentTimeMillis();
+        CachedVersion cached;
+        synchronized (this) {
+            cached = versions.get(userId);
+        }
+        if (cached == null || cached.expiresAt() < now) {
+            long generation = generation(cached);
+            // La query viene eseguita fuori dal lock: le altre richieste non restano in attesa
+            cached = new CachedVersion(
+                    userRepository.findTokenVersionById(userId).orElse(REVOKED),
+                    now + jwtProperties.getVersionCheckTtl().toMillis(),
+                    generation);
+            synchronized (this) {
+                // Invalidata durante la query: la versione letta può precedere il commit
+                if (generation(versions.get(userId)) == generation) {
+                    versions.put(userId, cached);
+                }
+            }
+        }
+        return cached.version() == tokenVersion;
+    }
+
+    /**
+     * Rimuove dalla cache la versione di un utente, da chiamare dopo averla modificata.
+     *
+     * @param userId ID dell'utente
+     */
+    public synchronized void evict(Long userId) {
+        versions.put(userId, new CachedVersion(REVOKED, 0L, generations.incrementAndGet()));
+    }
+
+    /**
+     * Rimuove dalla cache la versione dell'utente modificato, dopo il commit della
+     * transazione che l'ha modificata (o subito, senza transazione).
+     *
+     * @param event Evento pubblicato da UserService
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        evict(event.userId());
+    }
+
+    private static long generation(CachedVersion cached) {
+        return cached == null ? 0L : cached.generation();
+    }
+
+    /**
+     * CachedVersion - Versione corrente dei token di un utente, scadenza in cache (epoch millis)
+     * e generazione dell'ultima invalidazione. Un segnaposto di invalidazione è già scaduto.
+     */
+    private record CachedVersion(long version, long expiresAt, long generation) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.util.function.Consumer;
+
+/**
+ * UserCacheInvalidationChannel - Canale di propagazione delle invalidazioni di UserDetailsCache tra nodi.
+ *
+ * UserDetailsCache invalida sempre la propria copia locale; per le installazioni con più nodi
+ * è sufficiente dichiarare un bean che implementa questa interfaccia (es: Redis pub/sub,
+ * PostgreSQL LISTEN/NOTIFY, un topic di messaggistica) per rimuovere l'utente anche dalle
+ * cache degli altri nodi. Senza alcun canale gli altri nodi si riallineano entro
+ * security.user-details-cache.ttl.
+ *
+ * Le implementazioni non devono consegnare al nodo stesso i messaggi che pubblica
+ * (una consegna aggiuntiva è comunque innocua).
+ *
+ * @see com.epicode.Progetto_Backend.security.UserDetailsCache
+ */
+public interface UserCacheInvalidationChannel {
+
+    /**
+     * Notifica agli altri nodi che un utente è stato modificato.
+     *
+     * @param email Email dell'utente da rimuovere dalla cache
+     */
+    void publish(String email);
+
+    /**
+     * Registra il listener delle invalidazioni ricevute dagli altri nodi.
+     *
+     * @param listener Riceve l'email dell'utente da rimuovere dalla cache
+     */
+    void subscribe(Consumer<String> listener);
+}
@@ -0,0 +1,209 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.epicode.Progetto_Backend.config.UserDetailsCacheProperties;
+import com.epicode.Progetto_Backend.entity.User;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * UserDetailsCache - Cache dei UserDetails caricati da CustomUserDetailsService, per email.
+ *
+ * Memorizza un AuthenticatedUser (email, hash della password, ruoli, stato e i dati usati per
+ * emettere i token) e non l'entità JPA: a ogni lettura viene restituita una nuova copia, perché
+ * Spring Security cancella le credenziali del principal al termine del login.
+ *
+ * Invalidazione:
+ * - UserSecurityChangedEvent (cambio ruoli, enabled, eliminazione): dopo il commit della
+ *   transazione l'utente viene rimosso dalla cache locale e da quella degli altri nodi
+ *   tramite i UserCacheInvalidationChannel registrati
+ * - TTL (security.user-details-cache.ttl): copre le modifiche fatte direttamente sul database
+ * - LRU oltre security.user-details-cache.max-entries
+ *
+ * Espone su Micrometer hit, miss, invalidazioni, dimensione, hit ratio e l'età degli utenti
+ * restituiti dalla cache (security.userdetails.cache.*), indicatore di quanto possono essere
+ * datati i dati usati per l'autenticazione.
+ *
+ * @see com.epicode.Progetto_Backend.service.CustomUserDetailsService
+ * @see com.epicode.Progetto_Backend.security.UserCacheInvalidationChannel
+ */
+@Component
+public class UserDetailsCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsCache.class);
+
+    private final UserDetailsCacheProperties properties;
+
+    /** Utenti in cache (LRU), protetti dal lock dell'istanza */
+    private final LinkedHashMap<String, Entry> entries;
+
+    private List<UserCacheInvalidationChannel> channels = List.of();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private Timer age;
+
+    public UserDetailsCache(UserDetailsCacheProperties properties) {
+        this.properties = properties;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > properties.getMaxEntries();
+            }
+        };
+    }
+
+    /**
+     * Registra i canali di invalidazione tra nodi (opzionali).
+     *
+     * @param channels Canali dichiarati come bean
+     */
+    @Autowired(required = false)
+    public void setChannels(List<UserCacheInvalidationChannel> channels) {
+        this.channels = List.copyOf(channels);
+        for (UserCacheInvalidationChannel channel : this.channels) {
+            channel.subscribe(this::evict);
+        }
+    }
+
+    /**
+     * @return true se la cache è abilitata
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Restituisce una copia dell'utente in cache, se presente e non scaduto.
+     *
+     * @param email Email dell'utente
+     * @return Copia dell'utente, null se assente o scaduto
+     */
+    public AuthenticatedUser get(String email) {
+        Entry entry;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            entry = entries.get(email);
+            if (entry != null && entry.loadedAt() + properties.getTtl().toMillis() < now) {
+                entries.remove(email);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (age != null) {
+            age.record(now - entry.loadedAt(), TimeUnit.MILLISECONDS);
+        }
+        return entry.user().copy();
+    }
+
+    /**
+     * Memorizza una copia immutabile dei dati di un utente.
+     *
+     * @param user Utente caricato dal database
+     * @return Copia dell'utente da restituire al chiamante
+     */
+    public AuthenticatedUser put(User user) {
+        AuthenticatedUser snapshot = new AuthenticatedUser(user);
+        synchronized (this) {
+            entries.put(snapshot.getUsername(), new Entry(snapshot, System.currentTimeMillis()));
+        }
+        return snapshot.copy();
+    }
+
+    /**
+     * Rimuove un utente dalla cache locale.
+     *
+     * @param email Email dell'utente
+     */
+    public synchronized void evict(String email) {
+        if (entries.remove(email) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Rimuove l'utente modificato dalla cache locale e degli altri nodi, dopo il commit
+     * della transazione che lo ha modificato (o subito, senza transazione).
+     *
+     * @param event Evento pubblicato da UserService
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        logger.debug("Invalidazione cache UserDetails per utente ID: {}", event.userId());
+        evict(event.email());
+        for (UserCacheInvalidationChannel channel : channels) {
+            try {
+                channel.publish(event.email());
+            } catch (RuntimeException e) {
+                logger.warn("Propagazione invalidazione UserDetails non riuscita per utente ID: {}", event.userId(), e);
+            }
+        }
+    }
+
+    /**
+     * @return Numero di utenti attualmente in cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Frazione delle letture servite dalla cache (0.0 se nessuna lettura)
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("security.userdetails.cache.hits", hits, LongAdder::sum)
+                .description("UserDetails restituiti dalla cache")
+                .register(registry);
+        FunctionCounter.builder("security.userdetails.cache.misses", misses, LongAdder::sum)
+                .description("UserDetails caricati dal database")
+                .register(registry);
+        FunctionCounter.builder("security.userdetails.cache.invalidations", invalidations, LongAdder::sum)
+                .description("Utenti rimossi dalla cache per modifica")
+                .register(registry);
+        Gauge.builder("security.userdetails.cache.size", this, UserDetailsCache::size)
+                .description("Utenti in cache")
+                .register(registry);
+        Gauge.builder("security.userdetails.cache.hit.ratio", this, UserDetailsCache::getHitRatio)
+                .description("Frazione dei caricamenti di UserDetails serviti dalla cache")
+                .register(registry);
+        age = Timer.builder("security.userdetails.cache.age")
+                .description("Età dei UserDetails restituiti dalla cache")
+                .register(registry);
+    }
+
+    /**
+     * Entry - Copia dell'utente e istante di caricamento dal database (epoch millis).
+     */
+    private record Entry(AuthenticatedUser user, long loadedAt) {
+    }
+}
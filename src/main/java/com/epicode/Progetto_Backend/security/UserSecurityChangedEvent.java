@@ -0,0 +1,18 @@
+package com.epicode.Progetto_Backend.security;
+
+/**
+ * UserSecurityChangedEvent - Evento pubblicato quando cambiano i dati di sicurezza di un utente.
+ *
+ * Pubblicato da UserService al cambio dei ruoli, dello stato (enabled), di nome e cognome e
+ * all'eliminazione di un utente, e da LocatarioService quando un locatario viene associato
+ * all'utente o eliminato (dati copiati in AuthenticatedUser). Dopo il commit della transazione
+ * UserDetailsCache rimuove l'utente dalla cache di tutti i nodi e TokenVersionChecker dalla
+ * cache delle versioni dei token.
+ *
+ * @param userId ID dell'utente
+ * @param email Email dell'utente (chiave della cache)
+ * @see com.epicode.Progetto_Backend.security.UserDetailsCache
+ * @see com.epicode.Progetto_Backend.security.TokenVersionChecker
+ */
+public record UserSecurityChangedEvent(Long userId, String email) {
+}
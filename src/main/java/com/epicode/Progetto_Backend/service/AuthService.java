@@ -8,13 +8,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.epicode.Progetto_Backend.config.JwtProperties;
 import com.epicode.Progetto_Backend.dto.AuthResponseDTO;
 import com.epicode.Progetto_Backend.dto.LoginRequestDTO;
 import com.epicode.Progetto_Backend.dto.RegisterRequestDTO;
@@ -24,7 +27,12 @@ import com.epicode.Progetto_Backend.exception.BusinessException;
 import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
 import com.epicode.Progetto_Backend.repository.RoleRepository;
 import com.epicode.Progetto_Backend.repository.UserRepository;
+import com.epicode.Progetto_Backend.security.AuthenticatedUser;
 import com.epicode.Progetto_Backend.security.JwtTokenProvider;
+import com.epicode.Progetto_Backend.security.TokenRevocationList;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 
 /**
  * AuthService - Servizio per l'autenticazione e registrazione degli utenti.
@@ -33,21 +41,29 @@ import com.epicode.Progetto_Backend.security.JwtTokenProvider;
  * - Registrazione nuovi utenti con assegnazione ruolo ROLE_LOCATARIO di default
  * - Login utenti esistenti con validazione credenziali
  * - Generazione token JWT per autenticazione stateless
- * - Invio email di benvenuto (asincrono) dopo la registrazione
+ * - Emissione e rotazione dei refresh token, logout con revoca dei token
+ * - Invio email di benvenuto (accodata nella outbox) dopo la registrazione
  * 
  * Flusso registrazione:
  * 1. Verifica che l'email non sia già registrata
  * 2. Hasha la password con BCrypt
  * 3. Crea l'utente con ruolo ROLE_LOCATARIO
- * 4. Invia email di benvenuto (asincrono)
+ * 4. Invia email di benvenuto (accodata nella outbox)
  * 5. Genera token JWT
  * 6. Restituisce AuthResponseDTO con token e dati utente
  * 
  * Flusso login:
  * 1. Autentica le credenziali tramite AuthenticationManager
- * 2. Carica l'utente dal database
- * 3. Genera nuovo token JWT
- * 4. Restituisce AuthResponseDTO con token e dati utente
+ * 2. Genera nuovo token JWT dai dati del principal autenticato (AuthenticatedUser)
+ * 3. Restituisce AuthResponseDTO con token e dati utente
+ * 
+ * Flusso rinnovo:
+ * 1. Consuma il refresh token (RefreshTokenService: rotazione e rilevamento del riutilizzo)
+ * 2. Genera un nuovo token JWT e un nuovo refresh token
+ * 
+ * Flusso logout:
+ * 1. Revoca il token di accesso fino alla sua scadenza (TokenRevocationList)
+ * 2. Revoca il refresh token
  * 
  * @see com.epicode.Progetto_Backend.security.JwtTokenProvider
  * @see com.epicode.Progetto_Backend.service.MailgunService
@@ -69,12 +85,21 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
     
+    @Autowired
+    private JwtProperties jwtProperties;
+    
     @Autowired
     private AuthenticationManager authenticationManager;
     
     @Autowired
     private MailgunService mailgunService;
     
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    
     /**
      * Registra un nuovo utente nel sistema.
      * 
@@ -83,7 +108,7 @@ public class AuthService {
      * 2. Hasha la password con BCrypt
      * 3. Crea l'utente con ruolo ROLE_LOCATARIO di default
      * 4. Salva l'utente nel database
-     * 5. Invia email di benvenuto (asincrono, non blocca la registrazione)
+     * 5. Invia email di benvenuto (accodata nella outbox, non blocca la registrazione)
      * 6. Genera token JWT
      * 7. Restituisce AuthResponseDTO con token e dati utente
      * 
@@ -122,25 +147,11 @@ public class AuthService {
         userRepository.save(user);
         logger.info("Utente registrato con successo. ID: {}, Email: {}", user.getId(), user.getEmail());
         
-        // Invia email di benvenuto (asincrono)
+        // Invia email di benvenuto (accodata nella outbox)
         String fullName = user.getNome() + " " + user.getCognome();
         mailgunService.sendWelcomeEmail(user.getEmail(), fullName);
         
-        String token = jwtTokenProvider.generateToken(user.getEmail());
-        
-        Set<String> roleNames = user.getRoles().stream()
-                .map(Role::getName)
-                .collect(Collectors.toSet());
-
-        return AuthResponseDTO.builder()
-                .token(token)
-                .type("Bearer")
-                .userId(user.getId())
-                .email(user.getEmail())
-                .nome(user.getNome())
-                .cognome(user.getCognome())
-                .roles(roleNames)
-                .build();
+        return authResponse(new AuthenticatedUser(user));
     }
 
     /**
@@ -148,14 +159,15 @@ public class AuthService {
      * 
      * Processo:
      * 1. Autentica le credenziali tramite AuthenticationManager (verifica password con BCrypt)
-     * 2. Carica l'utente completo dal database
-     * 3. Genera nuovo token JWT valido per 24 ore
-     * 4. Restituisce AuthResponseDTO con token e dati utente
+     * 2. Genera nuovo token JWT (15 minuti) e refresh token
+     * 3. Restituisce AuthResponseDTO con token e dati utente
+     * 
+     * I dati dell'utente provengono dal principal autenticato (AuthenticatedUser): con l'utente
+     * in UserDetailsCache il login non legge users né user_roles, e scrive solo il refresh token.
      * 
      * @param request DTO con credenziali (email, password)
      * @return AuthResponseDTO con token JWT e dati utente
      * @throws AuthenticationException se le credenziali non sono valide
-     * @throws EntityNotFoundException se l'utente non viene trovato dopo l'autenticazione
      */
     public AuthResponseDTO login(LoginRequestDTO request) {
         logger.info("Tentativo di login per email: {}", request.getEmail());
@@ -164,32 +176,89 @@ public class AuthService {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
             );
-            
-            User user = userRepository.findByEmail(request.getEmail())
-                    .orElseThrow(() -> {
-                        logger.error("Utente non trovato dopo autenticazione: {}", request.getEmail());
-                        return new EntityNotFoundException("User", request.getEmail());
-                    });
-
-            String token = jwtTokenProvider.generateToken(authentication.getName());
-            logger.info("Login effettuato con successo per email: {}, ID: {}", user.getEmail(), user.getId());
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
 
-            Set<String> roleNames = user.getRoles().stream()
-                    .map(Role::getName)
-                    .collect(Collectors.toSet());
-
-            return AuthResponseDTO.builder()
-                    .token(token)
-                    .type("Bearer")
-                    .userId(user.getId())
-                    .email(user.getEmail())
-                    .nome(user.getNome())
-                    .cognome(user.getCognome())
-                    .roles(roleNames)
-                    .build();
-        } catch (AuthenticationException | EntityNotFoundException e) {
+            AuthResponseDTO response = authResponse(user);
+            logger.info("Login effettuato con successo per email: {}, ID: {}", user.getUsername(), user.getUserId());
+            return response;
+        } catch (AuthenticationException e) {
             logger.error("Errore durante il login per email: {}", request.getEmail(), e);
             throw e;
         }
     }
+    
+    /**
+     * Rinnova il token di accesso tramite un refresh token.
+     * 
+     * Il refresh token usato viene revocato e sostituito da uno nuovo (rotazione):
+     * il client deve conservare il refresh token restituito.
+     * 
+     * @param refreshToken Refresh token ottenuto al login o al rinnovo precedente
+     * @return AuthResponseDTO con nuovo token JWT, nuovo refresh token e dati utente aggiornati
+     * @throws BadCredentialsException se il refresh token non è valido, è scaduto o è già stato usato
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public AuthResponseDTO refresh(String refreshToken) {
+        User user = refreshTokenService.rotate(refreshToken);
+        logger.info("Token rinnovato per utente ID: {}", user.getId());
+        return authResponse(new AuthenticatedUser(user));
+    }
+    
+    /**
+     * Effettua il logout revocando il token di accesso e il refresh token.
+     * 
+     * Il token di accesso viene rifiutato da subito su questo nodo e dagli altri nodi
+     * entro jwt.revocation.sync-interval.
+     * 
+     * @param accessToken Token di accesso JWT (opzionale, null se assente o già scaduto)
+     * @param refreshToken Refresh token (opzionale)
+     */
+    @Transactional
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            try {
+                Claims claims = jwtTokenProvider.parseToken(accessToken);
+                if (claims.getId() != null) {
+                    tokenRevocationList.revoke(claims.getId(), claims.getExpiration().toInstant());
+                }
+                logger.info("Logout effettuato per email: {}", claims.getSubject());
+            } catch (JwtException e) {
+                // Token non valido o già scaduto: non è necessario revocarlo
+                logger.debug("Logout con token di accesso non valido: {}", e.getMessage());
+            }
+        }
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+    }
+    
+    /**
+     * Genera token JWT e refresh token e costruisce la risposta di autenticazione.
+     * 
+     * Il refresh token viene associato a un riferimento all'utente (getReferenceById),
+     * che non richiede di caricarlo dal database.
+     * 
+     * @param user Utente autenticato
+     * @return AuthResponseDTO con token e dati utente
+     */
+    private AuthResponseDTO authResponse(AuthenticatedUser user) {
+        String token = jwtTokenProvider.generateToken(user);
+        String refreshToken = refreshTokenService.issue(userRepository.getReferenceById(user.getUserId()));
+        
+        Set<String> roleNames = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+
+        return AuthResponseDTO.builder()
+                .token(token)
+                .refreshToken(refreshToken)
+                .type("Bearer")
+                .expiresIn(jwtProperties.getExpiration() / 1000)
+                .userId(user.getUserId())
+                .email(user.getUsername())
+                .nome(user.getNome())
+                .cognome(user.getCognome())
+                .roles(roleNames)
+                .build();
+    }
 }
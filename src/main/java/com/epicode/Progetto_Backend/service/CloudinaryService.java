@@ -1,73 +1,345 @@
 package com.epicode.Progetto_Backend.service;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import com.epicode.Progetto_Backend.config.CloudinaryProperties;
+import com.epicode.Progetto_Backend.exception.ExternalServiceUnavailableException;
+import com.epicode.Progetto_Backend.exception.ValidationException;
+import com.epicode.Progetto_Backend.resilience.CircuitBreaker;
+import com.epicode.Progetto_Backend.resilience.CircuitBreakerRegistry;
+import com.epicode.Progetto_Backend.util.StagedImage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 /**
  * CloudinaryService - Servizio per l'upload di immagini su Cloudinary.
- * 
+ *
  * Gestisce l'upload di immagini (principalmente immagini profilo utente)
  * sul servizio Cloudinary, un CDN per immagini e video.
- * 
+ *
  * Funzionalità:
- * - Upload immagini con validazione automatica del formato
+ * - Upload immagini con validazione del formato (riconosciuto dai primi byte) e della dimensione
  * - Organizzazione in cartelle (profile_images)
  * - Restituzione dell'URL pubblico dell'immagine caricata
- * 
+ *
+ * Memoria: il file non viene mai letto interamente in memoria. Il contenuto viene copiato a
+ * blocchi in un file temporaneo (StagedImage: formato, cloudinary.max-file-size e SHA-256
+ * verificati durante la copia) e l'SDK lo invia a Cloudinary leggendolo da disco, quindi la
+ * memoria usata da un upload non dipende dalla dimensione del file.
+ *
  * Configurazione:
  * - Le credenziali (cloudName, apiKey, apiSecret) vengono recuperate da CloudinaryProperties
  * - Le immagini vengono caricate nella cartella "profile_images"
  * - Il tipo di risorsa viene rilevato automaticamente ("auto")
- * 
+ *
+ * Resilienza:
+ * - Bulkhead: gli upload vengono eseguiti su un pool dedicato (cloudinary.pool-size thread,
+ *   coda di cloudinary.queue-capacity): un Cloudinary lento occupa al più quei thread, non
+ *   quelli di Tomcat. A coda piena l'upload viene rifiutato subito
+ * - Timeout: un upload che non termina entro cloudinary.timeout, coda compresa, viene
+ *   abbandonato (lo stesso valore è il timeout di socket dell'SDK)
+ * - Circuit breaker (cloudinary.circuit-breaker.*): errori 5xx, timeout ed errori di rete
+ *   aprono il circuito; gli errori 4xx (es: file non valido) no. A circuito aperto gli
+ *   upload falliscono subito
+ * In tutti i casi di rifiuto viene lanciata ExternalServiceUnavailableException (503 con
+ * Retry-After).
+ *
+ * Espone su Micrometer upload attivi, in coda, rifiutati e scaduti (cloudinary.upload.*).
+ *
  * Utilizzato da:
  * - UploadController per l'endpoint di upload
  * - UserController per l'aggiornamento immagine profilo
- * 
+ *
  * @see com.epicode.Progetto_Backend.config.CloudinaryProperties
  * @see com.epicode.Progetto_Backend.controller.UploadController
  */
 @Service
-public class CloudinaryService {
+public class CloudinaryService implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudinaryService.class);
+
+    /** Nome dell'integrazione (circuit breaker, errori) */
+    public static final String SERVICE_NAME = "cloudinary";
 
     private final Cloudinary cloudinary;
 
+    private final CloudinaryProperties properties;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
     /**
      * Costruttore che inizializza Cloudinary con le credenziali da CloudinaryProperties.
-     * 
+     *
      * @param cloudinaryProperties Proprietà di configurazione Cloudinary
+     * @param circuitBreakerRegistry Registro dei circuit breaker delle integrazioni
      */
-    public CloudinaryService(CloudinaryProperties cloudinaryProperties) {
-        cloudinary = new Cloudinary(ObjectUtils.asMap(
+    public CloudinaryService(CloudinaryProperties cloudinaryProperties, CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.properties = cloudinaryProperties;
+        Map<String, Object> config = ObjectUtils.asMap(
                 "cloud_name", cloudinaryProperties.getCloudName(),
                 "api_key", cloudinaryProperties.getApiKey(),
                 "api_secret", cloudinaryProperties.getApiSecret()
-        ));
+        );
+        if (StringUtils.hasText(cloudinaryProperties.getUploadPrefix())) {
+            config.put("upload_prefix", cloudinaryProperties.getUploadPrefix());
+        }
+        cloudinary = new Cloudinary(config);
+        circuitBreaker = circuitBreakerRegistry.create(SERVICE_NAME, cloudinaryProperties.getCircuitBreaker());
+        int poolSize = Math.max(1, cloudinaryProperties.getPoolSize());
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cloudinaryProperties.getQueueCapacity())),
+                threadFactory(), new ThreadPoolExecutor.AbortPolicy());
     }
-    
+
     /**
      * Carica un'immagine su Cloudinary e restituisce l'URL pubblico.
-     * 
+     *
      * Il file viene caricato nella cartella "profile_images" su Cloudinary.
      * Il tipo di risorsa viene rilevato automaticamente (immagine, video, etc.).
-     * 
+     * Il contenuto viene copiato in un file temporaneo sul thread della richiesta; la chiamata
+     * a Cloudinary viene eseguita sul pool dedicato.
+     *
      * @param file File immagine da caricare (MultipartFile)
      * @return URL pubblico dell'immagine caricata (secure_url)
      * @throws IOException se si verifica un errore durante l'upload
+     * @throws ValidationException se il formato non è supportato o il file è troppo grande
+     * @throws ExternalServiceUnavailableException se il circuito è aperto, il pool è saturo
+     *         o Cloudinary non risponde entro il timeout
      */
-    @SuppressWarnings("unchecked")
     public String uploadImage(MultipartFile file) throws IOException {
-        Map<String, Object> uploadResult = cloudinary.uploader().upload(file.getBytes(),
-                ObjectUtils.asMap(
-                        "folder", "profile_images",
-                        "resource_type", "auto"
-                ));
+        try (InputStream in = file.getInputStream();
+             StagedImage image = StagedImage.stage(in, properties.getMaxFileSize().toBytes())) {
+            logger.debug("Immagine {} ({} byte, SHA-256 {}) pronta per l'upload",
+                    image.getContentType(), image.getSize(), image.getSha256());
+            return uploadStagedImage(image);
+        }
+    }
+
+    /**
+     * Carica su Cloudinary un'immagine già copiata su disco e validata.
+     *
+     * @param image Immagine da caricare (il file temporaneo resta del chiamante)
+     * @return URL pubblico dell'immagine caricata (secure_url)
+     * @throws IOException se si verifica un errore durante l'upload
+     * @throws ExternalServiceUnavailableException se il circuito è aperto, il pool è saturo
+     *         o Cloudinary non risponde entro il timeout
+     */
+    public String uploadStagedImage(StagedImage image) throws IOException {
+        CompletableFuture<String> upload = uploadImageAsync(image.getPath().toFile(), null);
+        try {
+            return upload.get();
+        } catch (InterruptedException e) {
+            upload.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Upload su Cloudinary interrotto", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Avvia l'upload di un file sul pool dedicato senza attenderne l'esito.
+     *
+     * Il future viene completato al più tardi dopo cloudinary.timeout; circuit breaker, pool
+     * saturo e timeout lo completano con ExternalServiceUnavailableException, gli errori
+     * dell'API con IOException. Annullare il future interrompe l'upload.
+     *
+     * @param content File da caricare (deve esistere fino al completamento)
+     * @param publicId Identificativo dell'immagine nella cartella "profile_images" (null = generato da Cloudinary)
+     * @return URL pubblico dell'immagine caricata (secure_url)
+     */
+    public CompletableFuture<String> uploadImageAsync(File content, String publicId) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(
+                    unavailable("Cloudinary temporaneamente non disponibile", circuitBreaker.getRetryAfterSeconds()));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        FutureTask<String> upload = new FutureTask<>(() -> upload(content, publicId)) {
+            @Override
+            protected void done() {
+                try {
+                    result.complete(get());
+                } catch (ExecutionException e) {
+                    result.completeExceptionally(e.getCause());
+                } catch (CancellationException | InterruptedException e) {
+                    result.cancel(false);
+                }
+            }
+        };
+        try {
+            executor.execute(upload);
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.releasePermission();
+            rejected.increment();
+            logger.warn("Pool di upload Cloudinary saturo: upload rifiutato");
+            return CompletableFuture.failedFuture(unavailable("Troppi upload in corso. Riprovare tra qualche secondo.",
+                    Math.max(1, properties.getTimeout().toSeconds())));
+        }
+        CompletableFuture<String> outcome = result
+                .orTimeout(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .handle((url, error) -> {
+                    long durationNanos = System.nanoTime() - start;
+                    if (error == null) {
+                        circuitBreaker.onSuccess(durationNanos);
+                        return url;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException) {
+                        // Timeout del pool o di socket dell'SDK: stesso valore di cloudinary.timeout
+                        upload.cancel(true);
+                        executor.remove(upload);
+                        throw new CompletionException(timedOut(durationNanos));
+                    }
+                    if (cause instanceof CancellationException cancellation) {
+                        circuitBreaker.releasePermission();
+                        throw cancellation;
+                    }
+                    if (cause instanceof CloudinaryApiException apiError && !apiError.isServerError()) {
+                        circuitBreaker.onSuccess(durationNanos);
+                    } else {
+                        circuitBreaker.onError(durationNanos);
+                    }
+                    throw new CompletionException(cause);
+                });
+        outcome.whenComplete((url, error) -> {
+            if (error instanceof CancellationException) {
+                upload.cancel(true);
+                executor.remove(upload);
+            }
+        });
+        return outcome;
+    }
+
+    /**
+     * Esegue la chiamata all'API di upload (sul pool dedicato). L'SDK invia il file in streaming.
+     */
+    @SuppressWarnings("unchecked")
+    private String upload(File content, String publicId) throws IOException {
+        int timeoutMillis = (int) Math.min(Integer.MAX_VALUE, properties.getTimeout().toMillis());
+        Map<String, Object> options = ObjectUtils.asMap(
+                "folder", "profile_images",
+                "resource_type", "auto",
+                "return_error", true,
+                "timeout", timeoutMillis,
+                "connect_timeout", timeoutMillis
+        );
+        if (publicId != null) {
+            options.put("public_id", publicId);
+        }
+        Map<String, Object> uploadResult = cloudinary.uploader().upload(content, options);
+        if (uploadResult.get("error") instanceof Map<?, ?> error) {
+            int status = error.get("http_code") instanceof Number code ? code.intValue() : 0;
+            throw new CloudinaryApiException(status, String.valueOf(error.get("message")));
+        }
         return (String) uploadResult.get("secure_url");
     }
+
+    private ExternalServiceUnavailableException timedOut(long durationNanos) {
+        circuitBreaker.onError(durationNanos);
+        timeouts.increment();
+        logger.warn("Upload su Cloudinary non completato entro {}", properties.getTimeout());
+        return unavailable("Cloudinary non ha risposto in tempo", circuitBreaker.getRetryAfterSeconds());
+    }
+
+    private static ExternalServiceUnavailableException unavailable(String message, long retryAfterSeconds) {
+        return new ExternalServiceUnavailableException(SERVICE_NAME, message, retryAfterSeconds);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("cloudinary.upload.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Upload su Cloudinary in esecuzione")
+                .register(registry);
+        Gauge.builder("cloudinary.upload.queued", executor, e -> e.getQueue().size())
+                .description("Upload su Cloudinary in coda")
+                .register(registry);
+        FunctionCounter.builder("cloudinary.upload.rejected", rejected, LongAdder::sum)
+                .description("Upload rifiutati per pool saturo")
+                .register(registry);
+        FunctionCounter.builder("cloudinary.upload.timeouts", timeouts, LongAdder::sum)
+                .description("Upload non completati entro il timeout")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "cloudinary-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Errore restituito dall'API Cloudinary.
+     */
+    static final class CloudinaryApiException extends IOException {
+
+        private final int status;
+
+        CloudinaryApiException(int status, String message) {
+            super("Cloudinary API error: " + status + " - " + message);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return true se l'errore dipende dal servizio (5xx, limite di richieste) e non dalla richiesta
+         */
+        boolean isServerError() {
+            return status >= 500 || status == 420 || status == 429 || status == 0;
+        }
+    }
 }
@@ -1,15 +1,26 @@
 package com.epicode.Progetto_Backend.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.criteria.Predicate;
+
 import com.epicode.Progetto_Backend.dto.ContrattoRequestDTO;
 import com.epicode.Progetto_Backend.entity.Contratto;
 import com.epicode.Progetto_Backend.entity.Immobile;
@@ -17,6 +28,7 @@ import com.epicode.Progetto_Backend.entity.Locatario;
 import com.epicode.Progetto_Backend.entity.Rata;
 import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
 import com.epicode.Progetto_Backend.repository.ContrattoRepository;
+import com.epicode.Progetto_Backend.repository.FetchPlanRepository;
 import com.epicode.Progetto_Backend.repository.ImmobileRepository;
 import com.epicode.Progetto_Backend.repository.LocatarioRepository;
 import com.epicode.Progetto_Backend.repository.RataRepository;
@@ -36,7 +48,7 @@ import lombok.RequiredArgsConstructor;
  * Caratteristiche principali:
  * - Alla creazione, genera automaticamente tutte le rate in base a frequenza e durata
  * - Calcola importo rata = canoneAnnuo / numero rate all'anno
- * - Invia notifica email al locatario dopo la creazione (asincrono)
+ * - Invia notifica email al locatario dopo la creazione (accodata nella outbox)
  * - All'eliminazione, elimina manualmente le rate associate
  * 
  * Generazione rate automatica:
@@ -64,6 +76,7 @@ public class ContrattoService {
     private final LocatarioRepository locatarioRepository;
     private final ImmobileRepository immobileRepository;
     private final RataRepository rataRepository;
+    private final FetchPlanRepository fetchPlanRepository;
     private final MailgunService mailgunService;
     
     public Page<Contratto> getAllContratti(Pageable pageable) {
@@ -91,6 +104,26 @@ public class ContrattoService {
                 });
     }
     
+    /**
+     * Recupera un contratto per ID caricando solo le relazioni indicate (query GraphQL per ID).
+     * 
+     * Le relazioni non indicate restano proxy non inizializzati: con fetchPaths vuoto
+     * viene eseguita una sola SELECT, senza JOIN verso le entità collegate.
+     * 
+     * @param id ID del contratto
+     * @param fetchPaths Relazioni da caricare (es: "rate", "locatario.user")
+     * @return Contratto trovato
+     * @throws EntityNotFoundException Se il contratto non esiste
+     */
+    public Contratto getContrattoById(Long id, Collection<String> fetchPaths) {
+        logger.debug("Recupero contratto con ID: {}, relazioni: {}", id, fetchPaths);
+        return fetchPlanRepository.findById(Contratto.class, id, fetchPaths)
+                .orElseThrow(() -> {
+                    logger.warn("Contratto non trovato con ID: {}", id);
+                    return new EntityNotFoundException("Contratto", id);
+                });
+    }
+    
     public List<Contratto> getContrattiByLocatarioId(Long locatarioId) {
         logger.debug("Recupero contratti per locatario ID: {}", locatarioId);
         return contrattoRepository.findByLocatarioId(locatarioId);
@@ -101,6 +134,66 @@ public class ContrattoService {
         return contrattoRepository.findByLocatarioUserEmail(email);
     }
     
+    /**
+     * Recupera i contratti di più locatari con una sola query (DataLoader GraphQL).
+     * 
+     * @param locatarioIds ID dei locatari
+     * @return Mappa ID locatario → contratti del locatario (assente se nessun contratto)
+     */
+    public Map<Long, List<Contratto>> getContrattiByLocatarioIds(Collection<Long> locatarioIds) {
+        logger.debug("Recupero contratti per {} locatari", locatarioIds.size());
+        return contrattoRepository.findByLocatarioIdIn(locatarioIds).stream()
+                .collect(Collectors.groupingBy(c -> c.getLocatario().getId()));
+    }
+    
+    /**
+     * Recupera i contratti di più immobili con una sola query (DataLoader GraphQL).
+     * 
+     * @param immobileIds ID degli immobili
+     * @return Mappa ID immobile → contratti dell'immobile (assente se nessun contratto)
+     */
+    public Map<Long, List<Contratto>> getContrattiByImmobileIds(Collection<Long> immobileIds) {
+        logger.debug("Recupero contratti per {} immobili", immobileIds.size());
+        return contrattoRepository.findByImmobileIdIn(immobileIds).stream()
+                .collect(Collectors.groupingBy(c -> c.getImmobile().getId()));
+    }
+    
+    /**
+     * Recupera più contratti per ID con una sola query (DataLoader GraphQL).
+     * 
+     * @param ids ID dei contratti
+     * @return Mappa ID → contratto
+     */
+    public Map<Long, Contratto> getContrattiByIds(Collection<Long> ids) {
+        logger.debug("Recupero {} contratti per ID", ids.size());
+        return contrattoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Contratto::getId, Function.identity()));
+    }
+    
+    /**
+     * Recupera una pagina di contratti con paginazione keyset (Connection GraphQL).
+     * 
+     * @param locatarioId Filtro opzionale per locatario
+     * @param immobileId Filtro opzionale per immobile
+     * @param position Posizione da cui proseguire (ScrollPosition.keyset() per la prima pagina)
+     * @param limit Numero massimo di elementi
+     * @return Finestra di contratti con informazioni sulla pagina successiva
+     */
+    public Window<Contratto> scrollContratti(Long locatarioId, Long immobileId, ScrollPosition position, int limit) {
+        logger.debug("Scroll contratti. Locatario: {}, Immobile: {}, Limit: {}", locatarioId, immobileId, limit);
+        Specification<Contratto> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (locatarioId != null) {
+                predicates.add(cb.equal(root.get("locatario").get("id"), locatarioId));
+            }
+            if (immobileId != null) {
+                predicates.add(cb.equal(root.get("immobile").get("id"), immobileId));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+        return contrattoRepository.findBy(spec, q -> q.sortBy(Sort.by("id")).limit(limit).scroll(position));
+    }
+    
     @SuppressWarnings("null")
     @Transactional
     public Contratto createContratto(ContrattoRequestDTO request) {
@@ -135,7 +228,7 @@ public class ContrattoService {
         generaRate(savedContratto);
         logger.debug("Rate generate per contratto ID: {}", savedContratto.getId());
         
-        // Invia notifica email al locatario (asincrono)
+        // Invia notifica email al locatario (accodata nella outbox)
         String locatarioName = locatario.getNome() + " " + locatario.getCognome();
         String locatarioEmail = locatario.getUser().getEmail();
         String immobileIndirizzo = immobile.getIndirizzo();
@@ -1,14 +1,23 @@
 package com.epicode.Progetto_Backend.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.epicode.Progetto_Backend.entity.User;
 import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
 import com.epicode.Progetto_Backend.repository.UserRepository;
+import com.epicode.Progetto_Backend.security.AuthenticatedUser;
+import com.epicode.Progetto_Backend.security.UserDetailsCache;
+import com.epicode.Progetto_Backend.security.UserSecurityChangedEvent;
 
 /**
  * CustomUserDetailsService - Implementazione di UserDetailsService per Spring Security.
@@ -19,25 +28,42 @@ import com.epicode.Progetto_Backend.repository.UserRepository;
  * Metodi:
  * - loadUserByUsername: Carica un utente per email (username) - richiesto da UserDetailsService
  * - loadUserById: Carica un utente per ID (metodo aggiuntivo)
+ * - updatePassword: Riscrive l'hash della password con il costo BCrypt corrente dopo un login
+ *   riuscito (richiesto da UserDetailsPasswordService)
  * 
- * L'utente restituito implementa UserDetails e contiene:
+ * L'utente restituito (AuthenticatedUser) implementa UserDetails e contiene:
  * - Credenziali (email, password hashata)
  * - Autorità (ruoli)
  * - Stato account (enabled, accountNonExpired, etc.)
+ * - ID, nome, cognome, ID del locatario e versione dei token, usati da AuthService.login
  * 
  * Utilizzato da:
  * - JwtAuthenticationFilter per caricare i dettagli utente durante l'autenticazione JWT
+ *   (solo per i token senza claim)
  * - AuthenticationManager per validare le credenziali durante il login
  * 
+ * loadUserByUsername utilizza UserDetailsCache: gli utenti già caricati vengono restituiti
+ * senza accedere al database finché ruoli, stato o esistenza non cambiano. All'interno di
+ * una transazione già attiva la cache non viene usata, perché la transazione potrebbe
+ * contenere modifiche non ancora committate.
+ * 
  * @see org.springframework.security.core.userdetails.UserDetailsService
  * @see com.epicode.Progetto_Backend.entity.User
  */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
     
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     /**
      * Carica un utente per username (email).
      * 
@@ -45,13 +71,22 @@ public class CustomUserDetailsService implements UserDetailsService {
      * per caricare i dettagli dell'utente durante l'autenticazione.
      * 
      * @param username Email dell'utente (utilizzata come username)
-     * @return UserDetails con credenziali, ruoli e stato account
+     * @return AuthenticatedUser con credenziali, ruoli, stato account e dati per i token
      * @throws UsernameNotFoundException se l'utente non viene trovato
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByEmail(username)
+        boolean cacheable = userDetailsCache.isEnabled()
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+        if (cacheable) {
+            UserDetails cached = userDetailsCache.get(username);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return cacheable ? userDetailsCache.put(user) : new AuthenticatedUser(user);
     }
     
     /**
@@ -69,4 +104,28 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .orElseThrow(() -> new EntityNotFoundException("User", id));
         return user;
     }
+    
+    /**
+     * Aggiorna l'hash della password di un utente.
+     * 
+     * Chiamato da DaoAuthenticationProvider dopo un login riuscito quando l'hash salvato
+     * usa un formato o un costo BCrypt diverso da quello corrente (migrazione trasparente
+     * del costo). L'utente viene rimosso dalla cache, che conterrebbe ancora il vecchio hash.
+     * 
+     * @param user Utente autenticato
+     * @param newPassword Nuovo hash della password (già codificato)
+     * @return AuthenticatedUser con il nuovo hash
+     * @throws UsernameNotFoundException se l'utente non viene trovato
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = userRepository.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + user.getUsername()));
+        entity.setPassword(newPassword);
+        userRepository.save(entity);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(entity.getId(), entity.getEmail()));
+        logger.info("Hash della password aggiornato al costo corrente per utente ID: {}", entity.getId());
+        return new AuthenticatedUser(entity);
+    }
 }
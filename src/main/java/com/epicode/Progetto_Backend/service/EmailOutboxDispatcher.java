@@ -0,0 +1,275 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.epicode.Progetto_Backend.config.EmailOutboxProperties;
+import com.epicode.Progetto_Backend.entity.EmailOutbox;
+import com.epicode.Progetto_Backend.entity.EmailStatus;
+import com.epicode.Progetto_Backend.exception.ExternalServiceUnavailableException;
+import com.epicode.Progetto_Backend.repository.EmailOutboxRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * EmailOutboxDispatcher - Consegna a Mailgun le email accodate nella tabella email_outbox.
+ *
+ * A ogni esecuzione (email.outbox.poll-interval) il dispatcher:
+ * 1. Blocca un lotto di email dovute con SELECT ... FOR UPDATE SKIP LOCKED e le marca SENDING
+ *    con un lease (email.outbox.lease), in una transazione breve: più nodi prelevano lotti
+ *    disgiunti e un nodo che si arresta durante l'invio non blocca le email oltre il lease
+ * 2. Invia le email del lotto in modo asincrono, con al più email.outbox.concurrency invii
+ *    in corso, fuori da qualunque transazione
+ * 3. Registra l'esito di ogni email: SENT, oppure un nuovo tentativo con backoff esponenziale
+ *    (email.outbox.initial-backoff, raddoppiato fino a email.outbox.max-backoff) e DEAD dopo
+ *    email.outbox.max-attempts errori
+ * Finché i lotti sono pieni il dispatcher preleva subito il lotto successivo.
+ *
+ * Se il circuit breaker di Mailgun è aperto il dispatcher non preleva email; un invio
+ * rifiutato senza essere eseguito (ExternalServiceUnavailableException) viene rimandato
+ * al Retry-After indicato senza consumare un tentativo.
+ *
+ * La consegna è "almeno una volta": se il nodo si arresta dopo l'invio e prima di registrarlo,
+ * l'email viene reinviata alla scadenza del lease.
+ *
+ * Espone su Micrometer email consegnate, tentativi falliti, email rimandate, email DEAD ed
+ * email in attesa (email.outbox.*).
+ *
+ * @see com.epicode.Progetto_Backend.entity.EmailOutbox
+ * @see com.epicode.Progetto_Backend.config.EmailOutboxProperties
+ */
+@Component
+public class EmailOutboxDispatcher implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    /** Lunghezza massima dell'errore salvato (colonna last_error) */
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+
+    private final MailgunService mailgunService;
+
+    private final EmailOutboxProperties properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder dead = new LongAdder();
+
+    private final LongAdder deferred = new LongAdder();
+
+    public EmailOutboxDispatcher(EmailOutboxRepository emailOutboxRepository, MailgunService mailgunService,
+                                 EmailOutboxProperties properties, PlatformTransactionManager transactionManager) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.mailgunService = mailgunService;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Preleva e consegna le email dovute, un lotto dopo l'altro finché la coda non si svuota.
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:5s}",
+            initialDelayString = "${email.outbox.poll-interval:5s}")
+    public void dispatch() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<EmailOutbox> batch;
+        do {
+            if (!mailgunService.isAvailable()) {
+                logger.debug("Circuit breaker di Mailgun aperto: prelievo delle email rimandato");
+                return;
+            }
+            batch = claim(batchSize);
+            deliver(batch);
+        } while (batch.size() == batchSize && !Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Blocca un lotto di email dovute e le marca SENDING fino alla scadenza del lease.
+     *
+     * @param batchSize Dimensione massima del lotto
+     * @return Email prelevate (staccate dalla transazione)
+     */
+    List<EmailOutbox> claim(int batchSize) {
+        List<EmailOutbox> batch = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<EmailOutbox> due = emailOutboxRepository.lockDue(now, batchSize);
+            Instant leaseExpiresAt = now.plus(properties.getLease());
+            for (EmailOutbox email : due) {
+                email.setStatus(EmailStatus.SENDING);
+                email.setNextAttemptAt(leaseExpiresAt);
+            }
+            return emailOutboxRepository.saveAll(due);
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    /**
+     * Invia un lotto con al più email.outbox.concurrency invii in corso e ne registra gli esiti.
+     *
+     * Gli invii sono asincroni (MailgunService.sendAsync): il thread dello scheduler avvia le
+     * chiamate e attende solo quando il limite di invii in corso è raggiunto.
+     *
+     * @param batch Email prelevate
+     */
+    void deliver(List<EmailOutbox> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Semaphore permits = new Semaphore(Math.max(1, properties.getConcurrency()));
+        List<CompletableFuture<Void>> sends = new ArrayList<>(batch.size());
+        try {
+            for (EmailOutbox email : batch) {
+                permits.acquire();
+                CompletableFuture<Void> send;
+                try {
+                    send = mailgunService.sendAsync(
+                            email.getRecipient(), email.getSubject(), email.getBody(), email.isHtml());
+                } catch (RuntimeException e) {
+                    send = CompletableFuture.failedFuture(e);
+                }
+                send.whenComplete((ignored, error) -> permits.release());
+                sends.add(send);
+            }
+        } catch (InterruptedException e) {
+            // Le email non avviate tornano prelevabili alla scadenza del lease
+            Thread.currentThread().interrupt();
+        }
+        for (int i = 0; i < sends.size(); i++) {
+            record(batch.get(i), sends.get(i));
+        }
+    }
+
+    /**
+     * Attende l'esito di un invio e lo registra.
+     */
+    private void record(EmailOutbox email, CompletableFuture<Void> send) {
+        try {
+            send.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ExternalServiceUnavailableException unavailable) {
+                defer(email, unavailable);
+            } else {
+                recordFailure(email, cause);
+            }
+            return;
+        }
+        email.setStatus(EmailStatus.SENT);
+        email.setSentAt(Instant.now());
+        email.setLastError(null);
+        emailOutboxRepository.save(email);
+        sent.increment();
+    }
+
+    /**
+     * Rimanda un'email non inviata perché Mailgun ha rifiutato la chiamata senza eseguirla
+     * (circuito aperto, limite di richieste): il tentativo non viene conteggiato.
+     */
+    private void defer(EmailOutbox email, ExternalServiceUnavailableException e) {
+        email.setStatus(EmailStatus.PENDING);
+        email.setNextAttemptAt(Instant.now().plusSeconds(e.getRetryAfterSeconds()));
+        email.setLastError(truncate(e.getMessage()));
+        emailOutboxRepository.save(email);
+        deferred.increment();
+        logger.debug("Email {} (ID: {}) rimandata di {}s: {}",
+                email.getType(), email.getId(), e.getRetryAfterSeconds(), e.getMessage());
+    }
+
+    private void recordFailure(EmailOutbox email, Throwable e) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setLastError(truncate(e.getMessage()));
+        failures.increment();
+        if (attempts >= properties.getMaxAttempts()) {
+            email.setStatus(EmailStatus.DEAD);
+            dead.increment();
+            logger.error("Email {} (ID: {}) a {} non consegnata dopo {} tentativi: {}",
+                    email.getType(), email.getId(), email.getRecipient(), attempts, e.getMessage());
+        } else {
+            Duration wait = backoff(attempts, properties.getInitialBackoff(), properties.getMaxBackoff());
+            email.setStatus(EmailStatus.PENDING);
+            email.setNextAttemptAt(Instant.now().plus(wait));
+            logger.warn("Invio email {} (ID: {}) a {} fallito (tentativo {}), nuovo tentativo tra {}: {}",
+                    email.getType(), email.getId(), email.getRecipient(), attempts, wait, e.getMessage());
+        }
+        emailOutboxRepository.save(email);
+    }
+
+    /**
+     * Attesa prima del tentativo successivo: initial * 2^(attempts - 1), al massimo max.
+     *
+     * @param attempts Tentativi falliti finora (almeno 1)
+     * @param initial Attesa dopo il primo errore
+     * @param max Attesa massima
+     * @return Attesa prima del prossimo tentativo
+     */
+    static Duration backoff(int attempts, Duration initial, Duration max) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 30);
+        long millis = initial.toMillis() << shift;
+        return millis <= 0 || millis > max.toMillis() ? max : Duration.ofMillis(millis);
+    }
+
+    /**
+     * Elimina le email consegnate più vecchie della retention (ogni ora).
+     */
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1H")
+    public void deleteSent() {
+        int deleted = emailOutboxRepository.deleteByStatusAndSentAtBefore(
+                EmailStatus.SENT, Instant.now().minus(properties.getRetention()));
+        if (deleted > 0) {
+            logger.info("Eliminate {} email consegnate dalla outbox", deleted);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("email.outbox.sent", sent, LongAdder::sum)
+                .description("Email consegnate a Mailgun")
+                .register(registry);
+        FunctionCounter.builder("email.outbox.failures", failures, LongAdder::sum)
+                .description("Tentativi di invio falliti")
+                .register(registry);
+        FunctionCounter.builder("email.outbox.deferred", deferred, LongAdder::sum)
+                .description("Invii rimandati senza tentativo perché Mailgun non era disponibile")
+                .register(registry);
+        FunctionCounter.builder("email.outbox.dead", dead, LongAdder::sum)
+                .description("Email scartate dopo l'ultimo tentativo")
+                .register(registry);
+        Gauge.builder("email.outbox.pending", emailOutboxRepository,
+                        repository -> repository.countByStatus(EmailStatus.PENDING))
+                .description("Email in attesa di invio")
+                .register(registry);
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,61 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.epicode.Progetto_Backend.entity.EmailOutbox;
+import com.epicode.Progetto_Backend.entity.EmailStatus;
+import com.epicode.Progetto_Backend.entity.EmailType;
+import com.epicode.Progetto_Backend.repository.EmailOutboxRepository;
+
+/**
+ * EmailOutboxService - Servizio per l'accodamento delle email nella outbox.
+ *
+ * L'email viene salvata nella transazione del chiamante (propagazione REQUIRED): viene
+ * consegnata solo se l'operazione che l'ha generata va a buon fine, e la richiesta non
+ * attende mai Mailgun. La consegna è a carico di EmailOutboxDispatcher.
+ *
+ * @see com.epicode.Progetto_Backend.entity.EmailOutbox
+ * @see com.epicode.Progetto_Backend.service.EmailOutboxDispatcher
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    /**
+     * Accoda un'email da consegnare.
+     *
+     * @param type Tipo di email
+     * @param recipient Indirizzo del destinatario
+     * @param subject Oggetto
+     * @param body Corpo già composto
+     * @param html true se il corpo è HTML
+     * @return Email accodata
+     */
+    @Transactional
+    public EmailOutbox enqueue(EmailType type, String recipient, String subject, String body, boolean html) {
+        Instant now = Instant.now();
+        EmailOutbox email = emailOutboxRepository.save(EmailOutbox.builder()
+                .type(type)
+                .recipient(recipient)
+                .subject(subject)
+                .body(body)
+                .html(html)
+                .status(EmailStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        logger.debug("Email {} accodata per {} (ID: {})", type, recipient, email.getId());
+        return email;
+    }
+}
@@ -1,16 +1,26 @@
 package com.epicode.Progetto_Backend.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.criteria.Predicate;
+
 import lombok.RequiredArgsConstructor;
 
 import com.epicode.Progetto_Backend.dto.ImmobileRequestDTO;
@@ -20,6 +30,7 @@ import com.epicode.Progetto_Backend.entity.Negozio;
 import com.epicode.Progetto_Backend.entity.TipoImmobile;
 import com.epicode.Progetto_Backend.entity.Ufficio;
 import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
+import com.epicode.Progetto_Backend.repository.FetchPlanRepository;
 import com.epicode.Progetto_Backend.repository.ImmobileRepository;
 
 /**
@@ -53,6 +64,7 @@ public class ImmobileService {
     private static final Logger logger = LoggerFactory.getLogger(ImmobileService.class);
     
     private final ImmobileRepository immobileRepository;
+    private final FetchPlanRepository fetchPlanRepository;
     
     public Page<Immobile> getAllImmobili(Pageable pageable) {
         logger.debug("Recupero immobili paginati. Page: {}, Size: {}", pageable.getPageNumber(), pageable.getPageSize());
@@ -79,6 +91,65 @@ public class ImmobileService {
                 });
     }
     
+    /**
+     * Recupera un immobile per ID caricando solo le relazioni indicate (query GraphQL per ID).
+     * 
+     * Le relazioni non indicate restano proxy non inizializzati: con fetchPaths vuoto
+     * viene eseguita una sola SELECT, senza JOIN verso le entità collegate.
+     * 
+     * @param id ID dell'immobile
+     * @param fetchPaths Relazioni da caricare (es: "contratti", "contratti.locatario")
+     * @return Immobile trovato
+     * @throws EntityNotFoundException Se l'immobile non esiste
+     */
+    public Immobile getImmobileById(Long id, Collection<String> fetchPaths) {
+        logger.debug("Recupero immobile con ID: {}, relazioni: {}", id, fetchPaths);
+        return fetchPlanRepository.findById(Immobile.class, id, fetchPaths)
+                .orElseThrow(() -> {
+                    logger.warn("Immobile non trovato con ID: {}", id);
+                    return new EntityNotFoundException("Immobile", id);
+                });
+    }
+    
+    /**
+     * Recupera più immobili per ID con una sola query (DataLoader GraphQL).
+     * 
+     * @param ids ID degli immobili
+     * @return Mappa ID → immobile
+     */
+    public Map<Long, Immobile> getImmobiliByIds(Collection<Long> ids) {
+        logger.debug("Recupero {} immobili per ID", ids.size());
+        return immobileRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Immobile::getId, Function.identity()));
+    }
+    
+    /**
+     * Recupera una pagina di immobili con paginazione keyset (Connection GraphQL).
+     * 
+     * La paginazione keyset (WHERE id > :ultimoId ORDER BY id LIMIT n) ha costo costante
+     * indipendentemente dalla posizione nella tabella, a differenza di OFFSET.
+     * 
+     * @param citta Filtro opzionale per città (case-insensitive)
+     * @param tipo Filtro opzionale per tipo di immobile
+     * @param position Posizione da cui proseguire (ScrollPosition.keyset() per la prima pagina)
+     * @param limit Numero massimo di elementi
+     * @return Finestra di immobili con informazioni sulla pagina successiva
+     */
+    public Window<Immobile> scrollImmobili(String citta, TipoImmobile tipo, ScrollPosition position, int limit) {
+        logger.debug("Scroll immobili. Citta: {}, Tipo: {}, Limit: {}", citta, tipo, limit);
+        Specification<Immobile> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (citta != null) {
+                predicates.add(cb.equal(cb.lower(root.get("citta")), citta.toLowerCase()));
+            }
+            if (tipo != null) {
+                predicates.add(cb.equal(root.get("tipo"), tipo));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+        return immobileRepository.findBy(spec, q -> q.sortBy(Sort.by("id")).limit(limit).scroll(position));
+    }
+    
     /**
      * Crea un nuovo immobile con il tipo specificato.
      * 
@@ -1,22 +1,36 @@
 package com.epicode.Progetto_Backend.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.criteria.Predicate;
+
 import lombok.RequiredArgsConstructor;
 
 import com.epicode.Progetto_Backend.dto.LocatarioRequestDTO;
 import com.epicode.Progetto_Backend.entity.Locatario;
 import com.epicode.Progetto_Backend.entity.User;
 import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
+import com.epicode.Progetto_Backend.repository.FetchPlanRepository;
 import com.epicode.Progetto_Backend.repository.LocatarioRepository;
 import com.epicode.Progetto_Backend.repository.UserRepository;
+import com.epicode.Progetto_Backend.security.UserSecurityChangedEvent;
 
 /**
  * LocatarioService - Servizio per la gestione dei locatari.
@@ -32,6 +46,8 @@ import com.epicode.Progetto_Backend.repository.UserRepository;
  * - Ogni locatario deve essere associato a un User esistente
  * - Il codice fiscale (cf) deve essere univoco
  * - Fornisce metodi per recuperare locatari tramite email utente
+ * - La creazione e l'eliminazione pubblicano UserSecurityChangedEvent per l'utente associato:
+ *   l'ID del locatario è copiato in UserDetailsCache e nei token emessi al login
  * 
  * Utilizzato da:
  * - LocatarioController per gli endpoint REST
@@ -48,6 +64,8 @@ public class LocatarioService {
     
     private final LocatarioRepository locatarioRepository;
     private final UserRepository userRepository;
+    private final FetchPlanRepository fetchPlanRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     public User getUserByEmail(String email) {
         logger.debug("Recupero user per email: {}", email);
@@ -83,6 +101,26 @@ public class LocatarioService {
                 });
     }
     
+    /**
+     * Recupera un locatario per ID caricando solo le relazioni indicate (query GraphQL per ID).
+     * 
+     * Le relazioni non indicate restano proxy non inizializzati: con fetchPaths vuoto
+     * viene eseguita una sola SELECT, senza JOIN verso le entità collegate.
+     * 
+     * @param id ID del locatario
+     * @param fetchPaths Relazioni da caricare (es: "user", "contratti.immobile")
+     * @return Locatario trovato
+     * @throws EntityNotFoundException Se il locatario non esiste
+     */
+    public Locatario getLocatarioById(Long id, Collection<String> fetchPaths) {
+        logger.debug("Recupero locatario con ID: {}, relazioni: {}", id, fetchPaths);
+        return fetchPlanRepository.findById(Locatario.class, id, fetchPaths)
+                .orElseThrow(() -> {
+                    logger.warn("Locatario non trovato con ID: {}", id);
+                    return new EntityNotFoundException("Locatario", id);
+                });
+    }
+    
     public Locatario getLocatarioByUserId(Long userId) {
         logger.debug("Recupero locatario per user ID: {}", userId);
         return locatarioRepository.findByUserId(userId)
@@ -92,6 +130,50 @@ public class LocatarioService {
                 });
     }
     
+    /**
+     * Recupera più locatari per ID con una sola query (DataLoader GraphQL).
+     * 
+     * @param ids ID dei locatari
+     * @return Mappa ID → locatario
+     */
+    public Map<Long, Locatario> getLocatariByIds(Collection<Long> ids) {
+        logger.debug("Recupero {} locatari per ID", ids.size());
+        return locatarioRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Locatario::getId, Function.identity()));
+    }
+    
+    /**
+     * Recupera i locatari associati a più utenti con una sola query (DataLoader GraphQL).
+     * 
+     * @param userIds ID degli utenti
+     * @return Mappa ID utente → locatario (assente se l'utente non è un locatario)
+     */
+    public Map<Long, Locatario> getLocatariByUserIds(Collection<Long> userIds) {
+        logger.debug("Recupero locatari per {} utenti", userIds.size());
+        return locatarioRepository.findByUserIdIn(userIds).stream()
+                .collect(Collectors.toMap(l -> l.getUser().getId(), Function.identity()));
+    }
+    
+    /**
+     * Recupera una pagina di locatari con paginazione keyset (Connection GraphQL).
+     * 
+     * @param cognome Filtro opzionale per cognome (prefisso, case-insensitive)
+     * @param position Posizione da cui proseguire (ScrollPosition.keyset() per la prima pagina)
+     * @param limit Numero massimo di elementi
+     * @return Finestra di locatari con informazioni sulla pagina successiva
+     */
+    public Window<Locatario> scrollLocatari(String cognome, ScrollPosition position, int limit) {
+        logger.debug("Scroll locatari. Cognome: {}, Limit: {}", cognome, limit);
+        Specification<Locatario> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (cognome != null) {
+                predicates.add(cb.like(cb.lower(root.get("cognome")), cognome.toLowerCase() + "%"));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+        return locatarioRepository.findBy(spec, q -> q.sortBy(Sort.by("id")).limit(limit).scroll(position));
+    }
+    
     @SuppressWarnings("null")
     @Transactional
     public Locatario createLocatario(LocatarioRequestDTO request) {
@@ -114,6 +196,7 @@ public class LocatarioService {
                 .build();
         
         Locatario saved = locatarioRepository.save(locatario);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getEmail()));
         logger.info("Locatario creato con successo. ID: {}", saved.getId());
         return saved;
     }
@@ -138,11 +221,14 @@ public class LocatarioService {
     @Transactional
     public void deleteLocatario(Long id) {
         logger.info("Eliminazione locatario con ID: {}", id);
-        if (!locatarioRepository.existsById(id)) {
-            logger.warn("Tentativo di eliminare locatario inesistente con ID: {}", id);
-            throw new EntityNotFoundException("Locatario", id);
-        }
-        locatarioRepository.deleteById(id);
+        Locatario locatario = locatarioRepository.findById(id)
+                .orElseThrow(() -> {
+                    logger.warn("Tentativo di eliminare locatario inesistente con ID: {}", id);
+                    return new EntityNotFoundException("Locatario", id);
+                });
+        User user = locatario.getUser();
+        locatarioRepository.delete(locatario);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getEmail()));
         logger.info("Locatario eliminato con successo. ID: {}", id);
     }
     
@@ -0,0 +1,175 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.epicode.Progetto_Backend.config.MailgunProperties;
+import com.epicode.Progetto_Backend.dto.BatchSendReport;
+import com.epicode.Progetto_Backend.dto.BatchSendReport.BatchResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * MailgunBatchService - Invio della stessa email a molti destinatari, a lotti.
+ *
+ * Invece di una chiamata all'API Mailgun per destinatario, i destinatari vengono raggruppati
+ * in lotti di mailgun.batch-size (massimo 1000) e ogni lotto è una sola chiamata con le
+ * recipient-variables: il template HTML viene composto una volta dal chiamante e Mailgun
+ * sostituisce i segnaposto %recipient.*% per ogni destinatario.
+ *
+ * I destinatari arrivano come Stream (tipicamente una query in streaming sul database): in
+ * memoria c'è al più un lotto. Un indirizzo già presente nel lotto corrente (es: due rate
+ * dello stesso locatario) chiude il lotto, perché le recipient-variables sono indicizzate
+ * per indirizzo.
+ *
+ * Un lotto fallito non interrompe l'invio: viene riportato in BatchSendReport con l'errore,
+ * insieme a durata e throughput di ogni lotto. Espone su Micrometer la durata dei lotti
+ * (email.batch.duration) e i destinatari inviati e falliti (email.batch.recipients).
+ *
+ * @see com.epicode.Progetto_Backend.service.MailgunService#sendBatchHtmlEmail
+ * @see com.epicode.Progetto_Backend.dto.BatchSendReport
+ */
+@Service
+public class MailgunBatchService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailgunBatchService.class);
+
+    @Autowired
+    private MailgunService mailgunService;
+
+    @Autowired
+    private MailgunProperties mailgunProperties;
+
+    private Timer batchDuration;
+
+    private Counter sentRecipients;
+
+    private Counter failedRecipients;
+
+    /**
+     * Destinatario di un invio a lotti.
+     *
+     * @param email Indirizzo email
+     * @param variables Valori dei segnaposto %recipient.*% per questo destinatario
+     */
+    public record Recipient(String email, Map<String, String> variables) {
+    }
+
+    /**
+     * @return Destinatari per lotto: mailgun.batch-size, limitato al massimo consentito da Mailgun
+     */
+    public int getBatchSize() {
+        return Math.clamp(mailgunProperties.getBatchSize(), 1, MailgunService.MAX_BATCH_RECIPIENTS);
+    }
+
+    /**
+     * Invia la stessa email a tutti i destinatari dello stream, a lotti.
+     *
+     * Lo stream viene consumato ma non chiuso: la chiusura (e la transazione di una query in
+     * streaming) resta al chiamante.
+     *
+     * @param subject Oggetto dell'email
+     * @param htmlTemplate HTML con segnaposto %recipient.*%, composto una sola volta
+     * @param recipients Destinatari
+     * @return Esito complessivo e per lotto
+     */
+    public BatchSendReport sendBatch(String subject, String htmlTemplate, Stream<Recipient> recipients) {
+        int batchSize = getBatchSize();
+        long start = System.nanoTime();
+        List<BatchResult> results = new ArrayList<>();
+        Map<String, Map<String, String>> batch = new LinkedHashMap<>();
+
+        var iterator = recipients.iterator();
+        while (iterator.hasNext()) {
+            Recipient recipient = iterator.next();
+            if (batch.size() == batchSize || batch.containsKey(recipient.email())) {
+                results.add(send(results.size() + 1, subject, htmlTemplate, batch));
+                batch = new LinkedHashMap<>();
+            }
+            batch.put(recipient.email(), recipient.variables());
+        }
+        if (!batch.isEmpty()) {
+            results.add(send(results.size() + 1, subject, htmlTemplate, batch));
+        }
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        int total = 0;
+        int failed = 0;
+        int failedBatches = 0;
+        for (BatchResult result : results) {
+            total += result.recipients();
+            if (!result.isSuccess()) {
+                failed += result.recipients();
+                failedBatches++;
+            }
+        }
+        BatchSendReport report = new BatchSendReport(total, total - failed, failed, results.size(), failedBatches,
+                durationMillis, throughput(total - failed, durationMillis), results);
+        logger.info("Invio a lotti \"{}\" completato: {} destinatari in {} lotti ({} falliti) in {} ms ({} destinatari/s)",
+                subject, total, results.size(), failedBatches, durationMillis, report.recipientsPerSecond());
+        return report;
+    }
+
+    /**
+     * Invia un lotto con una chiamata a Mailgun e ne misura la durata.
+     */
+    private BatchResult send(int number, String subject, String htmlTemplate, Map<String, Map<String, String>> batch) {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            mailgunService.sendBatchHtmlEmail(subject, htmlTemplate, batch);
+        } catch (Exception e) {
+            error = e.getMessage();
+        }
+        long elapsed = System.nanoTime() - start;
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        BatchResult result = new BatchResult(number, batch.size(), durationMillis,
+                throughput(batch.size(), durationMillis), error);
+
+        if (batchDuration != null) {
+            batchDuration.record(elapsed, TimeUnit.NANOSECONDS);
+            (result.isSuccess() ? sentRecipients : failedRecipients).increment(batch.size());
+        }
+        if (result.isSuccess()) {
+            logger.info("Lotto {}: {} destinatari in {} ms ({} destinatari/s)",
+                    number, batch.size(), durationMillis, result.recipientsPerSecond());
+        } else {
+            logger.error("Lotto {} di {} destinatari fallito: {}", number, batch.size(), error);
+        }
+        return result;
+    }
+
+    private static double throughput(int recipients, long durationMillis) {
+        if (recipients == 0) {
+            return 0;
+        }
+        return Math.round(recipients * 10_000.0 / Math.max(1, durationMillis)) / 10.0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        batchDuration = Timer.builder("email.batch.duration")
+                .description("Durata delle chiamate a Mailgun degli invii a lotti")
+                .register(registry);
+        sentRecipients = Counter.builder("email.batch.recipients")
+                .description("Destinatari degli invii a lotti")
+                .tag("outcome", "sent")
+                .register(registry);
+        failedRecipients = Counter.builder("email.batch.recipients")
+                .description("Destinatari degli invii a lotti")
+                .tag("outcome", "failed")
+                .register(registry);
+    }
+}
@@ -1,59 +1,166 @@
 package com.epicode.Progetto_Backend.service;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.stereotype.Service;
 
 import com.epicode.Progetto_Backend.config.MailgunProperties;
+import com.epicode.Progetto_Backend.entity.EmailType;
+import com.epicode.Progetto_Backend.exception.ExternalServiceUnavailableException;
+import com.epicode.Progetto_Backend.resilience.CircuitBreaker;
+import com.epicode.Progetto_Backend.resilience.CircuitBreakerRegistry;
+import com.epicode.Progetto_Backend.template.CompiledTemplate;
+import com.epicode.Progetto_Backend.template.EmailTemplate;
+import com.epicode.Progetto_Backend.template.EmailTemplateRegistry;
+import com.epicode.Progetto_Backend.template.RenderedEmail;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.annotation.PostConstruct;
-import kong.unirest.Config;
-import kong.unirest.HttpResponse;
-import kong.unirest.Unirest;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Servizio per l'invio di email tramite Mailgun API.
- * Supporta invio di email in formato testo e HTML con gestione asincrona.
+ * Supporta invio di email in formato testo e HTML.
+ *
+ * Le chiamate a Mailgun usano un java.net.http.HttpClient condiviso e non bloccante:
+ * - HTTP/2 quando disponibile e connessioni persistenti (keep-alive) riusate tra gli invii
+ * - Le risposte vengono completate da un piccolo pool (mailgun.io-threads): centinaia di
+ *   invii in corso non occupano un thread ciascuno
+ * - Al massimo mailgun.max-concurrent-requests richieste contemporanee; oltre il limite
+ *   l'invio attende un posto per mailgun.acquire-timeout e poi fallisce
+ * - Timeout di connessione (mailgun.connect-timeout) e per chiamata (mailgun.request-timeout)
+ * - Circuit breaker "mailgun" (mailgun.circuit-breaker.*): con troppi errori 5xx, timeout o
+ *   chiamate lente le chiamate successive falliscono subito con
+ *   ExternalServiceUnavailableException, senza attendere Mailgun
+ * sendAsync restituisce un CompletableFuture; sendEmail, sendHtmlEmail e sendBatchHtmlEmail
+ * ne attendono il completamento e sono usati da EmailOutboxDispatcher e MailgunBatchService.
+ * Se Mailgun non è disponibile (circuito aperto, limite di richieste, timeout, errori 5xx)
+ * sendEmail e sendHtmlEmail accodano l'email nella outbox invece di fallire.
+ *
+ * Le notifiche (benvenuto, contratti, rate, manutenzioni) e i metodi *Async vengono invece
+ * accodati nella tabella email_outbox nella transazione del chiamante: la richiesta non attende
+ * mai Mailgun e l'email parte solo se l'operazione viene confermata.
+ *
+ * Oggetto e corpo delle notifiche vengono prodotti dai template precompilati di
+ * EmailTemplateRegistry (classpath:templates/email/), nella lingua della richiesta
+ * (Accept-Language) se esiste una variante, altrimenti nella lingua predefinita.
+ *
+ * Con la modalità digest (email.digest.enabled) le notifiche non urgenti vengono raccolte
+ * da NotificationDigestService e inviate come un solo riepilogo per destinatario.
  */
 @Service
 public class MailgunService {
 
     private static final Logger logger = LoggerFactory.getLogger(MailgunService.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    
+    /** Destinatari massimi per chiamata consentiti da Mailgun con le recipient-variables */
+    public static final int MAX_BATCH_RECIPIENTS = 1000;
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    /** Nome dell'integrazione (circuit breaker, errori) */
+    public static final String SERVICE_NAME = "mailgun";
+    
+    /** Separatore decimale per lingua (DecimalFormatSymbols.getInstance crea una copia a ogni chiamata) */
+    private static final Map<Locale, Character> DECIMAL_SEPARATORS = new ConcurrentHashMap<>();
 
     @Autowired
     private MailgunProperties mailgunProperties;
     
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+    
+    @Autowired
+    private EmailTemplateRegistry emailTemplateRegistry;
+    
+    @Autowired
+    private NotificationDigestService notificationDigestService;
+    
+    /** Client HTTP condiviso: pool di connessioni persistenti verso Mailgun */
+    private HttpClient httpClient;
+    
+    /** Thread che completano le risposte di tutte le richieste in corso */
+    private ExecutorService httpExecutor;
+    
+    /** Posti per le richieste contemporanee verso Mailgun (bulkhead) */
+    private Semaphore inFlight;
+    
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    
+    private CircuitBreaker circuitBreaker;
+    
     /**
-     * Verifica la configurazione Mailgun all'avvio dell'applicazione.
-     * Configura anche Unirest per usare Java HttpClient nativo invece di Apache HttpClient
-     * per evitare conflitti di versioni.
+     * Crea il client HTTP e verifica la configurazione Mailgun all'avvio dell'applicazione.
      */
     @PostConstruct
     public void init() {
         logger.info("Inizializzazione MailgunService...");
+        httpExecutor = Executors.newFixedThreadPool(Math.max(1, mailgunProperties.getIoThreads()), threadFactory());
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(mailgunProperties.getConnectTimeout())
+                .executor(httpExecutor)
+                .build();
+        inFlight = new Semaphore(Math.max(1, mailgunProperties.getMaxConcurrentRequests()));
+        circuitBreaker = circuitBreakerRegistry.create(SERVICE_NAME, mailgunProperties.getCircuitBreaker());
+        logger.info("Client HTTP Mailgun: {} thread, massimo {} richieste contemporanee, timeout {}",
+                mailgunProperties.getIoThreads(), mailgunProperties.getMaxConcurrentRequests(),
+                mailgunProperties.getRequestTimeout());
+        
         try {
-            // Configura Unirest per evitare problemi con Apache HttpClient
-            try {
-                Config config = Unirest.config();
-                config.concurrency(10, 5); // Limita le connessioni concorrenti
-                logger.info("Unirest configurato");
-            } catch (Exception e) {
-                logger.warn("Impossibile configurare Unirest: {}", e.getMessage());
-            }
-            
             validateMailgunProperties();
-            logger.info("MailgunService inizializzato correttamente");
+            logger.info("Mailgun configurato correttamente - Domain: {}, From: {}", 
+                    mailgunProperties.getDomain(), mailgunProperties.getFromEmail());
         } catch (Exception e) {
             logger.error("ERRORE CRITICO: MailgunService non configurato correttamente! Le email non verranno inviate.", e);
         }
     }
     
+    /**
+     * Chiude le connessioni e il pool delle risposte all'arresto dell'applicazione.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (httpClient != null) {
+            httpClient.shutdownNow();
+        }
+        if (httpExecutor != null) {
+            httpExecutor.shutdownNow();
+        }
+    }
+    
     /**
      * Verifica che le proprietà Mailgun siano configurate correttamente.
      */
@@ -77,9 +184,6 @@ public class MailgunService {
             logger.error("Mailgun From Email non configurata!");
             throw new IllegalStateException("Mailgun From Email non configurata");
         }
-        
-        logger.info("Mailgun configurato correttamente - Domain: {}, From: {}", 
-                mailgunProperties.getDomain(), mailgunProperties.getFromEmail());
     }
     
     // ============================================================================
@@ -87,77 +191,120 @@ public class MailgunService {
     // ============================================================================
     
     /**
-     * Invia un'email in formato testo semplice.
+     * Invia un'email in formato testo semplice e attende la risposta di Mailgun.
+     * Se Mailgun non è disponibile l'email viene accodata nella outbox.
      */
     public void sendEmail(String to, String subject, String text) {
-        logger.info("Invio email a: {} - Oggetto: {}", to, subject);
-        
+        sendOrDefer(to, subject, text, false);
+    }
+    
+    /**
+     * Invia un'email in formato HTML e attende la risposta di Mailgun.
+     * Se Mailgun non è disponibile l'email viene accodata nella outbox.
+     */
+    public void sendHtmlEmail(String to, String subject, String htmlContent) {
+        sendOrDefer(to, subject, htmlContent, true);
+    }
+    
+    /**
+     * Indica se Mailgun accetta chiamate (circuit breaker non aperto).
+     * 
+     * @return false mentre il circuito è aperto: le chiamate fallirebbero subito
+     */
+    public boolean isAvailable() {
+        return circuitBreaker == null || circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+    
+    /**
+     * Invia un'email e, se Mailgun non è disponibile, la accoda nella outbox (ritentata da
+     * EmailOutboxDispatcher). Gli errori della richiesta (4xx) vengono rilanciati.
+     */
+    private void sendOrDefer(String to, String subject, String content, boolean html) {
         try {
-            validateMailgunProperties();
-            
-            String apiUrl = getApiUrl();
-            logger.debug("URL Mailgun: {}", apiUrl);
-            logger.debug("API Key presente: {}", mailgunProperties.getApiKey() != null && !mailgunProperties.getApiKey().isEmpty());
-            
-            HttpResponse<String> response = Unirest.post(apiUrl)
-                    .basicAuth("api", mailgunProperties.getApiKey())
-                    .field("from", mailgunProperties.getFromEmail())
-                    .field("to", to)
-                    .field("subject", subject)
-                    .field("text", text)
-                    .asString();
-
-            logger.debug("Risposta Mailgun - Status: {}, Body: {}", response.getStatus(), response.getBody());
-            handleResponse(response, to, subject);
-        } catch (Exception e) {
-            logger.error("Errore durante l'invio email a {}: {}", to, e.getMessage(), e);
-            throw new RuntimeException("Errore nell'invio email: " + e.getMessage(), e);
+            await(sendAsync(to, subject, content, html), "Errore nell'invio email: ");
+        } catch (RuntimeException e) {
+            if (!isUnavailable(e.getCause())) {
+                throw e;
+            }
+            logger.warn("Mailgun non disponibile ({}): email a {} accodata nella outbox", e.getMessage(), to);
+            emailOutboxService.enqueue(EmailType.GENERIC, to, subject, content, html);
         }
     }
     
     /**
-     * Invia un'email in formato HTML.
+     * Invia un'email senza bloccare il thread chiamante (salvo l'attesa di un posto libero
+     * quando sono in corso mailgun.max-concurrent-requests richieste).
+     * 
+     * @param to Destinatario
+     * @param subject Oggetto
+     * @param content Corpo dell'email
+     * @param html true se il corpo è HTML
+     * @return Future completato quando Mailgun accetta l'email, eccezionalmente in caso di
+     *         risposta di errore, timeout o limite di richieste raggiunto
      */
-    public void sendHtmlEmail(String to, String subject, String htmlContent) {
-        logger.info("Invio email HTML a: {} - Oggetto: {}", to, subject);
+    public CompletableFuture<Void> sendAsync(String to, String subject, String content, boolean html) {
+        logger.info("Invio email {}a: {} - Oggetto: {}", html ? "HTML " : "", to, subject);
+        StringBuilder form = new StringBuilder();
+        field(form, "from", mailgunProperties.getFromEmail());
+        field(form, "to", to);
+        field(form, "subject", subject);
+        field(form, html ? "html" : "text", content);
+        return post(form.toString(), to, subject);
+    }
+    
+    /**
+     * Invia la stessa email HTML a più destinatari con una sola chiamata all'API Mailgun
+     * e attende la risposta.
+     * 
+     * Il template contiene segnaposto %recipient.chiave% che Mailgun sostituisce con le
+     * recipient-variables del destinatario. Con le recipient-variables ogni destinatario
+     * riceve un messaggio individuale e non vede gli altri indirizzi.
+     * 
+     * @param subject Oggetto (può contenere segnaposto)
+     * @param htmlTemplate HTML con segnaposto, uguale per tutti i destinatari
+     * @param recipientVariables Variabili per destinatario, indicizzate per indirizzo email
+     *        (al massimo MAX_BATCH_RECIPIENTS)
+     */
+    public void sendBatchHtmlEmail(String subject, String htmlTemplate,
+            Map<String, Map<String, String>> recipientVariables) {
+        if (recipientVariables.isEmpty()) {
+            return;
+        }
+        if (recipientVariables.size() > MAX_BATCH_RECIPIENTS) {
+            throw new IllegalArgumentException("Mailgun accetta al massimo " + MAX_BATCH_RECIPIENTS
+                    + " destinatari per chiamata: " + recipientVariables.size());
+        }
+        logger.info("Invio email HTML a {} destinatari - Oggetto: {}", recipientVariables.size(), subject);
         
+        StringBuilder form = new StringBuilder();
+        field(form, "from", mailgunProperties.getFromEmail());
+        for (String to : recipientVariables.keySet()) {
+            field(form, "to", to);
+        }
+        field(form, "subject", subject);
+        field(form, "html", htmlTemplate);
         try {
-            validateMailgunProperties();
-            
-            String apiUrl = getApiUrl();
-            logger.debug("URL Mailgun: {}", apiUrl);
-            
-            HttpResponse<String> response = Unirest.post(apiUrl)
-                    .basicAuth("api", mailgunProperties.getApiKey())
-                    .field("from", mailgunProperties.getFromEmail())
-                    .field("to", to)
-                    .field("subject", subject)
-                    .field("html", htmlContent)
-                    .asString();
-            
-            logger.debug("Risposta Mailgun - Status: {}, Body: {}", response.getStatus(), response.getBody());
-
-            handleResponse(response, to, subject);
-        } catch (Exception e) {
-            logger.error("Errore durante l'invio email HTML a {}: {}", to, e.getMessage(), e);
-            throw new RuntimeException("Errore nell'invio email: " + e.getMessage(), e);
+            field(form, "recipient-variables", objectMapper.writeValueAsString(recipientVariables));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Recipient-variables non serializzabili", e);
         }
+        await(post(form.toString(), recipientVariables.size() + " destinatari", subject),
+                "Errore nell'invio email a lotti: ");
     }
     
     /**
-     * Invia un'email in modo asincrono (non blocca il thread principale).
+     * Accoda un'email in formato testo: viene inviata da EmailOutboxDispatcher dopo il
+     * commit della transazione corrente (non blocca il thread principale).
      */
-    @Async
     public void sendEmailAsync(String to, String subject, String text) {
-        sendEmail(to, subject, text);
+        emailOutboxService.enqueue(EmailType.GENERIC, to, subject, text, false);
     }
     
     /**
-     * Invia un'email HTML in modo asincrono.
+     * Accoda un'email HTML (vedi sendEmailAsync).
      */
-    @Async
     public void sendHtmlEmailAsync(String to, String subject, String htmlContent) {
-        sendHtmlEmail(to, subject, htmlContent);
+        emailOutboxService.enqueue(EmailType.GENERIC, to, subject, htmlContent, true);
     }
     
     // ============================================================================
@@ -167,33 +314,12 @@ public class MailgunService {
     /**
      * Invia un'email di benvenuto a un nuovo utente registrato.
      */
-    @Async
     public void sendWelcomeEmail(String userEmail, String userName) {
         logger.info("Invio email di benvenuto a: {}", userEmail);
         
-        String subject = "🏠 Benvenuto nella Cooperativa Immobiliare";
-        String htmlContent = buildHtmlTemplate(
-            "Benvenuto, " + userName + "!",
-            """
-            <p>Grazie per esserti registrato sulla nostra piattaforma.</p>
-            <p>Il tuo account è stato creato con successo e ora puoi accedere a tutti i nostri servizi:</p>
-            <ul>
-                <li>Consultare i tuoi contratti di affitto</li>
-                <li>Visualizzare le rate e lo storico pagamenti</li>
-                <li>Richiedere interventi di manutenzione</li>
-                <li>Gestire il tuo profilo</li>
-            </ul>
-            <p>Se hai domande, non esitare a contattarci.</p>
-            """
-        );
-        
-        try {
-            sendHtmlEmail(userEmail, subject, htmlContent);
-            logger.info("Email di benvenuto inviata con successo a: {}", userEmail);
-        } catch (Exception e) {
-            logger.error("ERRORE nell'invio email di benvenuto a {}: {}", userEmail, e.getMessage(), e);
-            // Non rilanciamo l'eccezione per non bloccare la registrazione, ma logghiamo l'errore completo
-        }
+        enqueue(template(EmailType.WELCOME), userEmail, variables(
+            "nome", userName
+        ));
     }
     
     // ============================================================================
@@ -203,59 +329,27 @@ public class MailgunService {
     /**
      * Notifica la creazione di un nuovo contratto di affitto.
      */
-    @Async
     public void sendContractNotification(String userEmail, String locatarioName, String immobileIndirizzo) {
         logger.info("Invio notifica nuovo contratto a: {}", userEmail);
         
-        String subject = "📝 Nuovo Contratto di Affitto";
-        String htmlContent = buildHtmlTemplate(
-            "Nuovo Contratto Registrato",
-            String.format("""
-            <p>Gentile <strong>%s</strong>,</p>
-            <p>Le confermiamo la registrazione del nuovo contratto di affitto per l'immobile situato in:</p>
-            <div style="background-color: #f5f5f5; padding: 15px; border-radius: 8px; margin: 20px 0;">
-                <strong>📍 %s</strong>
-            </div>
-            <p>Può consultare tutti i dettagli del contratto e le rate associate accedendo alla sua area riservata.</p>
-            """,
-            locatarioName,
-            immobileIndirizzo)
-        );
-        
-        try {
-            sendHtmlEmail(userEmail, subject, htmlContent);
-        } catch (Exception e) {
-            logger.error("Errore nell'invio notifica contratto a {}: {}", userEmail, e.getMessage());
-        }
+        enqueue(template(EmailType.CONTRACT_CREATED), userEmail, variables(
+            "nome", locatarioName,
+            "indirizzo", immobileIndirizzo
+        ));
     }
     
     /**
      * Notifica la scadenza di un contratto.
      */
-    @Async
     public void sendContractExpirationNotification(String userEmail, String locatarioName, 
             String immobileIndirizzo, LocalDate dataScadenza) {
         logger.info("Invio notifica scadenza contratto a: {}", userEmail);
         
-        String subject = "⚠️ Contratto in Scadenza";
-        String htmlContent = buildHtmlTemplate(
-            "Contratto in Scadenza",
-            String.format("""
-            <p>Gentile <strong>%s</strong>,</p>
-            <p>La informiamo che il contratto di affitto per l'immobile in <strong>%s</strong> 
-            scadrà il <strong>%s</strong>.</p>
-            <p>Per il rinnovo o per ulteriori informazioni, La preghiamo di contattarci.</p>
-            """,
-            locatarioName,
-            immobileIndirizzo,
-            dataScadenza.format(DATE_FORMATTER))
-        );
-        
-        try {
-            sendHtmlEmail(userEmail, subject, htmlContent);
-        } catch (Exception e) {
-            logger.error("Errore nell'invio notifica scadenza contratto a {}: {}", userEmail, e.getMessage());
-        }
+        enqueue(template(EmailType.CONTRACT_EXPIRING), userEmail, variables(
+            "nome", locatarioName,
+            "indirizzo", immobileIndirizzo,
+            "scadenza", formatDate(dataScadenza)
+        ));
     }
     
     // ============================================================================
@@ -265,104 +359,87 @@ public class MailgunService {
     /**
      * Invia promemoria per rata in scadenza.
      */
-    @Async
     public void sendPaymentReminderEmail(String userEmail, String locatarioName, 
             int numeroRata, Double importo, LocalDate dataScadenza, String immobileIndirizzo) {
         logger.info("Invio promemoria pagamento rata a: {}", userEmail);
         
-        String subject = "🔔 Promemoria Pagamento Rata";
-        String htmlContent = buildHtmlTemplate(
-            "Promemoria Pagamento",
-            String.format("""
-            <p>Gentile <strong>%s</strong>,</p>
-            <p>Le ricordiamo che la <strong>rata n. %d</strong> del suo contratto di affitto 
-            per l'immobile in <strong>%s</strong> è in scadenza.</p>
-            <div style="background-color: #fff3cd; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #ffc107;">
-                <p style="margin: 0;"><strong>Importo:</strong> € %.2f</p>
-                <p style="margin: 10px 0 0 0;"><strong>Scadenza:</strong> %s</p>
-            </div>
-            <p>La preghiamo di provvedere al pagamento entro la data indicata.</p>
-            """,
-            locatarioName,
-            numeroRata,
-            immobileIndirizzo,
-            importo,
-            dataScadenza.format(DATE_FORMATTER))
+        EmailTemplate template = template(EmailType.PAYMENT_REMINDER);
+        enqueue(template, userEmail, variables(
+            "nome", locatarioName,
+            "numero_rata", String.valueOf(numeroRata),
+            "indirizzo", immobileIndirizzo,
+            "importo", formatImporto(importo, template.locale()),
+            "scadenza", formatDate(dataScadenza)
+        ));
+    }
+    
+    /**
+     * Promemoria per l'invio a lotti, nella lingua predefinita: i dati del destinatario sono
+     * segnaposto %recipient.*% sostituiti da Mailgun con le recipient-variables di ogni
+     * destinatario (nome, numero_rata, indirizzo, importo, scadenza).
+     * 
+     * @return Oggetto e HTML del promemoria, composti una sola volta per tutti i destinatari
+     */
+    public RenderedEmail buildPaymentReminderBatchTemplate() {
+        return emailTemplateRegistry.get(EmailType.PAYMENT_REMINDER, null).render(variables(
+            "nome", "%recipient.nome%",
+            "numero_rata", "%recipient.numero_rata%",
+            "indirizzo", "%recipient.indirizzo%",
+            "importo", "%recipient.importo%",
+            "scadenza", "%recipient.scadenza%"
+        ));
+    }
+    
+    /**
+     * Recipient-variables di un destinatario del promemoria a lotti (vedi buildPaymentReminderBatchTemplate).
+     * 
+     * Mailgun inserisce i valori nell'HTML così come sono: l'escape HTML viene applicato qui.
+     * 
+     * @return Variabili del destinatario, formattate come nell'invio singolo
+     */
+    public Map<String, String> buildPaymentReminderVariables(String locatarioName, int numeroRata,
+            Double importo, LocalDate dataScadenza, String immobileIndirizzo) {
+        Locale locale = emailTemplateRegistry.get(EmailType.PAYMENT_REMINDER, null).locale();
+        return Map.of(
+            "nome", CompiledTemplate.escapeHtml(locatarioName),
+            "numero_rata", String.valueOf(numeroRata),
+            "indirizzo", CompiledTemplate.escapeHtml(immobileIndirizzo),
+            "importo", formatImporto(importo, locale),
+            "scadenza", formatDate(dataScadenza)
         );
-        
-        try {
-            sendHtmlEmail(userEmail, subject, htmlContent);
-        } catch (Exception e) {
-            logger.error("Errore nell'invio promemoria pagamento a {}: {}", userEmail, e.getMessage());
-        }
     }
     
     /**
      * Conferma l'avvenuto pagamento di una rata.
      */
-    @Async
     public void sendPaymentConfirmationEmail(String userEmail, String locatarioName,
             int numeroRata, Double importo, String immobileIndirizzo) {
         logger.info("Invio conferma pagamento rata a: {}", userEmail);
         
-        String subject = "✅ Conferma Pagamento Rata";
-        String htmlContent = buildHtmlTemplate(
-            "Pagamento Confermato",
-            String.format("""
-            <p>Gentile <strong>%s</strong>,</p>
-            <p>Confermiamo la ricezione del pagamento per la <strong>rata n. %d</strong> 
-            del suo contratto di affitto per l'immobile in <strong>%s</strong>.</p>
-            <div style="background-color: #d4edda; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #28a745;">
-                <p style="margin: 0;"><strong>✓ Importo ricevuto:</strong> € %.2f</p>
-            </div>
-            <p>Grazie per la puntualità nel pagamento.</p>
-            """,
-            locatarioName,
-            numeroRata,
-            immobileIndirizzo,
-            importo)
-        );
-        
-        try {
-            sendHtmlEmail(userEmail, subject, htmlContent);
-        } catch (Exception e) {
-            logger.error("Errore nell'invio conferma pagamento a {}: {}", userEmail, e.getMessage());
-        }
+        EmailTemplate template = template(EmailType.PAYMENT_CONFIRMATION);
+        enqueue(template, userEmail, variables(
+            "nome", locatarioName,
+            "numero_rata", String.valueOf(numeroRata),
+            "indirizzo", immobileIndirizzo,
+            "importo", formatImporto(importo, template.locale())
+        ));
     }
     
     /**
      * Notifica rata scaduta e non pagata.
      */
-    @Async
     public void sendOverduePaymentNotification(String userEmail, String locatarioName,
             int numeroRata, Double importo, LocalDate dataScadenza, String immobileIndirizzo) {
         logger.info("Invio notifica rata scaduta a: {}", userEmail);
         
-        String subject = "❌ Rata Scaduta - Sollecito Pagamento";
-        String htmlContent = buildHtmlTemplate(
-            "Sollecito Pagamento",
-            String.format("""
-            <p>Gentile <strong>%s</strong>,</p>
-            <p>La informiamo che la <strong>rata n. %d</strong> del suo contratto di affitto 
-            per l'immobile in <strong>%s</strong> risulta <strong>scaduta e non pagata</strong>.</p>
-            <div style="background-color: #f8d7da; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #dc3545;">
-                <p style="margin: 0;"><strong>Importo dovuto:</strong> € %.2f</p>
-                <p style="margin: 10px 0 0 0;"><strong>Scadenza:</strong> %s</p>
-            </div>
-            <p>La preghiamo di provvedere al pagamento il prima possibile per evitare ulteriori conseguenze.</p>
-            """,
-            locatarioName,
-            numeroRata,
-            immobileIndirizzo,
-            importo,
-            dataScadenza.format(DATE_FORMATTER))
-        );
-        
-        try {
-            sendHtmlEmail(userEmail, subject, htmlContent);
-        } catch (Exception e) {
-            logger.error("Errore nell'invio sollecito pagamento a {}: {}", userEmail, e.getMessage());
-        }
+        EmailTemplate template = template(EmailType.PAYMENT_OVERDUE);
+        enqueue(template, userEmail, variables(
+            "nome", locatarioName,
+            "numero_rata", String.valueOf(numeroRata),
+            "indirizzo", immobileIndirizzo,
+            "importo", formatImporto(importo, template.locale()),
+            "scadenza", formatDate(dataScadenza)
+        ));
     }
     
     // ============================================================================
@@ -372,121 +449,241 @@ public class MailgunService {
     /**
      * Conferma la registrazione di una richiesta di manutenzione.
      */
-    @Async
     public void sendMaintenanceRequestConfirmation(String userEmail, String locatarioName,
             String immobileIndirizzo, String tipoManutenzione, String descrizione, LocalDate data) {
         logger.info("Invio conferma richiesta manutenzione a: {}", userEmail);
         
-        String subject = "🔧 Richiesta Manutenzione Registrata";
-        String htmlContent = buildHtmlTemplate(
-            "Richiesta Manutenzione Confermata",
-            String.format("""
-            <p>Gentile <strong>%s</strong>,</p>
-            <p>La informiamo che la sua richiesta di manutenzione è stata registrata con successo.</p>
-            <div style="background-color: #e7f3ff; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #007bff;">
-                <p style="margin: 0;"><strong>Immobile:</strong> %s</p>
-                <p style="margin: 10px 0 0 0;"><strong>Tipo:</strong> %s</p>
-                <p style="margin: 10px 0 0 0;"><strong>Data:</strong> %s</p>
-                <p style="margin: 10px 0 0 0;"><strong>Descrizione:</strong> %s</p>
-            </div>
-            <p>Sarà contattato a breve per concordare l'intervento.</p>
-            """,
-            locatarioName,
-            immobileIndirizzo,
-            tipoManutenzione,
-            data.format(DATE_FORMATTER),
-            descrizione != null ? descrizione : "N/A")
-        );
-        
-        try {
-            sendHtmlEmail(userEmail, subject, htmlContent);
-        } catch (Exception e) {
-            logger.error("Errore nell'invio conferma manutenzione a {}: {}", userEmail, e.getMessage());
-        }
+        enqueue(template(EmailType.MAINTENANCE_REQUEST), userEmail, variables(
+            "nome", locatarioName,
+            "indirizzo", immobileIndirizzo,
+            "tipo", tipoManutenzione,
+            "data", formatDate(data),
+            "descrizione", descrizione != null ? descrizione : "N/A"
+        ));
     }
     
     /**
      * Notifica il completamento di un intervento di manutenzione.
      */
-    @Async
     public void sendMaintenanceCompletedNotification(String userEmail, String locatarioName,
             String immobileIndirizzo, String tipoManutenzione, Double importo) {
         logger.info("Invio notifica manutenzione completata a: {}", userEmail);
         
-        String subject = "✅ Manutenzione Completata";
-        String htmlContent = buildHtmlTemplate(
-            "Intervento di Manutenzione Completato",
-            String.format("""
-            <p>Gentile <strong>%s</strong>,</p>
-            <p>La informiamo che l'intervento di manutenzione per l'immobile in <strong>%s</strong> 
-            è stato completato.</p>
-            <div style="background-color: #d4edda; padding: 15px; border-radius: 8px; margin: 20px 0; border-left: 4px solid #28a745;">
-                <p style="margin: 0;"><strong>Tipo intervento:</strong> %s</p>
-                <p style="margin: 10px 0 0 0;"><strong>Costo:</strong> € %.2f</p>
-            </div>
-            <p>Per qualsiasi chiarimento, non esiti a contattarci.</p>
-            """,
-            locatarioName,
-            immobileIndirizzo,
-            tipoManutenzione,
-            importo)
-        );
-        
-        try {
-            sendHtmlEmail(userEmail, subject, htmlContent);
-        } catch (Exception e) {
-            logger.error("Errore nell'invio notifica manutenzione completata a {}: {}", userEmail, e.getMessage());
-        }
+        EmailTemplate template = template(EmailType.MAINTENANCE_COMPLETED);
+        enqueue(template, userEmail, variables(
+            "nome", locatarioName,
+            "indirizzo", immobileIndirizzo,
+            "tipo", tipoManutenzione,
+            "importo", formatImporto(importo, template.locale())
+        ));
     }
     
     // ============================================================================
     // METODI DI UTILITY
     // ============================================================================
     
+    /**
+     * Template di una notifica nella lingua della richiesta corrente (Accept-Language),
+     * o nella lingua predefinita fuori da una richiesta o se la lingua non ha una variante.
+     */
+    private EmailTemplate template(EmailType type) {
+        LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        return emailTemplateRegistry.get(type, localeContext != null ? localeContext.getLocale() : null);
+    }
+    
+    /**
+     * Compone la notifica e la accoda nella outbox, nella transazione del chiamante; con la
+     * modalità digest le notifiche non urgenti vengono invece raccolte per il riepilogo.
+     */
+    private void enqueue(EmailTemplate template, String userEmail, Map<String, String> variables) {
+        if (notificationDigestService.isDigested(template.type())) {
+            notificationDigestService.buffer(template, userEmail, variables);
+            return;
+        }
+        RenderedEmail email = template.render(variables);
+        emailOutboxService.enqueue(template.type(), userEmail, email.subject(), email.html(), true);
+        logger.debug("Notifica {} ({}) accodata per: {}", template.type(), template.locale(), userEmail);
+    }
+    
+    /**
+     * Variabili di un template da coppie nome-valore (i valori null sono ammessi).
+     */
+    private static Map<String, String> variables(String... namesAndValues) {
+        Map<String, String> variables = HashMap.newHashMap(namesAndValues.length / 2);
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            variables.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return variables;
+    }
+    
+    /**
+     * Formatta un importo come nelle email: due decimali con il separatore della lingua del
+     * template, senza simbolo di valuta.
+     */
+    private static String formatImporto(Double importo, Locale locale) {
+        if (importo == null) {
+            return "";
+        }
+        String value = BigDecimal.valueOf(importo).setScale(2, RoundingMode.HALF_UP).toPlainString();
+        char separator = DECIMAL_SEPARATORS.computeIfAbsent(locale,
+                key -> DecimalFormatSymbols.getInstance(key).getDecimalSeparator());
+        return separator == '.' ? value : value.replace('.', separator);
+    }
+    
+    private static String formatDate(LocalDate date) {
+        return date != null ? date.format(DATE_FORMATTER) : "";
+    }
+    
     /**
      * Costruisce l'URL dell'API Mailgun.
      */
     private String getApiUrl() {
-        return "https://api.mailgun.net/v3/" + mailgunProperties.getDomain() + "/messages";
+        return mailgunProperties.getBaseUrl() + "/" + mailgunProperties.getDomain() + "/messages";
+    }
+    
+    /**
+     * Invia una richiesta all'API Mailgun (form urlencoded) entro il limite di richieste contemporanee.
+     */
+    private CompletableFuture<Void> post(String form, String to, String subject) {
+        HttpRequest request;
+        try {
+            validateMailgunProperties();
+            request = HttpRequest.newBuilder(URI.create(getApiUrl()))
+                    .timeout(mailgunProperties.getRequestTimeout())
+                    .header("Authorization", "Basic " + Base64.getEncoder().encodeToString(
+                            ("api:" + mailgunProperties.getApiKey()).getBytes(StandardCharsets.UTF_8)))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        if (!circuitBreaker.tryAcquirePermission()) {
+            logger.warn("Circuit breaker di Mailgun aperto: invio a {} rifiutato", to);
+            return CompletableFuture.failedFuture(new ExternalServiceUnavailableException(SERVICE_NAME,
+                    "Mailgun temporaneamente non disponibile", circuitBreaker.getRetryAfterSeconds()));
+        }
+        try {
+            if (!inFlight.tryAcquire(mailgunProperties.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                circuitBreaker.releasePermission();
+                logger.warn("Limite di {} richieste contemporanee verso Mailgun raggiunto: invio a {} rifiutato",
+                        mailgunProperties.getMaxConcurrentRequests(), to);
+                return CompletableFuture.failedFuture(new ExternalServiceUnavailableException(SERVICE_NAME,
+                        "Limite di richieste contemporanee verso Mailgun raggiunto",
+                        Math.max(1, mailgunProperties.getAcquireTimeout().toSeconds())));
+            }
+        } catch (InterruptedException e) {
+            circuitBreaker.releasePermission();
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        long start = System.nanoTime();
+        try {
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        inFlight.release();
+                        recordOutcome(response, error, System.nanoTime() - start);
+                    })
+                    .thenAccept(response -> handleResponse(response, to, subject))
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            logger.error("Errore durante l'invio email a {}: {}", to, cause.toString());
+                        }
+                    });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            circuitBreaker.releasePermission();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Registra l'esito di una chiamata nel circuit breaker: timeout, errori di connessione,
+     * 429 e 5xx indicano un problema di Mailgun; gli altri 4xx dipendono dalla richiesta.
+     */
+    private void recordOutcome(HttpResponse<String> response, Throwable error, long durationNanos) {
+        if (error != null || isServerError(response.statusCode())) {
+            circuitBreaker.onError(durationNanos);
+        } else {
+            circuitBreaker.onSuccess(durationNanos);
+        }
+    }
+    
+    private static boolean isServerError(int status) {
+        return status >= 500 || status == 429;
+    }
+    
+    /**
+     * Indica se un errore di invio dipende dalla disponibilità di Mailgun (e va ritentato).
+     */
+    static boolean isUnavailable(Throwable error) {
+        return error instanceof ExternalServiceUnavailableException
+                || error instanceof IOException
+                || (error instanceof MailgunApiException apiError && isServerError(apiError.getStatus()));
     }
     
     /**
      * Gestisce la risposta dell'API Mailgun.
      */
     private void handleResponse(HttpResponse<String> response, String to, String subject) {
-        if (response.getStatus() == 200) {
-            logger.info("Email inviata con successo a: {} - Oggetto: {}", to, subject);
-        } else {
-            logger.error("Errore Mailgun - Status: {}, Response: {}", response.getStatus(), response.getBody());
-            throw new RuntimeException("Mailgun API error: " + response.getStatus() + " - " + response.getBody());
+        logger.debug("Risposta Mailgun - Status: {}, Body: {}", response.statusCode(), response.body());
+        if (response.statusCode() != 200) {
+            throw new MailgunApiException(response.statusCode(), response.body());
         }
+        logger.info("Email inviata con successo a: {} - Oggetto: {}", to, subject);
     }
     
     /**
-     * Costruisce un template HTML standard per le email.
-     */
-    private String buildHtmlTemplate(String title, String content) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html lang="it">
-            <head>
-                <meta charset="UTF-8">
-                <meta name="viewport" content="width=device-width, initial-scale=1.0">
-            </head>
-            <body style="font-family: 'Segoe UI', Arial, sans-serif; line-height: 1.6; color: #333; max-width: 600px; margin: 0 auto; padding: 20px;">
-                <div style="background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%); padding: 30px; text-align: center; border-radius: 10px 10px 0 0;">
-                    <h1 style="color: white; margin: 0; font-size: 24px;">🏠 Cooperativa Immobiliare</h1>
-                </div>
-                <div style="background-color: #ffffff; padding: 30px; border: 1px solid #e0e0e0; border-top: none; border-radius: 0 0 10px 10px;">
-                    <h2 style="color: #333; margin-top: 0;">%s</h2>
-                    %s
-                </div>
-                <div style="text-align: center; padding: 20px; color: #666; font-size: 12px;">
-                    <p style="margin: 0;">Questa è un'email automatica, si prega di non rispondere.</p>
-                    <p style="margin: 10px 0 0 0;">© 2025 Cooperativa Immobiliare - Tutti i diritti riservati</p>
-                </div>
-            </body>
-            </html>
-            """, title, content);
+     * Attende un invio e ne rilancia l'errore come RuntimeException.
+     */
+    private static void await(CompletableFuture<Void> future, String message) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException(message + cause.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * Aggiunge un campo al corpo form urlencoded (i campi ripetuti, es: "to", sono ammessi).
+     */
+    private static void field(StringBuilder form, String name, String value) {
+        if (!form.isEmpty()) {
+            form.append('&');
+        }
+        form.append(URLEncoder.encode(name, StandardCharsets.UTF_8))
+                .append('=')
+                .append(value != null ? URLEncoder.encode(value, StandardCharsets.UTF_8) : "");
+    }
+    
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "mailgun-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    /**
+     * Risposta di errore dell'API Mailgun.
+     */
+    static final class MailgunApiException extends RuntimeException {
+        
+        private final int status;
+        
+        MailgunApiException(int status, String body) {
+            super("Mailgun API error: " + status + " - " + body);
+            this.status = status;
+        }
+        
+        int getStatus() {
+            return status;
+        }
     }
 }
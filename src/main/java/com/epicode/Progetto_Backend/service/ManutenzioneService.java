@@ -1,21 +1,31 @@
 package com.epicode.Progetto_Backend.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.criteria.Predicate;
+
 import com.epicode.Progetto_Backend.dto.ManutenzioneRequestDTO;
 import com.epicode.Progetto_Backend.entity.Immobile;
 import com.epicode.Progetto_Backend.entity.Locatario;
 import com.epicode.Progetto_Backend.entity.Manutenzione;
 import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
+import com.epicode.Progetto_Backend.repository.FetchPlanRepository;
 import com.epicode.Progetto_Backend.repository.ImmobileRepository;
 import com.epicode.Progetto_Backend.repository.LocatarioRepository;
 import com.epicode.Progetto_Backend.repository.ManutenzioneRepository;
@@ -25,13 +35,13 @@ import com.epicode.Progetto_Backend.repository.ManutenzioneRepository;
  * 
  * Gestisce tutte le operazioni CRUD sulle manutenzioni:
  * - Recupero manutenzioni (lista, per ID, per locatario, per immobile)
- * - Creazione manutenzioni con invio email di conferma (asincrono)
+ * - Creazione manutenzioni con invio email di conferma (accodata nella outbox)
  * - Aggiornamento manutenzioni
  * - Eliminazione manutenzioni
  * - Query personalizzate (per anno, per importo, statistiche)
  * 
  * Caratteristiche:
- * - Alla creazione, invia email di conferma richiesta al locatario (asincrono)
+ * - Alla creazione, invia email di conferma richiesta al locatario (accodata nella outbox)
  * - Fornisce metodi per recuperare manutenzioni tramite email utente (per LOCATARIO)
  * - Supporta statistiche aggregate (totale spese per anno e città)
  * 
@@ -54,6 +64,9 @@ public class ManutenzioneService {
     @Autowired
     private ManutenzioneRepository manutenzioneRepository;
     
+    @Autowired
+    private FetchPlanRepository fetchPlanRepository;
+    
     @Autowired
     private ImmobileRepository immobileRepository;
     
@@ -80,11 +93,79 @@ public class ManutenzioneService {
                 });
     }
     
+    /**
+     * Recupera una manutenzione per ID caricando solo le relazioni indicate (query GraphQL per ID).
+     * 
+     * Le relazioni non indicate restano proxy non inizializzati: con fetchPaths vuoto
+     * viene eseguita una sola SELECT, senza JOIN verso le entità collegate.
+     * 
+     * @param id ID della manutenzione
+     * @param fetchPaths Relazioni da caricare (es: "immobile", "locatario.user")
+     * @return Manutenzione trovata
+     * @throws EntityNotFoundException Se la manutenzione non esiste
+     */
+    public Manutenzione getManutenzioneById(Long id, Collection<String> fetchPaths) {
+        logger.debug("Recupero manutenzione con ID: {}, relazioni: {}", id, fetchPaths);
+        return fetchPlanRepository.findById(Manutenzione.class, id, fetchPaths)
+                .orElseThrow(() -> {
+                    logger.warn("Manutenzione non trovata con ID: {}", id);
+                    return new EntityNotFoundException("Manutenzione", id);
+                });
+    }
+    
     public List<Manutenzione> getManutenzioniByLocatarioId(Long locatarioId) {
         logger.debug("Recupero manutenzioni per locatario ID: {}", locatarioId);
         return manutenzioneRepository.findByLocatarioId(locatarioId);
     }
     
+    /**
+     * Recupera le manutenzioni di più locatari con una sola query (DataLoader GraphQL).
+     * 
+     * @param locatarioIds ID dei locatari
+     * @return Mappa ID locatario → manutenzioni (assente se nessuna manutenzione)
+     */
+    public Map<Long, List<Manutenzione>> getManutenzioniByLocatarioIds(Collection<Long> locatarioIds) {
+        logger.debug("Recupero manutenzioni per {} locatari", locatarioIds.size());
+        return manutenzioneRepository.findByLocatarioIdIn(locatarioIds).stream()
+                .collect(Collectors.groupingBy(m -> m.getLocatario().getId()));
+    }
+    
+    /**
+     * Recupera le manutenzioni di più immobili con una sola query (DataLoader GraphQL).
+     * 
+     * @param immobileIds ID degli immobili
+     * @return Mappa ID immobile → manutenzioni (assente se nessuna manutenzione)
+     */
+    public Map<Long, List<Manutenzione>> getManutenzioniByImmobileIds(Collection<Long> immobileIds) {
+        logger.debug("Recupero manutenzioni per {} immobili", immobileIds.size());
+        return manutenzioneRepository.findByImmobileIdIn(immobileIds).stream()
+                .collect(Collectors.groupingBy(m -> m.getImmobile().getId()));
+    }
+    
+    /**
+     * Recupera una pagina di manutenzioni con paginazione keyset (Connection GraphQL).
+     * 
+     * @param immobileId Filtro opzionale per immobile
+     * @param locatarioId Filtro opzionale per locatario
+     * @param position Posizione da cui proseguire (ScrollPosition.keyset() per la prima pagina)
+     * @param limit Numero massimo di elementi
+     * @return Finestra di manutenzioni con informazioni sulla pagina successiva
+     */
+    public Window<Manutenzione> scrollManutenzioni(Long immobileId, Long locatarioId, ScrollPosition position, int limit) {
+        logger.debug("Scroll manutenzioni. Immobile: {}, Locatario: {}, Limit: {}", immobileId, locatarioId, limit);
+        Specification<Manutenzione> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (immobileId != null) {
+                predicates.add(cb.equal(root.get("immobile").get("id"), immobileId));
+            }
+            if (locatarioId != null) {
+                predicates.add(cb.equal(root.get("locatario").get("id"), locatarioId));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+        return manutenzioneRepository.findBy(spec, q -> q.sortBy(Sort.by("id")).limit(limit).scroll(position));
+    }
+    
     @SuppressWarnings("null")
     @Transactional
     public Manutenzione createManutenzione(ManutenzioneRequestDTO request) {
@@ -115,7 +196,7 @@ public class ManutenzioneService {
         Manutenzione saved = manutenzioneRepository.save(manutenzione);
         logger.info("Manutenzione creata con successo. ID: {}", saved.getId());
         
-        // Invia email di conferma richiesta manutenzione (asincrono)
+        // Invia email di conferma richiesta manutenzione (accodata nella outbox)
         String locatarioName = locatario.getNome() + " " + locatario.getCognome();
         String locatarioEmail = locatario.getUser().getEmail();
         String immobileIndirizzo = immobile.getIndirizzo();
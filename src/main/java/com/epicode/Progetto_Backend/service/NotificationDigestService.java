@@ -0,0 +1,234 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.epicode.Progetto_Backend.config.EmailDigestProperties;
+import com.epicode.Progetto_Backend.entity.DigestNotification;
+import com.epicode.Progetto_Backend.entity.EmailType;
+import com.epicode.Progetto_Backend.repository.DigestNotificationRepository;
+import com.epicode.Progetto_Backend.template.DigestTemplate;
+import com.epicode.Progetto_Backend.template.EmailTemplate;
+import com.epicode.Progetto_Backend.template.EmailTemplateRegistry;
+import com.epicode.Progetto_Backend.template.RenderedEmail;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * NotificationDigestService - Riepilogo delle notifiche per destinatario (modalità digest).
+ *
+ * Un locatario che in un giorno riceve cinque conferme di pagamento e due conferme di
+ * manutenzione riceverebbe sette email. Con email.digest.enabled le notifiche non urgenti
+ * vengono invece salvate nella tabella notification_digest (nella transazione del chiamante,
+ * come la outbox) e a ogni controllo (email.digest.poll-interval):
+ * 1. Vengono scelti i destinatari la cui notifica più vecchia supera email.digest.interval
+ * 2. Per ogni destinatario, in una transazione, le notifiche vengono bloccate (FOR UPDATE
+ *    SKIP LOCKED), composte in una sola email di riepilogo accodata nella outbox ed eliminate
+ * Una sola notifica viene inviata così com'è, con il proprio oggetto.
+ *
+ * I tipi di email.digest.urgent-types (es: solleciti, promemoria di pagamento) e le email
+ * GENERIC non passano dal riepilogo.
+ *
+ * Espone su Micrometer notifiche raccolte, riepiloghi inviati e notifiche in attesa
+ * (email.digest.*): il rapporto tra notifiche raccolte e riepiloghi è la riduzione delle email.
+ *
+ * @see com.epicode.Progetto_Backend.entity.DigestNotification
+ * @see com.epicode.Progetto_Backend.config.EmailDigestProperties
+ * @see com.epicode.Progetto_Backend.template.DigestTemplate
+ */
+@Service
+public class NotificationDigestService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDigestService.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final TypeReference<Map<String, String>> VARIABLES = new TypeReference<>() {
+    };
+
+    private final DigestNotificationRepository digestNotificationRepository;
+
+    private final EmailOutboxService emailOutboxService;
+
+    private final EmailTemplateRegistry emailTemplateRegistry;
+
+    private final EmailDigestProperties properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LongAdder buffered = new LongAdder();
+
+    private final LongAdder digests = new LongAdder();
+
+    private final LongAdder digestedNotifications = new LongAdder();
+
+    public NotificationDigestService(DigestNotificationRepository digestNotificationRepository,
+                                     EmailOutboxService emailOutboxService,
+                                     EmailTemplateRegistry emailTemplateRegistry,
+                                     EmailDigestProperties properties,
+                                     PlatformTransactionManager transactionManager) {
+        this.digestNotificationRepository = digestNotificationRepository;
+        this.emailOutboxService = emailOutboxService;
+        this.emailTemplateRegistry = emailTemplateRegistry;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Indica se una notifica di questo tipo va raccolta nel riepilogo.
+     *
+     * @param type Tipo di notifica
+     * @return false se la modalità digest è disabilitata o il tipo è urgente
+     */
+    public boolean isDigested(EmailType type) {
+        return properties.isEnabled()
+                && type != EmailType.GENERIC
+                && type != EmailType.DIGEST
+                && !properties.getUrgentTypes().contains(type);
+    }
+
+    /**
+     * Raccoglie una notifica per il prossimo riepilogo del destinatario.
+     *
+     * @param template Template della notifica (tipo e lingua)
+     * @param recipient Indirizzo del destinatario
+     * @param variables Valori delle variabili del template, già formattati
+     * @return Notifica salvata
+     */
+    @Transactional
+    public DigestNotification buffer(EmailTemplate template, String recipient, Map<String, String> variables) {
+        DigestNotification notification;
+        try {
+            notification = digestNotificationRepository.save(DigestNotification.builder()
+                    .recipient(recipient)
+                    .type(template.type())
+                    .locale(template.locale().toLanguageTag())
+                    .variables(objectMapper.writeValueAsString(variables))
+                    .createdAt(Instant.now())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Variabili della notifica non serializzabili", e);
+        }
+        buffered.increment();
+        logger.debug("Notifica {} per {} raccolta per il riepilogo", template.type(), recipient);
+        return notification;
+    }
+
+    /**
+     * Compone e accoda i riepiloghi dovuti, un lotto di destinatari dopo l'altro.
+     */
+    @Scheduled(fixedDelayString = "${email.digest.poll-interval:1m}",
+            initialDelayString = "${email.digest.poll-interval:1m}")
+    public void flushDue() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<String> recipients;
+        int flushed;
+        do {
+            recipients = digestNotificationRepository.findDueRecipients(
+                    Instant.now().minus(properties.getInterval()), batchSize);
+            flushed = 0;
+            for (String recipient : recipients) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> flush(recipient)))) {
+                    flushed++;
+                }
+            }
+            // Destinatari bloccati da un altro nodo: verranno ripresi al prossimo controllo
+        } while (recipients.size() == batchSize && flushed > 0 && !Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Compone il riepilogo di un destinatario, lo accoda nella outbox ed elimina le notifiche
+     * raccolte. Deve essere eseguito in una transazione.
+     *
+     * @param recipient Indirizzo del destinatario
+     * @return false se le notifiche sono bloccate da un altro nodo
+     */
+    boolean flush(String recipient) {
+        List<DigestNotification> notifications = digestNotificationRepository.lockByRecipient(recipient);
+        if (notifications.isEmpty()) {
+            // Riepilogo già in composizione su un altro nodo
+            return false;
+        }
+        List<DigestTemplate.Section> sections = new ArrayList<>(notifications.size());
+        for (DigestNotification notification : notifications) {
+            DigestTemplate.Section section = section(notification);
+            if (section != null) {
+                sections.add(section);
+            }
+        }
+        if (sections.size() == 1) {
+            DigestTemplate.Section only = sections.get(0);
+            RenderedEmail email = only.template().render(only.variables());
+            emailOutboxService.enqueue(only.template().type(), recipient, email.subject(), email.html(), true);
+        } else if (!sections.isEmpty()) {
+            Locale locale = sections.get(sections.size() - 1).template().locale();
+            RenderedEmail email = emailTemplateRegistry.getDigest(locale).render(sections);
+            emailOutboxService.enqueue(EmailType.DIGEST, recipient, email.subject(), email.html(), true);
+            logger.info("Riepilogo di {} notifiche accodato per {}", sections.size(), recipient);
+        }
+        digestNotificationRepository.deleteAll(notifications);
+        if (!sections.isEmpty()) {
+            digests.increment();
+            digestedNotifications.add(sections.size());
+        }
+        return true;
+    }
+
+    /**
+     * Template e variabili di una notifica raccolta; null (notifica scartata) se le variabili
+     * non sono leggibili o non corrispondono più al template.
+     */
+    private DigestTemplate.Section section(DigestNotification notification) {
+        try {
+            EmailTemplate template = emailTemplateRegistry.get(notification.getType(),
+                    Locale.forLanguageTag(notification.getLocale()));
+            Map<String, String> variables = objectMapper.readValue(notification.getVariables(), VARIABLES);
+            if (!variables.keySet().containsAll(template.subject().variables())
+                    || !variables.keySet().containsAll(template.body().variables())) {
+                throw new IllegalArgumentException("Variabili diverse da quelle del template " + template.body().variables());
+            }
+            return new DigestTemplate.Section(template, variables);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            logger.error("Notifica {} (ID: {}) per {} scartata dal riepilogo: {}",
+                    notification.getType(), notification.getId(), notification.getRecipient(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("email.digest.buffered", buffered, LongAdder::sum)
+                .description("Notifiche raccolte per il riepilogo invece di essere inviate subito")
+                .register(registry);
+        FunctionCounter.builder("email.digest.sent", digests, LongAdder::sum)
+                .description("Riepiloghi accodati nella outbox")
+                .register(registry);
+        FunctionCounter.builder("email.digest.notifications", digestedNotifications, LongAdder::sum)
+                .description("Notifiche incluse nei riepiloghi")
+                .register(registry);
+        Gauge.builder("email.digest.pending", digestNotificationRepository, DigestNotificationRepository::count)
+                .description("Notifiche in attesa del riepilogo")
+                .register(registry);
+    }
+}
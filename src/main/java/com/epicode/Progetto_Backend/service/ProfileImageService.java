@@ -0,0 +1,490 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.epicode.Progetto_Backend.config.CloudinaryProperties;
+import com.epicode.Progetto_Backend.config.ProfileImageProperties;
+import com.epicode.Progetto_Backend.dto.ProfileImageJob;
+import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
+import com.epicode.Progetto_Backend.exception.ServiceOverloadedException;
+import com.epicode.Progetto_Backend.exception.ValidationException;
+import com.epicode.Progetto_Backend.util.StagedImage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * ProfileImageService - Elaborazione in background delle immagini profilo.
+ *
+ * L'upload dell'immagine profilo non attende più Cloudinary: la richiesta copia il file su
+ * disco (StagedImage: formato, dimensione e SHA-256 verificati), crea un'elaborazione e
+ * risponde subito 202 Accepted con il suo ID. In background:
+ * 1. Sul pool di ridimensionamento (profile-image.pool-size thread, di default uno per core,
+ *    coda di profile-image.queue-capacity) l'immagine viene decodificata, ritagliata al
+ *    quadrato centrale e ridotta ai lati di profile-image.sizes (es: 64, 256 e 1024 pixel)
+ * 2. Le varianti vengono caricate su Cloudinary in parallelo (CloudinaryService.uploadImageAsync,
+ *    con pool, timeout e circuit breaker di Cloudinary) senza occupare il pool di ridimensionamento
+ * 3. Su un thread dedicato (profile-image-update, non sui thread di upload di Cloudinary)
+ *    l'utente viene aggiornato: profileImageVariants con tutte le varianti e profileImage con
+ *    la più grande, così i client non scaricano più l'originale da diversi MB. Se nel frattempo
+ *    è terminata l'elaborazione di un upload successivo le varianti vengono scartate (SUPERSEDED):
+ *    l'immagine più vecchia non sovrascrive mai la più recente
+ * Il client segue lo stato con GET /api/upload/profile-image/{id}.
+ *
+ * Memoria e CPU:
+ * - Le immagini oltre profile-image.max-pixels vengono rifiutate leggendo solo l'intestazione
+ * - Le immagini molto più grandi della variante maggiore vengono decodificate sottocampionate
+ *   (un pixel ogni N), quindi un originale da 24 megapixel non viene mai espanso per intero
+ * - Ogni variante viene ridotta dalla precedente, dimezzando il lato a ogni passo
+ *   (interpolazione bilineare) per una qualità vicina a quella bicubica con meno calcoli
+ * Con la coda piena l'upload viene rifiutato subito con ServiceOverloadedException (503).
+ *
+ * Le varianti hanno un public_id deterministico (utente, SHA-256 e lato): ricaricare la stessa
+ * immagine sovrascrive le stesse varianti invece di crearne di nuove.
+ *
+ * Lo stato delle elaborazioni è in memoria sul nodo che ha ricevuto l'upload (il file
+ * temporaneo è locale) e viene eliminato dopo profile-image.job-retention.
+ *
+ * Espone su Micrometer elaborazioni attive, in coda, rifiutate, completate, scartate e fallite
+ * e la durata complessiva (profile.image.*).
+ *
+ * @see com.epicode.Progetto_Backend.controller.UploadController
+ * @see com.epicode.Progetto_Backend.config.ProfileImageProperties
+ */
+@Service
+public class ProfileImageService implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileImageService.class);
+
+    /** Secondi suggeriti al client quando la coda di ridimensionamento è piena */
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final CloudinaryService cloudinaryService;
+
+    private final UserService userService;
+
+    private final CloudinaryProperties cloudinaryProperties;
+
+    private final ProfileImageProperties properties;
+
+    private final ThreadPoolExecutor executor;
+
+    /** Aggiornamento degli utenti a upload terminati: transazioni brevi, un thread è sufficiente */
+    private final ExecutorService updateExecutor =
+            Executors.newSingleThreadExecutor(threadFactory("profile-image-update-"));
+
+    private final Map<String, TrackedJob> jobs = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder superseded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private Timer duration;
+
+    public ProfileImageService(CloudinaryService cloudinaryService,
+                               UserService userService,
+                               CloudinaryProperties cloudinaryProperties,
+                               ProfileImageProperties properties) {
+        this.cloudinaryService = cloudinaryService;
+        this.userService = userService;
+        this.cloudinaryProperties = cloudinaryProperties;
+        this.properties = properties;
+        int poolSize = properties.getPoolSize() > 0
+                ? properties.getPoolSize()
+                : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                threadFactory("profile-image-"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Copia l'immagine su disco e ne avvia l'elaborazione in background.
+     *
+     * @param email Email dell'utente di cui aggiornare l'immagine profilo
+     * @param file Immagine caricata
+     * @return Elaborazione in stato PENDING
+     * @throws IOException se la copia del file fallisce
+     * @throws ValidationException se il formato non è supportato o il file è troppo grande
+     * @throws ServiceOverloadedException se la coda di ridimensionamento è piena
+     */
+    public ProfileImageJob submit(String email, MultipartFile file) throws IOException {
+        User user = userService.getUserByEmail(email);
+        StagedImage image;
+        try (InputStream in = file.getInputStream()) {
+            image = StagedImage.stage(in, cloudinaryProperties.getMaxFileSize().toBytes());
+        }
+        if (!ImageIO.getImageReadersByMIMEType(image.getContentType()).hasNext()) {
+            image.close();
+            throw new ValidationException("Formato " + image.getContentType()
+                    + " non supportato per le immagini profilo (ammessi JPEG, PNG e GIF)");
+        }
+        ProfileImageJob pending = ProfileImageJob.pending(UUID.randomUUID().toString());
+        TrackedJob job = new TrackedJob(email, pending);
+        jobs.put(pending.id(), job);
+        try {
+            executor.execute(new ProcessingTask(job, image, user.getId()));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(pending.id());
+            image.close();
+            rejected.increment();
+            logger.warn("Pool di ridimensionamento delle immagini saturo: upload rifiutato");
+            throw new ServiceOverloadedException(
+                    "Troppe immagini in elaborazione. Riprovare tra qualche secondo.", RETRY_AFTER_SECONDS);
+        }
+        logger.info("Elaborazione immagine profilo {} avviata per {} ({}, {} byte)",
+                pending.id(), email, image.getContentType(), image.getSize());
+        return pending;
+    }
+
+    /**
+     * Restituisce lo stato di un'elaborazione dell'utente.
+     *
+     * @param id ID dell'elaborazione
+     * @param email Email dell'utente che ha caricato l'immagine
+     * @return Stato dell'elaborazione
+     * @throws EntityNotFoundException se l'elaborazione non esiste, è scaduta o è di un altro utente
+     */
+    public ProfileImageJob getJob(String id, String email) {
+        TrackedJob job = jobs.get(id);
+        if (job == null || !job.owner.equals(email)) {
+            throw new EntityNotFoundException("Elaborazione immagine", id);
+        }
+        return job.state;
+    }
+
+    /**
+     * Elimina lo stato delle elaborazioni terminate da più di profile-image.job-retention.
+     */
+    @Scheduled(fixedDelayString = "${profile-image.job-retention:1h}")
+    public void purgeJobs() {
+        Instant limit = Instant.now().minus(properties.getJobRetention());
+        jobs.values().removeIf(job -> job.state.isDone() && job.state.completedAt().isBefore(limit));
+    }
+
+    /**
+     * Ridimensiona l'immagine (sul pool di ridimensionamento) e avvia l'upload delle varianti.
+     */
+    void process(TrackedJob job, StagedImage image, Long userId) {
+        long start = System.nanoTime();
+        job.state = job.state.processing();
+        Map<Integer, Path> variants;
+        try (image) {
+            variants = resize(image.getPath());
+        } catch (IOException | RuntimeException e) {
+            fail(job, "Immagine non elaborabile: " + e.getMessage(), e, start);
+            return;
+        }
+        String prefix = userId + "_" + image.getSha256().substring(0, 12) + "_";
+        Map<Integer, CompletableFuture<String>> uploads = new TreeMap<>();
+        variants.forEach((size, path) ->
+                uploads.put(size, cloudinaryService.uploadImageAsync(path.toFile(), prefix + size)));
+        // La transazione sull'utente non deve occupare i thread di upload di Cloudinary
+        CompletableFuture.allOf(uploads.values().toArray(CompletableFuture[]::new))
+                .whenCompleteAsync((ignored, error) -> {
+                    variants.values().forEach(ProfileImageService::delete);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        fail(job, "Upload delle varianti non riuscito: " + cause.getMessage(), cause, start);
+                        return;
+                    }
+                    Map<Integer, String> urls = new TreeMap<>();
+                    uploads.forEach((size, upload) -> urls.put(size, upload.join()));
+                    boolean applied;
+                    try {
+                        applied = userService.updateProfileImageVariants(userId, urls, job.state.createdAt());
+                    } catch (RuntimeException e) {
+                        fail(job, "Aggiornamento dell'utente non riuscito: " + e.getMessage(), e, start);
+                        return;
+                    }
+                    record(start);
+                    if (!applied) {
+                        job.state = job.state.superseded();
+                        superseded.increment();
+                        logger.info("Elaborazione immagine profilo {} scartata: upload più recente già applicato", job.state.id());
+                        return;
+                    }
+                    job.state = job.state.completed(urls);
+                    completed.increment();
+                    logger.info("Elaborazione immagine profilo {} completata: {} varianti", job.state.id(), urls.size());
+                }, updateExecutor);
+    }
+
+    /**
+     * Genera le varianti quadrate dell'immagine, dalla più grande alla più piccola.
+     *
+     * @param source Immagine originale
+     * @return File temporanei delle varianti per lato in pixel
+     * @throws IOException se l'immagine non è decodificabile o supera profile-image.max-pixels
+     */
+    Map<Integer, Path> resize(Path source) throws IOException {
+        List<Integer> sizes = sizes();
+        BufferedImage original = decode(source, sizes.get(0));
+        boolean alpha = original.getColorModel().hasAlpha();
+        int side = Math.min(original.getWidth(), original.getHeight());
+        BufferedImage current = original.getSubimage(
+                (original.getWidth() - side) / 2, (original.getHeight() - side) / 2, side, side);
+        Map<Integer, Path> variants = new TreeMap<>();
+        try {
+            for (int size : sizes) {
+                // Ogni variante viene ridotta dalla precedente; le immagini piccole non vengono ingrandite
+                current = scale(current, Math.min(size, current.getWidth()), alpha);
+                variants.put(size, encode(current, alpha));
+            }
+        } catch (IOException | RuntimeException e) {
+            variants.values().forEach(ProfileImageService::delete);
+            throw e;
+        }
+        return variants;
+    }
+
+    /**
+     * Decodifica l'immagine, sottocampionata se il lato corto supera di almeno due volte
+     * la variante più grande.
+     */
+    private BufferedImage decode(Path path, int largest) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("formato non riconosciuto");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > properties.getMaxPixels()) {
+                    throw new IOException("immagine di " + width + "x" + height + " pixel, oltre il limite di "
+                            + properties.getMaxPixels());
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(width, height) / largest);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Riduce un'immagine quadrata al lato indicato, dimezzandola finché è più del doppio.
+     */
+    static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        BufferedImage current = source;
+        int side = source.getWidth();
+        while (side / 2 > size) {
+            side /= 2;
+            current = draw(current, side, alpha);
+        }
+        return draw(current, size, alpha);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int size, boolean alpha) {
+        BufferedImage target = new BufferedImage(size, size, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Salva una variante in un file temporaneo: PNG se ha trasparenza, altrimenti JPEG.
+     */
+    private Path encode(BufferedImage image, boolean alpha) throws IOException {
+        Path path = Files.createTempFile("profile-image-", alpha ? ".png" : ".jpg");
+        try {
+            if (alpha) {
+                ImageIO.write(image, "png", path.toFile());
+                return path;
+            }
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(properties.getJpegQuality());
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(path.toFile())) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            return path;
+        } catch (IOException | RuntimeException e) {
+            delete(path);
+            throw e;
+        }
+    }
+
+    /**
+     * Lati delle varianti validi, dal più grande al più piccolo.
+     */
+    private List<Integer> sizes() {
+        List<Integer> sizes = new ArrayList<>(properties.getSizes().stream()
+                .filter(size -> size != null && size > 0)
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .toList());
+        if (sizes.isEmpty()) {
+            throw new IllegalStateException("profile-image.sizes non contiene lati validi");
+        }
+        return sizes;
+    }
+
+    private void fail(TrackedJob job, String reason, Throwable cause, long start) {
+        job.state = job.state.failed(reason);
+        failed.increment();
+        record(start);
+        logger.warn("Elaborazione immagine profilo {} fallita: {}", job.state.id(), reason, cause);
+    }
+
+    private void record(long start) {
+        if (duration != null) {
+            duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("File temporaneo {} non eliminato: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("profile.image.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Immagini profilo in ridimensionamento")
+                .register(registry);
+        Gauge.builder("profile.image.queued", executor, e -> e.getQueue().size())
+                .description("Immagini profilo in attesa del ridimensionamento")
+                .register(registry);
+        FunctionCounter.builder("profile.image.rejected", rejected, LongAdder::sum)
+                .description("Upload rifiutati per coda di ridimensionamento piena")
+                .register(registry);
+        FunctionCounter.builder("profile.image.completed", completed, LongAdder::sum)
+                .description("Elaborazioni completate (varianti caricate e utente aggiornato)")
+                .register(registry);
+        FunctionCounter.builder("profile.image.superseded", superseded, LongAdder::sum)
+                .description("Elaborazioni scartate perché un upload più recente era già stato applicato")
+                .register(registry);
+        FunctionCounter.builder("profile.image.failed", failed, LongAdder::sum)
+                .description("Elaborazioni fallite")
+                .register(registry);
+        duration = Timer.builder("profile.image.duration")
+                .description("Durata delle elaborazioni, dalla presa in carico all'aggiornamento dell'utente")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof ProcessingTask processing) {
+                processing.image.close();
+            }
+        }
+        updateExecutor.shutdownNow();
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Elaborazione con l'utente che l'ha avviata; lo stato viene sostituito a ogni passaggio.
+     */
+    static final class TrackedJob {
+
+        final String owner;
+
+        volatile ProfileImageJob state;
+
+        TrackedJob(String owner, ProfileImageJob state) {
+            this.owner = owner;
+            this.state = state;
+        }
+    }
+
+    /**
+     * Elaborazione in coda sul pool: alla chiusura del servizio il file temporaneo viene eliminato.
+     */
+    private final class ProcessingTask implements Runnable {
+
+        private final TrackedJob job;
+
+        private final StagedImage image;
+
+        private final Long userId;
+
+        ProcessingTask(TrackedJob job, StagedImage image, Long userId) {
+            this.job = job;
+            this.image = image;
+            this.userId = userId;
+        }
+
+        @Override
+        public void run() {
+            process(job, image, userId);
+        }
+    }
+}
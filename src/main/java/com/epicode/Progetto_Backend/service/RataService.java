@@ -1,20 +1,36 @@
 package com.epicode.Progetto_Backend.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.criteria.Predicate;
+
+import com.epicode.Progetto_Backend.dto.BatchSendReport;
+import com.epicode.Progetto_Backend.dto.RataReminderDTO;
 import com.epicode.Progetto_Backend.dto.RataRequestDTO;
 import com.epicode.Progetto_Backend.entity.Contratto;
 import com.epicode.Progetto_Backend.entity.Rata;
 import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
 import com.epicode.Progetto_Backend.repository.ContrattoRepository;
+import com.epicode.Progetto_Backend.repository.FetchPlanRepository;
 import com.epicode.Progetto_Backend.repository.RataRepository;
+import com.epicode.Progetto_Backend.template.RenderedEmail;
 
 /**
  * RataService - Servizio per la gestione delle rate di affitto.
@@ -28,7 +44,7 @@ import com.epicode.Progetto_Backend.repository.RataRepository;
  * 
  * Caratteristiche:
  * - Le rate vengono generalmente generate automaticamente alla creazione di un contratto
- * - L'aggiornamento dello stato pagamento può inviare email di conferma (asincrono)
+ * - L'aggiornamento dello stato pagamento può inviare email di conferma (accodata nella outbox)
  * - Fornisce metodi per recuperare rate tramite email utente (per LOCATARIO)
  * 
  * Utilizzato da:
@@ -47,12 +63,18 @@ public class RataService {
     @Autowired
     private RataRepository rataRepository;
     
+    @Autowired
+    private FetchPlanRepository fetchPlanRepository;
+    
     @Autowired
     private ContrattoRepository contrattoRepository;
     
     @Autowired
     private MailgunService mailgunService;
     
+    @Autowired
+    private MailgunBatchService mailgunBatchService;
+    
     public List<Rata> getAllRate() {
         logger.debug("Recupero di tutte le rate");
         List<Rata> rate = rataRepository.findAll();
@@ -70,11 +92,67 @@ public class RataService {
                 });
     }
     
+    /**
+     * Recupera una rata per ID caricando solo le relazioni indicate (query GraphQL per ID).
+     * 
+     * Le relazioni non indicate restano proxy non inizializzati: con fetchPaths vuoto
+     * viene eseguita una sola SELECT, senza JOIN verso le entità collegate.
+     * 
+     * @param id ID della rata
+     * @param fetchPaths Relazioni da caricare (es: "contratto", "contratto.immobile")
+     * @return Rata trovata
+     * @throws EntityNotFoundException Se la rata non esiste
+     */
+    public Rata getRataById(Long id, Collection<String> fetchPaths) {
+        logger.debug("Recupero rata con ID: {}, relazioni: {}", id, fetchPaths);
+        return fetchPlanRepository.findById(Rata.class, id, fetchPaths)
+                .orElseThrow(() -> {
+                    logger.warn("Rata non trovata con ID: {}", id);
+                    return new EntityNotFoundException("Rata", id);
+                });
+    }
+    
     public List<Rata> getRateByContrattoId(Long contrattoId) {
         logger.debug("Recupero rate per contratto ID: {}", contrattoId);
         return rataRepository.findByContrattoId(contrattoId);
     }
     
+    /**
+     * Recupera le rate di più contratti con una sola query (DataLoader GraphQL).
+     * 
+     * @param contrattoIds ID dei contratti
+     * @return Mappa ID contratto → rate ordinate per numero (assente se nessuna rata)
+     */
+    public Map<Long, List<Rata>> getRateByContrattoIds(Collection<Long> contrattoIds) {
+        logger.debug("Recupero rate per {} contratti", contrattoIds.size());
+        return rataRepository.findByContrattoIdIn(contrattoIds).stream()
+                .collect(Collectors.groupingBy(r -> r.getContratto().getId()));
+    }
+    
+    /**
+     * Recupera una pagina di rate con paginazione keyset (Connection GraphQL).
+     * 
+     * @param contrattoId Filtro opzionale per contratto
+     * @param pagata Filtro opzionale per stato di pagamento
+     * @param position Posizione da cui proseguire (ScrollPosition.keyset() per la prima pagina)
+     * @param limit Numero massimo di elementi
+     * @return Finestra di rate con informazioni sulla pagina successiva
+     */
+    public Window<Rata> scrollRate(Long contrattoId, Boolean pagata, ScrollPosition position, int limit) {
+        logger.debug("Scroll rate. Contratto: {}, Pagata: {}, Limit: {}", contrattoId, pagata, limit);
+        Specification<Rata> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (contrattoId != null) {
+                predicates.add(cb.equal(root.get("contratto").get("id"), contrattoId));
+            }
+            if (pagata != null) {
+                predicates.add(cb.equal(root.get("pagata"), pagata ? 'S' : 'N'));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+        return rataRepository.findBy(spec, q -> q.sortBy(Sort.by("id")).limit(limit).scroll(position));
+    }
+    
     @Transactional
     public Rata updateRataPagata(Long id, Character pagata) {
         logger.info("Aggiornamento stato pagamento rata ID: {} a {}", id, pagata);
@@ -96,7 +174,7 @@ public class RataService {
      * Invia email di conferma pagamento per una rata.
      * 
      * Viene chiamato automaticamente quando una rata viene marcata come pagata
-     * (passaggio da 'N' a 'S'). L'invio è asincrono e non blocca l'operazione.
+     * (passaggio da 'N' a 'S'). L'email viene accodata nella outbox e non blocca l'operazione.
      * 
      * @param rata Rata per cui inviare la conferma
      */
@@ -132,6 +210,44 @@ public class RataService {
         return rataRepository.findRateScaduteNonPagate(LocalDate.now());
     }
 
+    /**
+     * Invia il promemoria di pagamento per tutte le rate non pagate in scadenza nell'intervallo.
+     * 
+     * Le rate vengono inviate a lotti (una chiamata Mailgun ogni mailgun.batch-size destinatari):
+     * il template viene composto una sola volta e i dati di ogni locatario viaggiano come
+     * recipient-variables.
+     * 
+     * Il metodo non è transazionale: le rate vengono lette a blocchi di mailgun.batch-size con
+     * una query keyset (RataRepository.findReminders), ognuno nella breve transazione del
+     * repository, così nessuna connessione al database resta occupata durante le chiamate Mailgun.
+     * 
+     * @param from Prima data di scadenza (inclusa)
+     * @param to Ultima data di scadenza (inclusa)
+     * @return Esito dell'invio, con throughput ed errori per lotto
+     */
+    public BatchSendReport sendPaymentReminders(LocalDate from, LocalDate to) {
+        logger.info("Invio promemoria per le rate in scadenza dal {} al {}", from, to);
+        RenderedEmail template = mailgunService.buildPaymentReminderBatchTemplate();
+        Limit chunk = Limit.of(mailgunBatchService.getBatchSize());
+        // Il blocco successivo viene letto solo quando il precedente è stato consumato;
+        // un blocco incompleto è l'ultimo e non richiede un'ulteriore query
+        Stream<RataReminderDTO> reminders = Stream.iterate(
+                        rataRepository.findReminders(from, to, 0L, chunk),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < chunk.max() ? List.of()
+                                : rataRepository.findReminders(from, to, page.get(page.size() - 1).rataId(), chunk))
+                .flatMap(List::stream);
+        return mailgunBatchService.sendBatch(template.subject(), template.html(),
+                reminders.map(reminder -> new MailgunBatchService.Recipient(
+                        reminder.email(),
+                        mailgunService.buildPaymentReminderVariables(
+                                reminder.nome() + " " + reminder.cognome(),
+                                reminder.numeroRata(),
+                                reminder.importo(),
+                                reminder.dataScadenza(),
+                                reminder.immobileIndirizzo()))));
+    }
+
     public List<Rata> getRateByLocatarioId(Long locatarioId) {
         return rataRepository.findByLocatarioId(locatarioId);
     }
@@ -0,0 +1,148 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.epicode.Progetto_Backend.config.JwtProperties;
+import com.epicode.Progetto_Backend.entity.RefreshToken;
+import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.repository.RefreshTokenRepository;
+
+/**
+ * RefreshTokenService - Servizio per l'emissione, la rotazione e la revoca dei refresh token.
+ *
+ * I token di accesso JWT hanno vita breve (jwt.expiration); il refresh token, di durata
+ * maggiore (jwt.refresh-expiration), permette di ottenerne di nuovi senza ripetere il login.
+ *
+ * Caratteristiche:
+ * - Token opachi di 256 bit casuali; nel database viene salvato solo l'hash SHA-256
+ * - Rotazione: ogni rinnovo revoca il token usato ed emette un nuovo refresh token
+ * - Rilevamento del riutilizzo: presentare un token già revocato revoca tutti i refresh
+ *   token dell'utente (il token potrebbe essere stato sottratto). Il token viene consumato
+ *   con un UPDATE condizionale, quindi anche due rinnovi contemporanei dello stesso token
+ *   (es: un attaccante in gara con il client) vengono rilevati: solo uno dei due riesce
+ * - I token di utenti disabilitati non vengono rinnovati
+ *
+ * Utilizzato da AuthService per login, registrazione, rinnovo e logout.
+ *
+ * @see com.epicode.Progetto_Backend.entity.RefreshToken
+ * @see com.epicode.Progetto_Backend.service.AuthService
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JwtProperties jwtProperties;
+
+    /**
+     * Emette un nuovo refresh token per un utente.
+     *
+     * @param user Utente autenticato
+     * @return Refresh token in chiaro (restituito al client, mai salvato)
+     */
+    @Transactional
+    public String issue(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(token))
+                .user(user)
+                .expiresAt(Instant.now().plusMillis(jwtProperties.getRefreshExpiration()))
+                .build());
+        return token;
+    }
+
+    /**
+     * Consuma un refresh token: lo revoca e restituisce l'utente a cui è stato emesso.
+     *
+     * Il chiamante emette un nuovo token di accesso e un nuovo refresh token (rotazione).
+     *
+     * @param token Refresh token in chiaro
+     * @return Utente a cui è stato emesso il token
+     * @throws BadCredentialsException se il token non esiste, è scaduto, è già stato usato
+     *         o l'utente è disabilitato
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public User rotate(String token) {
+        Instant now = Instant.now();
+        String tokenHash = hash(token);
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(tokenHash)
+                .orElseThrow(() -> new BadCredentialsException("Refresh token non valido"));
+        User user = refreshToken.getUser();
+        if (refreshToken.getRevokedAt() != null) {
+            throw reuse(user, now);
+        }
+        if (refreshToken.getExpiresAt().isBefore(now) || !user.isEnabled()) {
+            throw new BadCredentialsException("Refresh token non valido");
+        }
+        // La lettura non blocca la riga: un rinnovo contemporaneo può averlo già consumato
+        if (refreshTokenRepository.consume(tokenHash, now) != 1) {
+            throw reuse(user, now);
+        }
+        return user;
+    }
+
+    /**
+     * Revoca tutti i refresh token dell'utente dopo il riutilizzo di un token già consumato.
+     */
+    private BadCredentialsException reuse(User user, Instant now) {
+        int revoked = refreshTokenRepository.revokeAllByUserId(user.getId(), now);
+        logger.warn("Riutilizzo di un refresh token revocato per utente ID: {}. Revocati {} token", user.getId(), revoked);
+        return new BadCredentialsException("Refresh token non valido");
+    }
+
+    /**
+     * Revoca un refresh token (logout). I token inesistenti vengono ignorati.
+     *
+     * @param token Refresh token in chiaro
+     */
+    @Transactional
+    public void revoke(String token) {
+        refreshTokenRepository.findByTokenHash(hash(token))
+                .filter(refreshToken -> refreshToken.getRevokedAt() == null)
+                .ifPresent(refreshToken -> refreshToken.setRevokedAt(Instant.now()));
+    }
+
+    /**
+     * Elimina i refresh token scaduti (ogni ora).
+     */
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1H")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.info("Eliminati {} refresh token scaduti", deleted);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+}
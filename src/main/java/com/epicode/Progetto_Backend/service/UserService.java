@@ -1,21 +1,37 @@
 package com.epicode.Progetto_Backend.service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.criteria.Predicate;
+
 import com.epicode.Progetto_Backend.dto.UserUpdateDTO;
 import com.epicode.Progetto_Backend.entity.Role;
 import com.epicode.Progetto_Backend.entity.User;
 import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
 import com.epicode.Progetto_Backend.repository.RoleRepository;
 import com.epicode.Progetto_Backend.repository.UserRepository;
+import com.epicode.Progetto_Backend.security.UserSecurityChangedEvent;
 
 /**
  * UserService - Servizio per la gestione degli utenti.
@@ -29,6 +45,9 @@ import com.epicode.Progetto_Backend.repository.UserRepository;
  * Caratteristiche:
  * - I campi opzionali vengono aggiornati solo se non null
  * - I ruoli vengono normalizzati (aggiunge prefisso ROLE_ se mancante)
+ * - Il cambio dei ruoli e l'eliminazione revocano i token JWT emessi in precedenza
+ * - Il cambio di ruoli, stato, nome e cognome e l'eliminazione pubblicano UserSecurityChangedEvent
+ *   (invalidazione di UserDetailsCache e TokenVersionChecker dopo il commit)
  * - L'immagine profilo può essere aggiornata tramite URL (solitamente da Cloudinary)
  * 
  * Utilizzato da:
@@ -49,6 +68,9 @@ public class UserService {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<User> getAllUsers() {
         logger.debug("Recupero di tutti gli utenti");
         List<User> users = userRepository.findAll();
@@ -65,6 +87,38 @@ public class UserService {
                     return new EntityNotFoundException("User", id);
                 });
     }
+    
+    /**
+     * Recupera più utenti per ID con una sola query (DataLoader GraphQL).
+     * 
+     * @param ids ID degli utenti
+     * @return Mappa ID → utente
+     */
+    public Map<Long, User> getUsersByIds(Collection<Long> ids) {
+        logger.debug("Recupero {} utenti per ID", ids.size());
+        return userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+    
+    /**
+     * Recupera una pagina di utenti con paginazione keyset (Connection GraphQL).
+     * 
+     * @param email Filtro opzionale per email (contenuto, case-insensitive)
+     * @param position Posizione da cui proseguire (ScrollPosition.keyset() per la prima pagina)
+     * @param limit Numero massimo di elementi
+     * @return Finestra di utenti con informazioni sulla pagina successiva
+     */
+    public Window<User> scrollUsers(String email, ScrollPosition position, int limit) {
+        logger.debug("Scroll utenti. Email: {}, Limit: {}", email, limit);
+        Specification<User> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (email != null) {
+                predicates.add(cb.like(cb.lower(root.get("email")), "%" + email.toLowerCase() + "%"));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+        return userRepository.findBy(spec, q -> q.sortBy(Sort.by("id")).limit(limit).scroll(position));
+    }
 
     public User getUserByEmail(String email) {
         logger.debug("Recupero utente con email: {}", email);
@@ -80,21 +134,28 @@ public class UserService {
     public User updateUser(Long id, UserUpdateDTO request) {
         logger.info("Aggiornamento utente con ID: {}", id);
         User user = getUserById(id);
+        // Nome e cognome sono copiati in UserDetailsCache (risposta del login)
+        boolean cachedDataChanged = false;
 
         if (request.getNome() != null && !request.getNome().isBlank()) {
+            cachedDataChanged |= !request.getNome().equals(user.getNome());
             user.setNome(request.getNome());
             logger.debug("Nome aggiornato per utente ID: {}", id);
         }
         if (request.getCognome() != null && !request.getCognome().isBlank()) {
+            cachedDataChanged |= !request.getCognome().equals(user.getCognome());
             user.setCognome(request.getCognome());
             logger.debug("Cognome aggiornato per utente ID: {}", id);
         }
         if (request.getProfileImage() != null) {
-            user.setProfileImage(request.getProfileImage());
+            setProfileImage(user, request.getProfileImage());
             logger.debug("Immagine profilo aggiornata per utente ID: {}", id);
         }
 
         User updated = userRepository.save(user);
+        if (cachedDataChanged) {
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(id, updated.getEmail()));
+        }
         logger.info("Utente aggiornato con successo. ID: {}, Email: {}", updated.getId(), updated.getEmail());
         return updated;
     }
@@ -102,26 +163,66 @@ public class UserService {
     @Transactional
     public User updateProfileImage(Long id, String imageUrl) {
         User user = getUserById(id);
-        user.setProfileImage(imageUrl);
+        setProfileImage(user, imageUrl);
         return userRepository.save(user);
     }
 
     @Transactional
     public User updateProfileImageByEmail(String email, String imageUrl) {
         User user = getUserByEmail(email);
-        user.setProfileImage(imageUrl);
+        setProfileImage(user, imageUrl);
         return userRepository.save(user);
     }
 
+    /**
+     * Imposta un'immagine profilo senza varianti. L'istante di aggiornamento impedisce alle
+     * elaborazioni di upload avviate prima (updateProfileImageVariants) di sovrascriverla.
+     */
+    private static void setProfileImage(User user, String imageUrl) {
+        user.setProfileImage(imageUrl);
+        user.setProfileImageVariants(null);
+        user.setProfileImageUploadedAt(Instant.now());
+    }
+
+    /**
+     * Aggiorna l'immagine profilo con le varianti ridimensionate: profileImage diventa la
+     * variante più grande.
+     *
+     * Le elaborazioni possono terminare in ordine diverso dagli upload: le varianti vengono
+     * salvate solo se derivano da un upload più recente di quello delle varianti attuali.
+     *
+     * @param id ID dell'utente
+     * @param variants URL delle varianti per lato in pixel
+     * @param uploadedAt Istante dell'upload da cui derivano le varianti
+     * @return true se le varianti sono state salvate, false se l'utente ne ha di più recenti
+     * @throws EntityNotFoundException se l'utente non viene trovato
+     */
+    @Transactional
+    public boolean updateProfileImageVariants(Long id, Map<Integer, String> variants, Instant uploadedAt) {
+        User user = getUserById(id);
+        if (userRepository.claimProfileImageUpdate(id, uploadedAt) != 1) {
+            logger.info("Varianti dell'immagine profilo scartate per utente ID: {}: esiste un upload più recente", id);
+            return false;
+        }
+        // L'utente è stato caricato prima dell'UPDATE: il salvataggio deve riportare lo stesso istante
+        user.setProfileImageUploadedAt(uploadedAt);
+        user.setProfileImageVariants(new TreeMap<>(variants));
+        user.setProfileImage(variants.get(Collections.max(variants.keySet())));
+        userRepository.save(user);
+        return true;
+    }
+
     @SuppressWarnings("null")
     @Transactional
     public void deleteUser(Long id) {
         logger.info("Eliminazione utente con ID: {}", id);
-        if (!userRepository.existsById(id)) {
-            logger.warn("Tentativo di eliminare utente inesistente con ID: {}", id);
-            throw new EntityNotFoundException("User", id);
-        }
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> {
+                    logger.warn("Tentativo di eliminare utente inesistente con ID: {}", id);
+                    return new EntityNotFoundException("User", id);
+                });
+        userRepository.delete(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(id, user.getEmail()));
         logger.info("Utente eliminato con successo. ID: {}", id);
     }
 
@@ -143,11 +244,35 @@ public class UserService {
         }
 
         user.setRoles(roles);
+        // I token emessi con i ruoli precedenti non sono più validi
+        user.setTokenVersion(user.getTokenVersion() + 1);
         User updated = userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(id, updated.getEmail()));
         logger.info("Ruoli aggiornati con successo per utente ID: {}", id);
         return updated;
     }
 
+    /**
+     * Abilita o disabilita un utente.
+     * 
+     * Un utente disabilitato non può effettuare il login e i suoi token JWT vengono
+     * rifiutati (vedi TokenVersionChecker).
+     * 
+     * @param id ID dell'utente
+     * @param enabled true per abilitare, false per disabilitare
+     * @return Utente aggiornato
+     * @throws EntityNotFoundException se l'utente non viene trovato
+     */
+    @Transactional
+    public User updateUserEnabled(Long id, boolean enabled) {
+        logger.info("Aggiornamento stato per utente ID: {}, enabled: {}", id, enabled);
+        User user = getUserById(id);
+        user.setEnabled(enabled);
+        User updated = userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(id, updated.getEmail()));
+        return updated;
+    }
+
     public List<Role> getAllRoles() {
         return roleRepository.findAll();
     }
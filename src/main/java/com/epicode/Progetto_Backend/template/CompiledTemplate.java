@@ -0,0 +1,186 @@
+package com.epicode.Progetto_Backend.template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CompiledTemplate - Template testuale compilato una sola volta in segmenti.
+ *
+ * Il sorgente contiene segnaposto {{nome}}: la compilazione lo divide in testi fissi e nomi
+ * di variabili alternati, così il rendering si limita ad accodare segmenti in un
+ * StringBuilder senza rileggere il sorgente (a differenza di String.format, che analizza la
+ * stringa di formato a ogni chiamata).
+ *
+ * Il rendering usa uno StringBuilder per thread, riutilizzato tra le chiamate: l'unica
+ * allocazione per email è la stringa risultante. Nei template HTML i valori vengono
+ * sottoposti a escape (&amp; &lt; &gt; &quot; &#39;).
+ *
+ * Le istanze sono immutabili e condivisibili tra thread.
+ *
+ * @see com.epicode.Progetto_Backend.template.EmailTemplateRegistry
+ */
+public final class CompiledTemplate {
+
+    private static final String OPEN = "{{";
+
+    private static final String CLOSE = "}}";
+
+    /** Capacità iniziale dello StringBuilder di ogni thread (una email HTML completa) */
+    private static final int BUILDER_CAPACITY = 8 * 1024;
+
+    /** Oltre questa capacità lo StringBuilder non viene conservato (evita di trattenere memoria) */
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUILDERS =
+            ThreadLocal.withInitial(() -> new StringBuilder(BUILDER_CAPACITY));
+
+    /** Testi fissi: uno in più delle variabili (prima, tra e dopo i segnaposto) */
+    private final String[] literals;
+
+    /** Nomi delle variabili, nell'ordine dei segnaposto */
+    private final String[] names;
+
+    private final boolean html;
+
+    private final Set<String> variables;
+
+    private CompiledTemplate(String[] literals, String[] names, boolean html) {
+        this.literals = literals;
+        this.names = names;
+        this.html = html;
+        Set<String> distinct = new LinkedHashSet<>();
+        Collections.addAll(distinct, names);
+        this.variables = Collections.unmodifiableSet(distinct);
+    }
+
+    /**
+     * Compila un template.
+     *
+     * @param source Sorgente con segnaposto {{nome}} (lettere, cifre, "_" e ".")
+     * @param html true se i valori vanno sottoposti a escape HTML
+     * @return Template compilato
+     * @throws IllegalArgumentException se un segnaposto non è chiuso o ha un nome non valido
+     */
+    public static CompiledTemplate compile(String source, boolean html) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        int open;
+        while ((open = source.indexOf(OPEN, position)) >= 0) {
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Segnaposto non chiuso alla posizione " + open);
+            }
+            String name = source.substring(open + OPEN.length(), close).trim();
+            if (!isValidName(name)) {
+                throw new IllegalArgumentException("Nome di variabile non valido: \"" + name + "\"");
+            }
+            literals.add(source.substring(position, open));
+            names.add(name);
+            position = close + CLOSE.length();
+        }
+        literals.add(source.substring(position));
+        return new CompiledTemplate(literals.toArray(String[]::new), names.toArray(String[]::new), html);
+    }
+
+    /**
+     * @return Nomi delle variabili usate dal template
+     */
+    public Set<String> variables() {
+        return variables;
+    }
+
+    /**
+     * Produce il testo del template con i valori indicati.
+     *
+     * @param values Valori delle variabili (un valore null produce un testo vuoto)
+     * @return Testo risultante
+     * @throws IllegalArgumentException se manca il valore di una variabile del template
+     */
+    public String render(Map<String, String> values) {
+        StringBuilder builder = BUILDERS.get();
+        builder.setLength(0);
+        renderTo(builder, values);
+        String result = builder.toString();
+        if (builder.capacity() > MAX_POOLED_CAPACITY) {
+            BUILDERS.set(new StringBuilder(BUILDER_CAPACITY));
+        }
+        return result;
+    }
+
+    /**
+     * Accoda il testo del template a un builder esistente.
+     *
+     * @param builder Destinazione
+     * @param values Valori delle variabili (un valore null produce un testo vuoto)
+     */
+    public void renderTo(StringBuilder builder, Map<String, String> values) {
+        builder.append(literals[0]);
+        for (int i = 0; i < names.length; i++) {
+            String value = values.get(names[i]);
+            if (value == null && !values.containsKey(names[i])) {
+                throw new IllegalArgumentException("Valore mancante per la variabile \"" + names[i] + "\"");
+            }
+            if (html) {
+                escapeHtml(builder, value);
+            } else if (value != null) {
+                builder.append(value);
+            }
+            builder.append(literals[i + 1]);
+        }
+    }
+
+    /**
+     * Escape HTML di un valore (es: per le recipient-variables di Mailgun, inserite senza escape).
+     *
+     * @param value Valore, anche null
+     * @return Valore con &amp; &lt; &gt; &quot; &#39; sostituiti; stringa vuota se null
+     */
+    public static String escapeHtml(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 16);
+        escapeHtml(builder, value);
+        return builder.toString();
+    }
+
+    private static void escapeHtml(StringBuilder builder, String value) {
+        if (value == null) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String entity = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entity != null) {
+                builder.append(value, start, i).append(entity);
+                start = i + 1;
+            }
+        }
+        builder.append(value, start, value.length());
+    }
+
+    private static boolean isValidName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,53 @@
+package com.epicode.Progetto_Backend.template;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * DigestTemplate - Template compilato del riepilogo di più notifiche in una lingua.
+ *
+ * Il documento (layout comune e testo di digest.html) è diviso in due parti attorno al
+ * segnaposto {{sections}}: tra le due vengono accodate le sezioni delle notifiche, ognuna
+ * resa dal proprio EmailTemplate nella lingua in cui è stata accodata. Oggetto, intestazione
+ * e chiusura possono usare {{count}}, il numero di notifiche.
+ *
+ * @param locale Lingua del riepilogo
+ * @param subject Oggetto compilato (senza escape HTML)
+ * @param header Documento HTML fino alle sezioni
+ * @param footer Documento HTML dopo le sezioni
+ * @see com.epicode.Progetto_Backend.template.EmailTemplateRegistry#getDigest
+ */
+public record DigestTemplate(Locale locale, CompiledTemplate subject, CompiledTemplate header,
+                             CompiledTemplate footer) {
+
+    /** Capacità iniziale del documento: intestazione, chiusura e qualche sezione */
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    /**
+     * Notifica da includere nel riepilogo.
+     *
+     * @param template Template della notifica
+     * @param variables Valori delle variabili del template
+     */
+    public record Section(EmailTemplate template, Map<String, String> variables) {
+    }
+
+    /**
+     * Produce oggetto e corpo del riepilogo.
+     *
+     * @param sections Notifiche, nell'ordine in cui compaiono
+     * @return Email pronta per l'invio
+     * @throws IllegalArgumentException se manca il valore di una variabile di una sezione
+     */
+    public RenderedEmail render(List<Section> sections) {
+        Map<String, String> count = Map.of("count", String.valueOf(sections.size()));
+        StringBuilder html = new StringBuilder(INITIAL_CAPACITY);
+        header.renderTo(html, count);
+        for (Section section : sections) {
+            section.template().section().renderTo(html, section.variables());
+        }
+        footer.renderTo(html, count);
+        return new RenderedEmail(subject.render(count), html.toString());
+    }
+}
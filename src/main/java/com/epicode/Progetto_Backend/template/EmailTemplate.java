@@ -0,0 +1,36 @@
+package com.epicode.Progetto_Backend.template;
+
+import java.util.Locale;
+import java.util.Map;
+
+import com.epicode.Progetto_Backend.entity.EmailType;
+
+/**
+ * EmailTemplate - Template compilato di una notifica in una lingua.
+ *
+ * Il corpo comprende già il layout comune (intestazione, titolo e piè di pagina): il
+ * rendering di una email è un solo passaggio sui segmenti del corpo più quello, breve,
+ * dell'oggetto. La sezione è lo stesso contenuto con il solo titolo, senza layout, da
+ * inserire in un riepilogo (DigestTemplate).
+ *
+ * @param type Tipo di notifica
+ * @param locale Lingua del template (usata anche per formattare importi e date)
+ * @param subject Oggetto compilato (senza escape HTML)
+ * @param body Documento HTML compilato
+ * @param section Titolo e contenuto HTML compilati, senza layout
+ * @see com.epicode.Progetto_Backend.template.EmailTemplateRegistry
+ */
+public record EmailTemplate(EmailType type, Locale locale, CompiledTemplate subject, CompiledTemplate body,
+                            CompiledTemplate section) {
+
+    /**
+     * Produce oggetto e corpo dell'email.
+     *
+     * @param variables Valori delle variabili del template
+     * @return Email pronta per l'invio
+     * @throws IllegalArgumentException se manca il valore di una variabile
+     */
+    public RenderedEmail render(Map<String, String> variables) {
+        return new RenderedEmail(subject.render(variables), body.render(variables));
+    }
+}
@@ -0,0 +1,258 @@
+package com.epicode.Progetto_Backend.template;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import com.epicode.Progetto_Backend.config.EmailTemplateProperties;
+import com.epicode.Progetto_Backend.entity.EmailType;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * EmailTemplateRegistry - Carica e compila all'avvio i template delle notifiche email.
+ *
+ * Per ogni EmailType (tranne GENERIC) viene letto classpath:templates/email/&lt;tipo&gt;.html
+ * (es: payment_reminder.html) nella lingua predefinita e, per ogni lingua di
+ * email.templates.locales, la variante &lt;tipo&gt;_&lt;lingua&gt;.html se presente. Ogni file inizia
+ * con un commento HTML che indica oggetto e titolo:
+ *
+ * <pre>
+ * &lt;!--
+ * subject: Nuovo Contratto di Affitto
+ * title: Nuovo Contratto Registrato
+ * --&gt;
+ * &lt;p&gt;Gentile &lt;strong&gt;{{nome}}&lt;/strong&gt;, ...&lt;/p&gt;
+ * </pre>
+ *
+ * Titolo e contenuto vengono inseriti nel layout della stessa lingua (layout.html,
+ * layout_&lt;lingua&gt;.html) prima della compilazione: il risultato è un solo CompiledTemplate
+ * per tipo e lingua. Un template mancante, un segnaposto non valido o una variante che usa
+ * variabili diverse da quella predefinita impediscono l'avvio dell'applicazione.
+ *
+ * Il riepilogo di più notifiche (digest.html, modalità digest) usa lo stesso layout e il
+ * segnaposto {{sections}}, dove vengono inserite le sezioni (titolo e contenuto senza
+ * layout) delle singole notifiche: vedi DigestTemplate.
+ *
+ * La lingua richiesta viene risolta sulla lingua (es: en_US → en); se non ha una variante
+ * si usa la lingua predefinita.
+ *
+ * @see com.epicode.Progetto_Backend.template.CompiledTemplate
+ * @see com.epicode.Progetto_Backend.config.EmailTemplateProperties
+ */
+@Component
+public class EmailTemplateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateRegistry.class);
+
+    /** Cartella dei template nel classpath */
+    static final String LOCATION = "templates/email/";
+
+    private static final String LAYOUT = "layout";
+
+    private static final String DIGEST = "digest";
+
+    /** Segnaposto del riepilogo dove vengono inserite le sezioni delle notifiche */
+    private static final String SECTIONS = "{{sections}}";
+
+    /** Sezione di una notifica nel riepilogo: titolo e contenuto, senza layout */
+    private static final String SECTION = "<div style=\"margin-top: 24px; padding-top: 16px; border-top: 1px solid #e0e0e0;\">\n"
+            + "<h3 style=\"color: #333; margin-top: 0;\">{{title}}</h3>\n"
+            + "{{content}}\n"
+            + "</div>\n";
+
+    private static final String HEADER_START = "<!--";
+
+    private static final String HEADER_END = "-->";
+
+    private final EmailTemplateProperties properties;
+
+    /** Template per tipo e lingua (chiave: codice della lingua, es: "it") */
+    private final Map<EmailType, Map<String, EmailTemplate>> templates = new EnumMap<>(EmailType.class);
+
+    /** Riepiloghi per lingua (chiave: codice della lingua) */
+    private final Map<String, DigestTemplate> digests = new HashMap<>();
+
+    public EmailTemplateRegistry(EmailTemplateProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Compila tutti i template all'avvio.
+     *
+     * @throws IllegalStateException se un template manca o non è valido
+     */
+    @PostConstruct
+    public void load() {
+        Locale defaultLocale = properties.getDefaultLocale();
+        String defaultLayout = read(LAYOUT + ".html");
+        Map<String, String> layouts = new HashMap<>();
+        for (Locale locale : properties.getLocales()) {
+            String layout = readIfPresent(LAYOUT + "_" + locale.getLanguage() + ".html");
+            layouts.put(locale.getLanguage(), layout != null ? layout : defaultLayout);
+        }
+
+        int count = 0;
+        for (EmailType type : EmailType.values()) {
+            if (type == EmailType.GENERIC || type == EmailType.DIGEST) {
+                continue;
+            }
+            String name = type.name().toLowerCase(Locale.ROOT);
+            Map<String, EmailTemplate> variants = new HashMap<>();
+            EmailTemplate primary = compile(type, defaultLocale, name + ".html", read(name + ".html"), defaultLayout);
+            variants.put(defaultLocale.getLanguage(), primary);
+            count++;
+
+            for (Locale locale : properties.getLocales()) {
+                String file = name + "_" + locale.getLanguage() + ".html";
+                String source = readIfPresent(file);
+                if (source == null || variants.containsKey(locale.getLanguage())) {
+                    continue;
+                }
+                EmailTemplate variant = compile(type, locale, file, source, layouts.get(locale.getLanguage()));
+                if (!variables(variant).equals(variables(primary))) {
+                    throw new IllegalStateException("Il template " + file + " usa variabili " + variables(variant)
+                            + " diverse da " + name + ".html " + variables(primary));
+                }
+                variants.put(locale.getLanguage(), variant);
+                count++;
+            }
+            templates.put(type, Map.copyOf(variants));
+        }
+
+        digests.put(defaultLocale.getLanguage(),
+                compileDigest(defaultLocale, DIGEST + ".html", read(DIGEST + ".html"), defaultLayout));
+        for (Locale locale : properties.getLocales()) {
+            String file = DIGEST + "_" + locale.getLanguage() + ".html";
+            String source = readIfPresent(file);
+            if (source != null && !digests.containsKey(locale.getLanguage())) {
+                digests.put(locale.getLanguage(), compileDigest(locale, file, source, layouts.get(locale.getLanguage())));
+            }
+        }
+        logger.info("Compilati {} template email ({} tipi, lingua predefinita: {})",
+                count, templates.size(), defaultLocale.getLanguage());
+    }
+
+    /**
+     * Restituisce il template di un tipo nella lingua richiesta o, in mancanza, in quella predefinita.
+     *
+     * @param type Tipo di notifica
+     * @param locale Lingua richiesta (null per la lingua predefinita)
+     * @return Template compilato
+     * @throws IllegalArgumentException se il tipo non ha un template (GENERIC)
+     */
+    public EmailTemplate get(EmailType type, Locale locale) {
+        Map<String, EmailTemplate> variants = templates.get(type);
+        if (variants == null) {
+            throw new IllegalArgumentException("Nessun template per le email " + type);
+        }
+        EmailTemplate template = locale != null ? variants.get(locale.getLanguage()) : null;
+        return template != null ? template : variants.get(properties.getDefaultLocale().getLanguage());
+    }
+
+    /**
+     * Restituisce il riepilogo nella lingua richiesta o, in mancanza, in quella predefinita.
+     *
+     * @param locale Lingua richiesta (null per la lingua predefinita)
+     * @return Template del riepilogo
+     */
+    public DigestTemplate getDigest(Locale locale) {
+        DigestTemplate digest = locale != null ? digests.get(locale.getLanguage()) : null;
+        return digest != null ? digest : digests.get(properties.getDefaultLocale().getLanguage());
+    }
+
+    private EmailTemplate compile(EmailType type, Locale locale, String file, String source, String layout) {
+        Parsed parsed = parse(file, source);
+        try {
+            String document = layout.replace("{{title}}", parsed.title()).replace("{{content}}", parsed.body());
+            String section = SECTION.replace("{{title}}", parsed.title()).replace("{{content}}", parsed.body());
+            return new EmailTemplate(type, locale, CompiledTemplate.compile(parsed.subject(), false),
+                    CompiledTemplate.compile(document, true), CompiledTemplate.compile(section, true));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Template " + file + " non valido: " + e.getMessage(), e);
+        }
+    }
+
+    private DigestTemplate compileDigest(Locale locale, String file, String source, String layout) {
+        Parsed parsed = parse(file, source);
+        String document = layout.replace("{{title}}", parsed.title()).replace("{{content}}", parsed.body());
+        int sections = document.indexOf(SECTIONS);
+        if (sections < 0 || document.indexOf(SECTIONS, sections + 1) >= 0) {
+            throw new IllegalStateException("Il template " + file + " deve contenere una sola volta " + SECTIONS);
+        }
+        try {
+            return new DigestTemplate(locale, CompiledTemplate.compile(parsed.subject(), false),
+                    CompiledTemplate.compile(document.substring(0, sections), true),
+                    CompiledTemplate.compile(document.substring(sections + SECTIONS.length()), true));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Template " + file + " non valido: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Intestazione (oggetto e titolo) e contenuto di un file di template.
+     */
+    private record Parsed(String subject, String title, String body) {
+    }
+
+    private static Parsed parse(String file, String source) {
+        Map<String, String> header = new HashMap<>();
+        String body = source;
+        if (source.startsWith(HEADER_START)) {
+            int end = source.indexOf(HEADER_END);
+            if (end < 0) {
+                throw new IllegalStateException("Intestazione non chiusa nel template " + file);
+            }
+            for (String line : source.substring(HEADER_START.length(), end).split("\n")) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    header.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+                }
+            }
+            body = source.substring(end + HEADER_END.length()).stripLeading();
+        }
+        String subject = header.get("subject");
+        String title = header.get("title");
+        if (subject == null || title == null) {
+            throw new IllegalStateException("Il template " + file + " deve indicare subject e title nell'intestazione");
+        }
+        return new Parsed(subject, title, body);
+    }
+
+    private static Set<String> variables(EmailTemplate template) {
+        Set<String> variables = new HashSet<>(template.subject().variables());
+        variables.addAll(template.body().variables());
+        return variables;
+    }
+
+    private static String read(String file) {
+        String source = readIfPresent(file);
+        if (source == null) {
+            throw new IllegalStateException("Template email mancante: classpath:" + LOCATION + file);
+        }
+        return source;
+    }
+
+    private static String readIfPresent(String file) {
+        ClassPathResource resource = new ClassPathResource(LOCATION + file);
+        if (!resource.exists()) {
+            return null;
+        }
+        try (InputStream input = resource.getInputStream()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossibile leggere il template classpath:" + LOCATION + file, e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.epicode.Progetto_Backend.template;
+
+/**
+ * RenderedEmail - Oggetto e corpo HTML di una email prodotti da un EmailTemplate.
+ *
+ * @param subject Oggetto dell'email
+ * @param html Documento HTML completo (layout e contenuto)
+ */
+public record RenderedEmail(String subject, String html) {
+}
@@ -0,0 +1,188 @@
+package com.epicode.Progetto_Backend.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epicode.Progetto_Backend.exception.ValidationException;
+
+/**
+ * StagedImage - Immagine caricata, copiata in un file temporaneo e già validata.
+ *
+ * Il contenuto viene letto dallo stream della richiesta (per i multipart, il file temporaneo
+ * del container) a blocchi di 8 KB e scritto su disco, senza mai trovarsi interamente in memoria:
+ * - Il formato viene riconosciuto dai primi byte (JPEG, PNG, GIF, WebP), non dal Content-Type
+ *   dichiarato dal client; gli altri formati vengono rifiutati prima di copiare il resto
+ * - Il limite di dimensione viene controllato durante la copia: un file troppo grande viene
+ *   rifiutato appena lo supera
+ * - Lo SHA-256 viene calcolato sugli stessi blocchi
+ * In caso di errore il file temporaneo viene eliminato e viene lanciata ValidationException
+ * (400 Bad Request).
+ *
+ * Va chiusa dopo l'uso (try-with-resources) per eliminare il file temporaneo.
+ *
+ * Utilizzata da CloudinaryService: l'SDK invia il file a Cloudinary leggendolo da disco.
+ */
+public final class StagedImage implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StagedImage.class);
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    /** Byte necessari per riconoscere tutti i formati supportati (WebP: RIFF????WEBP) */
+    private static final int SIGNATURE_LENGTH = 12;
+
+    private final Path path;
+
+    private final String contentType;
+
+    private final long size;
+
+    private final String sha256;
+
+    private StagedImage(Path path, String contentType, long size, String sha256) {
+        this.path = path;
+        this.contentType = contentType;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Copia e valida un'immagine in un file temporaneo della directory di sistema.
+     *
+     * @param in Contenuto dell'immagine (non viene chiuso)
+     * @param maxSize Dimensione massima in byte
+     * @return Immagine copiata su disco
+     * @throws ValidationException se il formato non è supportato o il file supera maxSize
+     * @throws IOException se la lettura o la scrittura falliscono
+     */
+    public static StagedImage stage(InputStream in, long maxSize) throws IOException {
+        return stage(in, maxSize, null);
+    }
+
+    /**
+     * Copia e valida un'immagine in un file temporaneo di directory.
+     *
+     * @param in Contenuto dell'immagine (non viene chiuso)
+     * @param maxSize Dimensione massima in byte
+     * @param directory Directory del file temporaneo (null = directory di sistema)
+     * @return Immagine copiata su disco
+     * @throws ValidationException se il formato non è supportato o il file supera maxSize
+     * @throws IOException se la lettura o la scrittura falliscono
+     */
+    public static StagedImage stage(InputStream in, long maxSize, Path directory) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int head = in.readNBytes(buffer, 0, SIGNATURE_LENGTH);
+        String contentType = sniff(buffer, head);
+        if (contentType == null) {
+            throw new ValidationException("Formato immagine non supportato (ammessi JPEG, PNG, GIF e WebP)");
+        }
+        MessageDigest digest = sha256();
+        Path path = directory != null
+                ? Files.createTempFile(directory, "upload-", ".tmp")
+                : Files.createTempFile("upload-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(path)) {
+            long size = 0;
+            int read = head;
+            while (read > 0) {
+                size += read;
+                if (size > maxSize) {
+                    throw new ValidationException("L'immagine supera la dimensione massima di " + maxSize + " byte");
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                read = in.read(buffer);
+            }
+            return new StagedImage(path, contentType, size, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException | RuntimeException e) {
+            delete(path);
+            throw e;
+        }
+    }
+
+    /**
+     * Riconosce il formato dell'immagine dai primi byte.
+     *
+     * @return Content-Type dell'immagine o null se il formato non è supportato
+     */
+    static String sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 0, 'G', 'I', 'F', '8', '7', 'a')
+                || startsWith(head, length, 0, 'G', 'I', 'F', '8', '9', 'a')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 0, 'R', 'I', 'F', 'F') && startsWith(head, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, int... signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+
+    /** File temporaneo con il contenuto dell'immagine */
+    public Path getPath() {
+        return path;
+    }
+
+    /** Content-Type riconosciuto dai primi byte (es: image/png) */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /** Dimensione in byte */
+    public long getSize() {
+        return size;
+    }
+
+    /** SHA-256 del contenuto, in esadecimale */
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * Elimina il file temporaneo.
+     */
+    @Override
+    public void close() {
+        delete(path);
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("File temporaneo {} non eliminato: {}", path, e.getMessage());
+        }
+    }
+}
@@ -23,7 +23,8 @@ CREATE TABLE IF NOT EXISTS users (
     nome VARCHAR(100) NOT NULL,
     cognome VARCHAR(100) NOT NULL,
     registration_date DATE NOT NULL DEFAULT CURRENT_DATE,
-    enabled BOOLEAN NOT NULL DEFAULT TRUE
+    enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    token_version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Tabella user_roles (join many-to-many)
@@ -107,6 +108,46 @@ CREATE TABLE IF NOT EXISTS manutenzione (
     descrizione TEXT
 );
 
+-- Tabella refresh_token (solo hash SHA-256 dei token)
+CREATE TABLE IF NOT EXISTS refresh_token (
+    id SERIAL PRIMARY KEY,
+    token_hash VARCHAR(64) NOT NULL UNIQUE,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP WITH TIME ZONE
+);
+
+-- Tabella revoked_token (token di accesso revocati fino alla scadenza)
+CREATE TABLE IF NOT EXISTS revoked_token (
+    jti VARCHAR(36) PRIMARY KEY,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- Tabella rate_limit_bucket (bucket di rate limiting condivisi, rate-limit.store=jdbc)
+CREATE TABLE IF NOT EXISTS rate_limit_bucket (
+    bucket_key VARCHAR(255) PRIMARY KEY,
+    tokens BIGINT NOT NULL,
+    refilled_at BIGINT NOT NULL,
+    version BIGINT NOT NULL
+);
+
+-- Tabella email_outbox (email accodate nella transazione del chiamante e consegnate da EmailOutboxDispatcher)
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    type VARCHAR(32) NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    html BOOLEAN NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    attempts INTEGER NOT NULL,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    sent_at TIMESTAMP WITH TIME ZONE
+);
+
 -- Indici per migliorare le performance delle query
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
 CREATE INDEX IF NOT EXISTS idx_locatario_cf ON locatario(cf);
@@ -120,6 +161,10 @@ CREATE INDEX IF NOT EXISTS idx_rata_pagata ON rata(pagata);
 CREATE INDEX IF NOT EXISTS idx_manutenzione_locatario ON manutenzione(locatario_id);
 CREATE INDEX IF NOT EXISTS idx_manutenzione_immobile ON manutenzione(immobile_id);
 CREATE INDEX IF NOT EXISTS idx_manutenzione_data ON manutenzione(data_man);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_user ON refresh_token(user_id);
+CREATE INDEX IF NOT EXISTS idx_revoked_token_revoked_at ON revoked_token(revoked_at);
+CREATE INDEX IF NOT EXISTS idx_rate_limit_bucket_refilled_at ON rate_limit_bucket(refilled_at);
+CREATE INDEX IF NOT EXISTS idx_email_outbox_status_next_attempt ON email_outbox(status, next_attempt_at);
 
 -- Dati di esempio per testing
 
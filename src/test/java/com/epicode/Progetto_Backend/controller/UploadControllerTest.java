@@ -14,25 +14,31 @@ import org.springframework.security.test.context.support.WithMockUser;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
-import com.epicode.Progetto_Backend.service.CloudinaryService;
+import com.epicode.Progetto_Backend.dto.ProfileImageJob;
+import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
+import com.epicode.Progetto_Backend.exception.ServiceOverloadedException;
+import com.epicode.Progetto_Backend.service.ProfileImageService;
 
 /**
  * UploadControllerTest - Test unitari per il controller di upload file.
  * 
  * Questa classe testa gli endpoint REST del UploadController, verificando:
- * - Upload immagine profilo utente
- * - Validazione file (tipo, dimensione)
+ * - Upload immagine profilo utente (202 Accepted con ID dell'elaborazione e header Location)
+ * - Consultazione dello stato dell'elaborazione
  * - Gestione errori per file non validi
- * - Integrazione con CloudinaryService (mockato nei test)
+ * - 503 con Retry-After quando la coda di ridimensionamento è piena
+ * - Integrazione con ProfileImageService (mockato nei test)
  * 
- * Il CloudinaryService viene mockato per evitare chiamate reali all'API
- * Cloudinary durante l'esecuzione dei test. I test verificano solo
+ * Il ProfileImageService viene mockato per evitare elaborazioni e chiamate reali
+ * all'API Cloudinary durante l'esecuzione dei test. I test verificano solo
  * il comportamento del controller e la gestione corretta delle richieste.
  * 
  * @see com.epicode.Progetto_Backend.controller.UploadController
@@ -47,7 +53,7 @@ class UploadControllerTest {
     private WebApplicationContext webApplicationContext;
 
     @MockBean
-    private CloudinaryService cloudinaryService;
+    private ProfileImageService profileImageService;
 
     private MockMvc mockMvc;
 
@@ -63,8 +69,7 @@ class UploadControllerTest {
     @Test
     @WithMockUser
     void testUploadProfileImage_Success() throws Exception {
-        String imageUrl = "https://cloudinary.com/test-image.jpg";
-        when(cloudinaryService.uploadImage(any())).thenReturn(imageUrl);
+        when(profileImageService.submit(any(), any())).thenReturn(ProfileImageJob.pending("job-1"));
 
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -75,8 +80,10 @@ class UploadControllerTest {
 
         mockMvc.perform(multipart("/api/upload/profile-image")
                         .file(file))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.url").value(imageUrl));
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/upload/profile-image/job-1"))
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
     }
 
     @Test
@@ -96,7 +103,7 @@ class UploadControllerTest {
     @Test
     @WithMockUser
     void testUploadProfileImage_Error() throws Exception {
-        when(cloudinaryService.uploadImage(any()))
+        when(profileImageService.submit(any(), any()))
                 .thenThrow(new java.io.IOException("Upload failed"));
 
         MockMultipartFile file = new MockMultipartFile(
@@ -110,5 +117,47 @@ class UploadControllerTest {
                         .file(file))
                 .andExpect(status().isInternalServerError());
     }
-}
 
+    @Test
+    @WithMockUser
+    void testUploadProfileImage_Overloaded() throws Exception {
+        when(profileImageService.submit(any(), any()))
+                .thenThrow(new ServiceOverloadedException(
+                        "Troppe immagini in elaborazione. Riprovare tra qualche secondo.", 30));
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "test-image.jpg",
+                MediaType.IMAGE_JPEG_VALUE,
+                "test image content".getBytes()
+        );
+
+        mockMvc.perform(multipart("/api/upload/profile-image")
+                        .file(file))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"));
+    }
+
+    @Test
+    @WithMockUser(username = "mario.rossi@test.com")
+    void testGetProfileImageJob() throws Exception {
+        when(profileImageService.getJob("job-1", "mario.rossi@test.com"))
+                .thenReturn(ProfileImageJob.pending("job-1").processing()
+                        .completed(java.util.Map.of(64, "https://cloudinary.com/test-image_64.jpg")));
+
+        mockMvc.perform(get("/api/upload/profile-image/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.variants.64").value("https://cloudinary.com/test-image_64.jpg"));
+    }
+
+    @Test
+    @WithMockUser(username = "altro@test.com")
+    void testGetProfileImageJob_NotFound() throws Exception {
+        when(profileImageService.getJob("job-1", "altro@test.com"))
+                .thenThrow(new EntityNotFoundException("Elaborazione immagine", "job-1"));
+
+        mockMvc.perform(get("/api/upload/profile-image/job-1"))
+                .andExpect(status().isNotFound());
+    }
+}
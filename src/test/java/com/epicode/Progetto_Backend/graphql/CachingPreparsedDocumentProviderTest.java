@@ -0,0 +1,114 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.epicode.Progetto_Backend.config.GraphQLDocumentCacheProperties;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+
+/**
+ * CachingPreparsedDocumentProviderTest - Test unitari per la cache dei documenti GraphQL.
+ *
+ * Verifica il riutilizzo dei documenti già validati, il protocollo delle persisted query
+ * automatiche (registrazione e lookup tramite hash SHA-256) e la modalità allow-list.
+ */
+class CachingPreparsedDocumentProviderTest {
+
+    private static final String QUERY = "{ hello }";
+
+    private GraphQLSchema schema;
+
+    private GraphQLDocumentCacheProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        schema = new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse("type Query { hello: String }"), RuntimeWiring.newRuntimeWiring().build());
+        properties = new GraphQLDocumentCacheProperties();
+    }
+
+    @Test
+    @DisplayName("Lo stesso documento viene analizzato e validato una sola volta")
+    void testDocumentCached() {
+        CachingPreparsedDocumentProvider provider = new CachingPreparsedDocumentProvider(properties, Map.of());
+        GraphQL graphQL = graphQL(provider);
+
+        graphQL.execute(QUERY);
+        graphQL.execute(QUERY);
+        graphQL.execute(QUERY);
+
+        assertEquals(1, provider.size());
+        assertEquals(2.0 / 3.0, provider.getHitRate(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("Un hash sconosciuto restituisce PersistedQueryNotFound, poi viene registrato")
+    void testAutomaticPersistedQuery() {
+        GraphQL graphQL = graphQL(new CachingPreparsedDocumentProvider(properties, Map.of()));
+
+        ExecutionResult notFound = graphQL.execute(hashOnly(QUERY));
+        assertEquals("PersistedQueryNotFound", notFound.getErrors().get(0).getMessage());
+
+        ExecutionResult registered = graphQL.execute(withHash(QUERY, QUERY));
+        assertTrue(registered.getErrors().isEmpty());
+
+        ExecutionResult lookup = graphQL.execute(hashOnly(QUERY));
+        assertTrue(lookup.getErrors().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Un hash che non corrisponde al testo non viene registrato")
+    void testHashMismatch() {
+        GraphQL graphQL = graphQL(new CachingPreparsedDocumentProvider(properties, Map.of()));
+
+        ExecutionResult mismatch = graphQL.execute(withHash("{ __typename }", QUERY));
+        assertEquals(1, mismatch.getErrors().size());
+
+        ExecutionResult notFound = graphQL.execute(hashOnly(QUERY));
+        assertEquals("PersistedQueryNotFound", notFound.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    @DisplayName("In modalità allow-list solo i documenti registrati vengono eseguiti")
+    void testAllowListOnly() {
+        properties.setAllowListOnly(true);
+        Map<String, String> allowList = Map.of(CachingPreparsedDocumentProvider.sha256(QUERY), QUERY);
+        GraphQL graphQL = graphQL(new CachingPreparsedDocumentProvider(properties, allowList));
+
+        assertTrue(graphQL.execute(hashOnly(QUERY)).getErrors().isEmpty());
+        assertEquals("Query non presente nella allow-list",
+                graphQL.execute(QUERY).getErrors().get(0).getMessage());
+        assertEquals("Query non presente nella allow-list",
+                graphQL.execute(withHash("{ __typename }", "{ __typename }")).getErrors().get(0).getMessage());
+    }
+
+    private GraphQL graphQL(CachingPreparsedDocumentProvider provider) {
+        return GraphQL.newGraphQL(schema).preparsedDocumentProvider(provider).build();
+    }
+
+    private static ExecutionInput hashOnly(String hashedQuery) {
+        return withHash(PersistedQuerySupport.PERSISTED_QUERY_MARKER, hashedQuery);
+    }
+
+    private static ExecutionInput withHash(String query, String hashedQuery) {
+        Map<String, Object> persistedQuery = Map.of(
+                "version", 1,
+                "sha256Hash", CachingPreparsedDocumentProvider.sha256(hashedQuery));
+        return ExecutionInput.newExecutionInput(query)
+                .extensions(Map.of(CachingPreparsedDocumentProvider.PERSISTED_QUERY_EXTENSION, persistedQuery))
+                .build();
+    }
+}
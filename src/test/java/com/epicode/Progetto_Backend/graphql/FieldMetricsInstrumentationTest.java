@@ -0,0 +1,90 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.epicode.Progetto_Backend.config.GraphQLMetricsProperties;
+
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * FieldMetricsInstrumentationTest - Test unitari per le metriche dei campi GraphQL.
+ *
+ * Verifica la registrazione dei Timer per operazione e per campo, l'esclusione dei
+ * campi risolti tramite getter e l'aggregazione dei nomi di operazione oltre il limite.
+ */
+class FieldMetricsInstrumentationTest {
+
+    private SimpleMeterRegistry registry;
+
+    private GraphQLMetricsProperties properties;
+
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setUp() {
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                .type("Query", builder -> builder.dataFetcher("immobili",
+                        env -> List.of(Map.of("citta", "Roma"), Map.of("citta", "Milano"))))
+                .build();
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse("type Query { immobili: [Immobile!]! } type Immobile { citta: String }"),
+                wiring);
+        registry = new SimpleMeterRegistry();
+        properties = new GraphQLMetricsProperties();
+        graphQL = GraphQL.newGraphQL(schema)
+                .instrumentation(new FieldMetricsInstrumentation(registry, properties))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Ogni invocazione di un resolver viene misurata con tag parent e field")
+    void testFieldTimer() {
+        graphQL.execute("{ immobili { citta } }");
+        graphQL.execute("{ immobili { citta } }");
+
+        Timer timer = registry.find(FieldMetricsInstrumentation.FIELD_TIMER)
+                .tags("parent", "Query", "field", "immobili", "outcome", "success")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+        assertNotNull(registry.find(FieldMetricsInstrumentation.FIELD_STATEMENTS)
+                .tags("parent", "Query", "field", "immobili")
+                .summary());
+    }
+
+    @Test
+    @DisplayName("I campi risolti tramite getter non vengono misurati di default")
+    void testTrivialFieldsSkipped() {
+        graphQL.execute("{ immobili { citta } }");
+
+        assertNull(registry.find(FieldMetricsInstrumentation.FIELD_TIMER).tags("field", "citta").timer());
+    }
+
+    @Test
+    @DisplayName("I nomi di operazione oltre il limite vengono aggregati sotto 'other'")
+    void testOperationNamesBounded() {
+        properties.setMaxOperationNames(1);
+
+        graphQL.execute("query Catalogo { immobili { citta } }");
+        graphQL.execute("query Dashboard { immobili { citta } }");
+        graphQL.execute("{ immobili { citta } }");
+
+        assertNotNull(registry.find(FieldMetricsInstrumentation.OPERATION_TIMER).tags("operation", "Catalogo").timer());
+        assertNotNull(registry.find(FieldMetricsInstrumentation.OPERATION_TIMER).tags("operation", "other").timer());
+        assertNotNull(registry.find(FieldMetricsInstrumentation.OPERATION_TIMER).tags("operation", "anonymous").timer());
+    }
+}
@@ -0,0 +1,103 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.epicode.Progetto_Backend.config.GraphQLResponseCacheProperties;
+
+/**
+ * GraphQLResponseCacheTest - Test unitari per la cache delle risposte GraphQL.
+ *
+ * Verifica l'invalidazione per istanza, per collezione del padre e per tipo, il limite
+ * di dipendenze, la scadenza e lo scarto delle risposte calcolate durante un'invalidazione.
+ */
+class GraphQLResponseCacheTest {
+
+    private GraphQLResponseCacheProperties properties;
+
+    private GraphQLResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GraphQLResponseCacheProperties();
+        cache = new GraphQLResponseCache(properties);
+    }
+
+    @Test
+    @DisplayName("La modifica di una rata invalida solo i contratti che la contengono")
+    void testInvalidationByOwner() {
+        put("contratto12", "Contratto#12", "Rata@Contratto#12", "Rata#7");
+        put("contratto13", "Contratto#13", "Rata@Contratto#13", "Rata#8");
+
+        cache.invalidate(List.of("Rata", "Rata#9", "Rata@Contratto#12"));
+
+        assertNull(cache.get("contratto12"));
+        assertNotNull(cache.get("contratto13"));
+    }
+
+    @Test
+    @DisplayName("Le liste radice vengono invalidate da qualsiasi modifica del tipo")
+    void testInvalidationByType() {
+        put("immobili", "Immobile", "Immobile#1", "Immobile#2");
+        put("immobile1", "Immobile#1");
+
+        cache.invalidate(List.of("Immobile", "Immobile#3"));
+
+        assertNull(cache.get("immobili"));
+        assertNotNull(cache.get("immobile1"));
+    }
+
+    @Test
+    @DisplayName("Una risposta calcolata durante un'invalidazione del suo tipo non viene memorizzata")
+    void testConcurrentInvalidation() {
+        GraphQLResponseCache.Dependencies dependencies = cache.newDependencies();
+        dependencies.normalizedDocument("{contratto(id:12){canoneAnnuo}}");
+        dependencies.add("Contratto#12");
+
+        cache.invalidate(List.of("Contratto", "Contratto#12"));
+
+        assertFalse(cache.put("contratto12", Map.of(), Map.of(), dependencies));
+        assertNull(cache.get("contratto12"));
+    }
+
+    @Test
+    @DisplayName("Le risposte con troppe dipendenze non sono memorizzabili")
+    void testMaxDependencies() {
+        properties.setMaxDependencies(2);
+        GraphQLResponseCache.Dependencies dependencies = cache.newDependencies();
+        dependencies.normalizedDocument("{rate{importo}}");
+        dependencies.add("Rata#1");
+        dependencies.add("Rata#2");
+        dependencies.add("Rata#3");
+
+        assertFalse(dependencies.isCacheable());
+    }
+
+    @Test
+    @DisplayName("Le risposte scadute non vengono restituite")
+    void testTtl() {
+        properties.setTtl(Duration.ofMillis(-1));
+        put("immobile1", "Immobile#1");
+
+        assertNull(cache.get("immobile1"));
+        assertEquals(0, cache.size());
+    }
+
+    private void put(String key, String... dependencyKeys) {
+        GraphQLResponseCache.Dependencies dependencies = cache.newDependencies();
+        dependencies.normalizedDocument(key);
+        for (String dependency : dependencyKeys) {
+            dependencies.add(dependency);
+        }
+        cache.put(key, Map.of("key", key), Map.of(), dependencies);
+    }
+}
@@ -0,0 +1,162 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.epicode.Progetto_Backend.config.GraphQLConcurrencyProperties;
+
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.DataFetcher;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+
+/**
+ * ParallelExecutionInstrumentationTest - Test unitari per l'esecuzione parallela dei campi radice.
+ *
+ * Verifica che i campi radice vengano eseguiti contemporaneamente su virtual thread (anche se
+ * selezionati tramite fragment), che il SecurityContext del chiamante sia disponibile nei rami
+ * e nei campi figli risolti dopo di essi e che la concorrenza per richiesta rispetti
+ * graphql.concurrency.max-concurrency-per-request.
+ */
+class ParallelExecutionInstrumentationTest {
+
+    private static final long FETCH_MILLIS = 200;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private GraphQLConcurrencyProperties properties;
+
+    private ParallelBranchExecutor branchExecutor;
+
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setUp() {
+        DataFetcher<String> slowFetcher = env -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(FETCH_MILLIS);
+                return currentUser();
+            } finally {
+                running.decrementAndGet();
+            }
+        };
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                .type("Query", builder -> builder
+                        .dataFetcher("immobili", slowFetcher)
+                        .dataFetcher("contratti", slowFetcher)
+                        .dataFetcher("manutenzioni", slowFetcher)
+                        .dataFetcher("immobile", env -> {
+                            slowFetcher.get(env);
+                            return Map.of();
+                        }))
+                .type("Immobile", builder -> builder
+                        .dataFetcher("proprietario", env -> currentUser()))
+                .type("Mutation", builder -> builder
+                        .dataFetcher("primo", slowFetcher)
+                        .dataFetcher("secondo", slowFetcher))
+                .build();
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(
+                "type Query { immobili: String contratti: String manutenzioni: String immobile: Immobile }"
+                        + " type Immobile { proprietario: String }"
+                        + " type Mutation { primo: String secondo: String }"), wiring);
+        properties = new GraphQLConcurrencyProperties();
+        branchExecutor = new ParallelBranchExecutor(properties);
+        graphQL = GraphQL.newGraphQL(schema)
+                .instrumentation(new ParallelExecutionInstrumentation(branchExecutor, properties))
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("admin@test.it", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        branchExecutor.close();
+    }
+
+    @Test
+    @DisplayName("I campi radice vengono eseguiti in parallelo con il SecurityContext del chiamante")
+    void testRootFieldsInParallel() {
+        ExecutionResult result = graphQL.execute("{ immobili contratti manutenzioni }");
+
+        assertTrue(result.getErrors().isEmpty());
+        Map<String, Object> data = result.getData();
+        assertEquals("admin@test.it", data.get("immobili"));
+        assertEquals("admin@test.it", data.get("contratti"));
+        assertEquals("admin@test.it", data.get("manutenzioni"));
+        assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("I campi radice selezionati tramite fragment vengono eseguiti in parallelo")
+    void testRootFieldsFromFragmentInParallel() {
+        ExecutionResult result = graphQL.execute(
+                "query { ...Dashboard } fragment Dashboard on Query { immobili contratti manutenzioni }");
+
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("I campi figli risolti dopo un ramo parallelo vedono il SecurityContext del chiamante")
+    void testChildFieldsKeepSecurityContext() {
+        ExecutionResult result = graphQL.execute("{ immobile { proprietario } contratti }");
+
+        assertTrue(result.getErrors().isEmpty());
+        Map<String, Object> data = result.getData();
+        assertEquals(Map.of("proprietario", "admin@test.it"), data.get("immobile"));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("La concorrenza per richiesta rispetta max-concurrency-per-request")
+    void testConcurrencyBounded() {
+        properties.setMaxConcurrencyPerRequest(2);
+
+        ExecutionResult result = graphQL.execute("{ immobili contratti manutenzioni }");
+
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("Le mutation restano seriali")
+    void testMutationsSerial() {
+        ExecutionResult result = graphQL.execute("mutation { primo secondo }");
+
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("Con l'esecuzione parallela disabilitata i campi restano sul thread della richiesta")
+    void testDisabled() {
+        properties.setEnabled(false);
+
+        graphQL.execute("{ immobili contratti manutenzioni }");
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+}
@@ -0,0 +1,180 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.epicode.Progetto_Backend.config.GraphQLLimitsProperties;
+import com.epicode.Progetto_Backend.config.GraphQLPaginationProperties;
+import com.epicode.Progetto_Backend.ratelimit.RateLimiter;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.AbortExecutionException;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * QueryCostInstrumentationTest - Test unitari per il calcolo del costo delle query GraphQL.
+ *
+ * Utilizza uno schema ridotto con la stessa forma dello schema applicativo (liste annidate
+ * e Connection) e verifica il calcolo di profondità e costo, il rifiuto delle query oltre
+ * le soglie, l'esclusione dei campi di introspezione e il consumo del budget dell'utente.
+ */
+class QueryCostInstrumentationTest {
+
+    private static final String SCHEMA = """
+            type Query {
+                locatari: [Locatario!]!
+                locatariConnection(first: Int): LocatarioConnection!
+            }
+            type LocatarioConnection { edges: [LocatarioEdge!]! }
+            type LocatarioEdge { node: Locatario! }
+            type Locatario { id: ID contratti: [Contratto!]! }
+            type Contratto { id: ID immobile: Immobile rate: [Rata!]! }
+            type Immobile { id: ID contratti: [Contratto!]! }
+            type Rata { importo: Float }
+            """;
+
+    private GraphQLLimitsProperties limits;
+
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setUp() {
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse(SCHEMA), RuntimeWiring.newRuntimeWiring().build());
+        limits = new GraphQLLimitsProperties();
+        limits.getListSizes().put("Query.locatari", 100);
+        graphQL = GraphQL.newGraphQL(schema)
+                .instrumentation(new QueryCostInstrumentation(limits, new GraphQLPaginationProperties()))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Il costo di una Connection usa first come dimensione della lista edges")
+    void testConnectionCost() {
+        ExecutionResult result = graphQL.execute(
+                "{ locatariConnection(first: 5) { edges { node { id contratti { rate { importo } } } } } }");
+
+        Map<?, ?> cost = cost(result);
+        // connection 1 + edges 1 + node 5 + contratti 5 + rate 5 * 10
+        assertEquals(62L, cost.get("cost"));
+        assertEquals(6, cost.get("depth"));
+        assertTrue(result.getErrors().stream().noneMatch(AbortExecutionException.class::isInstance));
+    }
+
+    @Test
+    @DisplayName("Una query annidata su liste senza limite viene rifiutata per costo")
+    void testNestedListsRejected() {
+        ExecutionResult result = graphQL.execute(
+                "{ locatari { contratti { immobile { contratti { rate { importo } } } } } }");
+
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Query troppo costosa"));
+        assertNull(result.getData());
+        assertTrue((Long) cost(result).get("cost") > limits.getMaxCost());
+    }
+
+    @Test
+    @DisplayName("Una query oltre la profondità massima viene rifiutata")
+    void testDepthRejected() {
+        limits.setMaxCost(Long.MAX_VALUE);
+
+        ExecutionResult result = graphQL.execute(
+                "{ locatari { contratti { immobile { contratti { immobile { contratti { immobile { contratti { id } } } } } } } } }");
+
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Query troppo annidata"));
+        assertEquals(9, cost(result).get("depth"));
+    }
+
+    @Test
+    @DisplayName("I campi di introspezione non vengono conteggiati")
+    void testIntrospectionIgnored() {
+        ExecutionResult result = graphQL.execute(
+                "{ __schema { types { fields { type { ofType { ofType { ofType { ofType { name } } } } } } } } }");
+
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(0L, cost(result).get("cost"));
+    }
+
+    @Test
+    @DisplayName("Con il limite disabilitato il costo non viene calcolato")
+    void testDisabled() {
+        limits.setEnabled(false);
+
+        ExecutionResult result = graphQL.execute(
+                "{ locatari { contratti { immobile { contratti { rate { importo } } } } } }");
+
+        assertTrue(result.getErrors().stream().noneMatch(AbortExecutionException.class::isInstance));
+        assertTrue(result.getExtensions() == null
+                || !result.getExtensions().containsKey(QueryCostInstrumentation.EXTENSION_KEY));
+    }
+
+    @Test
+    @DisplayName("Il costo dell'operazione viene consumato dal budget dell'utente")
+    void testBudgetConsumed() {
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        when(rateLimiter.tryConsumeGraphQL(any(), eq(62L))).thenReturn(ConsumptionProbe.consumed(938, 0));
+        CostBudgetInterceptor.CostBudget budget = new CostBudgetInterceptor.CostBudget(rateLimiter, user());
+
+        ExecutionResult result = graphQL.execute(withBudget(
+                "{ locatariConnection(first: 5) { edges { node { id contratti { rate { importo } } } } } }", budget));
+
+        assertTrue(result.getErrors().stream().noneMatch(AbortExecutionException.class::isInstance));
+        assertEquals(938L, cost(result).get("budgetRemaining"));
+        verify(rateLimiter).tryConsumeGraphQL(any(), eq(62L));
+    }
+
+    @Test
+    @DisplayName("Con budget insufficiente l'operazione viene rifiutata prima dell'esecuzione")
+    void testBudgetExhausted() {
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        when(rateLimiter.tryConsumeGraphQL(any(), anyLong()))
+                .thenReturn(ConsumptionProbe.rejected(10, 30_000_000_000L, 30_000_000_000L));
+        CostBudgetInterceptor.CostBudget budget = new CostBudgetInterceptor.CostBudget(rateLimiter, user());
+
+        ExecutionResult result = graphQL.execute(withBudget(
+                "{ locatariConnection(first: 5) { edges { node { id } } } }", budget));
+
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Budget di costo GraphQL esaurito"));
+        assertNull(result.getData());
+        assertEquals(31, budget.retryAfterSeconds());
+    }
+
+    private static ExecutionInput withBudget(String query, CostBudgetInterceptor.CostBudget budget) {
+        return ExecutionInput.newExecutionInput(query)
+                .graphQLContext(Map.of(CostBudgetInterceptor.CostBudget.CONTEXT_KEY, budget))
+                .build();
+    }
+
+    private static Authentication user() {
+        return new UsernamePasswordAuthenticationToken("user@test.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_LOCATARIO")));
+    }
+
+    private static Map<?, ?> cost(ExecutionResult result) {
+        return (Map<?, ?>) result.getExtensions().get(QueryCostInstrumentation.EXTENSION_KEY);
+    }
+}
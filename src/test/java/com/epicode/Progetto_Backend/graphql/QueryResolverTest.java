@@ -5,11 +5,15 @@ import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Window;
+import org.springframework.graphql.data.query.ScrollSubrange;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
@@ -21,7 +25,9 @@ import com.epicode.Progetto_Backend.entity.Locatario;
 import com.epicode.Progetto_Backend.entity.Manutenzione;
 import com.epicode.Progetto_Backend.entity.Rata;
 import com.epicode.Progetto_Backend.entity.Role;
+import com.epicode.Progetto_Backend.entity.TipoImmobile;
 import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.repository.ImmobileRepository;
 import com.epicode.Progetto_Backend.repository.RoleRepository;
 import com.epicode.Progetto_Backend.repository.UserRepository;
 
@@ -36,6 +42,7 @@ import com.epicode.Progetto_Backend.repository.UserRepository;
  * - Query per rate (rate)
  * - Query per manutenzioni (manutenzioni)
  * - Query per ruoli (roles) - solo ADMIN
+ * - Query *Connection con paginazione a cursore (immobiliConnection)
  * 
  * I test utilizzano @WithMockUser per simulare utenti autenticati
  * con diversi ruoli e verificare che le query funzionino correttamente
@@ -61,6 +68,9 @@ class QueryResolverTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ImmobileRepository immobileRepository;
+
     private User testUser;
 
     @BeforeEach
@@ -154,5 +164,36 @@ class QueryResolverTest {
         List<Role> roles = queryResolver.roles();
         assertNotNull(roles);
     }
-}
 
+    @Test
+    @WithMockUser
+    void testImmobiliConnection() {
+        for (int i = 0; i < 3; i++) {
+            Immobile immobile = new Immobile();
+            immobile.setIndirizzo("Via Connection " + i);
+            immobile.setCitta("Connectionopoli");
+            immobile.setSuperficie(80.0);
+            immobile.setTipo(TipoImmobile.APPARTAMENTO);
+            immobileRepository.save(immobile);
+        }
+
+        Window<Immobile> first = queryResolver.immobiliConnection(
+                ScrollSubrange.create(null, 2, true), "Connectionopoli", null);
+        assertEquals(2, first.size());
+        assertTrue(first.hasNext());
+
+        Window<Immobile> second = queryResolver.immobiliConnection(
+                ScrollSubrange.create(first.positionAt(first.size() - 1), 2, true), "Connectionopoli", null);
+        assertEquals(1, second.size());
+        assertFalse(second.hasNext());
+        assertTrue(second.getContent().get(0).getId() > first.getContent().get(1).getId());
+    }
+
+    @Test
+    @WithMockUser
+    void testConnectionMaxPageSize() {
+        Window<Immobile> page = queryResolver.immobiliConnection(
+                ScrollSubrange.create(null, 100_000, true), null, null);
+        assertTrue(page.size() <= 100);
+    }
+}
@@ -0,0 +1,98 @@
+package com.epicode.Progetto_Backend.graphql;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.epicode.Progetto_Backend.config.GraphQLResponseCacheProperties;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import reactor.core.publisher.Mono;
+
+/**
+ * ResponseCacheInterceptorTest - Test unitari per la lettura e scrittura della cache delle risposte.
+ *
+ * Simula l'esecuzione con una Chain che registra le dipendenze e riporta nelle extensions
+ * un budget residuo diverso per ogni utente, e verifica che una risposta servita dalla cache
+ * a un altro utente con gli stessi ruoli non contenga il budget di chi l'ha memorizzata.
+ */
+class ResponseCacheInterceptorTest {
+
+    private static final String QUERY = "{ immobili { id } }";
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private ResponseCacheInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        GraphQLResponseCacheProperties properties = new GraphQLResponseCacheProperties();
+        interceptor = new ResponseCacheInterceptor(new GraphQLResponseCache(properties), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Una risposta dalla cache non contiene il budget dell'utente che l'ha memorizzata")
+    void testBudgetNotShared() {
+        WebGraphQlResponse miss = execute("mario@test.com", 900L);
+        WebGraphQlResponse hit = execute("luigi@test.com", 500L);
+
+        assertEquals("MISS", miss.getResponseHeaders().getFirst(ResponseCacheInterceptor.CACHE_HEADER));
+        assertEquals(900L, cost(miss).get(QueryCostInstrumentation.BUDGET_REMAINING_KEY));
+        assertEquals("HIT", hit.getResponseHeaders().getFirst(ResponseCacheInterceptor.CACHE_HEADER));
+        assertFalse(cost(hit).containsKey(QueryCostInstrumentation.BUDGET_REMAINING_KEY));
+        assertEquals(12L, cost(hit).get("cost"));
+        assertEquals(1, executions.get());
+    }
+
+    private WebGraphQlResponse execute(String email, long budgetRemaining) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                email, null, List.of(new SimpleGrantedAuthority("ROLE_LOCATARIO"))));
+        WebGraphQlRequest request = new WebGraphQlRequest(URI.create("http://localhost/graphql"), new HttpHeaders(),
+                null, null, Map.of(), Map.of("query", QUERY), "1", Locale.ITALY);
+        WebGraphQlInterceptor.Chain chain = next -> {
+            executions.incrementAndGet();
+            ExecutionInput input = next.toExecutionInput();
+            GraphQLResponseCache.Dependencies dependencies =
+                    input.getGraphQLContext().get(GraphQLResponseCache.DEPENDENCIES_KEY);
+            dependencies.normalizedDocument(QUERY);
+            dependencies.add("Immobile");
+            Map<Object, Object> report = new LinkedHashMap<>();
+            report.put("cost", 12L);
+            report.put(QueryCostInstrumentation.BUDGET_REMAINING_KEY, budgetRemaining);
+            ExecutionResult result = ExecutionResult.newExecutionResult()
+                    .data(Map.of("immobili", List.of(Map.of("id", "1"))))
+                    .addExtension(QueryCostInstrumentation.EXTENSION_KEY, report)
+                    .build();
+            return Mono.just(new WebGraphQlResponse(new DefaultExecutionGraphQlResponse(input, result)));
+        };
+        return interceptor.intercept(request, chain).block();
+    }
+
+    private static Map<?, ?> cost(WebGraphQlResponse response) {
+        return (Map<?, ?>) response.getExecutionResult().getExtensions().get(QueryCostInstrumentation.EXTENSION_KEY);
+    }
+}
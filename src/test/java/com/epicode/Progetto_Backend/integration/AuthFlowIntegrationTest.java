@@ -1,9 +1,14 @@
 package com.epicode.Progetto_Backend.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.test.web.servlet.MvcResult;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -15,6 +20,7 @@ import com.epicode.Progetto_Backend.dto.LoginRequestDTO;
 import com.epicode.Progetto_Backend.dto.RegisterRequestDTO;
 import com.epicode.Progetto_Backend.dto.UserUpdateDTO;
 import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.repository.RefreshTokenRepository;
 
 /**
  * AuthFlowIntegrationTest - Test di integrazione end-to-end per il flusso completo di autenticazione e gestione utente.
@@ -27,6 +33,9 @@ import com.epicode.Progetto_Backend.entity.User;
  * - Aggiornamento profilo utente corrente
  * - Upload immagine profilo
  * - Assegnazione ruoli utente (solo ADMIN)
+ * - Revoca dei token emessi prima del cambio dei ruoli
+ * - Rinnovo con refresh token (rotazione e rilevamento del riutilizzo) e logout
+ * - Riscrittura al login degli hash delle password con formato o costo superato
  * - Verifica persistenza dei dati nel database
  * 
  * I test verificano che l'intero flusso di autenticazione funzioni correttamente
@@ -39,6 +48,9 @@ import com.epicode.Progetto_Backend.entity.User;
 @SuppressWarnings({"null", "unused"})
 class AuthFlowIntegrationTest extends BaseIntegrationTest {
     
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    
     @Test
     void testCompleteUserRegistrationAndLoginFlow() throws Exception {
         // 1. Registrazione
@@ -178,5 +190,128 @@ class AuthFlowIntegrationTest extends BaseIntegrationTest {
         assertEquals(1, updatedUser.getRoles().size());
         assertEquals("ROLE_MANAGER", updatedUser.getRoles().iterator().next().getName());
     }
+    
+    /**
+     * La cache delle versioni dei token viene invalidata dopo il commit del cambio ruoli:
+     * il test committa la transazione (che altrimenti verrebbe annullata a fine test) e
+     * rimuove poi gli utenti creati.
+     */
+    @Test
+    void testTokenRevokedAfterRoleChange() throws Exception {
+        // Setup: crea utente ADMIN e utente normale con i rispettivi token
+        User adminUser = createTestUser("revoker.admin@test.com", "password123", "ROLE_ADMIN");
+        String adminToken = getAuthToken("revoker.admin@test.com", "password123");
+        User normalUser = createTestUser("revoked@test.com", "password123", "ROLE_LOCATARIO");
+        String oldToken = getAuthToken("revoked@test.com", "password123");
+        
+        mockMvc.perform(get("/api/users/me")
+                .header("Authorization", "Bearer " + oldToken))
+                .andExpect(status().isOk());
+        
+        // 1. Cambio ruoli: il token contiene ancora ROLE_LOCATARIO
+        roleRepository.findByName("ROLE_MANAGER")
+                .orElseGet(() -> roleRepository.save(
+                        com.epicode.Progetto_Backend.entity.Role.builder().name("ROLE_MANAGER").build()));
+        mockMvc.perform(put("/api/users/" + normalUser.getId() + "/roles")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(java.util.Set.of("ROLE_MANAGER"))))
+                .andExpect(status().isOk());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        
+        try {
+            // 2. Dopo il commit il vecchio token non è più accettato
+            mockMvc.perform(get("/api/users/me")
+                    .header("Authorization", "Bearer " + oldToken))
+                    .andExpect(status().isUnauthorized());
+            
+            // 3. Un nuovo login emette un token con i ruoli aggiornati
+            String newToken = getAuthToken("revoked@test.com", "password123");
+            mockMvc.perform(get("/api/users/me")
+                    .header("Authorization", "Bearer " + newToken))
+                    .andExpect(status().isOk());
+        } finally {
+            TestTransaction.start();
+            refreshTokenRepository.deleteAll(refreshTokenRepository.findAll().stream()
+                    .filter(token -> token.getUser().getId().equals(adminUser.getId())
+                            || token.getUser().getId().equals(normalUser.getId()))
+                    .toList());
+            userRepository.deleteById(adminUser.getId());
+            userRepository.deleteById(normalUser.getId());
+            TestTransaction.flagForCommit();
+            TestTransaction.end();
+        }
+    }
+    
+    @Test
+    void testRefreshTokenRotationAndLogout() throws Exception {
+        createTestUser("refresh@test.com", "password123", "ROLE_LOCATARIO");
+        LoginRequestDTO loginRequest = new LoginRequestDTO();
+        loginRequest.setEmail("refresh@test.com");
+        loginRequest.setPassword("password123");
+        
+        MvcResult loginResult = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshToken").exists())
+                .andExpect(jsonPath("$.expiresIn").exists())
+                .andReturn();
+        String oldRefreshToken = objectMapper.readTree(loginResult.getResponse().getContentAsString())
+                .get("refreshToken").asText();
+        
+        // 1. Il refresh token emette una nuova coppia di token
+        MvcResult refreshResult = mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(java.util.Map.of("refreshToken", oldRefreshToken))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andExpect(jsonPath("$.refreshToken").exists())
+                .andReturn();
+        String accessToken = extractToken(refreshResult);
+        String newRefreshToken = objectMapper.readTree(refreshResult.getResponse().getContentAsString())
+                .get("refreshToken").asText();
+        
+        mockMvc.perform(get("/api/users/me")
+                .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk());
+        
+        // 2. Il refresh token già usato non è più valido
+        mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(java.util.Map.of("refreshToken", oldRefreshToken))))
+                .andExpect(status().isUnauthorized());
+        
+        // 3. Il riutilizzo ha revocato anche il refresh token emesso dalla rotazione
+        mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(java.util.Map.of("refreshToken", newRefreshToken))))
+                .andExpect(status().isUnauthorized());
+        
+        // 4. Dopo il logout il token di accesso non è più accettato
+        mockMvc.perform(post("/api/auth/logout")
+                .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/users/me")
+                .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isUnauthorized());
+    }
+    
+    @Test
+    void testLegacyPasswordHashUpgradedOnLogin() throws Exception {
+        // Setup: hash senza prefisso {bcrypt} e con costo inferiore a quello configurato
+        User user = createTestUser("legacy@test.com", "password123", "ROLE_LOCATARIO");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("password123"));
+        userRepository.save(user);
+        
+        // 1. Il login con il vecchio hash riesce
+        getAuthToken("legacy@test.com", "password123");
+        
+        // 2. L'hash è stato riscritto nel formato e con il costo correnti
+        User updated = userRepository.findByEmail("legacy@test.com").orElseThrow();
+        assertTrue(updated.getPassword().startsWith("{bcrypt}"));
+        assertTrue(passwordEncoder.matches("password123", updated.getPassword()));
+        assertFalse(passwordEncoder.upgradeEncoding(updated.getPassword()));
+    }
 }
-
@@ -26,6 +26,9 @@ import com.epicode.Progetto_Backend.entity.User;
 import com.epicode.Progetto_Backend.repository.ContrattoRepository;
 import com.epicode.Progetto_Backend.repository.RataRepository;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
 /**
  * ContrattoRataFlowIntegrationTest - Test di integrazione end-to-end per il flusso completo di gestione contratti e rate.
  * 
@@ -36,6 +39,7 @@ import com.epicode.Progetto_Backend.repository.RataRepository;
  * - Aggiornamento stato di pagamento delle rate
  * - Query per recuperare rate per contratto
  * - Verifica persistenza corretta delle relazioni Contratto-Rata
+ * - Budget di statement SQL (@StatementBudget) dei dettagli di contratto e rata
  * 
  * I test verificano la logica complessa di generazione automatica delle rate
  * per diverse frequenze (MENSILE, TRIMESTRALE, SEMESTRALE, ANNUALE) e che
@@ -53,6 +57,9 @@ class ContrattoRataFlowIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private ContrattoRepository contrattoRepository;
     
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     @Test
     void testCreateContrattoAndGenerateRateFlow() throws Exception {
         // Setup: crea utente MANAGER, locatario e immobile
@@ -237,5 +244,56 @@ class ContrattoRataFlowIntegrationTest extends BaseIntegrationTest {
                 .count();
         assertEquals(2, rateNonPagate);
     }
+    
+    /**
+     * I dettagli di contratto e rata e le rate per contratto dichiarano un @StatementBudget:
+     * nel profilo test il superamento fa fallire la richiesta. Il contesto di persistenza
+     * viene svuotato prima delle chiamate, così gli statement vengono eseguiti davvero.
+     * Le chiamate sono fatte come LOCATARIO, il caso più costoso (verifica di proprietà).
+     */
+    @Test
+    void testDettaglioContrattoERataEntroIlBudgetSql() throws Exception {
+        createTestUser("manager7@test.com", "password123", "ROLE_MANAGER");
+        String managerToken = getAuthToken("manager7@test.com", "password123");
+        
+        User locatarioUser = createTestUser("locatario5@test.com", "password123", "ROLE_LOCATARIO");
+        String locatarioToken = getAuthToken("locatario5@test.com", "password123");
+        Locatario locatario = createTestLocatario(locatarioUser, "TESTCF33333333");
+        Immobile immobile = createTestImmobile("Via Budget 555", "Padova");
+        
+        ContrattoRequestDTO contrattoRequest = ContrattoRequestDTO.builder()
+                .locatarioId(locatario.getId())
+                .immobileId(immobile.getId())
+                .dataInizio(LocalDate.now())
+                .durataAnni(3)
+                .canoneAnnuo(12000.0)
+                .frequenzaRata(FrequenzaRata.MENSILE)
+                .build();
+        MvcResult contrattoResult = mockMvc.perform(post("/api/contratti")
+                .header("Authorization", "Bearer " + managerToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(contrattoRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long contrattoId = objectMapper.readValue(
+                contrattoResult.getResponse().getContentAsString(), Contratto.class).getId();
+        Long rataId = rataRepository.findByContrattoId(contrattoId).get(0).getId();
+        entityManager.flush();
+        entityManager.clear();
+        
+        mockMvc.perform(get("/api/contratti/" + contrattoId)
+                .header("Authorization", "Bearer " + locatarioToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(contrattoId));
+        
+        mockMvc.perform(get("/api/rate/" + rataId)
+                .header("Authorization", "Bearer " + locatarioToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(rataId));
+        
+        mockMvc.perform(get("/api/rate/contratto/" + contrattoId)
+                .header("Authorization", "Bearer " + locatarioToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(36)); // 3 anni * 12 mesi = 36 rate
+    }
 }
-
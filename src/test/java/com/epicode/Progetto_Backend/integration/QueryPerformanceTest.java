@@ -2,6 +2,7 @@ package com.epicode.Progetto_Backend.integration;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.stat.Statistics;
@@ -12,6 +13,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.ExecutionGraphQlResponse;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.support.DefaultExecutionGraphQlRequest;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +26,7 @@ import com.epicode.Progetto_Backend.entity.Immobile;
 import com.epicode.Progetto_Backend.entity.Locatario;
 import com.epicode.Progetto_Backend.entity.Rata;
 import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.monitoring.StatementCounter;
 import com.epicode.Progetto_Backend.repository.ContrattoRepository;
 import com.epicode.Progetto_Backend.repository.ManutenzioneRepository;
 import com.epicode.Progetto_Backend.repository.RataRepository;
@@ -66,6 +72,9 @@ class QueryPerformanceTest extends BaseIntegrationTest {
     @Autowired
     private ManutenzioneRepository manutenzioneRepository;
     
+    @Autowired
+    private ExecutionGraphQlService graphQlService;
+    
     private Statistics statistics;
     
     @BeforeEach
@@ -447,5 +456,100 @@ class QueryPerformanceTest extends BaseIntegrationTest {
         assertEquals(1, queryCount, 
             "Expected exactly 1 query with JOIN FETCH, but got " + queryCount);
     }
+    
+    /**
+     * Test: Verifica che una query GraphQL annidata (locatari → contratti → rate)
+     * esegua un numero costante di statement SQL grazie ai DataLoader di RelationResolver.
+     * 
+     * La stessa query viene eseguita due volte: la seconda dopo aver aggiunto altri
+     * locatari con contratti e rate. Il numero di statement non deve crescere.
+     */
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testGraphQLNestedRelationsWithDataLoader() {
+        createLocatariConContratti("dl1", 2);
+        entityManager.flush();
+        entityManager.clear();
+        int first = countStatementsForNestedQuery();
+        
+        createLocatariConContratti("dl2", 4);
+        entityManager.flush();
+        entityManager.clear();
+        int second = countStatementsForNestedQuery();
+        
+        assertEquals(first, second,
+            "Expected a constant number of statements, but got " + first + " and then " + second);
+    }
+    
+    /**
+     * Test: la query contratto(id) carica solo le relazioni richieste dal client.
+     * 
+     * Una query con soli campi scalari esegue una SELECT senza JOIN; una query con
+     * rate, immobile e locatario le carica con le JOIN pianificate nella stessa SELECT.
+     */
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testGraphQLContrattoFetchPlan() {
+        createLocatariConContratti("fp", 1);
+        Long contrattoId = contrattoRepository.findAll().get(0).getId();
+        entityManager.flush();
+        entityManager.clear();
+        
+        int thin = countStatements("{ contratto(id: " + contrattoId + ") { canoneAnnuo } }");
+        int wide = countStatements("{ contratto(id: " + contrattoId + ") { canoneAnnuo "
+                + "rate { importo } immobile { indirizzo } locatario { nome } } }");
+        
+        assertEquals(1, thin, "Expected a single narrow SELECT, but got " + thin);
+        assertTrue(wide <= 2, "Expected a single planned join, but got " + wide + " statements");
+    }
+    
+    private int countStatements(String document) {
+        try (StatementCounter.Scope scope = StatementCounter.open("query")) {
+            ExecutionGraphQlResponse response = graphQlService.execute(
+                    new DefaultExecutionGraphQlRequest(document, null, null, null, "test", Locale.ITALY)).block();
+            assertNotNull(response);
+            assertTrue(response.getErrors().isEmpty(), "Unexpected errors: " + response.getErrors());
+            entityManager.clear();
+            return scope.getCount();
+        }
+    }
+    
+    private int countStatementsForNestedQuery() {
+        String document = "{ locatari { id contratti { id immobile { id } rate { id importo } } manutenzioni { id } } }";
+        try (StatementCounter.Scope scope = StatementCounter.open("locatari")) {
+            ExecutionGraphQlResponse response = graphQlService.execute(
+                    new DefaultExecutionGraphQlRequest(document, null, null, null, "test", Locale.ITALY)).block();
+            assertNotNull(response);
+            assertTrue(response.getErrors().isEmpty(), "Unexpected errors: " + response.getErrors());
+            entityManager.clear();
+            return scope.getCount();
+        }
+    }
+    
+    private void createLocatariConContratti(String prefix, int numLocatari) {
+        Immobile immobile = createTestImmobile("Via " + prefix, "Torino");
+        for (int i = 0; i < numLocatari; i++) {
+            User user = createTestUser(prefix + i + "@test.com", "password123", "ROLE_LOCATARIO");
+            Locatario locatario = createTestLocatario(user, (prefix + "CF" + i).toUpperCase());
+            for (int c = 0; c < 2; c++) {
+                Contratto contratto = new Contratto();
+                contratto.setLocatario(locatario);
+                contratto.setImmobile(immobile);
+                contratto.setDataInizio(LocalDate.now());
+                contratto.setDurataAnni(1);
+                contratto.setCanoneAnnuo(12000.0);
+                contratto.setFrequenzaRata(FrequenzaRata.SEMESTRALE);
+                contratto = contrattoRepository.save(contratto);
+                for (int r = 0; r < 2; r++) {
+                    Rata rata = new Rata();
+                    rata.setContratto(contratto);
+                    rata.setImporto(6000.0);
+                    rata.setNumeroRata(r + 1);
+                    rata.setDataScadenza(LocalDate.now().plusMonths(r * 6));
+                    rata.setPagata('N');
+                    rataRepository.save(rata);
+                }
+            }
+        }
+    }
 }
-
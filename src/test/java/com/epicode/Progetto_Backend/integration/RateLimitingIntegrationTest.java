@@ -0,0 +1,77 @@
+package com.epicode.Progetto_Backend.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * RateLimitingIntegrationTest - Test di integrazione per il rate limiting prima di Spring Security.
+ *
+ * Verifica che RateLimitingFilter:
+ * - Rifiuti con 429 le richieste in eccesso prima dell'autenticazione (anche senza token)
+ * - Copra sia le API REST sia l'endpoint /graphql
+ * - Applichi il livello e il bucket dell'utente letti dal token JWT
+ *
+ * I livelli hanno capacità ridotte per raggiungere il limite con poche richieste; ogni test
+ * usa un IP diverso (X-Forwarded-For) per non condividere i bucket anonimi.
+ *
+ * @see com.epicode.Progetto_Backend.config.RateLimitingFilter
+ */
+@TestPropertySource(properties = {
+        "rate-limit.tiers.anonymous.capacity=2",
+        "rate-limit.tiers.manager.capacity=3"
+})
+@SuppressWarnings("null")
+class RateLimitingIntegrationTest extends BaseIntegrationTest {
+
+    private static final String GRAPHQL_QUERY = "{\"query\":\"{ immobili { id } }\"}";
+
+    @Test
+    void testAnonymousRequestsRejectedBeforeAuthentication() throws Exception {
+        // Le prime richieste arrivano a Spring Security (401), poi il bucket dell'IP è vuoto
+        mockMvc.perform(get("/api/immobili").header("X-Forwarded-For", "10.0.0.1"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/graphql").header("X-Forwarded-For", "10.0.0.1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(GRAPHQL_QUERY))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/api/immobili").header("X-Forwarded-For", "10.0.0.1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(content().json("{\"error\":\"Rate limit exceeded. Please try again later.\"}"));
+        // Un token non valido non cambia il client: resta quello dell'IP
+        mockMvc.perform(post("/graphql").header("X-Forwarded-For", "10.0.0.1")
+                .header("Authorization", "Bearer token-non-valido")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(GRAPHQL_QUERY))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void testAuthenticatedTierFromToken() throws Exception {
+        createTestUser("ratelimit.manager@test.com", "password123", "ROLE_MANAGER");
+        String token = getAuthToken("ratelimit.manager@test.com", "password123");
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/immobili").header("X-Forwarded-For", "10.0.0.2")
+                    .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-RateLimit-Remaining", String.valueOf(2 - i)));
+        }
+        mockMvc.perform(post("/graphql").header("X-Forwarded-For", "10.0.0.2")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(GRAPHQL_QUERY))
+                .andExpect(status().isTooManyRequests());
+
+        // Il bucket anonimo dello stesso IP è separato da quello dell'utente
+        mockMvc.perform(get("/api/immobili").header("X-Forwarded-For", "10.0.0.2"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,141 @@
+package com.epicode.Progetto_Backend.integration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.epicode.Progetto_Backend.dto.AuthResponseDTO;
+import com.epicode.Progetto_Backend.entity.Role;
+import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.repository.RefreshTokenRepository;
+import com.epicode.Progetto_Backend.repository.RoleRepository;
+import com.epicode.Progetto_Backend.repository.UserRepository;
+import com.epicode.Progetto_Backend.service.AuthService;
+import com.epicode.Progetto_Backend.service.MailgunService;
+import com.epicode.Progetto_Backend.service.RefreshTokenService;
+
+/**
+ * RefreshTokenConcurrencyIntegrationTest - Test del rinnovo contemporaneo dello stesso refresh token.
+ *
+ * Due thread (es: il client e un attaccante che ha sottratto il token) rinnovano nello stesso
+ * momento lo stesso refresh token: solo uno dei due deve ottenere una nuova coppia di token e
+ * il riutilizzo deve revocare tutti i refresh token dell'utente, compreso quello appena emesso.
+ *
+ * A differenza di BaseIntegrationTest i test non sono transazionali: i dati devono essere
+ * visibili ai due thread, quindi vengono salvati davvero ed eliminati alla fine.
+ *
+ * @see com.epicode.Progetto_Backend.service.RefreshTokenService
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@SuppressWarnings("removal")
+class RefreshTokenConcurrencyIntegrationTest {
+
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private MailgunService mailgunService;
+
+    private User user;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        Role role = roleRepository.findByName("ROLE_LOCATARIO")
+                .orElseGet(() -> roleRepository.save(Role.builder().name("ROLE_LOCATARIO").build()));
+        user = userRepository.save(User.builder()
+                .email("refresh.race@test.com")
+                .password(passwordEncoder.encode("password123"))
+                .nome("Test")
+                .cognome("User")
+                .enabled(true)
+                .roles(new HashSet<>(Set.of(role)))
+                .build());
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        refreshTokenRepository.deleteAll(refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUser().getId().equals(user.getId()))
+                .toList());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    @DisplayName("Due rinnovi contemporanei dello stesso token: uno solo riesce e l'utente viene disconnesso")
+    void testConcurrentRefreshDetectsReuse() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            String token = refreshTokenService.issue(user);
+            CountDownLatch start = new CountDownLatch(1);
+            Callable<AuthResponseDTO> refresh = () -> {
+                start.await();
+                return authService.refresh(token);
+            };
+            List<Future<AuthResponseDTO>> results = new ArrayList<>();
+            results.add(executor.submit(refresh));
+            results.add(executor.submit(refresh));
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<AuthResponseDTO> result : results) {
+                try {
+                    result.get();
+                    succeeded++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(BadCredentialsException.class, e.getCause());
+                }
+            }
+
+            assertEquals(1, succeeded, "Rinnovi riusciti al giro " + round);
+            assertEquals(0, activeTokens(), "Refresh token ancora attivi al giro " + round);
+        }
+    }
+
+    private long activeTokens() {
+        return refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUser().getId().equals(user.getId()))
+                .filter(token -> token.getRevokedAt() == null)
+                .count();
+    }
+}
@@ -0,0 +1,125 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.epicode.Progetto_Backend.repository.UserRepository;
+
+/**
+ * StatementBudgetAspectTest - Test dell'applicazione dei budget SQL dichiarati con @StatementBudget.
+ *
+ * Un bean di test con metodi annotati esegue un numero noto di statement (count sugli utenti)
+ * attraverso StatementBudgetAspect reale. Verifica:
+ * - Profilo test (fail-on-budget-exceeded=true): il superamento lancia StatementBudgetExceededException
+ * - Un metodo entro il budget termina normalmente
+ * - Produzione (fail-on-budget-exceeded=false): il superamento viene solo loggato, con il
+ *   pattern SQL più ripetuto, e il log rispetta sample-rate
+ *
+ * @see com.epicode.Progetto_Backend.monitoring.StatementBudgetAspect
+ * @see com.epicode.Progetto_Backend.monitoring.StatementGuardReporter
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@ExtendWith(OutputCaptureExtension.class)
+class StatementBudgetAspectTest {
+
+    @Autowired
+    private BudgetedQueries budgetedQueries;
+
+    @Autowired
+    private StatementGuardProperties properties;
+
+    @AfterEach
+    void restoreProperties() {
+        properties.setFailOnBudgetExceeded(true);
+        properties.setSampleRate(1.0);
+    }
+
+    @Test
+    @DisplayName("Nel profilo test il superamento del budget fa fallire il metodo")
+    void testBudgetExceededFailsInTests() {
+        StatementBudgetExceededException thrown =
+                assertThrows(StatementBudgetExceededException.class, () -> budgetedQueries.threeStatements());
+
+        assertTrue(thrown.getMessage().contains("BudgetedQueries.threeStatements ha eseguito 3 statement SQL (budget 1)"),
+                thrown.getMessage());
+        assertTrue(thrown.getMessage().contains("3x ["), thrown.getMessage());
+    }
+
+    @Test
+    @DisplayName("Un metodo entro il budget termina normalmente")
+    void testWithinBudget() {
+        assertEquals(3L, assertDoesNotThrow(() -> budgetedQueries.withinBudget()));
+    }
+
+    @Test
+    @DisplayName("In produzione il superamento viene solo loggato")
+    void testBudgetExceededOnlyLoggedInProduction(CapturedOutput output) {
+        properties.setFailOnBudgetExceeded(false);
+
+        assertDoesNotThrow(() -> budgetedQueries.threeStatements());
+
+        assertTrue(output.getOut().contains("BudgetedQueries.threeStatements ha eseguito 3 statement SQL (budget 1)"));
+    }
+
+    @Test
+    @DisplayName("In produzione il log dei superamenti è campionato")
+    void testBudgetExceededLogSampled(CapturedOutput output) {
+        properties.setFailOnBudgetExceeded(false);
+        properties.setSampleRate(0.0);
+
+        assertDoesNotThrow(() -> budgetedQueries.threeStatements());
+
+        assertFalse(output.getOut().contains("BudgetedQueries.threeStatements"));
+    }
+
+    @TestConfiguration
+    static class BudgetedQueriesConfig {
+
+        @Bean
+        BudgetedQueries budgetedQueries(UserRepository userRepository) {
+            return new BudgetedQueries(userRepository);
+        }
+    }
+
+    /**
+     * Bean con metodi annotati che eseguono tre statement SQL ciascuno.
+     */
+    static class BudgetedQueries {
+
+        private final UserRepository userRepository;
+
+        BudgetedQueries(UserRepository userRepository) {
+            this.userRepository = userRepository;
+        }
+
+        @StatementBudget(1)
+        public long threeStatements() {
+            return countThreeTimes();
+        }
+
+        @StatementBudget(3)
+        public long withinBudget() {
+            countThreeTimes();
+            return 3;
+        }
+
+        private long countThreeTimes() {
+            return userRepository.count() + userRepository.count() + userRepository.count();
+        }
+    }
+}
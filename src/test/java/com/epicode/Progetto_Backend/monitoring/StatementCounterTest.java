@@ -0,0 +1,71 @@
+package com.epicode.Progetto_Backend.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * StatementCounterTest - Test unitari per il contatore di statement SQL.
+ *
+ * Verifica la normalizzazione dei pattern SQL, la propagazione dei conteggi
+ * agli scope padre e il ripristino dello scope attivo alla chiusura.
+ */
+class StatementCounterTest {
+
+    private final StatementCountingInspector inspector = new StatementCountingInspector();
+
+    @Test
+    @DisplayName("Statement fuori da uno scope non vengono contati")
+    void testRecordWithoutScope() {
+        inspector.inspect("select 1");
+        assertFalse(StatementCounter.current().isPresent());
+    }
+
+    @Test
+    @DisplayName("Lo stesso statement con parametri diversi produce lo stesso pattern")
+    void testNormalize() {
+        String first = StatementCounter.normalize("select * from rata r1_0 where r1_0.contratto_id=12");
+        String second = StatementCounter.normalize("select  *  from rata r1_0 where r1_0.contratto_id=345");
+        assertEquals(first, second);
+        assertEquals("select * from rata r1_0 where r1_0.contratto_id=?", first);
+
+        assertEquals("select * from users where email=?",
+                StatementCounter.normalize("select * from users where email='a@b.it'"));
+        assertEquals("select * from rata where id in (...)",
+                StatementCounter.normalize("select * from rata where id in (?, ?, ?)"));
+    }
+
+    @Test
+    @DisplayName("Gli statement vengono contati nello scope corrente e nei padri")
+    void testNestedScopes() {
+        try (StatementCounter.Scope request = StatementCounter.open("request")) {
+            inspector.inspect("select * from users where id=?");
+            try (StatementCounter.Scope method = StatementCounter.open("method")) {
+                inspector.inspect("select * from rata where contratto_id=1");
+                inspector.inspect("select * from rata where contratto_id=2");
+                assertEquals(2, method.getCount());
+                assertEquals(2, method.getMostFrequentPattern().orElseThrow().getValue());
+            }
+            assertSame(request, StatementCounter.current().orElseThrow());
+            assertEquals(3, request.getCount());
+            assertSame(request, StatementCounter.root().orElseThrow());
+        }
+        assertFalse(StatementCounter.current().isPresent());
+    }
+
+    @Test
+    @DisplayName("L'attribuzione per componente ignora le chiamate senza statement")
+    void testAttribute() {
+        try (StatementCounter.Scope scope = StatementCounter.open("request")) {
+            scope.attribute("ContrattoService.getContrattoById", 2);
+            scope.attribute("ContrattoService.getContrattoById", 1);
+            scope.attribute("UserService.getUserByEmail", 0);
+            assertEquals(3, scope.getComponentCounts().get("ContrattoService.getContrattoById"));
+            assertTrue(scope.getComponentCounts().size() == 1);
+        }
+    }
+}
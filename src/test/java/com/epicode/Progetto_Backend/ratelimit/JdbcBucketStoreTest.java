@@ -0,0 +1,165 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * JdbcBucketStoreTest - Test del backend dei bucket condiviso tramite database.
+ *
+ * Due istanze di JdbcBucketStore sullo stesso database H2 in memoria simulano due nodi
+ * dell'applicazione: il limite deve valere per la somma delle richieste ammesse dai due nodi.
+ */
+class JdbcBucketStoreTest {
+
+    private static final int PREFETCH = 5;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:rate_limit_bucket_test;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS rate_limit_bucket");
+        jdbcTemplate.execute("CREATE TABLE rate_limit_bucket ("
+                + "bucket_key VARCHAR(255) PRIMARY KEY, tokens BIGINT NOT NULL, "
+                + "refilled_at BIGINT NOT NULL, version BIGINT NOT NULL)");
+    }
+
+    @Test
+    @DisplayName("Due nodi condividono lo stesso limite")
+    void testLimitSharedBetweenNodes() {
+        JdbcBucketStore first = node();
+        JdbcBucketStore second = node();
+        RateLimitTier tier = tier(100, Duration.ofDays(1));
+
+        int allowed = 0;
+        for (int i = 0; i < 300; i++) {
+            JdbcBucketStore store = i % 2 == 0 ? first : second;
+            if (store.tryConsume("ip:1", tier, 1).isConsumed()) {
+                allowed++;
+            }
+        }
+
+        assertTrue(allowed <= 100, "Ammesse " + allowed + " richieste oltre la capacità");
+        assertTrue(allowed >= 100 - 2 * PREFETCH, "Ammesse solo " + allowed + " richieste");
+        ConsumptionProbe rejected = first.tryConsume("ip:1", tier, 1);
+        assertFalse(rejected.isConsumed());
+        assertTrue(rejected.getNanosToWaitForRefill() > 0);
+    }
+
+    @Test
+    @DisplayName("Il prelievo anticipato evita la maggior parte degli accessi al database")
+    void testPrefetchServesRequestsLocally() {
+        JdbcBucketStore store = node();
+        RateLimitTier tier = tier(100);
+
+        for (int i = 0; i < PREFETCH; i++) {
+            assertTrue(store.tryConsume("user:a@example.com", tier, 1).isConsumed());
+        }
+
+        long stored = jdbcTemplate.queryForObject(
+                "SELECT tokens FROM rate_limit_bucket WHERE bucket_key = ?", Long.class, "user:a@example.com");
+        assertEquals((100 - PREFETCH) * JdbcBucketStore.SCALE, stored);
+    }
+
+    @Test
+    @DisplayName("Richieste concorrenti su due nodi non superano il limite")
+    void testConcurrentNodes() throws Exception {
+        JdbcBucketStore first = node();
+        JdbcBucketStore second = node();
+        RateLimitTier tier = tier(200, Duration.ofDays(1));
+        AtomicInteger allowed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                JdbcBucketStore store = t % 2 == 0 ? first : second;
+                tasks.add(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        if (store.tryConsume("ip:2", tier, 1).isConsumed()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(allowed.get() <= 200, "Ammesse " + allowed.get() + " richieste oltre la capacità");
+        assertTrue(allowed.get() >= 200 - 2 * PREFETCH, "Ammesse solo " + allowed.get() + " richieste");
+    }
+
+    @Test
+    @DisplayName("I token prelevati e non usati tornano al bucket condiviso")
+    void testExpiredPrefetchIsReturned() throws InterruptedException {
+        JdbcBucketStore first = new JdbcBucketStore(jdbcTemplate, 100, 60_000, PREFETCH, 50, 5);
+        JdbcBucketStore second = node();
+        RateLimitTier tier = tier(100, Duration.ofDays(1));
+
+        // Il primo nodo preleva un lotto di token e ne usa uno solo
+        assertTrue(first.tryConsume("ip:3", tier, 1).isConsumed());
+        Thread.sleep(100);
+        // Lotto scaduto: i 4 token non usati tornano al bucket e ne viene prelevato uno nuovo
+        assertTrue(first.tryConsume("ip:3", tier, 1).isConsumed());
+
+        int allowed = 0;
+        while (second.tryConsume("ip:3", tier, 1).isConsumed()) {
+            allowed++;
+        }
+        // 100 token: 2 usati e 4 ancora prelevati dal primo nodo
+        assertEquals(94, allowed);
+    }
+
+    @Test
+    @DisplayName("La ricarica è continua e limitata dalla capacità")
+    void testRefill() {
+        Bandwidth bandwidth = tier(60).configuration().getBandwidths()[0];
+
+        assertEquals(0, JdbcBucketStore.refill(0, 0, bandwidth));
+        assertEquals(JdbcBucketStore.SCALE, JdbcBucketStore.refill(0, 1_000, bandwidth));
+        assertEquals(500, JdbcBucketStore.refill(0, 500, bandwidth));
+        assertEquals(60 * JdbcBucketStore.SCALE, JdbcBucketStore.refill(0, 120_000, bandwidth));
+        assertEquals(60 * JdbcBucketStore.SCALE, JdbcBucketStore.refill(0, Long.MAX_VALUE / 2, bandwidth));
+        // Orologi sfasati tra i nodi: nessuna ricarica
+        assertEquals(1_000, JdbcBucketStore.refill(1_000, -5_000, bandwidth));
+    }
+
+    private JdbcBucketStore node() {
+        return new JdbcBucketStore(jdbcTemplate, 100, 60_000, PREFETCH, 60_000, 10);
+    }
+
+    private static RateLimitTier tier(long capacity) {
+        return tier(capacity, Duration.ofMinutes(1));
+    }
+
+    private static RateLimitTier tier(long capacity, Duration period) {
+        Bandwidth bandwidth = Bandwidth.builder().capacity(capacity).refillGreedy(capacity, period).build();
+        return new RateLimitTier("base", BucketConfiguration.builder().addLimit(bandwidth).build());
+    }
+}
@@ -0,0 +1,85 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * LocalBucketStoreTest - Test unitari per il negozio dei bucket in memoria.
+ *
+ * Verifica il consumo dei token con costo, il limite sul numero di client (LRU),
+ * la rimozione dei bucket inattivi e l'adozione dei nuovi limiti al cambio di livello.
+ */
+class LocalBucketStoreTest {
+
+    @Test
+    @DisplayName("Una richiesta con costo consuma più token")
+    void testCostConsumesTokens() {
+        LocalBucketStore store = new LocalBucketStore(10, 60_000);
+        RateLimitTier tier = tier("base", 10);
+
+        assertEquals(5, store.tryConsume("ip:1", tier, 5).getRemainingTokens());
+        assertTrue(store.tryConsume("ip:1", tier, 5).isConsumed());
+        ConsumptionProbe rejected = store.tryConsume("ip:1", tier, 1);
+        assertFalse(rejected.isConsumed());
+        assertTrue(rejected.getNanosToWaitForRefill() > 0);
+    }
+
+    @Test
+    @DisplayName("Oltre il limite viene rimosso il client usato meno di recente")
+    void testBoundedSize() {
+        LocalBucketStore store = new LocalBucketStore(2, 60_000);
+        RateLimitTier tier = tier("base", 10);
+
+        store.tryConsume("ip:1", tier, 1);
+        store.tryConsume("ip:2", tier, 1);
+        store.tryConsume("ip:1", tier, 1);
+        store.tryConsume("ip:3", tier, 1);
+
+        assertEquals(2, store.size());
+        assertEquals(1, store.evictions());
+        // ip:2 è stato rimosso: ottiene un bucket nuovo
+        assertEquals(9, store.tryConsume("ip:2", tier, 1).getRemainingTokens());
+    }
+
+    @Test
+    @DisplayName("I bucket inattivi vengono rimossi")
+    void testExpireAfterAccess() throws InterruptedException {
+        LocalBucketStore store = new LocalBucketStore(10, 20);
+        RateLimitTier tier = tier("base", 10);
+        store.tryConsume("ip:1", tier, 10);
+
+        Thread.sleep(40);
+
+        assertEquals(1, store.evictExpired());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    @DisplayName("Al cambio di livello il bucket adotta i nuovi limiti")
+    void testTierChange() {
+        LocalBucketStore store = new LocalBucketStore(10, 60_000);
+        store.tryConsume("user:a", tier("base", 10), 5);
+
+        ConsumptionProbe probe = store.tryConsume("user:a", tier("premium", 100), 1);
+
+        // Token residui proporzionali: 5 su 10 diventano 50 su 100
+        assertEquals(49, probe.getRemainingTokens());
+    }
+
+    private static RateLimitTier tier(String name, long capacity) {
+        Bandwidth bandwidth = Bandwidth.builder()
+                .capacity(capacity)
+                .refillGreedy(capacity, Duration.ofMinutes(1))
+                .build();
+        return new RateLimitTier(name, BucketConfiguration.builder().addLimit(bandwidth).build());
+    }
+}
@@ -0,0 +1,88 @@
+package com.epicode.Progetto_Backend.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import com.epicode.Progetto_Backend.config.RateLimitProperties;
+
+/**
+ * RateLimitPolicyTest - Test unitari per la scelta del livello e del costo del rate limiting.
+ *
+ * Verifica il livello delle richieste anonime e degli utenti (il più ampio tra i ruoli),
+ * i livelli predefiniti e il costo per rotta e metodo.
+ */
+class RateLimitPolicyTest {
+
+    private RateLimitProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.getTiers().put("anonymous", tier(20));
+        properties.getTiers().put("locatario", tier(100));
+        properties.getTiers().put("admin", tier(1000));
+
+        RateLimitProperties.Route upload = new RateLimitProperties.Route();
+        upload.setPattern("/api/users/me/profile-image");
+        upload.setMethod("PUT");
+        upload.setCost(10);
+        RateLimitProperties.Route report = new RateLimitProperties.Route();
+        report.setPattern("/api/rate/{stato:non-pagate|scadute}");
+        report.setCost(5);
+        properties.setRoutes(List.of(upload, report));
+    }
+
+    @Test
+    @DisplayName("Le richieste anonime usano il livello anonymous")
+    void testAnonymousTier() {
+        RateLimitPolicy policy = RateLimitPolicy.from(properties);
+        AnonymousAuthenticationToken anonymous = new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        assertEquals("anonymous", policy.tierFor(null).name());
+        assertEquals("anonymous", policy.tierFor(anonymous).name());
+    }
+
+    @Test
+    @DisplayName("Con più ruoli vale il livello con la capacità maggiore")
+    void testRoleTier() {
+        RateLimitPolicy policy = RateLimitPolicy.from(properties);
+
+        assertEquals("admin", policy.tierFor(user("ROLE_LOCATARIO", "ROLE_ADMIN")).name());
+        assertEquals("locatario", policy.tierFor(user("ROLE_LOCATARIO")).name());
+        // Nessun livello per il ruolo: livello authenticated predefinito
+        assertEquals("authenticated", policy.tierFor(user("ROLE_MANAGER")).name());
+    }
+
+    @Test
+    @DisplayName("Il costo dipende da rotta e metodo")
+    void testRouteCost() {
+        properties.setDefaultCost(2);
+        RateLimitPolicy policy = RateLimitPolicy.from(properties);
+
+        assertEquals(10, policy.costOf("PUT", "/api/users/me/profile-image"));
+        assertEquals(2, policy.costOf("GET", "/api/users/me/profile-image"));
+        assertEquals(5, policy.costOf("GET", "/api/rate/scadute"));
+        assertEquals(2, policy.costOf("GET", "/api/rate/12"));
+    }
+
+    private static RateLimitProperties.Tier tier(long capacity) {
+        RateLimitProperties.Tier tier = new RateLimitProperties.Tier();
+        tier.setCapacity(capacity);
+        tier.setRefillPeriod(Duration.ofMinutes(1));
+        return tier;
+    }
+
+    private static UsernamePasswordAuthenticationToken user(String... roles) {
+        return new UsernamePasswordAuthenticationToken("user@test.com", null,
+                AuthorityUtils.createAuthorityList(roles));
+    }
+}
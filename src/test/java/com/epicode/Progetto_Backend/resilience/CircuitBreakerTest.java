@@ -0,0 +1,157 @@
+package com.epicode.Progetto_Backend.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.epicode.Progetto_Backend.config.CircuitBreakerProperties;
+import com.epicode.Progetto_Backend.resilience.CircuitBreaker.State;
+
+/**
+ * CircuitBreakerTest - Test unitari per il circuit breaker delle integrazioni esterne.
+ *
+ * Verifica apertura per errori e per chiamate lente, rifiuto delle chiamate a circuito
+ * aperto, chiamate di prova nello stato HALF_OPEN e chiusura o riapertura in base al loro
+ * esito. Il tempo è simulato con un orologio controllato dal test.
+ */
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private CircuitBreakerProperties properties;
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CircuitBreakerProperties();
+        properties.setSlidingWindowSize(4);
+        properties.setMinimumNumberOfCalls(4);
+        properties.setFailureRateThreshold(50);
+        properties.setSlowCallDuration(Duration.ofSeconds(1));
+        properties.setSlowCallRateThreshold(100);
+        properties.setWaitDurationInOpenState(Duration.ofSeconds(30));
+        properties.setPermittedCallsInHalfOpenState(2);
+        circuitBreaker = new CircuitBreaker("test", properties, clock::get);
+    }
+
+    @Test
+    @DisplayName("Il circuito resta chiuso sotto la soglia di errori")
+    void testStaysClosedBelowThreshold() {
+        record(false, false, false, true);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertEquals(25f, circuitBreaker.failureRate());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("Il circuito non si apre prima del numero minimo di chiamate")
+    void testMinimumNumberOfCalls() {
+        record(true, true, true);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("Oltre la soglia di errori il circuito si apre e rifiuta le chiamate")
+    void testOpensOnFailureRate() {
+        record(false, true, false, true);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(1, circuitBreaker.notPermittedCalls());
+        assertEquals(31, circuitBreaker.getRetryAfterSeconds());
+    }
+
+    @Test
+    @DisplayName("Il circuito si apre quando tutte le chiamate sono lente")
+    void testOpensOnSlowCalls() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onSuccess(TimeUnit.SECONDS.toNanos(2));
+        }
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("Scaduta l'attesa passano solo le chiamate di prova; se riescono il circuito si chiude")
+    void testHalfOpenCloses() {
+        record(true, true, true, true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess(FAST);
+        circuitBreaker.onSuccess(FAST);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.bufferedCalls());
+    }
+
+    @Test
+    @DisplayName("Se le chiamate di prova falliscono il circuito si riapre")
+    void testHalfOpenReopens() {
+        record(true, true, true, true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onError(FAST);
+        circuitBreaker.onSuccess(FAST);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("Un permesso restituito torna disponibile per le chiamate di prova")
+    void testReleasePermission() {
+        record(true, true, true, true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.releasePermission();
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("Disabilitato, il circuit breaker permette tutte le chiamate")
+    void testDisabled() {
+        properties.setEnabled(false);
+
+        record(true, true, true, true);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    /**
+     * Esegue una chiamata veloce per ogni esito (true = errore).
+     */
+    private void record(boolean... errors) {
+        for (boolean error : errors) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            if (error) {
+                circuitBreaker.onError(FAST);
+            } else {
+                circuitBreaker.onSuccess(FAST);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.epicode.Progetto_Backend.config.PasswordHashingProperties;
+import com.epicode.Progetto_Backend.exception.ServiceOverloadedException;
+
+/**
+ * PasswordHashingExecutorTest - Test unitari per il pool di hashing delle password.
+ *
+ * Verifica il rifiuto delle operazioni a coda piena, il timeout, la propagazione degli
+ * errori dell'operazione e la scelta del costo BCrypt da parte della calibrazione.
+ */
+class PasswordHashingExecutorTest {
+
+    private PasswordHashingExecutor executor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setPoolSize(1);
+        properties.setQueueCapacity(1);
+        properties.setTimeout(Duration.ofMillis(200));
+        executor = new PasswordHashingExecutor(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.destroy();
+    }
+
+    @Test
+    @DisplayName("L'operazione viene eseguita e il risultato restituito")
+    void testExecute() {
+        assertEquals("hash", executor.execute(() -> "hash"));
+    }
+
+    @Test
+    @DisplayName("A pool e coda pieni l'operazione viene rifiutata")
+    void testRejectedWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread busy = new Thread(() -> {
+            try {
+                executor.execute(() -> {
+                    started.countDown();
+                    return release.await(5, TimeUnit.SECONDS);
+                });
+            } catch (ServiceOverloadedException e) {
+                // Timeout atteso: l'operazione resta in esecuzione fino al rilascio
+            }
+        });
+        busy.start();
+        started.await(5, TimeUnit.SECONDS);
+        Thread queued = new Thread(() -> {
+            try {
+                executor.execute(() -> "queued");
+            } catch (ServiceOverloadedException e) {
+                // Timeout atteso
+            }
+        });
+        queued.start();
+        Thread.sleep(50);
+
+        assertThrows(ServiceOverloadedException.class, () -> executor.execute(() -> "rejected"));
+
+        release.countDown();
+        busy.join();
+        queued.join();
+    }
+
+    @Test
+    @DisplayName("Un'operazione che supera il timeout viene interrotta con 503")
+    void testTimeout() {
+        ServiceOverloadedException ex = assertThrows(ServiceOverloadedException.class,
+                () -> executor.execute(() -> release.await(5, TimeUnit.SECONDS)));
+
+        assertEquals(1, ex.getRetryAfterSeconds());
+    }
+
+    @Test
+    @DisplayName("Le eccezioni dell'operazione vengono propagate al chiamante")
+    void testTaskExceptionPropagated() {
+        assertThrows(IllegalArgumentException.class, () -> executor.execute(() -> {
+            throw new IllegalArgumentException("hash non valido");
+        }));
+    }
+
+    @Test
+    @DisplayName("La calibrazione sceglie il costo più alto entro la latenza obiettivo")
+    void testCalibrationStrength() {
+        long millis = 1_000_000;
+        // 60 ms al costo 10: 120 ms al costo 11, 240 ms al costo 12, 480 ms al costo 13
+        assertEquals(12, BCryptStrengthCalibrator.strengthFor(250 * millis, 60 * millis, 10, 14));
+        // Hardware lento: non si scende sotto il minimo
+        assertEquals(10, BCryptStrengthCalibrator.strengthFor(250 * millis, 400 * millis, 10, 14));
+        // Hardware veloce: non si supera il massimo
+        assertEquals(14, BCryptStrengthCalibrator.strengthFor(250 * millis, millis, 10, 14));
+    }
+}
@@ -0,0 +1,107 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.epicode.Progetto_Backend.config.JwtProperties;
+import com.epicode.Progetto_Backend.repository.UserRepository;
+
+/**
+ * TokenVersionCheckerTest - Test unitari per la verifica della versione dei token JWT.
+ *
+ * Verifica che la versione venga letta una sola volta entro il TTL, che oltre il limite
+ * venga rimosso solo l'utente usato meno di recente, che UserSecurityChangedEvent invalidi
+ * la versione in cache (anche se arriva durante la lettura) e che un utente inesistente o
+ * disabilitato non abbia token validi.
+ */
+@ExtendWith(MockitoExtension.class)
+class TokenVersionCheckerTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private JwtProperties jwtProperties = new JwtProperties();
+
+    @InjectMocks
+    private TokenVersionChecker tokenVersionChecker;
+
+    @Test
+    @DisplayName("La versione viene letta dal database una sola volta entro il TTL")
+    void testVersionCached() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(3L));
+
+        assertTrue(tokenVersionChecker.isCurrent(1L, 3L));
+        assertFalse(tokenVersionChecker.isCurrent(1L, 2L));
+
+        verify(userRepository, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("Oltre il limite viene rimosso solo l'utente usato meno di recente")
+    void testLeastRecentlyUsedEvicted() {
+        jwtProperties.setVersionCacheMaxEntries(2);
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0L));
+        when(userRepository.findTokenVersionById(2L)).thenReturn(Optional.of(0L));
+        when(userRepository.findTokenVersionById(3L)).thenReturn(Optional.of(0L));
+
+        tokenVersionChecker.isCurrent(1L, 0L);
+        tokenVersionChecker.isCurrent(2L, 0L);
+        tokenVersionChecker.isCurrent(1L, 0L);
+        tokenVersionChecker.isCurrent(3L, 0L);
+        tokenVersionChecker.isCurrent(1L, 0L);
+        tokenVersionChecker.isCurrent(2L, 0L);
+
+        verify(userRepository, times(1)).findTokenVersionById(1L);
+        verify(userRepository, times(2)).findTokenVersionById(2L);
+        verify(userRepository, times(1)).findTokenVersionById(3L);
+    }
+
+    @Test
+    @DisplayName("Il cambio dei dati di sicurezza invalida la versione in cache")
+    void testSecurityChangeEvicts() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(3L), Optional.of(4L));
+
+        assertTrue(tokenVersionChecker.isCurrent(1L, 3L));
+        tokenVersionChecker.onUserSecurityChanged(new UserSecurityChangedEvent(1L, "mario@test.com"));
+
+        assertFalse(tokenVersionChecker.isCurrent(1L, 3L));
+        assertTrue(tokenVersionChecker.isCurrent(1L, 4L));
+    }
+
+    @Test
+    @DisplayName("Una versione letta prima di un'invalidazione non viene messa in cache")
+    void testEvictDuringLoadNotCached() {
+        // Il commit (e l'invalidazione) arriva mentre la query legge ancora la versione vecchia
+        when(userRepository.findTokenVersionById(1L)).thenAnswer(invocation -> {
+            tokenVersionChecker.evict(1L);
+            return Optional.of(3L);
+        }).thenReturn(Optional.of(4L));
+
+        assertTrue(tokenVersionChecker.isCurrent(1L, 3L));
+
+        assertFalse(tokenVersionChecker.isCurrent(1L, 3L));
+        assertTrue(tokenVersionChecker.isCurrent(1L, 4L));
+        verify(userRepository, times(2)).findTokenVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("Un utente inesistente o disabilitato non ha token validi")
+    void testRevokedUser() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.empty());
+
+        assertFalse(tokenVersionChecker.isCurrent(1L, 0L));
+    }
+}
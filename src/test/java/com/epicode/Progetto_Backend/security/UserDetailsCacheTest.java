@@ -0,0 +1,137 @@
+package com.epicode.Progetto_Backend.security;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.CredentialsContainer;
+
+import com.epicode.Progetto_Backend.config.UserDetailsCacheProperties;
+import com.epicode.Progetto_Backend.entity.Role;
+import com.epicode.Progetto_Backend.entity.User;
+
+/**
+ * UserDetailsCacheTest - Test unitari per la cache dei UserDetails.
+ *
+ * Verifica che la cache restituisca copie indipendenti (la cancellazione delle credenziali
+ * dopo il login non altera la cache) con i dati usati dal login, l'invalidazione locale
+ * e tra nodi, la scadenza e il limite.
+ */
+class UserDetailsCacheTest {
+
+    private UserDetailsCacheProperties properties;
+
+    private UserDetailsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UserDetailsCacheProperties();
+        cache = new UserDetailsCache(properties);
+    }
+
+    @Test
+    @DisplayName("La cancellazione delle credenziali di una copia non altera la cache")
+    void testCopiesAreIndependent() {
+        AuthenticatedUser loaded = cache.put(user("mario@test.com"));
+        ((CredentialsContainer) loaded).eraseCredentials();
+
+        AuthenticatedUser cached = cache.get("mario@test.com");
+
+        assertNotNull(cached);
+        assertEquals("hash", cached.getPassword());
+        assertEquals("ROLE_LOCATARIO", cached.getAuthorities().iterator().next().getAuthority());
+        assertEquals(1L, cached.getUserId());
+        assertEquals("Mario", cached.getNome());
+        assertEquals("Rossi", cached.getCognome());
+        assertEquals(2L, cached.getTokenVersion());
+    }
+
+    @Test
+    @DisplayName("Il cambio dei dati di sicurezza rimuove l'utente e viene propagato agli altri nodi")
+    void testInvalidationIsPropagated() {
+        RecordingChannel channel = new RecordingChannel();
+        cache.setChannels(List.of(channel));
+        cache.put(user("mario@test.com"));
+
+        cache.onUserSecurityChanged(new UserSecurityChangedEvent(1L, "mario@test.com"));
+
+        assertNull(cache.get("mario@test.com"));
+        assertEquals(List.of("mario@test.com"), channel.published);
+    }
+
+    @Test
+    @DisplayName("Le invalidazioni ricevute da altri nodi rimuovono l'utente")
+    void testRemoteInvalidation() {
+        RecordingChannel channel = new RecordingChannel();
+        cache.setChannels(List.of(channel));
+        cache.put(user("mario@test.com"));
+
+        channel.listener.accept("mario@test.com");
+
+        assertNull(cache.get("mario@test.com"));
+    }
+
+    @Test
+    @DisplayName("Gli utenti scaduti non vengono restituiti")
+    void testTtl() {
+        properties.setTtl(Duration.ofMillis(-1));
+        cache.put(user("mario@test.com"));
+
+        assertNull(cache.get("mario@test.com"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Oltre il limite vengono rimossi gli utenti meno usati")
+    void testMaxEntries() {
+        properties.setMaxEntries(2);
+        cache.put(user("a@test.com"));
+        cache.put(user("b@test.com"));
+        cache.get("a@test.com");
+        cache.put(user("c@test.com"));
+
+        assertNotNull(cache.get("a@test.com"));
+        assertNull(cache.get("b@test.com"));
+        assertEquals(2.0 / 3, cache.getHitRatio());
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .id(1L)
+                .email(email)
+                .password("hash")
+                .nome("Mario")
+                .cognome("Rossi")
+                .tokenVersion(2L)
+                .roles(Set.of(Role.builder().name("ROLE_LOCATARIO").build()))
+                .build();
+    }
+
+    /**
+     * RecordingChannel - Canale di test che registra le invalidazioni pubblicate.
+     */
+    private static final class RecordingChannel implements UserCacheInvalidationChannel {
+
+        private final List<String> published = new ArrayList<>();
+
+        private Consumer<String> listener;
+
+        @Override
+        public void publish(String email) {
+            published.add(email);
+        }
+
+        @Override
+        public void subscribe(Consumer<String> listener) {
+            this.listener = listener;
+        }
+    }
+}
@@ -141,6 +141,10 @@ class AuthServiceTest {
         assertNotNull(response);
         assertNotNull(response.getToken());
         assertEquals("login@test.com", response.getEmail());
+        assertEquals(user.getId(), response.getUserId());
+        assertEquals("Login", response.getNome());
+        assertEquals("User", response.getCognome());
+        assertEquals(Set.of("ROLE_LOCATARIO"), response.getRoles());
     }
 
     @Test
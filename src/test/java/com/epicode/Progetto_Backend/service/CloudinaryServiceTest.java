@@ -0,0 +1,145 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import com.epicode.Progetto_Backend.config.CloudinaryProperties;
+import com.epicode.Progetto_Backend.exception.ExternalServiceUnavailableException;
+import com.epicode.Progetto_Backend.exception.ValidationException;
+import com.epicode.Progetto_Backend.resilience.CircuitBreaker;
+import com.epicode.Progetto_Backend.resilience.CircuitBreakerRegistry;
+import com.epicode.Progetto_Backend.support.FakeCloudinaryServer;
+
+/**
+ * CloudinaryServiceTest - Test unitari per upload, timeout e circuit breaker di Cloudinary.
+ *
+ * Le chiamate dell'SDK arrivano a un server locale (FakeCloudinaryServer, configurato come
+ * cloudinary.upload-prefix) che sostituisce l'API Cloudinary e può rispondere con errori o
+ * in ritardo. Verifica:
+ * - Upload riuscito e URL restituito
+ * - 503 (ExternalServiceUnavailableException) quando Cloudinary non risponde entro il timeout
+ * - Apertura del circuito dopo errori 5xx: gli upload successivi falliscono senza chiamare il server
+ * - Errori 4xx rilanciati come IOException senza aprire il circuito
+ * - File non immagine o troppo grandi rifiutati (400) senza chiamare Cloudinary
+ *
+ * @see com.epicode.Progetto_Backend.service.CloudinaryService
+ */
+class CloudinaryServiceTest {
+
+    private static final String SECURE_URL = "https://res.cloudinary.com/test/image/upload/v1/profile_images/test.jpg";
+
+    private FakeCloudinaryServer server;
+
+    private CloudinaryProperties properties;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private CloudinaryService cloudinaryService;
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 't', 'e', 's', 't'};
+
+    private final MockMultipartFile file = new MockMultipartFile(
+            "file", "test.jpg", MediaType.IMAGE_JPEG_VALUE, JPEG);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeCloudinaryServer(SECURE_URL);
+        properties = new CloudinaryProperties();
+        properties.setCloudName("test");
+        properties.setApiKey("key");
+        properties.setApiSecret("secret");
+        properties.setUploadPrefix(server.baseUrl());
+        properties.setTimeout(Duration.ofSeconds(5));
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(2);
+        circuitBreakerRegistry = new CircuitBreakerRegistry();
+        cloudinaryService = new CloudinaryService(properties, circuitBreakerRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cloudinaryService.destroy();
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("L'upload restituisce l'URL sicuro dell'immagine")
+    void testUploadImage() throws IOException {
+        assertEquals(SECURE_URL, cloudinaryService.uploadImage(file));
+
+        assertEquals(1, server.getRequests().size());
+        assertEquals("/v1_1/test/auto/upload", server.getRequests().get(0).path());
+    }
+
+    @Test
+    @DisplayName("Se Cloudinary non risponde entro il timeout l'upload fallisce con 503")
+    void testTimeout() {
+        server.setDelayMillis(2000);
+        properties.setTimeout(Duration.ofMillis(200));
+
+        ExternalServiceUnavailableException thrown =
+                assertThrows(ExternalServiceUnavailableException.class, () -> cloudinaryService.uploadImage(file));
+
+        assertEquals(CloudinaryService.SERVICE_NAME, thrown.getService());
+    }
+
+    @Test
+    @DisplayName("Dopo errori 5xx il circuito si apre e Cloudinary non viene più chiamato")
+    void testCircuitOpensOnServerErrors() {
+        server.setStatus(500);
+        assertThrows(IOException.class, () -> cloudinaryService.uploadImage(file));
+        assertThrows(IOException.class, () -> cloudinaryService.uploadImage(file));
+        assertEquals(2, server.getRequests().size());
+
+        ExternalServiceUnavailableException thrown =
+                assertThrows(ExternalServiceUnavailableException.class, () -> cloudinaryService.uploadImage(file));
+
+        assertTrue(thrown.getRetryAfterSeconds() > 0);
+        assertEquals(2, server.getRequests().size());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.getAll().iterator().next().getState());
+    }
+
+    @Test
+    @DisplayName("Gli errori 4xx vengono rilanciati senza aprire il circuito")
+    void testClientErrorKeepsCircuitClosed() {
+        server.setStatus(400);
+        for (int i = 0; i < 3; i++) {
+            IOException thrown = assertThrows(IOException.class, () -> cloudinaryService.uploadImage(file));
+            assertTrue(thrown.getMessage().contains("Invalid image file"), thrown.getMessage());
+        }
+
+        assertEquals(3, server.getRequests().size());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.getAll().iterator().next().getState());
+    }
+
+    @Test
+    @DisplayName("Un file che non è un'immagine viene rifiutato senza chiamare Cloudinary")
+    void testUnsupportedFormat() {
+        MockMultipartFile text = new MockMultipartFile(
+                "file", "test.jpg", MediaType.IMAGE_JPEG_VALUE, "test image content".getBytes());
+
+        assertThrows(ValidationException.class, () -> cloudinaryService.uploadImage(text));
+
+        assertEquals(0, server.getRequests().size());
+    }
+
+    @Test
+    @DisplayName("Un'immagine oltre cloudinary.max-file-size viene rifiutata senza chiamare Cloudinary")
+    void testMaxFileSize() {
+        properties.setMaxFileSize(DataSize.ofBytes(JPEG.length - 1));
+
+        assertThrows(ValidationException.class, () -> cloudinaryService.uploadImage(file));
+
+        assertEquals(0, server.getRequests().size());
+    }
+}
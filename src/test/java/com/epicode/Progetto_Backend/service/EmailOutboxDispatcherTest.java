@@ -0,0 +1,236 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.epicode.Progetto_Backend.config.EmailOutboxProperties;
+import com.epicode.Progetto_Backend.entity.EmailOutbox;
+import com.epicode.Progetto_Backend.entity.EmailStatus;
+import com.epicode.Progetto_Backend.entity.EmailType;
+import com.epicode.Progetto_Backend.exception.ExternalServiceUnavailableException;
+import com.epicode.Progetto_Backend.repository.EmailOutboxRepository;
+
+/**
+ * EmailOutboxDispatcherTest - Test unitari per la consegna delle email accodate.
+ *
+ * Verifica prelievo a lotti, registrazione dell'esito, backoff esponenziale tra i
+ * tentativi, passaggio a DEAD dopo l'ultimo tentativo e rinvio senza tentativo quando il
+ * circuit breaker di Mailgun è aperto. Repository e MailgunService sono mockati: la query
+ * FOR UPDATE SKIP LOCKED non viene eseguita.
+ *
+ * @see com.epicode.Progetto_Backend.service.EmailOutboxDispatcher
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("EmailOutboxDispatcher Unit Tests")
+class EmailOutboxDispatcherTest {
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    private MailgunService mailgunService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EmailOutboxProperties properties;
+
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        properties = new EmailOutboxProperties();
+        properties.setBatchSize(2);
+        properties.setMaxAttempts(3);
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, mailgunService, properties, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Dovrebbe marcare SENDING le email prelevate fino alla scadenza del lease")
+    void claim_MarksBatchAsSending() {
+        EmailOutbox email = email(true, 0);
+        when(emailOutboxRepository.lockDue(any(Instant.class), anyInt())).thenReturn(List.of(email));
+        when(emailOutboxRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<EmailOutbox> batch = dispatcher.claim(10);
+
+        assertEquals(1, batch.size());
+        assertEquals(EmailStatus.SENDING, email.getStatus());
+        assertTrue(email.getNextAttemptAt().isAfter(Instant.now().plus(properties.getLease()).minusSeconds(5)));
+    }
+
+    @Test
+    @DisplayName("Dovrebbe marcare SENT un'email consegnata")
+    void deliver_Success() {
+        EmailOutbox email = email(true, 1);
+        when(mailgunService.sendAsync("user@test.com", "Oggetto", "<p>Corpo</p>", true))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher.deliver(List.of(email));
+
+        verify(emailOutboxRepository).save(email);
+        assertEquals(EmailStatus.SENT, email.getStatus());
+        assertNotNull(email.getSentAt());
+        assertNull(email.getLastError());
+    }
+
+    @Test
+    @DisplayName("Dovrebbe inviare come testo le email non HTML")
+    void deliver_PlainText() {
+        EmailOutbox email = email(false, 0);
+        when(mailgunService.sendAsync("user@test.com", "Oggetto", "<p>Corpo</p>", false))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher.deliver(List.of(email));
+
+        assertEquals(EmailStatus.SENT, email.getStatus());
+    }
+
+    @Test
+    @DisplayName("Dovrebbe ripianificare l'email con backoff dopo un errore")
+    void deliver_FailureSchedulesRetry() {
+        EmailOutbox email = email(true, 0);
+        when(mailgunService.sendAsync(any(), any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Mailgun API error: 503")));
+
+        Instant before = Instant.now();
+        dispatcher.deliver(List.of(email));
+
+        assertEquals(EmailStatus.PENDING, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertEquals("Mailgun API error: 503", email.getLastError());
+        assertTrue(!email.getNextAttemptAt().isBefore(before.plus(properties.getInitialBackoff())));
+        verify(emailOutboxRepository).save(email);
+    }
+
+    @Test
+    @DisplayName("Dovrebbe marcare DEAD l'email dopo l'ultimo tentativo")
+    void deliver_FailureAfterMaxAttemptsIsDead() {
+        EmailOutbox email = email(true, 2);
+        when(mailgunService.sendAsync(any(), any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Mailgun API error: 400")));
+
+        dispatcher.deliver(List.of(email));
+
+        assertEquals(EmailStatus.DEAD, email.getStatus());
+        assertEquals(3, email.getAttempts());
+    }
+
+    @Test
+    @DisplayName("Non dovrebbe superare il limite di invii in corso")
+    void deliver_BoundedConcurrency() {
+        properties.setConcurrency(2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(mailgunService.sendAsync(any(), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.runAsync(inFlight::decrementAndGet,
+                    CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS));
+        });
+        List<EmailOutbox> batch = List.of(email(true, 0), email(true, 0), email(true, 0), email(true, 0));
+
+        dispatcher.deliver(batch);
+
+        verify(mailgunService, times(4)).sendAsync(any(), any(), any(), anyBoolean());
+        assertTrue(maxInFlight.get() <= 2, "Invii in corso: " + maxInFlight.get());
+        assertTrue(batch.stream().allMatch(email -> email.getStatus() == EmailStatus.SENT));
+    }
+
+    @Test
+    @DisplayName("Dovrebbe prelevare subito il lotto successivo finché i lotti sono pieni")
+    void dispatch_DrainsFullBatches() {
+        when(mailgunService.isAvailable()).thenReturn(true);
+        List<EmailOutbox> full = new ArrayList<>(List.of(email(true, 0), email(true, 0)));
+        when(emailOutboxRepository.lockDue(any(Instant.class), anyInt()))
+                .thenReturn(full)
+                .thenReturn(List.of(email(true, 0)));
+        when(emailOutboxRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(mailgunService.sendAsync(any(), any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        dispatcher.dispatch();
+
+        verify(emailOutboxRepository, times(2)).lockDue(any(Instant.class), anyInt());
+        verify(mailgunService, times(3)).sendAsync(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Non dovrebbe prelevare email mentre il circuito di Mailgun è aperto")
+    void dispatch_SkipsWhileMailgunUnavailable() {
+        when(mailgunService.isAvailable()).thenReturn(false);
+
+        dispatcher.dispatch();
+
+        verify(emailOutboxRepository, never()).lockDue(any(Instant.class), anyInt());
+    }
+
+    @Test
+    @DisplayName("Dovrebbe rimandare senza consumare un tentativo l'email rifiutata dal circuit breaker")
+    void deliver_UnavailableDefersWithoutAttempt() {
+        EmailOutbox email = email(true, 1);
+        when(mailgunService.sendAsync(any(), any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.failedFuture(new ExternalServiceUnavailableException(
+                        "mailgun", "Mailgun temporaneamente non disponibile", 30)));
+
+        Instant before = Instant.now();
+        dispatcher.deliver(List.of(email));
+
+        assertEquals(EmailStatus.PENDING, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertEquals("Mailgun temporaneamente non disponibile", email.getLastError());
+        assertTrue(!email.getNextAttemptAt().isBefore(before.plusSeconds(30)));
+        verify(emailOutboxRepository).save(email);
+    }
+
+    @Test
+    @DisplayName("Il backoff raddoppia a ogni tentativo fino al massimo")
+    void backoff_DoublesUpToMax() {
+        Duration initial = Duration.ofSeconds(30);
+        Duration max = Duration.ofHours(1);
+
+        assertEquals(Duration.ofSeconds(30), EmailOutboxDispatcher.backoff(1, initial, max));
+        assertEquals(Duration.ofSeconds(60), EmailOutboxDispatcher.backoff(2, initial, max));
+        assertEquals(Duration.ofMinutes(4), EmailOutboxDispatcher.backoff(4, initial, max));
+        assertEquals(max, EmailOutboxDispatcher.backoff(10, initial, max));
+        assertEquals(max, EmailOutboxDispatcher.backoff(1000, initial, max));
+    }
+
+    private static EmailOutbox email(boolean html, int attempts) {
+        return EmailOutbox.builder()
+                .type(EmailType.WELCOME)
+                .recipient("user@test.com")
+                .subject("Oggetto")
+                .body("<p>Corpo</p>")
+                .html(html)
+                .status(EmailStatus.SENDING)
+                .attempts(attempts)
+                .nextAttemptAt(Instant.now())
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.epicode.Progetto_Backend.config.MailgunProperties;
+import com.epicode.Progetto_Backend.dto.BatchSendReport;
+
+/**
+ * MailgunBatchServiceTest - Test unitari per l'invio email a lotti.
+ *
+ * Verifica la suddivisione dei destinatari in lotti (dimensione massima e indirizzi ripetuti)
+ * e il report per lotto quando una chiamata a Mailgun fallisce. MailgunService è mockato.
+ *
+ * @see com.epicode.Progetto_Backend.service.MailgunBatchService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MailgunBatchService Unit Tests")
+class MailgunBatchServiceTest {
+
+    @Mock
+    private MailgunService mailgunService;
+
+    @Mock
+    private MailgunProperties mailgunProperties;
+
+    @InjectMocks
+    private MailgunBatchService mailgunBatchService;
+
+    @BeforeEach
+    void setUp() {
+        when(mailgunProperties.getBatchSize()).thenReturn(1000);
+    }
+
+    @Test
+    @DisplayName("Dovrebbe inviare 2500 destinatari con 3 chiamate")
+    void sendBatch_GroupsRecipients() {
+        List<Integer> sizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            sizes.add(invocation.<Map<?, ?>>getArgument(2).size());
+            return null;
+        }).when(mailgunService).sendBatchHtmlEmail(eq("Oggetto"), eq("<p>%recipient.nome%</p>"), anyMap());
+
+        BatchSendReport report = mailgunBatchService.sendBatch("Oggetto", "<p>%recipient.nome%</p>",
+                recipients(2500));
+
+        assertEquals(List.of(1000, 1000, 500), sizes);
+        assertEquals(2500, report.totalRecipients());
+        assertEquals(2500, report.sentRecipients());
+        assertEquals(3, report.batches());
+        assertEquals(0, report.failedBatches());
+        assertTrue(report.batchResults().stream().allMatch(BatchSendReport.BatchResult::isSuccess));
+    }
+
+    @Test
+    @DisplayName("Un indirizzo ripetuto dovrebbe aprire un nuovo lotto")
+    void sendBatch_DuplicateEmailStartsNewBatch() {
+        Stream<MailgunBatchService.Recipient> recipients = Stream.of(
+                recipient("a@test.com"), recipient("b@test.com"), recipient("a@test.com"));
+
+        BatchSendReport report = mailgunBatchService.sendBatch("Oggetto", "<p>Corpo</p>", recipients);
+
+        verify(mailgunService, times(2)).sendBatchHtmlEmail(eq("Oggetto"), eq("<p>Corpo</p>"), anyMap());
+        assertEquals(2, report.batches());
+        assertEquals(3, report.totalRecipients());
+    }
+
+    @Test
+    @DisplayName("Un lotto fallito dovrebbe essere riportato senza interrompere l'invio")
+    void sendBatch_FailedBatchReported() {
+        int[] calls = {0};
+        doAnswer(invocation -> {
+            if (++calls[0] == 2) {
+                throw new RuntimeException("Mailgun API error: 500");
+            }
+            return null;
+        }).when(mailgunService).sendBatchHtmlEmail(eq("Oggetto"), eq("<p>Corpo</p>"), anyMap());
+
+        BatchSendReport report = mailgunBatchService.sendBatch("Oggetto", "<p>Corpo</p>", recipients(2500));
+
+        assertEquals(3, report.batches());
+        assertEquals(1, report.failedBatches());
+        assertEquals(1000, report.failedRecipients());
+        assertEquals(1500, report.sentRecipients());
+        assertNull(report.batchResults().get(0).error());
+        assertFalse(report.batchResults().get(1).isSuccess());
+        assertEquals("Mailgun API error: 500", report.batchResults().get(1).error());
+    }
+
+    private static Stream<MailgunBatchService.Recipient> recipients(int count) {
+        return IntStream.range(0, count).mapToObj(i -> recipient("user" + i + "@test.com"));
+    }
+
+    private static MailgunBatchService.Recipient recipient(String email) {
+        return new MailgunBatchService.Recipient(email, Map.of("nome", email));
+    }
+}
@@ -1,43 +1,73 @@
 package com.epicode.Progetto_Backend.service;
 
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
-
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
-import org.mockito.Mockito;
+import org.mockito.Spy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.i18n.LocaleContextHolder;
 
+import com.epicode.Progetto_Backend.config.EmailTemplateProperties;
 import com.epicode.Progetto_Backend.config.MailgunProperties;
-
-import kong.unirest.HttpRequestWithBody;
-import kong.unirest.HttpResponse;
-import kong.unirest.MultipartBody;
-import kong.unirest.Unirest;
+import com.epicode.Progetto_Backend.entity.EmailType;
+import com.epicode.Progetto_Backend.exception.ExternalServiceUnavailableException;
+import com.epicode.Progetto_Backend.resilience.CircuitBreakerRegistry;
+import com.epicode.Progetto_Backend.support.StubHttpServer;
+import com.epicode.Progetto_Backend.support.StubHttpServer.RecordedRequest;
+import com.epicode.Progetto_Backend.template.EmailTemplate;
+import com.epicode.Progetto_Backend.template.EmailTemplateRegistry;
+import com.epicode.Progetto_Backend.template.RenderedEmail;
 
 /**
  * MailgunServiceTest - Test unitari per il servizio di invio email via Mailgun.
  * 
  * Questa classe testa i metodi del MailgunService, verificando:
- * - Invio email di benvenuto
- * - Invio notifiche contratti
- * - Invio promemoria pagamenti
- * - Invio conferme manutenzioni
- * - Gestione errori nelle chiamate API
+ * - Invio email di testo e HTML tramite l'API Mailgun
+ * - Gestione errori e timeout nelle chiamate API
+ * - Invii asincroni contemporanei e limite di richieste in corso
+ * - Circuit breaker: apertura dopo errori 5xx e accodamento nella outbox a circuito aperto
+ * - Accodamento nella outbox di benvenuto, notifiche contratti, pagamenti e manutenzioni
+ * - Raccolta nel riepilogo (modalità digest) delle notifiche non urgenti
  * - Generazione corretta dei template HTML
  * 
- * I test utilizzano Mockito per mockare completamente le chiamate HTTP
- * a Mailgun tramite Unirest, evitando chiamate reali all'API esterna.
- * Vengono testati sia i casi di successo che di errore nelle chiamate API.
+ * Le chiamate HTTP arrivano a un server locale (StubHttpServer) che sostituisce
+ * l'API Mailgun, registra le richieste e può rispondere con errori o in ritardo.
+ * EmailOutboxService e NotificationDigestService sono mockati per verificare le email accodate.
  * 
  * @see com.epicode.Progetto_Backend.service.MailgunService
  */
@@ -45,21 +75,25 @@ import kong.unirest.Unirest;
 @DisplayName("MailgunService Unit Tests")
 class MailgunServiceTest {
 
+    @Spy
+    private MailgunProperties mailgunProperties = new MailgunProperties();
+
     @Mock
-    private MailgunProperties mailgunProperties;
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private NotificationDigestService notificationDigestService;
+
+    @Spy
+    private EmailTemplateRegistry emailTemplateRegistry = templates();
+
+    @Spy
+    private CircuitBreakerRegistry circuitBreakerRegistry = new CircuitBreakerRegistry();
 
     @InjectMocks
     private MailgunService mailgunService;
 
-    // Mocks per Unirest chain
-    @Mock
-    private HttpRequestWithBody httpRequestWithBody;
-    
-    @Mock
-    private MultipartBody multipartBody;
-    
-    @Mock
-    private HttpResponse<String> httpResponse;
+    private StubHttpServer stub;
 
     private static final String TEST_API_KEY = "test-api-key";
     private static final String TEST_DOMAIN = "test.mailgun.org";
@@ -67,15 +101,27 @@ class MailgunServiceTest {
     private static final String TEST_TO_EMAIL = "user@test.com";
 
     /**
-     * Configura i mock prima di ogni test.
+     * Avvia il server di test e configura MailgunService per usarlo.
      * Questo metodo è automaticamente invocato da JUnit tramite @BeforeEach.
      */
     @BeforeEach
     @SuppressWarnings({"unused", "java:S1186"})
-    void setUp() {
-        when(mailgunProperties.getApiKey()).thenReturn(TEST_API_KEY);
-        when(mailgunProperties.getDomain()).thenReturn(TEST_DOMAIN);
-        when(mailgunProperties.getFromEmail()).thenReturn(TEST_FROM_EMAIL);
+    void setUp() throws IOException {
+        stub = new StubHttpServer(null,
+                (request, status) -> status == 200 ? "{\"message\":\"Queued. Thank you.\"}" : "Bad Request");
+        mailgunProperties.setApiKey(TEST_API_KEY);
+        mailgunProperties.setDomain(TEST_DOMAIN);
+        mailgunProperties.setFromEmail(TEST_FROM_EMAIL);
+        mailgunProperties.setBaseUrl(stub.baseUrl() + "/v3");
+        mailgunProperties.setRequestTimeout(Duration.ofSeconds(5));
+        mailgunService.init();
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        mailgunService.shutdown();
+        stub.stop();
     }
 
     // ========================================================================
@@ -90,32 +136,29 @@ class MailgunServiceTest {
         @Test
         @DisplayName("Dovrebbe inviare email con successo quando status 200")
         void sendEmail_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                // Setup mock chain
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                // Execute
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendEmail(TEST_TO_EMAIL, "Test Subject", "Test Body")
-                );
-            }
+            assertDoesNotThrow(() -> 
+                mailgunService.sendEmail(TEST_TO_EMAIL, "Test Subject", "Test Body")
+            );
+
+            assertEquals(1, stub.getRequests().size());
+            RecordedRequest request = stub.getRequests().get(0);
+            assertEquals("/v3/" + TEST_DOMAIN + "/messages", request.path());
+            assertEquals("Basic " + Base64.getEncoder().encodeToString(
+                    ("api:" + TEST_API_KEY).getBytes(StandardCharsets.UTF_8)), request.authorization());
+            assertTrue(request.formBody().contains("from=" + TEST_FROM_EMAIL));
+            assertTrue(request.formBody().contains("to=" + TEST_TO_EMAIL));
+            assertTrue(request.formBody().contains("text=Test Body"));
         }
 
         @Test
         @DisplayName("Dovrebbe lanciare eccezione quando status non è 200")
         void sendEmail_Failure() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                // Setup mock chain per errore
-                setupSuccessfulUnirestMock(unirestMock, 400);
-                when(httpResponse.getBody()).thenReturn("Bad Request");
-
-                // Execute & Verify
-                RuntimeException thrown = assertThrows(RuntimeException.class, () -> 
-                    mailgunService.sendEmail(TEST_TO_EMAIL, "Test Subject", "Test Body")
-                );
-                // Verify exception was thrown and is of correct type
-                assert thrown != null && thrown.getClass() == RuntimeException.class;
-            }
+            stub.setStatus(400);
+
+            RuntimeException thrown = assertThrows(RuntimeException.class, () -> 
+                mailgunService.sendEmail(TEST_TO_EMAIL, "Test Subject", "Test Body")
+            );
+            assertTrue(thrown.getMessage().contains("400"));
         }
     }
 
@@ -127,13 +170,169 @@ class MailgunServiceTest {
         @Test
         @DisplayName("Dovrebbe inviare email HTML con successo")
         void sendHtmlEmail_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
+            assertDoesNotThrow(() -> 
+                mailgunService.sendHtmlEmail(TEST_TO_EMAIL, "Test Subject", "<h1>Test</h1>")
+            );
+
+            assertTrue(stub.getRequests().get(0).formBody().contains("html=<h1>Test</h1>"));
+        }
+    }
+
+    @Nested
+    @DisplayName("sendAsync - Invio non bloccante")
+    @SuppressWarnings("unused")
+    class SendAsyncTests {
+
+        @Test
+        @DisplayName("Dovrebbe completare centinaia di invii contemporanei con pochi thread")
+        void sendAsync_ManyConcurrentRequests() {
+            stub.setDelayMillis(50);
+            mailgunProperties.setIoThreads(2);
+            mailgunProperties.setMaxConcurrentRequests(200);
+            restart();
+
+            List<CompletableFuture<Void>> sends = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                sends.add(mailgunService.sendAsync("user" + i + "@test.com", "Oggetto", "Corpo", false));
+            }
+
+            assertDoesNotThrow(() -> CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(10, TimeUnit.SECONDS));
+            assertEquals(200, stub.getRequests().size());
+            assertTrue(stub.getMaxConcurrent() > 2, "Richieste contemporanee: " + stub.getMaxConcurrent());
+        }
+
+        @Test
+        @DisplayName("Non dovrebbe superare mailgun.max-concurrent-requests richieste in corso")
+        void sendAsync_BoundedConcurrency() {
+            stub.setDelayMillis(50);
+            mailgunProperties.setMaxConcurrentRequests(3);
+            restart();
+
+            List<CompletableFuture<Void>> sends = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                sends.add(mailgunService.sendAsync(TEST_TO_EMAIL, "Oggetto", "Corpo", false));
+            }
+
+            assertDoesNotThrow(() -> CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(10, TimeUnit.SECONDS));
+            assertEquals(20, stub.getRequests().size());
+            assertTrue(stub.getMaxConcurrent() <= 3, "Richieste contemporanee: " + stub.getMaxConcurrent());
+        }
+
+        @Test
+        @DisplayName("Dovrebbe fallire quando Mailgun non risponde entro il timeout")
+        void sendAsync_RequestTimeout() {
+            stub.setDelayMillis(2000);
+            mailgunProperties.setRequestTimeout(Duration.ofMillis(200));
+
+            CompletableFuture<Void> send = mailgunService.sendAsync(TEST_TO_EMAIL, "Oggetto", "Corpo", false);
+
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> send.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(HttpTimeoutException.class, thrown.getCause());
+        }
+    }
+
+    @Nested
+    @DisplayName("Circuit breaker - Mailgun non disponibile")
+    @SuppressWarnings("unused")
+    class CircuitBreakerTests {
+
+        @BeforeEach
+        void smallWindow() {
+            mailgunProperties.getCircuitBreaker().setMinimumNumberOfCalls(2);
+        }
+
+        @Test
+        @DisplayName("Dovrebbe aprire il circuito dopo errori 5xx e non chiamare più Mailgun")
+        void sendAsync_OpensAfterServerErrors() {
+            stub.setStatus(503);
+            for (int i = 0; i < 2; i++) {
+                CompletableFuture<Void> send = mailgunService.sendAsync(TEST_TO_EMAIL, "Oggetto", "Corpo", false);
+                assertThrows(ExecutionException.class, () -> send.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(2, stub.getRequests().size());
+            assertFalse(mailgunService.isAvailable());
+
+            CompletableFuture<Void> rejected = mailgunService.sendAsync(TEST_TO_EMAIL, "Oggetto", "Corpo", false);
+
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+            ExternalServiceUnavailableException cause =
+                    assertInstanceOf(ExternalServiceUnavailableException.class, thrown.getCause());
+            assertEquals("mailgun", cause.getService());
+            assertTrue(cause.getRetryAfterSeconds() > 0);
+            assertEquals(2, stub.getRequests().size());
+        }
 
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendHtmlEmail(TEST_TO_EMAIL, "Test Subject", "<h1>Test</h1>")
-                );
+        @Test
+        @DisplayName("Gli errori 4xx non dovrebbero aprire il circuito")
+        void sendAsync_ClientErrorsKeepCircuitClosed() {
+            stub.setStatus(400);
+            for (int i = 0; i < 5; i++) {
+                CompletableFuture<Void> send = mailgunService.sendAsync(TEST_TO_EMAIL, "Oggetto", "Corpo", false);
+                assertThrows(ExecutionException.class, () -> send.get(5, TimeUnit.SECONDS));
             }
+
+            assertTrue(mailgunService.isAvailable());
+            assertEquals(5, stub.getRequests().size());
+        }
+
+        @Test
+        @DisplayName("Dovrebbe accodare nella outbox l'email se Mailgun non è disponibile")
+        void sendHtmlEmail_DefersToOutbox() {
+            stub.setStatus(503);
+
+            assertDoesNotThrow(() -> mailgunService.sendHtmlEmail(TEST_TO_EMAIL, "Oggetto", "<p>Corpo</p>"));
+
+            verify(emailOutboxService).enqueue(EmailType.GENERIC, TEST_TO_EMAIL, "Oggetto", "<p>Corpo</p>", true);
+        }
+    }
+
+    @Nested
+    @DisplayName("sendBatchHtmlEmail - Invio a lotti con recipient-variables")
+    @SuppressWarnings("unused")
+    class SendBatchHtmlEmailTests {
+
+        @Test
+        @DisplayName("Dovrebbe inviare tutti i destinatari con una sola chiamata")
+        void sendBatchHtmlEmail_SingleCall() {
+            Map<String, Map<String, String>> variables = new LinkedHashMap<>();
+            variables.put("a@test.com", Map.of("nome", "Mario Rossi"));
+            variables.put("b@test.com", Map.of("nome", "Anna Bianchi"));
+            mailgunService.sendBatchHtmlEmail("Oggetto", "<p>%recipient.nome%</p>", variables);
+
+            assertEquals(1, stub.getRequests().size());
+            String body = stub.getRequests().get(0).formBody();
+            assertTrue(body.contains("to=a@test.com&to=b@test.com"));
+            assertTrue(body.contains("\"nome\":\"Anna Bianchi\""));
+        }
+
+        @Test
+        @DisplayName("Dovrebbe rifiutare più di 1000 destinatari")
+        void sendBatchHtmlEmail_TooManyRecipients() {
+            Map<String, Map<String, String>> variables = new LinkedHashMap<>();
+            for (int i = 0; i <= MailgunService.MAX_BATCH_RECIPIENTS; i++) {
+                variables.put("user" + i + "@test.com", Map.of());
+            }
+
+            assertThrows(IllegalArgumentException.class, () ->
+                mailgunService.sendBatchHtmlEmail("Oggetto", "<p>Corpo</p>", variables)
+            );
+        }
+
+        @Test
+        @DisplayName("Il template del promemoria contiene i segnaposto dei destinatari")
+        void buildPaymentReminderBatchTemplate_Placeholders() {
+            RenderedEmail template = mailgunService.buildPaymentReminderBatchTemplate();
+            Map<String, String> variables = mailgunService.buildPaymentReminderVariables(
+                "Mario Rossi", 5, 1000.0, LocalDate.of(2025, 3, 1), "Via Roma 123, Milano");
+
+            assertEquals("🔔 Promemoria Pagamento Rata", template.subject());
+            for (String key : variables.keySet()) {
+                assertTrue(template.html().contains("%recipient." + key + "%"), key);
+            }
+            assertEquals("01/03/2025", variables.get("scadenza"));
+            assertEquals("1000,00", variables.get("importo"));
         }
     }
 
@@ -147,34 +346,43 @@ class MailgunServiceTest {
     class SendWelcomeEmailTests {
 
         @Test
-        @DisplayName("Dovrebbe inviare email di benvenuto con nome utente")
+        @DisplayName("Dovrebbe accodare email di benvenuto con nome utente")
         void sendWelcomeEmail_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
+            mailgunService.sendWelcomeEmail(TEST_TO_EMAIL, "Mario Rossi");
 
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendWelcomeEmail(TEST_TO_EMAIL, "Mario Rossi")
-                );
-            }
+            verify(emailOutboxService).enqueue(eq(EmailType.WELCOME), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Mario Rossi"), eq(true));
         }
 
         @Test
-        @DisplayName("Non dovrebbe propagare eccezione se invio fallisce")
-        void sendWelcomeEmail_FailureShouldNotPropagate() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 500);
-                when(httpResponse.getBody()).thenReturn("Internal Server Error");
-
-                // Il metodo non dovrebbe propagare l'eccezione (gestita internamente)
-                // ma poiché sendHtmlEmail lancia eccezione, il catch interno la gestisce
-                assertDoesNotThrow(() -> {
-                    try {
-                        mailgunService.sendWelcomeEmail(TEST_TO_EMAIL, "Mario Rossi");
-                    } catch (RuntimeException e) {
-                        // Expected - sendHtmlEmail throws but sendWelcomeEmail catches
-                    }
-                });
+        @DisplayName("Dovrebbe usare la variante inglese per le richieste in inglese")
+        void sendWelcomeEmail_EnglishVariant() {
+            LocaleContextHolder.setLocale(Locale.US);
+            try {
+                mailgunService.sendWelcomeEmail(TEST_TO_EMAIL, "Mario Rossi");
+            } finally {
+                LocaleContextHolder.resetLocaleContext();
             }
+
+            verify(emailOutboxService).enqueue(eq(EmailType.WELCOME), eq(TEST_TO_EMAIL),
+                    eq("🏠 Welcome to Cooperativa Immobiliare"), contains("Welcome, Mario Rossi!"), eq(true));
+        }
+
+        @Test
+        @DisplayName("Dovrebbe applicare l'escape HTML ai dati dell'utente")
+        void sendWelcomeEmail_EscapesHtml() {
+            mailgunService.sendWelcomeEmail(TEST_TO_EMAIL, "<b>Mario</b>");
+
+            verify(emailOutboxService).enqueue(eq(EmailType.WELCOME), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Benvenuto, &lt;b&gt;Mario&lt;/b&gt;!"), eq(true));
+        }
+
+        @Test
+        @DisplayName("Non dovrebbe contattare Mailgun durante la richiesta")
+        void sendWelcomeEmail_DoesNotCallMailgun() {
+            mailgunService.sendWelcomeEmail(TEST_TO_EMAIL, "Mario Rossi");
+
+            assertTrue(stub.getRequests().isEmpty());
         }
     }
 
@@ -188,19 +396,16 @@ class MailgunServiceTest {
     class SendContractNotificationTests {
 
         @Test
-        @DisplayName("Dovrebbe inviare notifica contratto con tutti i dettagli")
+        @DisplayName("Dovrebbe accodare notifica contratto con tutti i dettagli")
         void sendContractNotification_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendContractNotification(
-                        TEST_TO_EMAIL, 
-                        "Mario Rossi", 
-                        "Via Roma 123, Milano"
-                    )
-                );
-            }
+            mailgunService.sendContractNotification(
+                TEST_TO_EMAIL, 
+                "Mario Rossi", 
+                "Via Roma 123, Milano"
+            );
+
+            verify(emailOutboxService).enqueue(eq(EmailType.CONTRACT_CREATED), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Mario Rossi"), eq(true));
         }
     }
 
@@ -210,20 +415,17 @@ class MailgunServiceTest {
     class SendContractExpirationTests {
 
         @Test
-        @DisplayName("Dovrebbe inviare notifica scadenza contratto")
+        @DisplayName("Dovrebbe accodare notifica scadenza contratto")
         void sendContractExpirationNotification_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendContractExpirationNotification(
-                        TEST_TO_EMAIL,
-                        "Mario Rossi",
-                        "Via Roma 123, Milano",
-                        LocalDate.now().plusMonths(1)
-                    )
-                );
-            }
+            mailgunService.sendContractExpirationNotification(
+                TEST_TO_EMAIL,
+                "Mario Rossi",
+                "Via Roma 123, Milano",
+                LocalDate.now().plusMonths(1)
+            );
+
+            verify(emailOutboxService).enqueue(eq(EmailType.CONTRACT_EXPIRING), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Mario Rossi"), eq(true));
         }
     }
 
@@ -237,22 +439,19 @@ class MailgunServiceTest {
     class SendPaymentReminderTests {
 
         @Test
-        @DisplayName("Dovrebbe inviare promemoria pagamento rata")
+        @DisplayName("Dovrebbe accodare promemoria pagamento rata")
         void sendPaymentReminderEmail_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendPaymentReminderEmail(
-                        TEST_TO_EMAIL,
-                        "Mario Rossi",
-                        5,
-                        1000.0,
-                        LocalDate.now().plusDays(7),
-                        "Via Roma 123, Milano"
-                    )
-                );
-            }
+            mailgunService.sendPaymentReminderEmail(
+                TEST_TO_EMAIL,
+                "Mario Rossi",
+                5,
+                1000.0,
+                LocalDate.now().plusDays(7),
+                "Via Roma 123, Milano"
+            );
+
+            verify(emailOutboxService).enqueue(eq(EmailType.PAYMENT_REMINDER), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Mario Rossi"), eq(true));
         }
     }
 
@@ -262,21 +461,35 @@ class MailgunServiceTest {
     class SendPaymentConfirmationTests {
 
         @Test
-        @DisplayName("Dovrebbe inviare conferma pagamento rata")
+        @DisplayName("Dovrebbe accodare conferma pagamento rata")
         void sendPaymentConfirmationEmail_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendPaymentConfirmationEmail(
-                        TEST_TO_EMAIL,
-                        "Mario Rossi",
-                        5,
-                        1000.0,
-                        "Via Roma 123, Milano"
-                    )
-                );
-            }
+            mailgunService.sendPaymentConfirmationEmail(
+                TEST_TO_EMAIL,
+                "Mario Rossi",
+                5,
+                1000.0,
+                "Via Roma 123, Milano"
+            );
+
+            verify(emailOutboxService).enqueue(eq(EmailType.PAYMENT_CONFIRMATION), eq(TEST_TO_EMAIL),
+                    eq("✅ Conferma Pagamento Rata"), contains("€ 1000,00"), eq(true));
+        }
+
+        @Test
+        @DisplayName("Con la modalità digest dovrebbe raccogliere la conferma nel riepilogo")
+        void sendPaymentConfirmationEmail_Digested() {
+            when(notificationDigestService.isDigested(EmailType.PAYMENT_CONFIRMATION)).thenReturn(true);
+
+            mailgunService.sendPaymentConfirmationEmail(
+                TEST_TO_EMAIL,
+                "Mario Rossi",
+                5,
+                1000.0,
+                "Via Roma 123, Milano"
+            );
+
+            verify(notificationDigestService).buffer(any(EmailTemplate.class), eq(TEST_TO_EMAIL), anyMap());
+            verify(emailOutboxService, never()).enqueue(any(), anyString(), anyString(), anyString(), anyBoolean());
         }
     }
 
@@ -286,22 +499,19 @@ class MailgunServiceTest {
     class SendOverduePaymentTests {
 
         @Test
-        @DisplayName("Dovrebbe inviare sollecito per rata scaduta")
+        @DisplayName("Dovrebbe accodare sollecito per rata scaduta")
         void sendOverduePaymentNotification_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendOverduePaymentNotification(
-                        TEST_TO_EMAIL,
-                        "Mario Rossi",
-                        3,
-                        1000.0,
-                        LocalDate.now().minusDays(30),
-                        "Via Roma 123, Milano"
-                    )
-                );
-            }
+            mailgunService.sendOverduePaymentNotification(
+                TEST_TO_EMAIL,
+                "Mario Rossi",
+                3,
+                1000.0,
+                LocalDate.now().minusDays(30),
+                "Via Roma 123, Milano"
+            );
+
+            verify(emailOutboxService).enqueue(eq(EmailType.PAYMENT_OVERDUE), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Mario Rossi"), eq(true));
         }
     }
 
@@ -315,41 +525,35 @@ class MailgunServiceTest {
     class SendMaintenanceRequestTests {
 
         @Test
-        @DisplayName("Dovrebbe inviare conferma richiesta manutenzione")
+        @DisplayName("Dovrebbe accodare conferma richiesta manutenzione")
         void sendMaintenanceRequestConfirmation_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendMaintenanceRequestConfirmation(
-                        TEST_TO_EMAIL,
-                        "Mario Rossi",
-                        "Via Roma 123, Milano",
-                        "ORDINARIA",
-                        "Riparazione rubinetto",
-                        LocalDate.now()
-                    )
-                );
-            }
+            mailgunService.sendMaintenanceRequestConfirmation(
+                TEST_TO_EMAIL,
+                "Mario Rossi",
+                "Via Roma 123, Milano",
+                "ORDINARIA",
+                "Riparazione rubinetto",
+                LocalDate.now()
+            );
+
+            verify(emailOutboxService).enqueue(eq(EmailType.MAINTENANCE_REQUEST), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Mario Rossi"), eq(true));
         }
 
         @Test
         @DisplayName("Dovrebbe gestire descrizione null")
         void sendMaintenanceRequestConfirmation_NullDescription() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendMaintenanceRequestConfirmation(
-                        TEST_TO_EMAIL,
-                        "Mario Rossi",
-                        "Via Roma 123, Milano",
-                        "STRAORDINARIA",
-                        null,
-                        LocalDate.now()
-                    )
-                );
-            }
+            mailgunService.sendMaintenanceRequestConfirmation(
+                TEST_TO_EMAIL,
+                "Mario Rossi",
+                "Via Roma 123, Milano",
+                "STRAORDINARIA",
+                null,
+                LocalDate.now()
+            );
+
+            verify(emailOutboxService).enqueue(eq(EmailType.MAINTENANCE_REQUEST), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Mario Rossi"), eq(true));
         }
     }
 
@@ -359,21 +563,18 @@ class MailgunServiceTest {
     class SendMaintenanceCompletedTests {
 
         @Test
-        @DisplayName("Dovrebbe inviare notifica manutenzione completata")
+        @DisplayName("Dovrebbe accodare notifica manutenzione completata")
         void sendMaintenanceCompletedNotification_Success() {
-            try (MockedStatic<Unirest> unirestMock = Mockito.mockStatic(Unirest.class)) {
-                setupSuccessfulUnirestMock(unirestMock, 200);
-
-                assertDoesNotThrow(() -> 
-                    mailgunService.sendMaintenanceCompletedNotification(
-                        TEST_TO_EMAIL,
-                        "Mario Rossi",
-                        "Via Roma 123, Milano",
-                        "ORDINARIA",
-                        250.0
-                    )
-                );
-            }
+            mailgunService.sendMaintenanceCompletedNotification(
+                TEST_TO_EMAIL,
+                "Mario Rossi",
+                "Via Roma 123, Milano",
+                "ORDINARIA",
+                250.0
+            );
+
+            verify(emailOutboxService).enqueue(eq(EmailType.MAINTENANCE_COMPLETED), eq(TEST_TO_EMAIL),
+                    anyString(), contains("Mario Rossi"), eq(true));
         }
     }
 
@@ -382,17 +583,19 @@ class MailgunServiceTest {
     // ========================================================================
 
     /**
-     * Configura il mock di Unirest per simulare una risposta di successo o errore.
+     * Template reali, compilati dal classpath come all'avvio dell'applicazione.
      */
-    private void setupSuccessfulUnirestMock(MockedStatic<Unirest> unirestMock, int statusCode) {
-        unirestMock.when(() -> Unirest.post(any(String.class)))
-                .thenReturn(httpRequestWithBody);
-        
-        when(httpRequestWithBody.basicAuth(any(), any())).thenReturn(httpRequestWithBody);
-        when(httpRequestWithBody.field(any(String.class), any(String.class))).thenReturn(multipartBody);
-        when(multipartBody.field(any(String.class), any(String.class))).thenReturn(multipartBody);
-        when(multipartBody.asString()).thenReturn(httpResponse);
-        when(httpResponse.getStatus()).thenReturn(statusCode);
+    private static EmailTemplateRegistry templates() {
+        EmailTemplateRegistry registry = new EmailTemplateRegistry(new EmailTemplateProperties());
+        registry.load();
+        return registry;
     }
-}
 
+    /**
+     * Ricrea il client HTTP dopo aver modificato le proprietà.
+     */
+    private void restart() {
+        mailgunService.shutdown();
+        mailgunService.init();
+    }
+}
@@ -0,0 +1,192 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.epicode.Progetto_Backend.config.EmailDigestProperties;
+import com.epicode.Progetto_Backend.config.EmailTemplateProperties;
+import com.epicode.Progetto_Backend.entity.DigestNotification;
+import com.epicode.Progetto_Backend.entity.EmailType;
+import com.epicode.Progetto_Backend.repository.DigestNotificationRepository;
+import com.epicode.Progetto_Backend.template.EmailTemplateRegistry;
+
+/**
+ * NotificationDigestServiceTest - Test unitari per il riepilogo delle notifiche per destinatario.
+ *
+ * Verifica la scelta delle notifiche da raccogliere (tipi urgenti esclusi), il salvataggio
+ * di tipo, lingua e variabili, l'invio di una notifica singola così com'è e la composizione
+ * di più notifiche in un solo riepilogo. Repository e outbox sono mockati; i template sono
+ * quelli reali del classpath.
+ *
+ * @see com.epicode.Progetto_Backend.service.NotificationDigestService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NotificationDigestService Unit Tests")
+class NotificationDigestServiceTest {
+
+    private static final String RECIPIENT = "mario.rossi@test.com";
+
+    private static final EmailTemplateRegistry templates = templates();
+
+    @Mock
+    private DigestNotificationRepository digestNotificationRepository;
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EmailDigestProperties properties;
+
+    private NotificationDigestService digestService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new EmailDigestProperties();
+        properties.setEnabled(true);
+        properties.setBatchSize(2);
+        digestService = new NotificationDigestService(digestNotificationRepository, emailOutboxService,
+                templates, properties, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Raccoglie solo le notifiche non urgenti con la modalità digest abilitata")
+    void isDigested_SkipsUrgentTypes() {
+        assertTrue(digestService.isDigested(EmailType.PAYMENT_CONFIRMATION));
+        assertTrue(digestService.isDigested(EmailType.MAINTENANCE_REQUEST));
+        assertFalse(digestService.isDigested(EmailType.PAYMENT_OVERDUE));
+        assertFalse(digestService.isDigested(EmailType.WELCOME));
+        assertFalse(digestService.isDigested(EmailType.GENERIC));
+
+        properties.setEnabled(false);
+        assertFalse(digestService.isDigested(EmailType.PAYMENT_CONFIRMATION));
+    }
+
+    @Test
+    @DisplayName("Salva tipo, lingua e variabili della notifica")
+    void buffer_SavesTemplateAndVariables() {
+        when(digestNotificationRepository.save(any(DigestNotification.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        DigestNotification notification = digestService.buffer(
+                templates.get(EmailType.PAYMENT_CONFIRMATION, Locale.ENGLISH), RECIPIENT, payment(1));
+
+        assertEquals(RECIPIENT, notification.getRecipient());
+        assertEquals(EmailType.PAYMENT_CONFIRMATION, notification.getType());
+        assertEquals("en", notification.getLocale());
+        assertTrue(notification.getVariables().contains("\"numero_rata\":\"1\""));
+        verify(emailOutboxService, never()).enqueue(any(), anyString(), anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Una sola notifica viene inviata così com'è")
+    void flush_SingleNotificationSentAsIs() {
+        DigestNotification notification = notification(EmailType.PAYMENT_CONFIRMATION, "it",
+                "{\"nome\":\"Mario Rossi\",\"numero_rata\":\"1\",\"indirizzo\":\"Via Roma 1\",\"importo\":\"500,00\"}");
+        when(digestNotificationRepository.lockByRecipient(RECIPIENT)).thenReturn(List.of(notification));
+
+        assertTrue(digestService.flush(RECIPIENT));
+
+        verify(emailOutboxService).enqueue(eq(EmailType.PAYMENT_CONFIRMATION), eq(RECIPIENT),
+                eq("✅ Conferma Pagamento Rata"), anyString(), eq(true));
+        verify(digestNotificationRepository).deleteAll(List.of(notification));
+    }
+
+    @Test
+    @DisplayName("Più notifiche vengono composte in un solo riepilogo")
+    void flush_ManyNotificationsInOneDigest() {
+        List<DigestNotification> notifications = List.of(
+                notification(EmailType.PAYMENT_CONFIRMATION, "it",
+                        "{\"nome\":\"Mario Rossi\",\"numero_rata\":\"1\",\"indirizzo\":\"Via Roma 1\",\"importo\":\"500,00\"}"),
+                notification(EmailType.PAYMENT_CONFIRMATION, "it",
+                        "{\"nome\":\"Mario Rossi\",\"numero_rata\":\"2\",\"indirizzo\":\"Via Roma 1\",\"importo\":\"500,00\"}"),
+                notification(EmailType.MAINTENANCE_REQUEST, "it",
+                        "{\"nome\":\"Mario Rossi\",\"indirizzo\":\"Via Roma 1\",\"tipo\":\"ORDINARIA\","
+                                + "\"data\":\"01/03/2025\",\"descrizione\":\"<b>Rubinetto</b>\"}"));
+        when(digestNotificationRepository.lockByRecipient(RECIPIENT)).thenReturn(notifications);
+
+        digestService.flush(RECIPIENT);
+
+        ArgumentCaptor<String> html = ArgumentCaptor.forClass(String.class);
+        verify(emailOutboxService).enqueue(eq(EmailType.DIGEST), eq(RECIPIENT),
+                eq("🔔 Riepilogo: 3 nuove notifiche"), html.capture(), eq(true));
+        assertTrue(html.getValue().contains("<html lang=\"it\">"));
+        assertTrue(html.getValue().contains("rata n. 1</strong>"));
+        assertTrue(html.getValue().contains("rata n. 2</strong>"));
+        assertTrue(html.getValue().contains("Richiesta Manutenzione Confermata</h3>"));
+        assertTrue(html.getValue().contains("&lt;b&gt;Rubinetto&lt;/b&gt;"));
+        verify(digestNotificationRepository).deleteAll(notifications);
+    }
+
+    @Test
+    @DisplayName("Non compone il riepilogo di un destinatario bloccato da un altro nodo")
+    void flush_LockedElsewhere() {
+        when(digestNotificationRepository.lockByRecipient(RECIPIENT)).thenReturn(List.of());
+
+        assertFalse(digestService.flush(RECIPIENT));
+
+        verify(emailOutboxService, never()).enqueue(any(), anyString(), anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Compone i riepiloghi di tutti i destinatari dovuti, un lotto dopo l'altro")
+    void flushDue_AllDueRecipients() {
+        when(digestNotificationRepository.findDueRecipients(any(Instant.class), anyInt()))
+                .thenReturn(List.of("a@test.com", "b@test.com"))
+                .thenReturn(List.of("c@test.com"));
+        when(digestNotificationRepository.lockByRecipient(anyString())).thenAnswer(invocation -> List.of(
+                notification(EmailType.MAINTENANCE_COMPLETED, "it",
+                        "{\"nome\":\"Mario Rossi\",\"indirizzo\":\"Via Roma 1\",\"tipo\":\"ORDINARIA\",\"importo\":\"250,00\"}")));
+
+        digestService.flushDue();
+
+        verify(emailOutboxService).enqueue(eq(EmailType.MAINTENANCE_COMPLETED), eq("a@test.com"),
+                anyString(), anyString(), eq(true));
+        verify(emailOutboxService).enqueue(eq(EmailType.MAINTENANCE_COMPLETED), eq("c@test.com"),
+                anyString(), anyString(), eq(true));
+    }
+
+    private static Map<String, String> payment(int numeroRata) {
+        return Map.of("nome", "Mario Rossi", "numero_rata", String.valueOf(numeroRata),
+                "indirizzo", "Via Roma 1", "importo", "500,00");
+    }
+
+    private static DigestNotification notification(EmailType type, String locale, String variables) {
+        return DigestNotification.builder()
+                .recipient(RECIPIENT)
+                .type(type)
+                .locale(locale)
+                .variables(variables)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static EmailTemplateRegistry templates() {
+        EmailTemplateRegistry registry = new EmailTemplateRegistry(new EmailTemplateProperties());
+        registry.load();
+        return registry;
+    }
+}
@@ -0,0 +1,242 @@
+package com.epicode.Progetto_Backend.service;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.epicode.Progetto_Backend.config.CloudinaryProperties;
+import com.epicode.Progetto_Backend.config.ProfileImageProperties;
+import com.epicode.Progetto_Backend.dto.ProfileImageJob;
+import com.epicode.Progetto_Backend.entity.User;
+import com.epicode.Progetto_Backend.exception.EntityNotFoundException;
+import com.epicode.Progetto_Backend.exception.ValidationException;
+import com.epicode.Progetto_Backend.resilience.CircuitBreakerRegistry;
+import com.epicode.Progetto_Backend.support.FakeCloudinaryServer;
+
+/**
+ * ProfileImageServiceTest - Test unitari per l'elaborazione in background delle immagini profilo.
+ *
+ * Le varianti vengono caricate con il CloudinaryService reale su un server locale
+ * (FakeCloudinaryServer) che risponde con un URL costruito dal public_id ricevuto;
+ * UserService è mockato. Verifica:
+ * - Varianti quadrate ai lati configurati, senza ingrandire le immagini piccole
+ * - Elaborazione completata: varianti caricate con public_id deterministico e utente aggiornato
+ *   su un thread dedicato, non su quelli di upload
+ * - Varianti scartate (SUPERSEDED) se l'utente ha già quelle di un upload più recente
+ * - Elaborazione fallita se Cloudinary rifiuta le varianti, senza aggiornare l'utente
+ * - Formati non decodificabili (WebP) rifiutati prima di avviare l'elaborazione
+ * - Elaborazioni visibili solo all'utente che le ha avviate
+ *
+ * @see com.epicode.Progetto_Backend.service.ProfileImageService
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProfileImageService Unit Tests")
+class ProfileImageServiceTest {
+
+    private static final String EMAIL = "mario.rossi@test.com";
+
+    @Mock
+    private UserService userService;
+
+    private FakeCloudinaryServer server;
+
+    private CloudinaryService cloudinaryService;
+
+    private ProfileImageService profileImageService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeCloudinaryServer();
+        CloudinaryProperties cloudinaryProperties = new CloudinaryProperties();
+        cloudinaryProperties.setCloudName("test");
+        cloudinaryProperties.setApiKey("key");
+        cloudinaryProperties.setApiSecret("secret");
+        cloudinaryProperties.setUploadPrefix(server.baseUrl());
+        cloudinaryProperties.setTimeout(Duration.ofSeconds(5));
+        cloudinaryService = new CloudinaryService(cloudinaryProperties, new CircuitBreakerRegistry());
+        ProfileImageProperties properties = new ProfileImageProperties();
+        properties.setPoolSize(1);
+        profileImageService = new ProfileImageService(cloudinaryService, userService, cloudinaryProperties, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        profileImageService.destroy();
+        cloudinaryService.destroy();
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Genera varianti quadrate senza ingrandire le immagini piccole")
+    void testResize() throws IOException {
+        BufferedImage image = new BufferedImage(300, 500, BufferedImage.TYPE_INT_ARGB);
+        Path source = Files.createTempFile("profile-image-test-", ".png");
+        ImageIO.write(image, "png", source.toFile());
+
+        Map<Integer, Path> variants = profileImageService.resize(source);
+
+        try {
+            assertEquals(List.of(64, 256, 1024), List.copyOf(variants.keySet()));
+            assertSide(64, variants.get(64));
+            assertSide(256, variants.get(256));
+            assertSide(300, variants.get(1024));
+            assertTrue(variants.get(64).toString().endsWith(".png"));
+        } finally {
+            for (Path path : variants.values()) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Test
+    @DisplayName("Carica le varianti e aggiorna l'utente a elaborazione completata")
+    void testSubmitCompleted() throws Exception {
+        when(userService.getUserByEmail(EMAIL)).thenReturn(user());
+        List<String> updateThreads = new CopyOnWriteArrayList<>();
+        when(userService.updateProfileImageVariants(eq(7L), any(), any())).thenAnswer(invocation -> {
+            updateThreads.add(Thread.currentThread().getName());
+            return true;
+        });
+
+        ProfileImageJob job = profileImageService.submit(EMAIL, jpeg(3000, 2000));
+
+        assertEquals(ProfileImageJob.Status.PENDING, job.status());
+        ArgumentCaptor<Map<Integer, String>> variants = captor();
+        verify(userService, timeout(10_000)).updateProfileImageVariants(eq(7L), variants.capture(), eq(job.createdAt()));
+        ProfileImageJob done = awaitDone(job.id());
+        assertEquals(ProfileImageJob.Status.COMPLETED, done.status());
+        assertEquals(done.variants(), variants.getValue());
+        assertEquals(3, server.getPublicIds().size());
+        assertTrue(done.variants().get(1024).startsWith(FakeCloudinaryServer.URL_PREFIX + "7_"));
+        assertTrue(done.variants().get(1024).endsWith("_1024"));
+        // La transazione sull'utente non occupa i thread di upload di Cloudinary
+        assertTrue(updateThreads.get(0).startsWith("profile-image-update-"), updateThreads.get(0));
+    }
+
+    @Test
+    @DisplayName("Le varianti di un upload più vecchio di quello già applicato vengono scartate")
+    void testSubmitSuperseded() throws Exception {
+        when(userService.getUserByEmail(EMAIL)).thenReturn(user());
+        when(userService.updateProfileImageVariants(eq(7L), any(), any())).thenReturn(false);
+
+        ProfileImageJob job = profileImageService.submit(EMAIL, jpeg(800, 600));
+
+        ProfileImageJob done = awaitDone(job.id());
+        assertEquals(ProfileImageJob.Status.SUPERSEDED, done.status());
+        assertNull(done.variants());
+    }
+
+    @Test
+    @DisplayName("Se Cloudinary rifiuta le varianti l'elaborazione fallisce senza aggiornare l'utente")
+    void testSubmitUploadFailed() throws Exception {
+        server.setStatus(400);
+        when(userService.getUserByEmail(EMAIL)).thenReturn(user());
+
+        ProfileImageJob job = profileImageService.submit(EMAIL, jpeg(800, 600));
+
+        ProfileImageJob done = awaitDone(job.id());
+        assertEquals(ProfileImageJob.Status.FAILED, done.status());
+        assertTrue(done.error().contains("Invalid image file"), done.error());
+        verify(userService, never()).updateProfileImageVariants(anyLong(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Un'immagine WebP viene rifiutata prima dell'elaborazione")
+    void testSubmitUnsupportedFormat() {
+        when(userService.getUserByEmail(EMAIL)).thenReturn(user());
+        MockMultipartFile webp = new MockMultipartFile("file", "test.webp", "image/webp",
+                "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.ISO_8859_1));
+
+        assertThrows(ValidationException.class, () -> profileImageService.submit(EMAIL, webp));
+
+        assertTrue(server.getPublicIds().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Un'elaborazione non è visibile agli altri utenti")
+    void testGetJobOtherUser() throws Exception {
+        when(userService.getUserByEmail(EMAIL)).thenReturn(user());
+        when(userService.updateProfileImageVariants(eq(7L), any(), any())).thenReturn(true);
+
+        ProfileImageJob job = profileImageService.submit(EMAIL, jpeg(100, 100));
+
+        assertThrows(EntityNotFoundException.class, () -> profileImageService.getJob(job.id(), "altro@test.com"));
+        assertThrows(EntityNotFoundException.class, () -> profileImageService.getJob("sconosciuto", EMAIL));
+        assertEquals(ProfileImageJob.Status.COMPLETED, awaitDone(job.id()).status());
+    }
+
+    private ProfileImageJob awaitDone(String id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ProfileImageJob job = profileImageService.getJob(id, EMAIL);
+            if (job.isDone()) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Elaborazione " + id + " non terminata");
+    }
+
+    private static void assertSide(int expected, Path path) throws IOException {
+        BufferedImage variant = ImageIO.read(path.toFile());
+        assertEquals(expected, variant.getWidth());
+        assertEquals(expected, variant.getHeight());
+    }
+
+    private static MockMultipartFile jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.RED, width, height, Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return new MockMultipartFile("file", "test.jpg", MediaType.IMAGE_JPEG_VALUE, out.toByteArray());
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setEmail(EMAIL);
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Map<Integer, String>> captor() {
+        return ArgumentCaptor.forClass(Map.class);
+    }
+}
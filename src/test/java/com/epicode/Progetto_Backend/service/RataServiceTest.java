@@ -14,10 +14,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.epicode.Progetto_Backend.dto.RataReminderDTO;
 import com.epicode.Progetto_Backend.dto.RataRequestDTO;
 import com.epicode.Progetto_Backend.entity.Appartamento;
 import com.epicode.Progetto_Backend.entity.Contratto;
@@ -47,6 +49,7 @@ import com.epicode.Progetto_Backend.repository.UserRepository;
  * - Query per rate scadute
  * - Query per rate per contratto
  * - Query per rate per locatario email
+ * - Lettura a blocchi (keyset) dei promemoria di pagamento
  * - Invio email di conferma pagamento (mockato)
  * 
  * Il MailgunService viene mockato per evitare l'invio di email reali durante i test.
@@ -317,5 +320,28 @@ class RataServiceTest {
 
         assertFalse(rataRepository.existsById(id));
     }
+
+    @Test
+    void testFindReminders_KeysetChunks() {
+        LocalDate from = LocalDate.of(2090, 1, 1);
+        for (int numero = 1; numero <= 3; numero++) {
+            rataService.createRata(RataRequestDTO.builder()
+                    .contrattoId(testContratto.getId())
+                    .numeroRata(numero)
+                    .dataScadenza(from.plusDays(numero))
+                    .importo(1000.0)
+                    .pagata('N')
+                    .build());
+        }
+
+        List<RataReminderDTO> first = rataRepository.findReminders(from, from.plusDays(10), 0L, Limit.of(2));
+        List<RataReminderDTO> second = rataRepository.findReminders(from, from.plusDays(10),
+                first.get(first.size() - 1).rataId(), Limit.of(2));
+
+        assertEquals(List.of(1, 2), first.stream().map(RataReminderDTO::numeroRata).toList());
+        assertEquals(List.of(3), second.stream().map(RataReminderDTO::numeroRata).toList());
+        assertEquals("locatario@test.com", second.get(0).email());
+        assertEquals("Via Immobile 1", second.get(0).immobileIndirizzo());
+    }
 }
 
@@ -1,11 +1,14 @@
 package com.epicode.Progetto_Backend.service;
 
+import java.time.Instant;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -31,6 +34,7 @@ import com.epicode.Progetto_Backend.repository.UserRepository;
  * - Aggiornamento dati utente
  * - Gestione ruoli (assegnazione, normalizzazione nomi ruoli)
  * - Eliminazione utenti
+ * - Varianti dell'immagine profilo (scartate se derivano da un upload più vecchio)
  * - Gestione degli errori (utente non trovato)
  * 
  * I test utilizzano un database H2 in-memory per isolare i test dal
@@ -163,5 +167,35 @@ class UserServiceTest {
 
         assertFalse(userRepository.existsById(userId));
     }
-}
 
+    @Test
+    void testUpdateProfileImageVariants_SkipsOlderUpload() {
+        Instant newer = Instant.parse("2025-03-01T10:15:35Z");
+        Instant older = newer.minusSeconds(5);
+
+        assertTrue(userService.updateProfileImageVariants(testUser.getId(),
+                Map.of(64, "https://res.cloudinary.com/test/new_64", 1024, "https://res.cloudinary.com/test/new_1024"), newer));
+        // L'elaborazione dell'upload precedente termina per ultima: non deve sovrascrivere
+        assertFalse(userService.updateProfileImageVariants(testUser.getId(),
+                Map.of(64, "https://res.cloudinary.com/test/old_64", 1024, "https://res.cloudinary.com/test/old_1024"), older));
+
+        User user = userService.getUserById(testUser.getId());
+        assertEquals("https://res.cloudinary.com/test/new_1024", user.getProfileImage());
+        assertEquals("https://res.cloudinary.com/test/new_64", user.getProfileImageVariants().get(64));
+        assertEquals(newer, user.getProfileImageUploadedAt());
+    }
+
+    @Test
+    void testUpdateProfileImage_SupersedesUploadInProgress() {
+        // Elaborazione avviata prima dell'aggiornamento manuale dell'immagine
+        Instant jobStarted = Instant.now().minusSeconds(1);
+
+        userService.updateProfileImage(testUser.getId(), "https://example.com/manual.jpg");
+        assertFalse(userService.updateProfileImageVariants(testUser.getId(),
+                Map.of(64, "https://res.cloudinary.com/test/job_64", 1024, "https://res.cloudinary.com/test/job_1024"), jobStarted));
+
+        User user = userService.getUserById(testUser.getId());
+        assertEquals("https://example.com/manual.jpg", user.getProfileImage());
+        assertNull(user.getProfileImageVariants());
+    }
+}
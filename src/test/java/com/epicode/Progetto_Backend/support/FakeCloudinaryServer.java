@@ -0,0 +1,59 @@
+package com.epicode.Progetto_Backend.support;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * FakeCloudinaryServer - Server locale che sostituisce l'API di upload di Cloudinary nei test.
+ *
+ * Va configurato come cloudinary.upload-prefix (baseUrl()). Con status 200 risponde con un
+ * secure_url fisso oppure, se non indicato, costruito dal public_id ricevuto
+ * (https://res.cloudinary.com/test/{public_id}); con 400 con l'errore "Invalid image file",
+ * con gli altri status con un errore generico.
+ *
+ * @see com.epicode.Progetto_Backend.support.StubHttpServer
+ */
+public class FakeCloudinaryServer extends StubHttpServer {
+
+    /** Prefisso degli URL costruiti dal public_id */
+    public static final String URL_PREFIX = "https://res.cloudinary.com/test/";
+
+    private static final Pattern PUBLIC_ID = Pattern.compile("name=\"public_id\"\\r\\n(?:[^\\r]*\\r\\n)*?\\r\\n([^\\r]*)");
+
+    /**
+     * Avvia un server che risponde con URL costruiti dal public_id.
+     *
+     * @throws IOException se il server non può essere avviato
+     */
+    public FakeCloudinaryServer() throws IOException {
+        this(null);
+    }
+
+    /**
+     * Avvia un server che risponde sempre con lo stesso URL.
+     *
+     * @param secureUrl URL restituito per ogni upload (null per costruirlo dal public_id)
+     * @throws IOException se il server non può essere avviato
+     */
+    public FakeCloudinaryServer(String secureUrl) throws IOException {
+        super("application/json", (request, status) -> switch (status) {
+            case 200 -> "{\"secure_url\":\"" + (secureUrl != null ? secureUrl : URL_PREFIX + publicId(request)) + "\"}";
+            case 400 -> "{\"error\":{\"message\":\"Invalid image file\"}}";
+            default -> "{\"error\":{\"message\":\"Internal server error\"}}";
+        });
+    }
+
+    /**
+     * @return public_id degli upload ricevuti, in ordine di arrivo
+     */
+    public List<String> getPublicIds() {
+        return getRequests().stream().map(FakeCloudinaryServer::publicId).toList();
+    }
+
+    private static String publicId(RecordedRequest request) {
+        Matcher matcher = PUBLIC_ID.matcher(request.body());
+        return matcher.find() ? matcher.group(1) : "";
+    }
+}
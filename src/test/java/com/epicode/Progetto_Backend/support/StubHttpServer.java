@@ -0,0 +1,152 @@
+package com.epicode.Progetto_Backend.support;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * StubHttpServer - Server HTTP locale che sostituisce un'API esterna nei test.
+ *
+ * Basato su com.sun.net.httpserver e in ascolto su una porta libera di loopback:
+ * - Registra le richieste ricevute (percorso, header Authorization e corpo)
+ * - Risponde con lo status configurato (setStatus) dopo un ritardo opzionale (setDelayMillis),
+ *   con il corpo prodotto dal Responder
+ * - Misura il numero massimo di richieste contemporanee
+ *
+ * Va fermato con stop() al termine di ogni test.
+ *
+ * @see com.epicode.Progetto_Backend.support.FakeCloudinaryServer
+ */
+public class StubHttpServer {
+
+    private final HttpServer server;
+
+    private final String contentType;
+
+    private final Responder responder;
+
+    private final List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger concurrent = new AtomicInteger();
+
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    private volatile int status = 200;
+
+    private volatile long delayMillis;
+
+    /**
+     * Avvia il server.
+     *
+     * @param contentType Content-Type delle risposte (null per non impostarlo)
+     * @param responder Corpo della risposta per richiesta e status
+     * @throws IOException se il server non può essere avviato
+     */
+    public StubHttpServer(String contentType, Responder responder) throws IOException {
+        this.contentType = contentType;
+        this.responder = responder;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return URL del server (es: http://127.0.0.1:54321), senza slash finale
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return Richieste ricevute, in ordine di arrivo
+     */
+    public List<RecordedRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return Numero massimo di richieste in corso contemporaneamente
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent.get();
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+        try {
+            // ISO-8859-1 conserva tutti i byte del corpo, anche quelli binari dei multipart
+            RecordedRequest request = new RecordedRequest(exchange.getRequestURI().getPath(),
+                    exchange.getRequestHeaders().getFirst("Authorization"),
+                    new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.ISO_8859_1));
+            requests.add(request);
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+            int current = status;
+            byte[] response = responder.respond(request, current).getBytes(StandardCharsets.UTF_8);
+            if (contentType != null) {
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+            }
+            exchange.sendResponseHeaders(current, response.length);
+            exchange.getResponseBody().write(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrent.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    /**
+     * Ferma il server e interrompe le richieste ancora in attesa del ritardo.
+     */
+    public void stop() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * Responder - Corpo della risposta a una richiesta, dato lo status configurato.
+     */
+    @FunctionalInterface
+    public interface Responder {
+
+        String respond(RecordedRequest request, int status);
+    }
+
+    /**
+     * Richiesta ricevuta dal server.
+     *
+     * @param path Percorso della richiesta
+     * @param authorization Header Authorization (null se assente)
+     * @param body Corpo della richiesta, un carattere per byte (ISO-8859-1)
+     */
+    public record RecordedRequest(String path, String authorization, String body) {
+
+        /**
+         * @return Corpo application/x-www-form-urlencoded decodificato
+         */
+        public String formBody() {
+            return URLDecoder.decode(body, StandardCharsets.UTF_8);
+        }
+    }
+}
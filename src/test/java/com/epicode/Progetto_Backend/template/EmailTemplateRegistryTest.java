@@ -0,0 +1,132 @@
+package com.epicode.Progetto_Backend.template;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.epicode.Progetto_Backend.config.EmailTemplateProperties;
+import com.epicode.Progetto_Backend.entity.EmailType;
+
+/**
+ * EmailTemplateRegistryTest - Test unitari per la compilazione e il rendering dei template email.
+ *
+ * Verifica la divisione in segmenti dei segnaposto, l'escape HTML dei valori, il caricamento
+ * dei template reali da classpath:templates/email/ con il layout e la scelta della variante
+ * per lingua con ritorno alla lingua predefinita e la composizione dei riepiloghi.
+ *
+ * @see com.epicode.Progetto_Backend.template.EmailTemplateRegistry
+ * @see com.epicode.Progetto_Backend.template.CompiledTemplate
+ */
+class EmailTemplateRegistryTest {
+
+    private EmailTemplateRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new EmailTemplateRegistry(new EmailTemplateProperties());
+        registry.load();
+    }
+
+    @Test
+    @DisplayName("Il template compilato sostituisce i segnaposto e ne elenca le variabili")
+    void testCompileAndRender() {
+        CompiledTemplate template = CompiledTemplate.compile("{{a}} e {{ b }}, ancora {{a}}.", false);
+
+        assertEquals(Set.of("a", "b"), template.variables());
+        assertEquals("1 e <2>, ancora 1.", template.render(Map.of("a", "1", "b", "<2>")));
+    }
+
+    @Test
+    @DisplayName("Nei template HTML i valori vengono sottoposti a escape")
+    void testHtmlEscaping() {
+        CompiledTemplate template = CompiledTemplate.compile("<p>{{nome}}</p>", true);
+        Map<String, String> values = new HashMap<>();
+        values.put("nome", "Rossi & \"Figli\" <s.r.l.>");
+
+        assertEquals("<p>Rossi &amp; &quot;Figli&quot; &lt;s.r.l.&gt;</p>", template.render(values));
+        values.put("nome", null);
+        assertEquals("<p></p>", template.render(values));
+    }
+
+    @Test
+    @DisplayName("Segnaposto non chiusi e variabili mancanti vengono rifiutati")
+    void testInvalidTemplates() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("Ciao {{nome", false));
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("Ciao {{no me}}", false));
+
+        CompiledTemplate template = CompiledTemplate.compile("Ciao {{nome}}", false);
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of()));
+    }
+
+    @Test
+    @DisplayName("Ogni tipo di notifica ha un template completo di layout")
+    void testAllTypesLoaded() {
+        for (EmailType type : EmailType.values()) {
+            if (type == EmailType.GENERIC || type == EmailType.DIGEST) {
+                assertThrows(IllegalArgumentException.class, () -> registry.get(type, null));
+                continue;
+            }
+            EmailTemplate template = registry.get(type, null);
+            assertEquals(Locale.ITALIAN, template.locale());
+            assertFalse(template.body().variables().contains("content"), type.name());
+            assertTrue(template.body().variables().contains("nome"), type.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Il riepilogo compone le sezioni delle notifiche in un solo layout")
+    void testDigest() {
+        Map<String, String> values = Map.of("nome", "Mario Rossi", "indirizzo", "Via Roma 1");
+        EmailTemplate contract = registry.get(EmailType.CONTRACT_CREATED, null);
+
+        RenderedEmail digest = registry.getDigest(Locale.GERMAN).render(List.of(
+                new DigestTemplate.Section(contract, values),
+                new DigestTemplate.Section(contract, values)));
+
+        assertEquals("🔔 Riepilogo: 2 nuove notifiche", digest.subject());
+        assertEquals(1, digest.html().split("<html", -1).length - 1);
+        assertEquals(2, digest.html().split("Nuovo Contratto Registrato</h3>", -1).length - 1);
+        assertTrue(digest.html().contains("Gentile <strong>Mario Rossi</strong>"));
+
+        RenderedEmail english = registry.getDigest(Locale.ENGLISH).render(List.of(
+                new DigestTemplate.Section(registry.get(EmailType.CONTRACT_CREATED, Locale.ENGLISH), values)));
+        assertEquals("🔔 Summary: 1 new notifications", english.subject());
+        assertTrue(english.html().contains("<html lang=\"en\">"));
+    }
+
+    @Test
+    @DisplayName("Sceglie la variante della lingua richiesta o quella predefinita")
+    void testLocaleResolution() {
+        Map<String, String> values = Map.of("nome", "Mario Rossi", "indirizzo", "Via Roma 1");
+
+        RenderedEmail english = registry.get(EmailType.CONTRACT_CREATED, Locale.UK).render(values);
+        assertEquals("📝 New Rental Contract", english.subject());
+        assertTrue(english.html().contains("<html lang=\"en\">"));
+        assertTrue(english.html().contains("<h2 style=\"color: #333; margin-top: 0;\">New Contract Registered</h2>"));
+
+        RenderedEmail fallback = registry.get(EmailType.CONTRACT_CREATED, Locale.GERMAN).render(values);
+        assertEquals("📝 Nuovo Contratto di Affitto", fallback.subject());
+        assertTrue(fallback.html().contains("Gentile <strong>Mario Rossi</strong>"));
+    }
+
+    @Test
+    @DisplayName("Senza lingue aggiuntive vengono caricati solo i template predefiniti")
+    void testDefaultLocaleOnly() {
+        EmailTemplateProperties properties = new EmailTemplateProperties();
+        properties.setLocales(List.of());
+        EmailTemplateRegistry italianOnly = new EmailTemplateRegistry(properties);
+        italianOnly.load();
+
+        assertEquals(Locale.ITALIAN, italianOnly.get(EmailType.WELCOME, Locale.ENGLISH).locale());
+    }
+}
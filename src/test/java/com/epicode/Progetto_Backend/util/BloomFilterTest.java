@@ -0,0 +1,58 @@
+package com.epicode.Progetto_Backend.util;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BloomFilterTest - Test unitari per il filtro di Bloom.
+ *
+ * Verifica l'assenza di falsi negativi e che il tasso di falsi positivi resti vicino
+ * a quello richiesto quando gli inserimenti restano entro la capacità prevista.
+ */
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Gli elementi inseriti sono sempre riconosciuti")
+    void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        String[] values = new String[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = UUID.randomUUID().toString();
+            filter.put(values[i]);
+        }
+
+        for (String value : values) {
+            assertTrue(filter.mightContain(value));
+        }
+    }
+
+    @Test
+    @DisplayName("Il tasso di falsi positivi resta vicino a quello richiesto")
+    void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue((double) falsePositives / probes < 0.02, "Falsi positivi: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Un filtro vuoto non contiene elementi")
+    void testEmptyFilter() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        assertFalse(filter.mightContain("jti"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.epicode.Progetto_Backend.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.epicode.Progetto_Backend.exception.ValidationException;
+
+/**
+ * StagedImageTest - Test unitari per la copia e la validazione in streaming delle immagini.
+ *
+ * Verifica il riconoscimento del formato dai primi byte, lo SHA-256 calcolato durante la
+ * copia, il rifiuto dei file troppo grandi senza leggerli fino in fondo e l'eliminazione del
+ * file temporaneo in caso di errore e alla chiusura.
+ */
+class StagedImageTest {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Copia l'immagine su disco calcolandone dimensione e SHA-256")
+    void testStage() throws Exception {
+        byte[] content = png(100_000);
+
+        Path path;
+        try (StagedImage image = StagedImage.stage(new ByteArrayInputStream(content), 1_000_000, directory)) {
+            path = image.getPath();
+            assertEquals("image/png", image.getContentType());
+            assertEquals(content.length, image.getSize());
+            assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                    image.getSha256());
+            assertArrayEquals(content, Files.readAllBytes(path));
+        }
+
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    @DisplayName("Riconosce JPEG, PNG, GIF e WebP dai primi byte")
+    void testSniff() {
+        assertEquals("image/jpeg", sniff(0xFF, 0xD8, 0xFF, 0xE0));
+        assertEquals("image/png", StagedImage.sniff(PNG_SIGNATURE, PNG_SIGNATURE.length));
+        assertEquals("image/gif", sniff('G', 'I', 'F', '8', '9', 'a'));
+        assertEquals("image/webp", sniff('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'));
+        assertNull(sniff('%', 'P', 'D', 'F', '-'));
+        assertNull(sniff(0xFF, 0xD8));
+    }
+
+    @Test
+    @DisplayName("Rifiuta i formati non supportati senza creare file")
+    void testUnsupportedFormat() {
+        InputStream in = new ByteArrayInputStream("<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes());
+
+        assertThrows(ValidationException.class, () -> StagedImage.stage(in, 1_000_000, directory));
+
+        assertEquals(0, files());
+    }
+
+    @Test
+    @DisplayName("Rifiuta un file troppo grande appena supera il limite")
+    void testSizeLimitMidStream() throws IOException {
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(png(1_000_000)));
+
+        assertThrows(ValidationException.class, () -> StagedImage.stage(in, 64 * 1024, directory));
+
+        assertTrue(in.count < 100 * 1024, "letti " + in.count + " byte");
+        assertEquals(0, files());
+    }
+
+    private static String sniff(int... bytes) {
+        byte[] head = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            head[i] = (byte) bytes[i];
+        }
+        return StagedImage.sniff(head, head.length);
+    }
+
+    private static byte[] png(int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        System.arraycopy(PNG_SIGNATURE, 0, content, 0, PNG_SIGNATURE.length);
+        return content;
+    }
+
+    private long files() {
+        try (var stream = Files.list(directory)) {
+            return stream.count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stream che conta i byte letti.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}